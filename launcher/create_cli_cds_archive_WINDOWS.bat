@@ -0,0 +1,17 @@
+@echo off
+rem Makes a class data sharing archive from one command line randomization, so later "cli" runs load their
+rem classes from it and start faster. Needs Java 13 or newer.
+rem Usage: create_cli_cds_archive_WINDOWS.bat <path to settings file> <path to source ROM>
+if "%~2"=="" (
+    echo Usage: %~nx0 ^<path to settings file^> ^<path to source ROM^>
+    exit /b 1
+)
+set settings=%~f1
+set rom=%~f2
+pushd "%~dp0"
+set out=%TEMP%\upr_cds_training
+mkdir "%out%" 2>nul
+java -XX:ArchiveClassesAtExit=UPR-ZX-cli.jsa -Xmx4608M -jar UPR-ZX-closer-to-vanilla.jar cli -s "%settings%" -i "%rom%" -o "%out%\training" --dry-run
+rmdir /s /q "%out%"
+echo Run the randomizer with java -XX:SharedArchiveFile=UPR-ZX-cli.jsa -Xmx4608M -jar UPR-ZX-closer-to-vanilla.jar cli ...
+popd
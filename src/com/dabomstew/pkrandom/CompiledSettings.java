@@ -0,0 +1,182 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  CompiledSettings.java - settings parsed and updated once, for running  --*/
+/*--                          many randomizations with them.                --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings as the bytes a settings string encodes at the current version, with their checksum checked and, if
+ * they came from an older version, already updated. Settings strings seen before are looked up rather than
+ * decoded and updated again, so running many randomizations with the same preset only pays for that once.
+ * Immutable; toSettings gives each randomization its own Settings to change.
+ * <p>
+ * The binary form is "UPRS", the version and the length of the data as big-endian ints, then the data. Data at
+ * the current version is used as it is, without base64 or the SettingsUpdater.
+ */
+public final class CompiledSettings {
+
+    private static final int MAX_CACHED = 256;
+    private static final byte[] BINARY_MAGIC = { 'U', 'P', 'R', 'S' };
+    private static final int BINARY_HEADER_SIZE = 12;
+
+    private static final Map<String, CompiledSettings> cache = new LinkedHashMap<String, CompiledSettings>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledSettings> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private final byte[] data;
+    private final boolean updatedFromOldVersion;
+    private final int hash;
+
+    private CompiledSettings(byte[] data, boolean updatedFromOldVersion) {
+        // the settings bytes, the length of the ROM name and the two checksums
+        if (data.length < Settings.LENGTH_OF_SETTINGS_DATA + 9) {
+            throw new IllegalArgumentException("Malformed settings");
+        }
+        Settings.checkChecksum(data);
+        this.data = data;
+        this.updatedFromOldVersion = updatedFromOldVersion;
+        this.hash = Arrays.hashCode(data);
+    }
+
+    /**
+     * @param version The randomizer version the settings string was made by.
+     * @param settingsString A settings string, without the version in front.
+     * @throws UnsupportedOperationException if the version is too old to update, or newer than this one.
+     * @throws IllegalArgumentException if the settings string is malformed.
+     */
+    public static CompiledSettings of(int version, String settingsString) {
+        String key = version + ":" + settingsString;
+        CompiledSettings compiled;
+        synchronized (cache) {
+            compiled = cache.get(key);
+        }
+        if (compiled == null) {
+            Settings.checkVersion(version);
+            String updated = version < Settings.VERSION
+                    ? new SettingsUpdater().update(version, settingsString)
+                    : settingsString;
+            compiled = new CompiledSettings(Base64.getDecoder().decode(updated), version < Settings.VERSION);
+            synchronized (cache) {
+                cache.put(key, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles settings as they are now. Not cached, since Settings can change.
+     */
+    public static CompiledSettings of(Settings settings) {
+        return new CompiledSettings(settings.toData(), false);
+    }
+
+    /**
+     * @param encoded Settings in the binary form toBinary gives.
+     * @throws UnsupportedOperationException if the version is too old to update, or newer than this one.
+     * @throws IllegalArgumentException if the input is not settings in the binary form, or is malformed.
+     */
+    public static CompiledSettings fromBinary(byte[] encoded) {
+        if (encoded.length < BINARY_HEADER_SIZE
+                || !Arrays.equals(Arrays.copyOf(encoded, BINARY_MAGIC.length), BINARY_MAGIC)) {
+            throw new IllegalArgumentException("Not a binary settings encoding");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(encoded);
+        buf.position(BINARY_MAGIC.length);
+        int version = buf.getInt();
+        int length = buf.getInt();
+        if (length < 0 || length != encoded.length - BINARY_HEADER_SIZE) {
+            throw new IllegalArgumentException("Malformed binary settings");
+        }
+        byte[] data = Arrays.copyOfRange(encoded, BINARY_HEADER_SIZE, encoded.length);
+        if (version == Settings.VERSION) {
+            return new CompiledSettings(data, false);
+        }
+        // the updater only works on settings strings
+        return of(version, Base64.getEncoder().encodeToString(data));
+    }
+
+    /**
+     * @return The settings in a form fromBinary reads, always at the current version.
+     */
+    public byte[] toBinary() {
+        ByteBuffer buf = ByteBuffer.allocate(BINARY_HEADER_SIZE + data.length);
+        buf.put(BINARY_MAGIC);
+        buf.putInt(Settings.VERSION);
+        buf.putInt(data.length);
+        buf.put(data);
+        return buf.array();
+    }
+
+    /**
+     * @return A new Settings with these settings, for one randomization to use and change. Custom names are
+     * not part of the settings, and need setting as usual.
+     */
+    public Settings toSettings() {
+        try {
+            Settings settings = Settings.fromData(data);
+            settings.setUpdatedFromOldVersion(updatedFromOldVersion);
+            return settings;
+        } catch (UnsupportedEncodingException e) {
+            // US-ASCII is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The settings string for these settings, without the version in front.
+     */
+    public String toSettingsString() {
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    public boolean isUpdatedFromOldVersion() {
+        return updatedFromOldVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompiledSettings)) {
+            return false;
+        }
+        CompiledSettings other = (CompiledSettings) o;
+        return hash == other.hash && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,232 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  DistributionAnalysis.java - counts what the randomizer places over    --*/
+/*--                              many seeds of the same settings.          --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.pokemon.*;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Randomizes a ROM with many seeds of the same settings, without saving, and counts what ends up where:
+ * which species and types trainers and wild encounters use, their base stat totals and evolution stages,
+ * and which items are held and found.
+ * For tuning settings by their statistics, without going through spoiler logs.
+ */
+public class DistributionAnalysis {
+
+    public static final String TRAINER_SPECIES = "Trainer species";
+    public static final String TRAINER_TYPES = "Trainer types";
+    public static final String TRAINER_BST = "Trainer BST";
+    public static final String TRAINER_STAGES = "Trainer evolution stage";
+    public static final String TRAINER_HELD_ITEMS = "Trainer held items";
+    public static final String WILD_SPECIES = "Wild species";
+    public static final String WILD_TYPES = "Wild types";
+    public static final String WILD_BST = "Wild BST";
+    public static final String WILD_STAGES = "Wild evolution stage";
+    public static final String STARTERS = "Starters";
+    public static final String FIELD_ITEMS = "Field items";
+
+    private static final int BST_BUCKET_SIZE = 50;
+
+    /**
+     * The counts from a number of seeds.
+     */
+    public static class Result {
+        private final Map<String, Map<String, Long>> histograms = new TreeMap<>();
+        private int seeds;
+        private int failedSeeds;
+
+        /**
+         * @return The number of seeds which randomized successfully, and were counted.
+         */
+        public int getSeeds() {
+            return seeds;
+        }
+
+        /**
+         * @return The number of seeds which failed with a RandomizationException, and were left out.
+         */
+        public int getFailedSeeds() {
+            return failedSeeds;
+        }
+
+        /**
+         * @return The counts of each histogram, by histogram name and then by key.
+         */
+        public Map<String, Map<String, Long>> getHistograms() {
+            return Collections.unmodifiableMap(histograms);
+        }
+
+        private void add(String histogram, String key) {
+            histograms.computeIfAbsent(histogram, k -> new TreeMap<>()).merge(key, 1L, Long::sum);
+        }
+
+        private void merge(Result other) {
+            seeds += other.seeds;
+            failedSeeds += other.failedSeeds;
+            for (Map.Entry<String, Map<String, Long>> histogram : other.histograms.entrySet()) {
+                Map<String, Long> counts = histograms.computeIfAbsent(histogram.getKey(), k -> new TreeMap<>());
+                histogram.getValue().forEach((key, count) -> counts.merge(key, count, Long::sum));
+            }
+        }
+
+        /**
+         * Writes every count as CSV, with its total over all seeds and its average per seed.
+         */
+        public void writeCsv(Writer out) throws IOException {
+            out.write("histogram,key,total,per_seed\n");
+            for (Map.Entry<String, Map<String, Long>> histogram : histograms.entrySet()) {
+                for (Map.Entry<String, Long> count : histogram.getValue().entrySet()) {
+                    out.write(String.format(Locale.ROOT, "\"%s\",\"%s\",%d,%.4f\n",
+                            histogram.getKey().replace("\"", "\"\""), count.getKey().replace("\"", "\"\""),
+                            count.getValue(), seeds == 0 ? 0.0 : (double) count.getValue() / seeds));
+                }
+            }
+        }
+    }
+
+    private final DryRuns dryRuns;
+    private final boolean useTimeBasedEncounters;
+
+    /**
+     * @param factory The factory for the handler of the source ROM.
+     * @param sourceRom The ROM to randomize.
+     * @param settings The settings to randomize with. Not changed by the analysis.
+     * @param bundle The resource bundle for the Randomizer's messages.
+     */
+    public DistributionAnalysis(RomHandler.Factory factory, File sourceRom, Settings settings,
+                                ResourceBundle bundle) {
+        this.dryRuns = new DryRuns(factory, sourceRom, settings, bundle);
+        // the same choice the Randomizer makes
+        this.useTimeBasedEncounters = settings.isUseTimeBasedEncounters() ||
+                (settings.getWildPokemonMod() == Settings.WildPokemonMod.UNCHANGED && settings.isWildLevelsModified());
+    }
+
+    /**
+     * Randomizes with the seeds firstSeed, firstSeed + 1, ... and counts the results.
+     * The counts only depend on the seeds, not on the number of threads.
+     * @param firstSeed The first seed.
+     * @param seedCount The number of seeds.
+     * @param threads The number of seeds to randomize at once.
+     * @throws IOException if the source ROM could not be set up for the worker threads.
+     * @throws ExecutionException if randomizing any seed failed for any reason other than a
+     * RandomizationException.
+     */
+    public Result analyze(long firstSeed, int seedCount, int threads)
+            throws IOException, ExecutionException, InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed.");
+        }
+
+        // each thread counts on its own, and the counts are only added up at the end
+        List<Result> partials = new ArrayList<>();
+        List<DryRuns.Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Result partial = new Result();
+            partials.add(partial);
+            workers.add((seed, romHandler) -> {
+                if (romHandler == null) {
+                    partial.failedSeeds++;
+                } else {
+                    partial.seeds++;
+                    count(romHandler, partial);
+                }
+                return true;
+            });
+        }
+        AtomicInteger next = new AtomicInteger(0);
+        dryRuns.run(workers, () -> {
+            int index = next.getAndIncrement();
+            return index < seedCount ? firstSeed + index : null;
+        });
+
+        Result result = new Result();
+        for (Result partial : partials) {
+            result.merge(partial);
+        }
+        return result;
+    }
+
+    private void count(RomHandler romHandler, Result result) {
+        String[] itemNames = romHandler.getItemNames();
+
+        for (Trainer tr : romHandler.getTrainers()) {
+            for (TrainerPokemon tp : tr.pokemon) {
+                countPokemon(tp.pokemon, result, TRAINER_SPECIES, TRAINER_TYPES, TRAINER_BST, TRAINER_STAGES);
+                if (tp.heldItem > 0) {
+                    result.add(TRAINER_HELD_ITEMS, itemName(itemNames, tp.heldItem));
+                }
+            }
+        }
+
+        for (EncounterSet es : romHandler.getEncounters(useTimeBasedEncounters)) {
+            for (Encounter enc : es.encounters) {
+                countPokemon(enc.pokemon, result, WILD_SPECIES, WILD_TYPES, WILD_BST, WILD_STAGES);
+            }
+        }
+
+        for (Pokemon starter : romHandler.getStarters()) {
+            result.add(STARTERS, starter.fullName());
+        }
+
+        for (int item : romHandler.getRegularFieldItems()) {
+            result.add(FIELD_ITEMS, itemName(itemNames, item));
+        }
+    }
+
+    private void countPokemon(Pokemon pk, Result result, String species, String types, String bst, String stages) {
+        if (pk == null) {
+            return;
+        }
+        result.add(species, pk.fullName());
+        result.add(types, pk.primaryType.toString());
+        if (pk.secondaryType != null) {
+            result.add(types, pk.secondaryType.toString());
+        }
+        int bucket = pk.bstForPowerLevels() / BST_BUCKET_SIZE * BST_BUCKET_SIZE;
+        result.add(bst, String.format("%03d-%03d", bucket, bucket + BST_BUCKET_SIZE - 1));
+        result.add(stages, Integer.toString(evolutionStage(pk)));
+    }
+
+    private static int evolutionStage(Pokemon pk) {
+        int stage = 1;
+        // no line is longer than three, and this keeps any odd loop in the evolution data from hanging
+        while (!pk.evolutionsTo.isEmpty() && stage < 3) {
+            pk = pk.evolutionsTo.get(0).from;
+            stage++;
+        }
+        return stage;
+    }
+
+    private static String itemName(String[] itemNames, int item) {
+        return item < itemNames.length && itemNames[item] != null ? itemNames[item] : "Item " + item;
+    }
+}
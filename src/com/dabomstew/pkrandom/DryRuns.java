@@ -0,0 +1,219 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  DryRuns.java - randomizes one ROM with many seeds, without saving,    --*/
+/*--                 on several threads at once.                            --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.exceptions.RandomizationException;
+import com.dabomstew.pkrandom.romhandlers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs dry-run randomizations of one ROM with one set of settings, on a number of worker threads,
+ * for searching and analysing seeds. Also has the helpers anything else that randomizes ROMs on several
+ * threads at once needs.
+ */
+public class DryRuns {
+
+    /**
+     * The work of one thread. Called with a randomized handler for every seed the thread is given.
+     */
+    interface Worker {
+        /**
+         * @param seed The seed the handler was randomized with.
+         * @param romHandler The randomized handler, or null if the seed failed with a RandomizationException.
+         * @return Whether to keep going; false stops this thread.
+         */
+        boolean accept(long seed, RomHandler romHandler);
+    }
+
+    /**
+     * Gives out seeds to the worker threads.
+     */
+    interface SeedSource {
+        /**
+         * @return The next seed to randomize, or null if there are no more.
+         */
+        Long next();
+    }
+
+    private final RomHandler.Factory factory;
+    private final File sourceRom;
+    private final Settings settings;
+    private final CompiledSettings compiledSettings;
+    private final ResourceBundle bundle;
+
+    DryRuns(RomHandler.Factory factory, File sourceRom, Settings settings, ResourceBundle bundle) {
+        this.factory = factory;
+        this.sourceRom = sourceRom;
+        this.settings = settings;
+        this.compiledSettings = CompiledSettings.of(settings);
+        this.bundle = bundle;
+    }
+
+    /**
+     * Runs the given workers, one per thread, until they stop or the seeds run out.
+     * @param workers The workers; their number is the number of threads.
+     * @param seeds The seeds to randomize. Must be thread safe.
+     * @throws IOException if the source ROM could not be set up for the threads.
+     * @throws ExecutionException if a randomization failed with anything but a RandomizationException.
+     */
+    void run(List<Worker> workers, SeedSource seeds) throws IOException, ExecutionException, InterruptedException {
+        // the DS and 3DS handlers unpack files into a folder named after the ROM file, so each thread needs
+        // the ROM under its own name to not overwrite the others' files
+        Path workDir = Files.createTempDirectory("uprdryrun");
+        List<File> romCopies = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                romCopies.add(linkRom(sourceRom, workDir, i));
+            }
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < workers.size(); i++) {
+                Worker worker = workers.get(i);
+                File romCopy = romCopies.get(i);
+                futures.add(executor.submit(() -> {
+                    Long seed;
+                    while ((seed = seeds.next()) != null) {
+                        if (!randomizeAndAccept(romCopy, seed, worker)) {
+                            break;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            for (File romCopy : romCopies) {
+                romCopy.delete();
+            }
+            workDir.toFile().delete();
+        }
+    }
+
+    /**
+     * Finds the handler for a ROM.
+     * @param rom The ROM file.
+     * @return The factory of the handler which can load the ROM, or null if none can.
+     */
+    public static RomHandler.Factory findFactory(File rom) {
+        RomHandler.Factory[] checkHandlers = new RomHandler.Factory[] {
+                new Gen1RomHandler.Factory(),
+                new Gen2RomHandler.Factory(),
+                new Gen3RomHandler.Factory(),
+                new Gen4RomHandler.Factory(),
+                new Gen5RomHandler.Factory(),
+                new Gen6RomHandler.Factory(),
+                new Gen7RomHandler.Factory()
+        };
+        for (RomHandler.Factory rhf : checkHandlers) {
+            if (rhf.isLoadable(rom.getAbsolutePath())) {
+                return rhf;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hard links (or, failing that, copies) a ROM into a work directory, under a name no other link made by any
+     * process shares, for a thread to load it from. The DS and 3DS handlers unpack files into a folder named
+     * after the ROM file alone, wherever it is, so threads loading the same file would overwrite each other's.
+     * @param sourceRom The ROM.
+     * @param workDir A directory made with Files.createTempDirectory, whose name is part of the link's.
+     * @param index A number no other link in the work directory has.
+     * @return The link.
+     */
+    public static File linkRom(File sourceRom, Path workDir, int index) throws IOException {
+        String name = sourceRom.getName();
+        String suffix = "_" + workDir.getFileName() + "_" + index;
+        int dot = name.lastIndexOf('.');
+        String linkName = dot < 0 ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot);
+        Path link = workDir.resolve(linkName);
+        try {
+            Files.createLink(link, sourceRom.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            // e.g. the temp directory is on another drive
+            Files.copy(sourceRom.toPath(), link);
+        }
+        return link.toFile();
+    }
+
+    private boolean randomizeAndAccept(File rom, long seed, Worker worker) throws IOException {
+        Settings runSettings = compiledSettings.toSettings();
+        runSettings.setCustomNames(settings.getCustomNames());
+
+        RomHandler romHandler = factory.create(RandomSource.instance());
+        romHandler.loadRom(rom.getAbsolutePath());
+        try {
+            runSettings.tweakForRom(romHandler);
+            Randomizer randomizer = new Randomizer(runSettings, romHandler, bundle, false);
+            randomizer.setDryRun(true);
+            try {
+                randomizer.randomize(rom.getAbsolutePath(), nullLog(), seed);
+            } catch (RandomizationException e) {
+                return worker.accept(seed, null);
+            }
+            return worker.accept(seed, romHandler);
+        } finally {
+            closeRom(romHandler);
+        }
+    }
+
+    /**
+     * Closes the ROM file a DS or 3DS handler keeps open; does nothing for other handlers.
+     */
+    public static void closeRom(RomHandler romHandler) throws IOException {
+        if (romHandler instanceof AbstractDSRomHandler) {
+            ((AbstractDSRomHandler) romHandler).closeInnerRom();
+        } else if (romHandler instanceof Abstract3DSRomHandler) {
+            ((Abstract3DSRomHandler) romHandler).closeInnerRom();
+        }
+    }
+
+    /**
+     * @return A log that throws away everything written to it.
+     */
+    public static PrintStream nullLog() {
+        return new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+    }
+}
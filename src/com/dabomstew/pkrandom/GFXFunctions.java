@@ -28,8 +28,7 @@ package com.dabomstew.pkrandom;
 /*----------------------------------------------------------------------------*/
 
 import java.awt.image.BufferedImage;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.awt.image.DataBufferInt;
 
 public class GFXFunctions {
 
@@ -56,17 +55,19 @@ public class GFXFunctions {
         int widthInTiles = width / tileWidth;
 
         BufferedImage bim = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = getPixels(bim);
 
         for (int tile = 0; tile < numTiles; tile++) {
             int tileX = tile % widthInTiles;
             int tileY = tile / widthInTiles;
             for (int yT = 0; yT < tileHeight; yT++) {
+                int rowStart = (tileY * tileHeight + yT) * width + tileX * tileWidth;
                 for (int xT = 0; xT < tileWidth; xT++) {
                     int value = data[tile * bytesPerTile + yT * tileWidth / pixelsPerByte + xT / pixelsPerByte + offset] & 0xFF;
                     if (pixelsPerByte != 1) {
                         value = (value >>> (xT % pixelsPerByte) * bpp) & ((1 << bpp) - 1);
                     }
-                    bim.setRGB(tileX * tileWidth + xT, tileY * tileHeight + yT, palette[value]);
+                    pixels[rowStart + xT] = palette[value];
                 }
             }
         }
@@ -93,6 +94,7 @@ public class GFXFunctions {
         int widthInTiles = width / tileWidth;
 
         BufferedImage bim = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = getPixels(bim);
 
         for (int tile = 0; tile < numTiles; tile++) {
             int tileX = tile % widthInTiles;
@@ -111,7 +113,7 @@ public class GFXFunctions {
                     int subY = (withinTile & 0b000010) >>> 1 |
                             (withinTile & 0b001000) >>> 2 |
                             (withinTile & 0b100000) >>> 3;
-                    bim.setRGB(tileX * tileWidth + subX, tileY * tileHeight + subY, palette[value]);
+                    pixels[(tileY * tileHeight + subY) * width + tileX * tileWidth + subX] = palette[value];
                 }
             }
         }
@@ -134,41 +136,79 @@ public class GFXFunctions {
         return (alpha << 24) | (red << 16) | (green << 8) | blue;
     }
 
+    /**
+     * The pixels of an image made with TYPE_INT_ARGB, one ARGB int per pixel, row by row. Writing to the array
+     * draws straight into the image.
+     */
+    public static int[] getPixels(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Copies an image made with TYPE_INT_ARGB.
+     */
+    public static BufferedImage copyImage(BufferedImage img) {
+        BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = getPixels(img);
+        System.arraycopy(pixels, 0, getPixels(copy), 0, pixels.length);
+        return copy;
+    }
+
+    /**
+     * Copies a rectangle of pixels between images made with TYPE_INT_ARGB, replacing what was there, which for
+     * pixels that are either opaque or fully transparent is the same as drawing it.
+     */
+    public static void copyPixels(BufferedImage src, int srcX, int srcY, BufferedImage dst, int dstX, int dstY,
+                                  int width, int height) {
+        int[] srcPixels = getPixels(src);
+        int[] dstPixels = getPixels(dst);
+        int srcWidth = src.getWidth();
+        int dstWidth = dst.getWidth();
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(srcPixels, (srcY + y) * srcWidth + srcX, dstPixels, (dstY + y) * dstWidth + dstX, width);
+        }
+    }
+
+    // makes every pixel of transColor that is connected to the edge of the image transparent
     public static void pseudoTransparency(BufferedImage img, int transColor) {
         int width = img.getWidth();
         int height = img.getHeight();
-        Queue<Integer> visitPixels = new LinkedList<>();
-        boolean[][] queued = new boolean[width][height];
+        int[] pixels = getPixels(img);
+        // every pixel is queued at most once, so the queue never needs more room than there are pixels
+        int[] visitPixels = new int[width * height];
+        boolean[] queued = new boolean[width * height];
+        int queueEnd = 0;
 
         for (int x = 0; x < width; x++) {
-            queuePixel(x, 0, width, height, visitPixels, queued);
-            queuePixel(x, height - 1, width, height, visitPixels, queued);
+            queueEnd = queuePixel(x, 0, width, height, visitPixels, queueEnd, queued);
+            queueEnd = queuePixel(x, height - 1, width, height, visitPixels, queueEnd, queued);
         }
 
         for (int y = 0; y < height; y++) {
-            queuePixel(0, y, width, height, visitPixels, queued);
-            queuePixel(width - 1, y, width, height, visitPixels, queued);
+            queueEnd = queuePixel(0, y, width, height, visitPixels, queueEnd, queued);
+            queueEnd = queuePixel(width - 1, y, width, height, visitPixels, queueEnd, queued);
         }
 
-        while (!visitPixels.isEmpty()) {
-            int nextPixel = visitPixels.poll();
+        for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+            int nextPixel = visitPixels[queueStart];
             int x = nextPixel % width;
             int y = nextPixel / width;
-            if (img.getRGB(x, y) == transColor) {
-                img.setRGB(x, y, 0);
-                queuePixel(x - 1, y, width, height, visitPixels, queued);
-                queuePixel(x + 1, y, width, height, visitPixels, queued);
-                queuePixel(x, y - 1, width, height, visitPixels, queued);
-                queuePixel(x, y + 1, width, height, visitPixels, queued);
+            if (pixels[nextPixel] == transColor) {
+                pixels[nextPixel] = 0;
+                queueEnd = queuePixel(x - 1, y, width, height, visitPixels, queueEnd, queued);
+                queueEnd = queuePixel(x + 1, y, width, height, visitPixels, queueEnd, queued);
+                queueEnd = queuePixel(x, y - 1, width, height, visitPixels, queueEnd, queued);
+                queueEnd = queuePixel(x, y + 1, width, height, visitPixels, queueEnd, queued);
             }
         }
     }
 
-    private static void queuePixel(int x, int y, int width, int height, Queue<Integer> queue, boolean[][] queued) {
-        if (x >= 0 && x < width && y >= 0 && y < height && !queued[x][y]) {
-            queue.add((y) * width + (x));
-            queued[x][y] = true;
+    private static int queuePixel(int x, int y, int width, int height, int[] queue, int queueEnd, boolean[] queued) {
+        if (x >= 0 && x < width && y >= 0 && y < height && !queued[y * width + x]) {
+            queue[queueEnd++] = y * width + x;
+            queued[y * width + x] = true;
         }
+        return queueEnd;
     }
 
 }
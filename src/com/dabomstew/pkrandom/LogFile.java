@@ -0,0 +1,118 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  LogFile.java - streams a randomization log to disk as it is written.  --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A randomization log which goes straight to a file through a buffer as the Randomizer writes it, optionally
+ * gzipped, rather than being held in memory until the end.
+ * Written as UTF-8 with a BOM, like the logs always have been.
+ */
+public class LogFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final PrintStream stream;
+
+    /**
+     * @param file The file to write the log to. Overwritten if it exists.
+     * @param compressed Whether to gzip the log.
+     */
+    public LogFile(File file, boolean compressed) throws IOException {
+        this.file = file;
+        OutputStream out = new FileOutputStream(file);
+        try {
+            if (compressed) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            out = new BufferedOutputStream(out, BUFFER_SIZE);
+            out.write(0xEF);
+            out.write(0xBB);
+            out.write(0xBF);
+            this.stream = new PrintStream(out, false, "UTF-8");
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Makes a log in a temporary file, for when it is only decided after randomizing whether to keep the log.
+     * Use moveTo to keep it, and delete otherwise.
+     */
+    public static LogFile temporary(boolean compressed) throws IOException {
+        File file = File.createTempFile("uprlog", compressed ? ".log.gz" : ".log");
+        file.deleteOnExit();
+        return new LogFile(file, compressed);
+    }
+
+    /**
+     * @param romFilename The path the randomized ROM is saved to.
+     * @param compressed Whether the log is gzipped.
+     * @return The path the log for the ROM goes to.
+     */
+    public static File fileFor(String romFilename, boolean compressed) {
+        return new File(romFilename + (compressed ? ".log.gz" : ".log"));
+    }
+
+    /**
+     * @return The stream to pass to the Randomizer.
+     */
+    public PrintStream getStream() {
+        return stream;
+    }
+
+    /**
+     * Finishes the log. Can be called more than once.
+     * @throws IOException if any part of the log could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        stream.close();
+        if (stream.checkError()) {
+            throw new IOException("Could not write log to " + file);
+        }
+    }
+
+    /**
+     * Finishes the log and moves it to where it should be kept, replacing anything already there.
+     */
+    public void moveTo(File destination) throws IOException {
+        close();
+        Files.move(file.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Throws the log away.
+     */
+    public void delete() {
+        stream.close();
+        file.delete();
+    }
+}
@@ -0,0 +1,182 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  PatchFunctions.java - creates IPS and BPS patches between two ROM     --*/
+/*--                        images.                                         --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.ByteArrayOutputStream;
+
+public class PatchFunctions {
+
+    public enum Format {
+        IPS("ips"), BPS("bps");
+
+        public final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    // IPS offsets are 3 bytes, and one of them spells "EOF"
+    private static final int IPS_MAX_OFFSET = 0x1000000;
+    private static final int IPS_EOF = 0x454F46;
+    private static final int IPS_MAX_RECORD_SIZE = 0xFFFF;
+    // a new record costs 5 bytes, so a shorter run of unchanged bytes is cheaper to repeat than to skip
+    private static final int IPS_RECORD_OVERHEAD = 5;
+
+    // a source read costs one or two bytes, and so does starting a new target read after it
+    private static final int BPS_MIN_SOURCE_READ = 4;
+    private static final int BPS_SOURCE_READ = 0;
+    private static final int BPS_TARGET_READ = 1;
+
+    public static byte[] createPatch(Format format, byte[] original, byte[] modified) {
+        return format == Format.IPS ? createIPS(original, modified) : createBPS(original, modified);
+    }
+
+    /**
+     * Creates an IPS patch which turns original into modified, readable by FileFunctions.applyPatch and any
+     * common patcher. Uses the truncation extension if modified is shorter.
+     * @throws IllegalArgumentException if a change is past the 16MB an IPS patch can reach.
+     */
+    public static byte[] createIPS(byte[] original, byte[] modified) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('P');
+        out.write('A');
+        out.write('T');
+        out.write('C');
+        out.write('H');
+
+        int offset = 0;
+        while ((offset = nextDifference(original, modified, offset)) < modified.length) {
+            int start = offset;
+            if (start == IPS_EOF) {
+                // start a byte early, so the offset is not read as the end of the patch
+                start--;
+            }
+            if (start >= IPS_MAX_OFFSET) {
+                throw new IllegalArgumentException("ROM changes past 16MB can not be stored in an IPS patch");
+            }
+            int end = Math.min(nextMatch(original, modified, offset, IPS_RECORD_OVERHEAD),
+                    start + IPS_MAX_RECORD_SIZE);
+            writeBigEndian(out, start, 3);
+            writeBigEndian(out, end - start, 2);
+            out.write(modified, start, end - start);
+            offset = end;
+        }
+
+        writeBigEndian(out, IPS_EOF, 3);
+        if (modified.length < original.length) {
+            writeBigEndian(out, modified.length, 3);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a BPS patch which turns original into modified. Unchanged bytes are copied from the same place in
+     * the original, and everything else is stored in the patch, which for a randomized ROM is nearly as small
+     * as a full BPS diff, and much faster to make.
+     */
+    public static byte[] createBPS(byte[] original, byte[] modified) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('B');
+        out.write('P');
+        out.write('S');
+        out.write('1');
+        writeBPSNumber(out, original.length);
+        writeBPSNumber(out, modified.length);
+        // no metadata
+        writeBPSNumber(out, 0);
+
+        int offset = 0;
+        while (offset < modified.length) {
+            int difference = nextDifference(original, modified, offset);
+            if (difference - offset >= BPS_MIN_SOURCE_READ || difference == modified.length) {
+                writeBPSNumber(out, ((long) (difference - offset - 1) << 2) | BPS_SOURCE_READ);
+                offset = difference;
+            } else {
+                int end = nextMatch(original, modified, offset, BPS_MIN_SOURCE_READ);
+                writeBPSNumber(out, ((long) (end - offset - 1) << 2) | BPS_TARGET_READ);
+                out.write(modified, offset, end - offset);
+                offset = end;
+            }
+        }
+
+        writeLittleEndianCRC(out, FileFunctions.getCRC32(original));
+        writeLittleEndianCRC(out, FileFunctions.getCRC32(modified));
+        writeLittleEndianCRC(out, FileFunctions.getCRC32(out.toByteArray()));
+        return out.toByteArray();
+    }
+
+    // the first offset from "from" where modified differs from original, or is past its end
+    private static int nextDifference(byte[] original, byte[] modified, int from) {
+        int end = Math.min(original.length, modified.length);
+        int i = from;
+        while (i < end && original[i] == modified[i]) {
+            i++;
+        }
+        return i < end ? i : Math.max(end, from);
+    }
+
+    // the first offset from "from" which starts a run of at least minRun unchanged bytes, or the end of modified
+    private static int nextMatch(byte[] original, byte[] modified, int from, int minRun) {
+        int run = 0;
+        for (int i = from; i < modified.length; i++) {
+            if (i < original.length && original[i] == modified[i]) {
+                run++;
+                if (run == minRun) {
+                    return i - minRun + 1;
+                }
+            } else {
+                run = 0;
+            }
+        }
+        // a short unchanged run at the very end doesn't need storing
+        return modified.length - run;
+    }
+
+    private static void writeBigEndian(ByteArrayOutputStream out, int value, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            out.write((value >> (i * 8)) & 0xFF);
+        }
+    }
+
+    private static void writeLittleEndianCRC(ByteArrayOutputStream out, long crc) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (crc >> (i * 8)) & 0xFF);
+        }
+    }
+
+    private static void writeBPSNumber(ByteArrayOutputStream out, long value) {
+        while (true) {
+            int x = (int) (value & 0x7F);
+            value >>= 7;
+            if (value == 0) {
+                out.write(0x80 | x);
+                break;
+            }
+            out.write(x);
+            value--;
+        }
+    }
+}
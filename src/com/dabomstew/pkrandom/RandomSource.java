@@ -29,77 +29,91 @@ package com.dabomstew.pkrandom;
 import java.security.SecureRandom;
 import java.util.Random;
 
+// The random state is kept per thread, so that several randomizations can run at once (e.g. when searching
+// for seeds), each seeded on its own thread. A single randomization must stay on the thread that seeded it.
 public class RandomSource {
 
-    private static Random source = new Random();
-    private static Random cosmeticSource = new Random();
-    private static int calls = 0;
-    private static int cosmeticCalls = 0;
+    private static class State {
+        private Random source = new Random();
+        private Random cosmeticSource = new Random();
+        private int calls = 0;
+        private int cosmeticCalls = 0;
+    }
+
+    private static final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
     private static Random instance = new RandomSourceInstance();
     private static Random cosmeticInstance = new CosmeticRandomSourceInstance();
 
     public static void reset() {
-        source = new Random();
-        cosmeticSource = new Random();
-        calls = 0;
-        cosmeticCalls = 0;
+        state.set(new State());
     }
 
     public static void seed(long seed) {
-        source.setSeed(seed);
-        cosmeticSource.setSeed(seed);
-        calls = 0;
-        cosmeticCalls = 0;
+        State st = state.get();
+        st.source.setSeed(seed);
+        st.cosmeticSource.setSeed(seed);
+        st.calls = 0;
+        st.cosmeticCalls = 0;
     }
 
     public static double random() {
-        calls++;
-        return source.nextDouble();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextDouble();
     }
 
     public static int nextInt(int size) {
-        calls++;
-        return source.nextInt(size);
+        State st = state.get();
+        st.calls++;
+        return st.source.nextInt(size);
     }
 
     public static int nextIntCosmetic(int size) {
-        cosmeticCalls++;
-        return cosmeticSource.nextInt(size);
+        State st = state.get();
+        st.cosmeticCalls++;
+        return st.cosmeticSource.nextInt(size);
     }
 
     public static void nextBytes(byte[] bytes) {
-        calls++;
-        source.nextBytes(bytes);
+        State st = state.get();
+        st.calls++;
+        st.source.nextBytes(bytes);
     }
 
     public static int nextInt() {
-        calls++;
-        return source.nextInt();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextInt();
     }
 
     public static long nextLong() {
-        calls++;
-        return source.nextLong();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextLong();
     }
 
     public static boolean nextBoolean() {
-        calls++;
-        return source.nextBoolean();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextBoolean();
     }
 
     public static float nextFloat() {
-        calls++;
-        return source.nextFloat();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextFloat();
     }
 
     public static double nextDouble() {
-        calls++;
-        return source.nextDouble();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextDouble();
     }
 
     public static synchronized double nextGaussian() {
-        calls++;
-        return source.nextGaussian();
+        State st = state.get();
+        st.calls++;
+        return st.source.nextGaussian();
     }
 
     public static long pickSeed() {
@@ -120,7 +134,8 @@ public class RandomSource {
     }
 
     public static int callsSinceSeed() {
-        return calls + cosmeticCalls;
+        State st = state.get();
+        return st.calls + st.cosmeticCalls;
     }
 
     private static class RandomSourceInstance extends Random {
@@ -42,6 +42,10 @@ public class Randomizer {
     private final RomHandler romHandler;
     private final ResourceBundle bundle;
     private final boolean saveAsDirectory;
+    private StageTimings stageTimings = new StageTimings();
+    private boolean dryRun;
+    private SpoilerRecords spoilerRecords;
+    private PatchFunctions.Format patchFormat;
 
     public Randomizer(Settings settings, RomHandler romHandler, ResourceBundle bundle, boolean saveAsDirectory) {
         this.settings = settings;
@@ -50,6 +54,31 @@ public class Randomizer {
         this.saveAsDirectory = saveAsDirectory;
     }
 
+    /**
+     * Sets whether to skip saving the ROM. Every stage still runs, and the log and check value are the
+     * same as in a normal run, but nothing is written to the output file and the ROM is never rebuilt
+     * or recompressed.
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Sets where to write the results as JSON Lines, alongside the text log. Each section is written at the
+     * same point as in the text log. Null, the default, writes none.
+     */
+    public void setSpoilerRecords(SpoilerRecords spoilerRecords) {
+        this.spoilerRecords = spoilerRecords;
+    }
+
+    /**
+     * Sets whether to save a patch against the loaded ROM to the output file, in the given format, instead of
+     * the whole randomized ROM. Null, the default, saves the ROM. Only for handlers which canSaveRomPatch().
+     */
+    public void setPatchFormat(PatchFunctions.Format patchFormat) {
+        this.patchFormat = patchFormat;
+    }
+
     public int randomize(final String filename) {
         return randomize(filename, new PrintStream(new OutputStream() {
             @Override
@@ -68,6 +97,7 @@ public class Randomizer {
 
         final long startTime = System.currentTimeMillis();
         RandomSource.seed(seed);
+        stageTimings = new StageTimings();
 
         int checkValue = 0;
 
@@ -75,6 +105,9 @@ public class Randomizer {
         log.println("Random Seed: " + seed);
         log.println("Settings String: " + Version.VERSION + settings.toString());
         log.println();
+        if (spoilerRecords != null) {
+            spoilerRecords.writeHeader(romHandler, seed, Version.VERSION + settings.toString());
+        }
 
         // All possible changes that can be logged
         boolean movesUpdated = false;
@@ -98,6 +131,7 @@ public class Randomizer {
         // Limit Pokemon
         // 1. Set Pokemon pool according to limits (or lack thereof)
         // 2. If limited, remove evolutions that are outside of the pool
+        stageTimings.start("Pokemon pool");
 
         romHandler.setPokemonPool(settings);
 
@@ -108,6 +142,7 @@ public class Randomizer {
         // Move updates & data changes
         // 1. Update moves to a future generation
         // 2. Randomize move stats
+        stageTimings.start("Move data");
 
         if (settings.isUpdateMoves()) {
             romHandler.initMoveUpdates();
@@ -145,11 +180,13 @@ public class Randomizer {
         }
 
         // Misc Tweaks
+        stageTimings.start("Misc tweaks");
         if (settings.getCurrentMiscTweaks() != MiscTweak.NO_MISC_TWEAKS) {
             romHandler.applyMiscTweaks(settings);
         }
 
         // Update base stats to a future generation
+        stageTimings.start("Base stat updates");
         if (settings.isUpdateBaseStats()) {
             romHandler.updatePokemonStats(settings);
             pokemonTraitsChanged = true;
@@ -161,12 +198,14 @@ public class Randomizer {
         }
 
         // Pokemon Types
+        stageTimings.start("Types");
         if (settings.getTypesMod() != Settings.TypesMod.UNCHANGED) {
             romHandler.randomizePokemonTypes(settings);
             pokemonTraitsChanged = true;
         }
 
         // Wild Held Items
+        stageTimings.start("Wild held items");
         if (settings.isRandomizeWildPokemonHeldItems()) {
             romHandler.randomizeWildHeldItems(settings);
             pokemonTraitsChanged = true;
@@ -174,6 +213,7 @@ public class Randomizer {
 
         // Random Evos
         // Applied after type to pick new evos based on new types.
+        stageTimings.start("Evolutions");
 
         if (settings.getEvolutionsMod() == Settings.EvolutionsMod.RANDOM) {
             romHandler.randomizeEvolutions(settings);
@@ -185,9 +225,13 @@ public class Randomizer {
 
         if (evolutionsChanged) {
             logEvolutionChanges(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeEvolutions(romHandler);
+            }
         }
 
         // Base stat randomization
+        stageTimings.start("Base stats");
         switch (settings.getBaseStatisticsMod()) {
             case SHUFFLE:
                 romHandler.shufflePokemonStats(settings);
@@ -202,6 +246,7 @@ public class Randomizer {
         }
 
         // Abilities
+        stageTimings.start("Abilities");
         if (settings.getAbilitiesMod() == Settings.AbilitiesMod.RANDOMIZE) {
             romHandler.randomizeAbilities(settings);
             pokemonTraitsChanged = true;
@@ -210,6 +255,9 @@ public class Randomizer {
         // Log Pokemon traits (stats, abilities, etc) if any have changed
         if (pokemonTraitsChanged) {
             logPokemonTraitChanges(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writePokemon(romHandler);
+            }
         } else {
             log.println("Pokemon base stats & type: unchanged" + NEWLINE);
         }
@@ -222,6 +270,7 @@ public class Randomizer {
         }
 
         // Trade evolutions removal
+        stageTimings.start("Evolution tweaks");
         if (settings.isChangeImpossibleEvolutions()) {
             romHandler.removeImpossibleEvolutions(settings);
         }
@@ -258,6 +307,7 @@ public class Randomizer {
 
         // Starter Pokemon
         // Applied after type to update the strings correctly based on new types
+        stageTimings.start("Starters");
         if(settings.getStartersMod() != Settings.StartersMod.UNCHANGED) {
             romHandler.generateStarters(settings);
             startersChanged = true;
@@ -268,12 +318,18 @@ public class Randomizer {
 
         if (startersChanged) {
             logStarters(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeStarters(romHandler);
+            }
         }
 
         // Move Data Log
         // Placed here so it matches its position in the randomizer interface
         if (movesChanged) {
             logMoveChanges(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeMoves(romHandler);
+            }
         } else if (!movesUpdated) {
             log.println("Move Data: Unchanged." + NEWLINE);
         }
@@ -282,6 +338,7 @@ public class Randomizer {
         // 1. Randomize movesets
         // 2. Reorder moves by damage
         // Note: "Metronome only" is handled after trainers instead
+        stageTimings.start("Movesets");
 
         if (settings.getMovesetsMod() != Settings.MovesetsMod.UNCHANGED &&
                 settings.getMovesetsMod() != Settings.MovesetsMod.METRONOME_ONLY) {
@@ -298,6 +355,9 @@ public class Randomizer {
         // Show the new movesets if applicable
         if (movesetsChanged) {
             logMovesetChanges(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeMovesets(romHandler);
+            }
         } else if (settings.getMovesetsMod() == Settings.MovesetsMod.METRONOME_ONLY) {
             log.println("Pokemon Movesets: Metronome Only." + NEWLINE);
         } else {
@@ -305,6 +365,7 @@ public class Randomizer {
         }
 
         // TMs
+        stageTimings.start("TMs");
 
         if (!(settings.getMovesetsMod() == Settings.MovesetsMod.METRONOME_ONLY)
                 && settings.getTmsMod() == Settings.TMsMod.RANDOM) {
@@ -314,6 +375,9 @@ public class Randomizer {
 
         if (tmMovesChanged) {
             checkValue = logTMMoves(log, checkValue);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeTMMoves(romHandler);
+            }
         } else if (settings.getMovesetsMod() == Settings.MovesetsMod.METRONOME_ONLY) {
             log.println("TM Moves: Metronome Only." + NEWLINE);
         } else {
@@ -326,6 +390,7 @@ public class Randomizer {
         // 3. Follow evolutions
         // 4. Full HM compatibility
         // 5. Copy to cosmetic forms
+        stageTimings.start("TM/HM compatibility");
 
         switch (settings.getTmsHmsCompatibilityMod()) {
             case COMPLETELY_RANDOM:
@@ -361,6 +426,7 @@ public class Randomizer {
         }
 
         // Move Tutors
+        stageTimings.start("Move tutors");
         if (romHandler.hasMoveTutors()) {
 
             List<Integer> oldMtMoves = romHandler.getMoveTutorMoves();
@@ -374,6 +440,9 @@ public class Randomizer {
 
             if (moveTutorMovesChanged) {
                 checkValue = logMoveTutorMoves(log, checkValue, oldMtMoves);
+                if (spoilerRecords != null) {
+                    spoilerRecords.writeTutorMoves(romHandler);
+                }
             } else if (settings.getMovesetsMod() == Settings.MovesetsMod.METRONOME_ONLY) {
                 log.println("Move Tutor Moves: Metronome Only." + NEWLINE);
             } else {
@@ -417,6 +486,7 @@ public class Randomizer {
         }
 
         // do part of wild Pokemon early if needed
+        stageTimings.start("Wild Pokemon (early)");
         if(settings.isTrainersUseLocalPokemon()) {
             wildsChanged = randomizeWildPokemon();
         }
@@ -427,6 +497,7 @@ public class Randomizer {
         // 3. Randomize Trainer Pokemon
         // 4. Modify rivals to carry starters
         // 5. Force Trainer Pokemon to be fully evolved
+        stageTimings.start("Trainers");
 
         if (settings.getAdditionalRegularTrainerPokemon() > 0
                 || settings.getAdditionalImportantTrainerPokemon() > 0
@@ -496,6 +567,9 @@ public class Randomizer {
 
         if (trainersChanged) {
             maybeLogTrainerChanges(log, originalTrainerNames, trainerNamesChanged, trainerMovesetsChanged);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeTrainers(romHandler);
+            }
         } else {
             log.println("Trainers: Unchanged." + NEWLINE);
         }
@@ -513,6 +587,7 @@ public class Randomizer {
         }
 
         // Static Pokemon
+        stageTimings.start("Static Pokemon");
         if (romHandler.canChangeStaticPokemon()) {
             List<StaticEncounter> oldStatics = romHandler.getStaticPokemon();
             if (settings.getStaticPokemonMod() != Settings.StaticPokemonMod.UNCHANGED) { // Legendary for L
@@ -525,12 +600,16 @@ public class Randomizer {
 
             if (staticsChanged) {
                 checkValue = logStaticPokemon(log, checkValue, oldStatics);
+                if (spoilerRecords != null) {
+                    spoilerRecords.writeStaticPokemon(romHandler);
+                }
             } else {
                 log.println("Static Pokemon: Unchanged." + NEWLINE);
             }
         }
 
         // Totem Pokemon
+        stageTimings.start("Totem Pokemon");
         if (romHandler.generationOfPokemon() == 7) {
             List<TotemPokemon> oldTotems = romHandler.getTotemPokemon();
             if (settings.getTotemPokemonMod() != Settings.TotemPokemonMod.UNCHANGED ||
@@ -551,19 +630,24 @@ public class Randomizer {
         }
 
         // Wild Pokemon
+        stageTimings.start("Wild Pokemon");
 
         if (!settings.isTrainersUseLocalPokemon()) {
             wildsChanged = randomizeWildPokemon();
         }
 
+        boolean useTimeBasedEncounters = settings.isUseTimeBasedEncounters() ||
+                (settings.getWildPokemonMod() == Settings.WildPokemonMod.UNCHANGED && settings.isWildLevelsModified());
+
         if (wildsChanged) {
             logWildPokemonChanges(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeWildPokemon(romHandler, useTimeBasedEncounters);
+            }
         } else {
             log.println("Wild Pokemon: Unchanged." + NEWLINE);
         }
 
-        boolean useTimeBasedEncounters = settings.isUseTimeBasedEncounters() ||
-                (settings.getWildPokemonMod() == Settings.WildPokemonMod.UNCHANGED && settings.isWildLevelsModified());
         List<EncounterSet> encounters = romHandler.getEncounters(useTimeBasedEncounters);
         for (EncounterSet es : encounters) {
             for (Encounter e : es.encounters) {
@@ -573,6 +657,7 @@ public class Randomizer {
 
 
         // In-game trades
+        stageTimings.start("In-game trades");
 
         List<IngameTrade> oldTrades = romHandler.getIngameTrades();
         switch(settings.getInGameTradesMod()) {
@@ -587,9 +672,13 @@ public class Randomizer {
 
         if (tradesChanged) {
             logTrades(log, oldTrades);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeTrades(romHandler);
+            }
         }
 
         // Field Items
+        stageTimings.start("Field items");
         switch(settings.getFieldItemsMod()) {
             case SHUFFLE:
                 romHandler.shuffleFieldItems();
@@ -603,6 +692,7 @@ public class Randomizer {
         }
 
         // Shops
+        stageTimings.start("Shops");
 
         switch(settings.getShopItemsMod()) {
             case SHUFFLE:
@@ -619,9 +709,13 @@ public class Randomizer {
 
         if (shopsChanged) {
             logShops(log);
+            if (spoilerRecords != null) {
+                spoilerRecords.writeShops(romHandler);
+            }
         }
 
         // Pickup Items
+        stageTimings.start("Pickup items");
         if (settings.getPickupItemsMod() == Settings.PickupItemsMod.RANDOM) {
             romHandler.randomizePickupItems(settings);
             logPickupItems(log);
@@ -631,18 +725,26 @@ public class Randomizer {
         // romHandler.renderPlacementHistory();
 
         // Intro Pokemon...
+        stageTimings.start("Intro Pokemon");
         romHandler.randomizeIntroPokemon();
 
         // Record check value?
         romHandler.writeCheckValueToROM(checkValue);
 
         // Save
-        if (saveAsDirectory) {
-            romHandler.saveRomDirectory(filename);
-        } else {
-            romHandler.saveRomFile(filename, seed);
+        stageTimings.start("Save");
+        if (!dryRun) {
+            if (patchFormat != null) {
+                romHandler.saveRomPatch(filename, patchFormat);
+            } else if (saveAsDirectory) {
+                romHandler.saveRomDirectory(filename);
+            } else {
+                romHandler.saveRomFile(filename, seed);
+            }
         }
 
+        stageTimings.finish();
+
         // Log tail
         String gameName = romHandler.getROMName();
         if (romHandler.hasGameUpdateLoaded()) {
@@ -654,6 +756,9 @@ public class Randomizer {
         log.println("RNG Calls: " + RandomSource.callsSinceSeed());
         log.println("------------------------------------------------------------------");
         log.println();
+        if (spoilerRecords != null) {
+            spoilerRecords.writeFooter(checkValue, System.currentTimeMillis() - startTime);
+        }
 
         // Diagnostics
         log.println("--ROM Diagnostics--");
@@ -665,6 +770,13 @@ public class Randomizer {
         return checkValue;
     }
 
+    /**
+     * @return The timings of each stage of the last call to randomize().
+     */
+    public StageTimings getStageTimings() {
+        return stageTimings;
+    }
+
     private boolean randomizeWildPokemon() {
 
         boolean wildsChanged = false;
@@ -709,7 +821,7 @@ public class Randomizer {
         List<Integer> newMtMoves = romHandler.getMoveTutorMoves();
         List<Move> moves = romHandler.getMoves();
         for (int i = 0; i < newMtMoves.size(); i++) {
-            log.printf("%-10s -> %-10s" + NEWLINE, moves.get(oldMtMoves.get(i)).name,
+            log.printf("%-10s -> %-10s%n", moves.get(oldMtMoves.get(i)).name,
                     moves.get(newMtMoves.get(i)).name);
             checkValue = addToCV(checkValue, newMtMoves.get(i));
         }
@@ -722,7 +834,7 @@ public class Randomizer {
         List<Integer> tmMoves = romHandler.getTMMoves();
         List<Move> moves = romHandler.getMoves();
         for (int i = 0; i < tmMoves.size(); i++) {
-            log.printf("TM%02d %s" + NEWLINE, i + 1, moves.get(tmMoves.get(i)).name);
+            log.printf("TM%02d %s%n", i + 1, moves.get(tmMoves.get(i)).name);
             checkValue = addToCV(checkValue, tmMoves.get(i));
         }
         log.println();
@@ -736,7 +848,7 @@ public class Randomizer {
         for (int i = 0; i < size; i++) {
             IngameTrade oldT = oldTrades.get(i);
             IngameTrade newT = newTrades.get(i);
-            log.printf("Trade %-11s -> %-11s the %-11s        ->      %-11s -> %-15s the %s" + NEWLINE,
+            log.printf("Trade %-11s -> %-11s the %-11s        ->      %-11s -> %-15s the %s%n",
                     oldT.requestedPokemon != null ? oldT.requestedPokemon.fullName() : "Any",
                     oldT.nickname, oldT.givenPokemon.fullName(),
                     newT.requestedPokemon != null ? newT.requestedPokemon.fullName() : "Any",
@@ -884,7 +996,7 @@ public class Randomizer {
                             evoStr.append(", ").append(pk.evolutionsFrom.get(i).toFullName());
                         }
                     }
-                    log.printf("%-15s -> %-15s" + NEWLINE, pk.fullName(), evoStr.toString());
+                    log.printf("%-15s -> %-15s%n", pk.fullName(), evoStr.toString());
                 }
             }
         }
@@ -905,7 +1017,7 @@ public class Randomizer {
                     if (pkmn.secondaryType != null) {
                         typeString += "/" + pkmn.secondaryType.toString();
                     }
-                    log.printf("%3d|%-10s|%-17s|%4d|%4d|%4d|%4d|%4d" + NEWLINE, pkmn.number, pkmn.fullName(), typeString,
+                    log.printf("%3d|%-10s|%-17s|%4d|%4d|%4d|%4d|%4d%n", pkmn.number, pkmn.fullName(), typeString,
                             pkmn.hp, pkmn.attack, pkmn.defense, pkmn.speed, pkmn.special );
                 }
 
@@ -0,0 +1,157 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  RomIntegrityCheck.java - checks the CRCs of the files in a ROM        --*/
+/*--                           against known good ones, in the background.  --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import cuecompressors.BLZCoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Checks that the files of a ROM are the ones the randomizer expects, on a shared background pool, so that
+ * loading a ROM does not wait on reading every file in it.
+ * The files are read straight from the ROM file on disk, never from the handler, so the check sees the
+ * original files however far the randomization has got. Results are kept per ROM file path and CRC, so
+ * loading the same ROM again only checks it once.
+ */
+public class RomIntegrityCheck {
+
+    /**
+     * One file to check: where it is in a ROM file, and what its CRC should be.
+     */
+    public static class Region {
+        private final String romPath;
+        private final long offset;
+        private final int length;
+        private final boolean blzCompressed;
+        private final long expectedCRC32;
+
+        /**
+         * @param romPath The ROM file the file is in.
+         * @param offset Where the file starts in the ROM file.
+         * @param length The length of the file.
+         * @param blzCompressed Whether the file is BLZ compressed, and the expected CRC is of its decompressed data.
+         * @param expectedCRC32 The CRC the file should have.
+         */
+        public Region(String romPath, long offset, int length, boolean blzCompressed, long expectedCRC32) {
+            this.romPath = romPath;
+            this.offset = offset;
+            this.length = length;
+            this.blzCompressed = blzCompressed;
+            this.expectedCRC32 = expectedCRC32;
+        }
+    }
+
+    private static final ExecutorService pool = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "ROM integrity check");
+                t.setDaemon(true);
+                return t;
+            });
+    private static final Map<String, CompletableFuture<Boolean>> results = new ConcurrentHashMap<>();
+    private static volatile boolean skipped;
+
+    /**
+     * Turns the check off, for batch jobs which have already checked the ROM once. While it is off, every ROM
+     * counts as valid.
+     */
+    public static void setSkipped(boolean skipped) {
+        RomIntegrityCheck.skipped = skipped;
+    }
+
+    /**
+     * Starts checking a ROM, unless it has been checked before.
+     * @param romPath The path of the ROM.
+     * @param romCRC32 A CRC which tells this ROM apart from others loaded from the same path.
+     * @param regions The files to check. A null region is a file which is missing, and fails the check.
+     * @return The result of the check, true if every file had the expected CRC.
+     */
+    public static Future<Boolean> start(String romPath, long romCRC32, List<Region> regions) {
+        if (skipped) {
+            return CompletableFuture.completedFuture(true);
+        }
+        String key = new File(romPath).getAbsolutePath() + ":" + Long.toHexString(romCRC32);
+        return results.computeIfAbsent(key, k -> check(regions));
+    }
+
+    /**
+     * Waits for the result of a check.
+     * @return Whether the check passed. A check which could not read the ROM fails.
+     */
+    public static boolean isValid(Future<Boolean> check) {
+        try {
+            return check.get();
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static CompletableFuture<Boolean> check(List<Region> regions) {
+        CompletableFuture<?>[] checks = new CompletableFuture<?>[regions.size()];
+        for (int i = 0; i < regions.size(); i++) {
+            Region region = regions.get(i);
+            checks[i] = CompletableFuture.supplyAsync(() -> matches(region), pool);
+        }
+        return CompletableFuture.allOf(checks).thenApply(v -> {
+            for (CompletableFuture<?> check : checks) {
+                if (!(Boolean) check.join()) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private static boolean matches(Region region) {
+        if (region == null) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(region.romPath), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, region.offset, region.length);
+            CRC32 checksum = new CRC32();
+            if (region.blzCompressed) {
+                byte[] data = new byte[region.length];
+                buf.get(data);
+                checksum.update(new BLZCoder(null).BLZ_DecodePub(data, "integrity check"));
+            } else {
+                checksum.update(buf);
+            }
+            return checksum.getValue() == region.expectedCRC32;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
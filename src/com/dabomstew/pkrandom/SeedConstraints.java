@@ -0,0 +1,92 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  SeedConstraints.java - common constraints for seed searches.          --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.pokemon.*;
+
+import java.util.*;
+
+/**
+ * Ready-made Constraints for SeedSearch. Anything else can be checked by writing a Constraint
+ * against the RomHandler directly.
+ */
+public class SeedConstraints {
+
+    /**
+     * Every starter learns a damaging move of its own type at or before the given level.
+     * @param level The highest level to look at.
+     */
+    public static SeedSearch.Constraint startersLearnStabMoveBy(int level) {
+        return romHandler -> {
+            List<Move> moves = romHandler.getMoves();
+            Map<Integer, List<MoveLearnt>> movesLearnt = romHandler.getMovesLearnt();
+            for (Pokemon starter : romHandler.getStarters()) {
+                boolean found = false;
+                for (MoveLearnt ml : movesLearnt.getOrDefault(starter.number, Collections.emptyList())) {
+                    Move mv = moves.get(ml.move);
+                    if (ml.level <= level && mv != null && mv.power > 0
+                            && (mv.type == starter.primaryType || mv.type == starter.secondaryType)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * At least the given number of different Pokemon of a type can be found in a wild encounter area.
+     * @param areaIndex The index of the area in getEncounters().
+     * @param useTimeOfDay Whether the randomization uses time based encounters.
+     * @param type The type to count.
+     * @param count The lowest number of different Pokemon of the type.
+     */
+    public static SeedSearch.Constraint wildTypeCountInArea(int areaIndex, boolean useTimeOfDay, Type type,
+                                                            int count) {
+        return romHandler -> {
+            List<EncounterSet> areas = romHandler.getEncounters(useTimeOfDay);
+            if (areaIndex >= areas.size()) {
+                return false;
+            }
+            Set<Pokemon> ofType = new HashSet<>();
+            for (Encounter enc : areas.get(areaIndex).encounters) {
+                if (enc.pokemon.primaryType == type || enc.pokemon.secondaryType == type) {
+                    ofType.add(enc.pokemon);
+                }
+            }
+            return ofType.size() >= count;
+        };
+    }
+
+    /**
+     * None of the starters are legendary.
+     */
+    public static SeedSearch.Constraint noLegendaryStarters() {
+        return romHandler -> romHandler.getStarters().stream().noneMatch(Pokemon::isLegendary);
+    }
+}
@@ -0,0 +1,109 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  SeedSearch.java - searches for seeds whose randomization meets some   --*/
+/*--                    constraint, trying several seeds at once.           --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds a seed whose randomization meets a Constraint, by randomizing candidate seeds without saving
+ * and testing the resulting in-memory ROM data.
+ * Candidates are firstSeed, firstSeed + 1, ... and are tried on several threads at once. The result is
+ * always the first candidate in that order which meets the constraint, however many threads are used,
+ * so a search can be repeated. Once a seed is found, randomize with it as normal to write the ROM.
+ */
+public class SeedSearch {
+
+    /**
+     * A property which a randomized ROM must have. Tested on the handler after every stage of the
+     * randomization has run, from several threads at once, each with its own handler.
+     */
+    public interface Constraint {
+        boolean test(RomHandler romHandler);
+
+        default Constraint and(Constraint other) {
+            return romHandler -> test(romHandler) && other.test(romHandler);
+        }
+    }
+
+    private final DryRuns dryRuns;
+
+    /**
+     * @param factory The factory for the handler of the source ROM.
+     * @param sourceRom The ROM to randomize.
+     * @param settings The settings to randomize with. Not changed by the search.
+     * @param bundle The resource bundle for the Randomizer's messages.
+     */
+    public SeedSearch(RomHandler.Factory factory, File sourceRom, Settings settings, ResourceBundle bundle) {
+        this.dryRuns = new DryRuns(factory, sourceRom, settings, bundle);
+    }
+
+    /**
+     * Searches for a seed meeting the constraint.
+     * Seeds which fail to randomize with a RandomizationException are skipped, as they would be unusable anyway.
+     * @param constraint The constraint to meet.
+     * @param firstSeed The first seed to try.
+     * @param maxCandidates The number of seeds to try before giving up.
+     * @param threads The number of seeds to try at once.
+     * @return The first matching seed, or null if none of the candidates matched.
+     * @throws IOException if the source ROM could not be set up for the worker threads.
+     * @throws ExecutionException if randomizing any candidate failed for any reason other than a
+     * RandomizationException.
+     */
+    public Long search(Constraint constraint, long firstSeed, int maxCandidates, int threads)
+            throws IOException, ExecutionException, InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed.");
+        }
+
+        AtomicInteger nextCandidate = new AtomicInteger(0);
+        AtomicInteger firstMatch = new AtomicInteger(maxCandidates);
+
+        List<DryRuns.Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add((seed, romHandler) -> {
+                if (romHandler != null && constraint.test(romHandler)) {
+                    firstMatch.accumulateAndGet((int) (seed - firstSeed), Math::min);
+                }
+                return true;
+            });
+        }
+        dryRuns.run(workers, () -> {
+            int candidate = nextCandidate.getAndIncrement();
+            // candidates after a match can not be the first match
+            return candidate < firstMatch.get() ? firstSeed + candidate : null;
+        });
+
+        int match = firstMatch.get();
+        return match < maxCandidates ? firstSeed + match : null;
+    }
+}
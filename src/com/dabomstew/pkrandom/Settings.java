@@ -352,12 +352,7 @@ public class Settings {
             throw new UnsupportedOperationException("Error reading version number from settings string.");
         }
         int version = ByteBuffer.wrap(versionBytes).getInt();
-        if (((version >> 24) & 0xFF) > 0 && ((version >> 24) & 0xFF) <= 172) {
-            throw new UnsupportedOperationException("The settings file is too old to update and cannot be loaded.");
-        }
-        if (version > VERSION) {
-            throw new UnsupportedOperationException("Cannot read settings from a newer version of the randomizer.");
-        }
+        checkVersion(version);
         nread = in.read(lengthBytes);
         if (nread < 4) {
             throw new UnsupportedOperationException("Error reading settings length from settings string.");
@@ -365,20 +360,25 @@ public class Settings {
         int length = ByteBuffer.wrap(lengthBytes).getInt();
         byte[] buffer = FileFunctions.readFullyIntoBuffer(in, length);
         String settings = new String(buffer, "UTF-8");
-        boolean oldUpdate = false;
+        return CompiledSettings.of(version, settings).toSettings();
+    }
 
-        if (version < VERSION) {
-            oldUpdate = true;
-            settings = new SettingsUpdater().update(version, settings);
+    static void checkVersion(int version) {
+        if (((version >> 24) & 0xFF) > 0 && ((version >> 24) & 0xFF) <= 172) {
+            throw new UnsupportedOperationException("The settings file is too old to update and cannot be loaded.");
+        }
+        if (version > VERSION) {
+            throw new UnsupportedOperationException("Cannot read settings from a newer version of the randomizer.");
         }
-
-        Settings settingsObj = fromString(settings);
-        settingsObj.setUpdatedFromOldVersion(oldUpdate);
-        return settingsObj;
     }
 
     @Override
     public String toString() {
+        return Base64.getEncoder().encodeToString(toData());
+    }
+
+    // the bytes the settings string encodes, checksums included
+    byte[] toData() {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
 
         // 0: general options #1 + trainer/class names
@@ -649,13 +649,17 @@ public class Settings {
             e.printStackTrace(); // better than nothing
         }
 
-        return Base64.getEncoder().encodeToString(out.toByteArray());
+        return out.toByteArray();
     }
 
     public static Settings fromString(String settingsString) throws UnsupportedEncodingException, IllegalArgumentException {
         byte[] data = Base64.getDecoder().decode(settingsString);
         checkChecksum(data);
+        return fromData(data);
+    }
 
+    // takes settings data from toData whose checksum has already been checked
+    static Settings fromData(byte[] data) throws UnsupportedEncodingException {
         Settings settings = new Settings();
 
         // Restore the actual controls
@@ -1114,7 +1118,7 @@ public class Settings {
         return updatedFromOldVersion;
     }
 
-    private void setUpdatedFromOldVersion(boolean updatedFromOldVersion) {
+    void setUpdatedFromOldVersion(boolean updatedFromOldVersion) {
         this.updatedFromOldVersion = updatedFromOldVersion;
     }
 
@@ -2514,7 +2518,7 @@ public class Settings {
         return index >= 0 ? index : 0;
     }
 
-    private static void checkChecksum(byte[] data) {
+    static void checkChecksum(byte[] data) {
         // Check the checksum
         ByteBuffer buf = ByteBuffer.allocate(4).put(data, data.length - 8, 4);
         buf.rewind();
@@ -0,0 +1,350 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  SpoilerRecords.java - writes what a randomization did as JSON Lines,  --*/
+/*--                        for tools to read instead of the text log.      --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.exceptions.RandomizerIOException;
+import com.dabomstew.pkrandom.pokemon.*;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the results of a randomization as JSON Lines: one JSON object per line, each with a "section" naming
+ * the part of the text log it matches, taken straight from the RomHandler's data rather than from the log text.
+ * The Randomizer writes each section at the same point it writes the text log's, and each section is flushed
+ * once written, so a reader can follow along as stages finish.
+ */
+public class SpoilerRecords implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+
+    public SpoilerRecords(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Opens a file to write records to, replacing anything already there.
+     * @param file The file.
+     * @param compressed Whether to gzip the file.
+     */
+    public static SpoilerRecords open(File file, boolean compressed) throws IOException {
+        OutputStream stream = new FileOutputStream(file);
+        if (compressed) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        return new SpoilerRecords(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8),
+                BUFFER_SIZE));
+    }
+
+    /**
+     * @param romFilename The path the randomized ROM is saved to.
+     * @param compressed Whether the records are gzipped.
+     * @return The path the records for the ROM go to.
+     */
+    public static File fileFor(String romFilename, boolean compressed) {
+        return new File(romFilename + (compressed ? ".log.jsonl.gz" : ".log.jsonl"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    public void writeHeader(RomHandler romHandler, long seed, String settingsString) {
+        Map<String, Object> record = record("header");
+        record.put("version", Version.VERSION_STRING);
+        record.put("seed", seed);
+        record.put("settings", settingsString);
+        record.put("rom", romHandler.getROMName());
+        record.put("code", romHandler.getROMCode());
+        record.put("generation", romHandler.generationOfPokemon());
+        write(record);
+        flush();
+    }
+
+    public void writePokemon(RomHandler romHandler) {
+        boolean hasAbilities = romHandler.abilitiesPerPokemon() > 0;
+        for (Pokemon pk : romHandler.getPokemonInclFormes()) {
+            if (pk == null) {
+                continue;
+            }
+            Map<String, Object> record = record("pokemon");
+            record.put("number", pk.number);
+            record.put("name", pk.fullName());
+            record.put("types", types(pk));
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("hp", pk.hp);
+            stats.put("attack", pk.attack);
+            stats.put("defense", pk.defense);
+            if (romHandler.generationOfPokemon() == 1) {
+                stats.put("special", pk.special);
+            } else {
+                stats.put("spatk", pk.spatk);
+                stats.put("spdef", pk.spdef);
+            }
+            stats.put("speed", pk.speed);
+            record.put("stats", stats);
+            if (hasAbilities) {
+                List<String> abilities = new ArrayList<>();
+                for (int ability : new int[] { pk.ability1, pk.ability2, pk.ability3 }) {
+                    if (ability != 0) {
+                        abilities.add(romHandler.abilityName(ability));
+                    }
+                }
+                record.put("abilities", abilities);
+            }
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeEvolutions(RomHandler romHandler) {
+        for (Pokemon pk : romHandler.getPokemonInclFormes()) {
+            if (pk == null) {
+                continue;
+            }
+            for (Evolution evo : pk.evolutionsFrom) {
+                Map<String, Object> record = record("evolutions");
+                record.put("from", evo.from.fullName());
+                record.put("to", evo.to.fullName());
+                record.put("type", evo.type.toString());
+                record.put("level", evo.level);
+                write(record);
+            }
+        }
+        flush();
+    }
+
+    public void writeStarters(RomHandler romHandler) {
+        int slot = 1;
+        for (Pokemon starter : romHandler.getPickedStarters()) {
+            Map<String, Object> record = record("starters");
+            record.put("slot", slot++);
+            record.put("pokemon", starter.fullName());
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeMoves(RomHandler romHandler) {
+        for (Move mv : romHandler.getMoves()) {
+            if (mv == null) {
+                continue;
+            }
+            Map<String, Object> record = record("moves");
+            record.put("number", mv.number);
+            record.put("name", mv.name);
+            record.put("type", mv.type == null ? null : mv.type.toString());
+            record.put("category", mv.category == null ? null : mv.category.toString());
+            record.put("power", mv.power);
+            record.put("accuracy", mv.hitratio);
+            record.put("pp", mv.pp);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeMovesets(RomHandler romHandler) {
+        Map<Integer, List<MoveLearnt>> movesLearnt = romHandler.getMovesLearnt();
+        List<Move> moves = romHandler.getMoves();
+        for (Pokemon pk : romHandler.getPokemonInclFormes()) {
+            if (pk == null || pk.actuallyCosmetic) {
+                continue;
+            }
+            List<Object> learnt = new ArrayList<>();
+            for (MoveLearnt ml : movesLearnt.getOrDefault(pk.number, Collections.emptyList())) {
+                Map<String, Object> move = new LinkedHashMap<>();
+                move.put("level", ml.level);
+                move.put("move", moves.get(ml.move).name);
+                learnt.add(move);
+            }
+            Map<String, Object> record = record("movesets");
+            record.put("pokemon", pk.fullName());
+            record.put("moves", learnt);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeTMMoves(RomHandler romHandler) {
+        List<Move> moves = romHandler.getMoves();
+        List<Integer> tmMoves = romHandler.getTMMoves();
+        for (int i = 0; i < tmMoves.size(); i++) {
+            Map<String, Object> record = record("tms");
+            record.put("tm", i + 1);
+            record.put("move", moves.get(tmMoves.get(i)).name);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeTutorMoves(RomHandler romHandler) {
+        List<Move> moves = romHandler.getMoves();
+        List<Integer> tutorMoves = romHandler.getMoveTutorMoves();
+        for (int i = 0; i < tutorMoves.size(); i++) {
+            Map<String, Object> record = record("tutors");
+            record.put("tutor", i + 1);
+            record.put("move", moves.get(tutorMoves.get(i)).name);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeTrainers(RomHandler romHandler) {
+        List<Move> moves = romHandler.getMoves();
+        String[] itemNames = romHandler.getItemNames();
+        for (Trainer tr : romHandler.getTrainers()) {
+            List<Object> team = new ArrayList<>();
+            for (TrainerPokemon tp : tr.pokemon) {
+                Map<String, Object> member = new LinkedHashMap<>();
+                member.put("pokemon", tp.pokemon.fullName());
+                member.put("level", tp.level);
+                member.put("item", tp.heldItem == 0 ? null : itemNames[tp.heldItem]);
+                List<String> moveNames = new ArrayList<>();
+                for (int move : tp.moves) {
+                    if (move != 0) {
+                        moveNames.add(moves.get(move).name);
+                    }
+                }
+                member.put("moves", moveNames);
+                team.add(member);
+            }
+            Map<String, Object> record = record("trainers");
+            record.put("index", tr.index);
+            record.put("name", tr.fullDisplayName != null ? tr.fullDisplayName : tr.name);
+            record.put("tag", tr.tag);
+            record.put("pokemon", team);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeStaticPokemon(RomHandler romHandler) {
+        int index = 0;
+        for (StaticEncounter se : romHandler.getStaticPokemon()) {
+            Map<String, Object> record = record("statics");
+            record.put("index", index++);
+            record.put("pokemon", se.pkmn.fullName());
+            record.put("level", se.level);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeWildPokemon(RomHandler romHandler, boolean useTimeOfDay) {
+        int index = 0;
+        for (EncounterSet es : romHandler.getEncounters(useTimeOfDay)) {
+            List<Object> encounters = new ArrayList<>();
+            for (Encounter enc : es.encounters) {
+                Map<String, Object> encounter = new LinkedHashMap<>();
+                encounter.put("pokemon", enc.pokemon.fullName());
+                encounter.put("level", enc.level);
+                encounter.put("maxLevel", enc.maxLevel);
+                encounters.add(encounter);
+            }
+            Map<String, Object> record = record("wild");
+            record.put("index", index++);
+            record.put("area", es.displayName);
+            record.put("rate", es.rate);
+            record.put("encounters", encounters);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeTrades(RomHandler romHandler) {
+        for (IngameTrade trade : romHandler.getIngameTrades()) {
+            Map<String, Object> record = record("trades");
+            record.put("id", trade.id);
+            record.put("requested", trade.requestedPokemon == null ? null : trade.requestedPokemon.fullName());
+            record.put("given", trade.givenPokemon.fullName());
+            record.put("nickname", trade.nickname);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeShops(RomHandler romHandler) {
+        String[] itemNames = romHandler.getItemNames();
+        for (Map.Entry<Integer, Shop> shop : romHandler.getShopItems().entrySet()) {
+            List<String> items = new ArrayList<>();
+            for (int item : shop.getValue().items) {
+                items.add(itemNames[item]);
+            }
+            Map<String, Object> record = record("shops");
+            record.put("index", shop.getKey());
+            record.put("name", shop.getValue().name);
+            record.put("items", items);
+            write(record);
+        }
+        flush();
+    }
+
+    public void writeFooter(int checkValue, long elapsedMillis) {
+        Map<String, Object> record = record("footer");
+        record.put("checkValue", checkValue);
+        record.put("elapsedMillis", elapsedMillis);
+        write(record);
+        flush();
+    }
+
+    private static Map<String, Object> record(String section) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("section", section);
+        return record;
+    }
+
+    private static List<String> types(Pokemon pk) {
+        List<String> types = new ArrayList<>();
+        if (pk.primaryType != null) {
+            types.add(pk.primaryType.toString());
+        }
+        if (pk.secondaryType != null) {
+            types.add(pk.secondaryType.toString());
+        }
+        return types;
+    }
+
+    private void write(Map<String, Object> record) {
+        try {
+            out.write(Json.toJson(record) + "\n");
+        } catch (IOException e) {
+            throw new RandomizerIOException(e);
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RandomizerIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  SpriteCache.java - keeps drawn Pokemon images for reuse.             --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the Pokemon images rom handlers have drawn, keyed by a CRC of the ROM data they were drawn from and
+ * the species, forme and palette, so loading the same ROM again, or drawing every species for each of many
+ * seeds, doesn't decompress and draw the same sprites again.
+ * Images are given out as copies, so callers are free to change them. The least recently used images are
+ * dropped once there are more than MAX_IMAGES.
+ */
+public class SpriteCache {
+
+    private static final int MAX_IMAGES = 4096;
+
+    private static final Map<String, BufferedImage> images = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+            return size() > MAX_IMAGES;
+        }
+    };
+
+    /**
+     * @param romCRC32 A CRC of the ROM, or of the part of it the image is drawn from.
+     * @param pk The Pokemon the image is of.
+     * @param shiny Whether the image uses the shiny palette.
+     * @param draw Draws the image if it isn't cached. May return null if there is no image; nothing is cached then.
+     * @return A copy of the cached image, or null.
+     */
+    public static BufferedImage get(long romCRC32, Pokemon pk, boolean shiny, Supplier<BufferedImage> draw) {
+        String key = Long.toHexString(romCRC32) + ":" + pk.number + ":" + pk.formeNumber + (shiny ? ":shiny" : "");
+        BufferedImage image;
+        synchronized (images) {
+            image = images.get(key);
+        }
+        if (image == null) {
+            // drawn outside the lock, so threads drawing different images don't wait on each other
+            image = draw.get();
+            if (image == null) {
+                return null;
+            }
+            synchronized (images) {
+                images.put(key, image);
+            }
+        }
+        return GFXFunctions.copyImage(image);
+    }
+}
@@ -0,0 +1,157 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  SpriteExport.java - writes every Pokemon image in a ROM as PNGs.     --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Draws the image of every Pokemon in a loaded ROM, on a number of threads, and writes them as PNG files,
+ * one per Pokemon, or all together as one sprite sheet.
+ */
+public class SpriteExport {
+
+    private static final int SHEET_COLUMNS = 16;
+
+    /**
+     * Writes one PNG per Pokemon and forme the ROM has an image for, named by national dex number, with the
+     * forme number after a dash for alternate formes.
+     * @return The number of images written.
+     */
+    public static int exportAll(RomHandler romHandler, File directory, boolean shiny, int threads)
+            throws IOException, InterruptedException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        List<Pokemon> pokemon = allPokemon(romHandler);
+        // drawing is quick next to PNG encoding, so both happen on the worker threads
+        List<BufferedImage> images = drawAll(romHandler, pokemon, shiny, threads, (pk, image) -> {
+            String name = pk.formeNumber == 0 ? pk.number + ".png" : pk.number + "-" + pk.formeNumber + ".png";
+            try {
+                ImageIO.write(image, "png", new File(directory, name));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        int written = 0;
+        for (BufferedImage image : images) {
+            if (image != null) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes every image the ROM has into one PNG, in rows of SHEET_COLUMNS, in the order of
+     * getPokemonInclFormes(), each centred in a cell the size of the largest image.
+     * @return The number of images on the sheet.
+     */
+    public static int exportSheet(RomHandler romHandler, File sheetFile, boolean shiny, int threads)
+            throws IOException, InterruptedException {
+        List<BufferedImage> images = new ArrayList<>();
+        for (BufferedImage image : drawAll(romHandler, allPokemon(romHandler), shiny, threads, (pk, image) -> { })) {
+            if (image != null) {
+                images.add(image);
+            }
+        }
+        int cellWidth = 1;
+        int cellHeight = 1;
+        for (BufferedImage image : images) {
+            cellWidth = Math.max(cellWidth, image.getWidth());
+            cellHeight = Math.max(cellHeight, image.getHeight());
+        }
+        int rows = Math.max(1, (images.size() + SHEET_COLUMNS - 1) / SHEET_COLUMNS);
+        BufferedImage sheet = new BufferedImage(cellWidth * SHEET_COLUMNS, cellHeight * rows,
+                BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < images.size(); i++) {
+            BufferedImage image = images.get(i);
+            int x = (i % SHEET_COLUMNS) * cellWidth + (cellWidth - image.getWidth()) / 2;
+            int y = (i / SHEET_COLUMNS) * cellHeight + (cellHeight - image.getHeight()) / 2;
+            GFXFunctions.copyPixels(image, 0, 0, sheet, x, y, image.getWidth(), image.getHeight());
+        }
+        ImageIO.write(sheet, "png", sheetFile);
+        return images.size();
+    }
+
+    private interface ImageConsumer {
+        void accept(Pokemon pk, BufferedImage image);
+    }
+
+    private static List<Pokemon> allPokemon(RomHandler romHandler) {
+        List<Pokemon> pokemon = new ArrayList<>();
+        for (Pokemon pk : romHandler.getPokemonInclFormes()) {
+            if (pk != null) {
+                pokemon.add(pk);
+            }
+        }
+        return pokemon;
+    }
+
+    // returns the images in the same order as the Pokemon, with null for those the ROM has no image for
+    private static List<BufferedImage> drawAll(RomHandler romHandler, List<Pokemon> pokemon, boolean shiny,
+                                               int threads, ImageConsumer consumer)
+            throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BufferedImage>> futures = new ArrayList<>();
+            for (Pokemon pk : pokemon) {
+                futures.add(executor.submit(() -> {
+                    BufferedImage image = romHandler.getPokemonImage(pk, shiny);
+                    if (image != null) {
+                        consumer.accept(pk, image);
+                    }
+                    return image;
+                }));
+            }
+            List<BufferedImage> images = new ArrayList<>();
+            for (Future<BufferedImage> future : futures) {
+                try {
+                    images.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            return images;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
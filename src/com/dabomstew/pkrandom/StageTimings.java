@@ -0,0 +1,160 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  StageTimings.java - records how long each stage of a randomization    --*/
+/*--                      took, and what it cost.                           --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the wall time, CPU time, allocated bytes and RNG calls of each stage of a randomization.
+ * Stages are measured on the current thread, one after another: starting a stage ends the previous one.
+ * CPU time and allocated bytes are -1 if the JVM can not measure them.
+ */
+public class StageTimings {
+
+    public static class Stage {
+        public final String name;
+        public final long wallNanos;
+        public final long cpuNanos;
+        public final long allocatedBytes;
+        public final int rngCalls;
+
+        private Stage(String name, long wallNanos, long cpuNanos, long allocatedBytes, int rngCalls) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.rngCalls = rngCalls;
+        }
+    }
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final List<Stage> stages = new ArrayList<>();
+    private String currentName;
+    private long startWall, startCpu, startAllocated;
+    private int startRngCalls;
+
+    /**
+     * Ends the current stage, if any, and starts measuring a new one.
+     * @param name The name of the new stage.
+     */
+    public void start(String name) {
+        finish();
+        currentName = name;
+        startRngCalls = RandomSource.callsSinceSeed();
+        startAllocated = currentThreadAllocatedBytes();
+        startCpu = currentThreadCpuTime();
+        startWall = System.nanoTime();
+    }
+
+    /**
+     * Ends the current stage, if any.
+     */
+    public void finish() {
+        if (currentName == null) {
+            return;
+        }
+        long wall = System.nanoTime() - startWall;
+        long cpu = startCpu < 0 ? -1 : currentThreadCpuTime() - startCpu;
+        long allocated = startAllocated < 0 ? -1 : currentThreadAllocatedBytes() - startAllocated;
+        int rngCalls = RandomSource.callsSinceSeed() - startRngCalls;
+        stages.add(new Stage(currentName, wall, cpu, allocated, rngCalls));
+        currentName = null;
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    private static long currentThreadCpuTime() {
+        if (!threadBean.isCurrentThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return threadBean.getCurrentThreadCpuTime();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        // only HotSpot-based JVMs can count allocations
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!hotspotBean.isThreadAllocatedMemorySupported() || !hotspotBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return hotspotBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Writes every finished stage as CSV, with a header row.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("stage,wall_ns,cpu_ns,allocated_bytes,rng_calls\n");
+        for (Stage stage : stages) {
+            out.write(String.format("\"%s\",%d,%d,%d,%d\n", stage.name.replace("\"", "\"\""),
+                    stage.wallNanos, stage.cpuNanos, stage.allocatedBytes, stage.rngCalls));
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes every finished stage as a JSON array of objects, one per line.
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("[\n");
+        List<Map<String, Object>> records = toJsonRecords();
+        for (int i = 0; i < records.size(); i++) {
+            out.write("  " + Json.toJson(records.get(i)) + (i < records.size() - 1 ? "," : "") + "\n");
+        }
+        out.write("]\n");
+        out.flush();
+    }
+
+    /**
+     * @return Every finished stage as a map with the same keys as writeCsv's columns, for writing as JSON
+     * alongside other values.
+     */
+    public List<Map<String, Object>> toJsonRecords() {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (Stage stage : stages) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("stage", stage.name);
+            record.put("wall_ns", stage.wallNanos);
+            record.put("cpu_ns", stage.cpuNanos);
+            record.put("allocated_bytes", stage.allocatedBytes);
+            record.put("rng_calls", stage.rngCalls);
+            records.add(record);
+        }
+        return records;
+    }
+}
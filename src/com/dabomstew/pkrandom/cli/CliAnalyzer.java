@@ -0,0 +1,126 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.DistributionAnalysis;
+import com.dabomstew.pkrandom.DryRuns;
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
+import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+
+import java.io.*;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * Randomizes one ROM with many seeds of the same settings, using every core, and writes how often each species,
+ * type, BST range, evolution stage and item came up, as CSV.
+ */
+public class CliAnalyzer {
+
+    private final static ResourceBundle bundle = java.util.ResourceBundle.getBundle("com/dabomstew/pkrandom/newgui/Bundle");
+
+    public static int invoke(String[] args) {
+        String settingsFilePath = null;
+        String sourceRomFilePath = null;
+        String resultsFilePath = null;
+        int seeds = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long firstSeed = 0;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-s":
+                        settingsFilePath = args[++i];
+                        break;
+                    case "-i":
+                        sourceRomFilePath = args[++i];
+                        break;
+                    case "-o":
+                        resultsFilePath = args[++i];
+                        break;
+                    case "-n":
+                        seeds = Integer.parseInt(args[++i]);
+                        break;
+                    case "-j":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-seed":
+                        firstSeed = Long.parseLong(args[++i]);
+                        break;
+                    case "--help":
+                        printUsage();
+                        return 0;
+                    default:
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            printError("Invalid arguments");
+            printUsage();
+            return 1;
+        }
+
+        if (settingsFilePath == null || sourceRomFilePath == null || resultsFilePath == null || seeds < 1
+                || threads < 1) {
+            printError("Missing required argument");
+            printUsage();
+            return 1;
+        }
+
+        Settings settings;
+        try (FileInputStream fis = new FileInputStream(settingsFilePath)) {
+            settings = Settings.read(fis);
+            settings.setCustomNames(FileFunctions.getCustomNames());
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException ex) {
+            ex.printStackTrace();
+            printError("Could not read settings file");
+            return 1;
+        }
+
+        File sourceRom = new File(sourceRomFilePath);
+        RomHandler.Factory factory = DryRuns.findFactory(sourceRom);
+        if (factory == null) {
+            System.err.printf(bundle.getString("GUI.unsupportedRom") + "%n", sourceRom.getName());
+            return 1;
+        }
+
+        // no log is written, so nothing would ever look at the result
+        RomIntegrityCheck.setSkipped(true);
+
+        DistributionAnalysis.Result result;
+        long start = System.currentTimeMillis();
+        try {
+            result = new DistributionAnalysis(factory, sourceRom, settings, bundle).analyze(firstSeed, seeds, threads);
+        } catch (Exception e) {
+            e.printStackTrace();
+            printError("Analysis failed");
+            return 1;
+        }
+
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(resultsFilePath), "UTF-8")) {
+            result.writeCsv(out);
+        } catch (IOException e) {
+            printError("Could not write analysis results");
+            return 1;
+        }
+
+        System.out.printf("Analyzed %d seeds (%d failed to randomize) in %.1fs on %d threads.%n",
+                result.getSeeds(), result.getFailedSeeds(), (System.currentTimeMillis() - start) / 1000.0, threads);
+        for (Map.Entry<String, Map<String, Long>> histogram : result.getHistograms().entrySet()) {
+            System.out.printf("  %-24s %6d keys%n", histogram.getKey(), histogram.getValue().size());
+        }
+        return 0;
+    }
+
+    private static void printError(String text) {
+        System.err.println("ERROR: " + text);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java [-Xmx4096M] -jar PokeRandoZX.jar analyze -s <path to settings file> " +
+                "-i <path to source ROM> -o <path for results CSV> [-n <seeds>][-j <threads>][-seed <first seed>]");
+        System.err.println("Randomizes the ROM in memory with seeds first seed, first seed + 1, ... and counts the " +
+                "species, types, BSTs, evolution stages and items placed.");
+    }
+}
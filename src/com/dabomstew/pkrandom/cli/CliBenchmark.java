@@ -0,0 +1,343 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.RandomSource;
+import com.dabomstew.pkrandom.Randomizer;
+import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.StageTimings;
+import com.dabomstew.pkrandom.ctr.GARCArchive;
+import com.dabomstew.pkrandom.newnds.NARCArchive;
+import com.dabomstew.pkrandom.romhandlers.*;
+import compressors.DSDecmp;
+import cuecompressors.BLZCoder;
+import pptxt.PPTxtHandler;
+import thenewpoketext.PokeTextData;
+import thenewpoketext.TextToPoke;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Repeatedly loads, randomizes and saves ROMs with fixed seeds, and reports how long each stage took.
+ * Meant for comparing builds against each other, so every run of the same ROMs and settings does the same work.
+ * Can also benchmark the file format codecs on their own, using SyntheticFixtures, and load synthetic ROMs whose
+ * trainer and wild encounter tables grow with the scale, so neither needs real ROMs at all.
+ */
+public class CliBenchmark {
+
+    private final static ResourceBundle bundle = java.util.ResourceBundle.getBundle("com/dabomstew/pkrandom/newgui/Bundle");
+
+    private static final String LOAD_STAGE = "Load ROM";
+    private static final String CODECS_NAME = "codecs";
+
+    private static class Sample {
+        private final String rom;
+        private final int iteration;
+        private final StageTimings.Stage stage;
+
+        private Sample(String rom, int iteration, StageTimings.Stage stage) {
+            this.rom = rom;
+            this.iteration = iteration;
+            this.stage = stage;
+        }
+    }
+
+    public static int invoke(String[] args) {
+        String settingsFilePath = null;
+        List<String> sourceRomFilePaths = new ArrayList<>();
+        String resultsFilePath = null;
+        int iterations = 5;
+        int warmups = 1;
+        boolean codecs = false;
+        List<String> syntheticTypes = new ArrayList<>();
+        int scale = 1;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-s":
+                        settingsFilePath = args[++i];
+                        break;
+                    case "-i":
+                        sourceRomFilePaths.add(args[++i]);
+                        break;
+                    case "-o":
+                        resultsFilePath = args[++i];
+                        break;
+                    case "-n":
+                        iterations = Integer.parseInt(args[++i]);
+                        break;
+                    case "-w":
+                        warmups = Integer.parseInt(args[++i]);
+                        break;
+                    case "-codecs":
+                        codecs = true;
+                        break;
+                    case "-synthetic":
+                        syntheticTypes.add(args[++i]);
+                        break;
+                    case "-scale":
+                        scale = Integer.parseInt(args[++i]);
+                        break;
+                    case "--help":
+                        printUsage();
+                        return 0;
+                    default:
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            printError("Invalid arguments");
+            printUsage();
+            return 1;
+        }
+
+        boolean romsGiven = !sourceRomFilePaths.isEmpty() || !syntheticTypes.isEmpty();
+        if ((!codecs && !romsGiven) || (romsGiven && settingsFilePath == null) || iterations < 1 || warmups < 0
+                || scale < 1) {
+            printError("Missing required argument");
+            printUsage();
+            return 1;
+        }
+
+        if (settingsFilePath != null) {
+            try {
+                readSettings(settingsFilePath);
+            } catch (UnsupportedOperationException | IllegalArgumentException | IOException ex) {
+                ex.printStackTrace();
+                printError("Could not read settings file");
+                return 1;
+            }
+        }
+
+        List<Sample> samples = new ArrayList<>();
+        try {
+            if (codecs) {
+                CodecFixtures fixtures = new CodecFixtures(scale);
+                for (int i = -warmups; i < iterations; i++) {
+                    List<StageTimings.Stage> stages = runCodecsOnce(fixtures);
+                    if (i >= 0) {
+                        for (StageTimings.Stage stage : stages) {
+                            samples.add(new Sample(CODECS_NAME, i, stage));
+                        }
+                    }
+                }
+            }
+            File outputDir = Files.createTempDirectory("uprbench").toFile();
+            outputDir.deleteOnExit();
+            for (String type : syntheticTypes) {
+                File synthetic = writeSyntheticRom(type, scale, outputDir);
+                if (synthetic == null) {
+                    printError("Unknown synthetic ROM type: " + type);
+                    return 1;
+                }
+                sourceRomFilePaths.add(synthetic.getAbsolutePath());
+            }
+            for (String romPath : sourceRomFilePaths) {
+                RomHandler.Factory factory = findFactory(romPath);
+                if (factory == null) {
+                    System.err.printf(bundle.getString("GUI.unsupportedRom") + "%n", new File(romPath).getName());
+                    return 1;
+                }
+                String romName = new File(romPath).getName();
+                for (int i = -warmups; i < iterations; i++) {
+                    List<StageTimings.Stage> stages = runOnce(factory, romPath, settingsFilePath, outputDir, i);
+                    if (i >= 0) {
+                        for (StageTimings.Stage stage : stages) {
+                            samples.add(new Sample(romName, i, stage));
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            printError("Benchmark failed");
+            return 1;
+        }
+
+        printSummary(samples);
+        if (resultsFilePath != null) {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(resultsFilePath), "UTF-8")) {
+                writeCsv(samples, out);
+            } catch (IOException e) {
+                printError("Could not write benchmark results");
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static RomHandler.Factory findFactory(String romPath) {
+        RomHandler.Factory[] checkHandlers = new RomHandler.Factory[] {
+                new Gen1RomHandler.Factory(),
+                new Gen2RomHandler.Factory(),
+                new Gen3RomHandler.Factory(),
+                new Gen4RomHandler.Factory(),
+                new Gen5RomHandler.Factory(),
+                new Gen6RomHandler.Factory(),
+                new Gen7RomHandler.Factory()
+        };
+        for (RomHandler.Factory rhf : checkHandlers) {
+            if (rhf.isLoadable(new File(romPath).getAbsolutePath())) {
+                return rhf;
+            }
+        }
+        return null;
+    }
+
+    private static File writeSyntheticRom(String type, int scale, File outputDir) throws IOException {
+        byte[] image;
+        switch (type) {
+            case "gba":
+                image = new SyntheticGen3Rom(0, scale).build();
+                break;
+            case "nds":
+                image = new SyntheticGen5Rom(0, scale).build();
+                break;
+            case "3ds":
+                image = new SyntheticGen6Rom(0, scale).build();
+                break;
+            default:
+                return null;
+        }
+        File file = new File(outputDir, "synthetic_x" + scale + "." + type);
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(image);
+        }
+        return file;
+    }
+
+    private static Settings readSettings(String settingsFilePath) throws IOException {
+        try (FileInputStream fis = new FileInputStream(settingsFilePath)) {
+            Settings settings = Settings.read(fis);
+            settings.setCustomNames(FileFunctions.getCustomNames());
+            return settings;
+        }
+    }
+
+    private static List<StageTimings.Stage> runOnce(RomHandler.Factory factory, String romPath,
+                                                    String settingsFilePath, File outputDir, int iteration)
+            throws IOException {
+        // a fresh handler and settings every time, so no iteration sees another's changes
+        Settings runSettings = readSettings(settingsFilePath);
+        StageTimings loadTimings = new StageTimings();
+        loadTimings.start(LOAD_STAGE);
+        RomHandler romHandler = factory.create(RandomSource.instance());
+        romHandler.loadRom(new File(romPath).getAbsolutePath());
+        loadTimings.finish();
+
+        runSettings.tweakForRom(romHandler);
+        File output = new File(outputDir, "bench." + romHandler.getDefaultExtension());
+        Randomizer randomizer = new Randomizer(runSettings, romHandler, bundle, false);
+        randomizer.randomize(output.getAbsolutePath(), new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }), iteration + 1000L);
+        output.delete();
+
+        List<StageTimings.Stage> stages = new ArrayList<>(loadTimings.getStages());
+        stages.addAll(randomizer.getStageTimings().getStages());
+        return stages;
+    }
+
+    private static class CodecFixtures {
+        private final byte[] narc;
+        private final byte[] garc;
+        private final byte[] blzData;
+        private final byte[] blzCompressed;
+        private final byte[] lz10Compressed;
+        private final List<String> strings;
+        private final byte[] gen4Text;
+        private final byte[] gen5Text;
+
+        private CodecFixtures(int scale) throws IOException {
+            // sizes are roughly those of the largest files the handlers load, times the scale
+            SyntheticFixtures fixtures = new SyntheticFixtures(0);
+            narc = fixtures.narc(1000 * scale, 256);
+            garc = fixtures.garc(1000 * scale, 256);
+            blzData = fixtures.gameLikeData(256 * 1024 * scale);
+            blzCompressed = new BLZCoder(null).BLZ_EncodePub(blzData, false, false, "benchmark");
+            lz10Compressed = fixtures.lz10Compressed(1024 * 1024 * scale);
+            strings = fixtures.strings(500 * scale, 40);
+            gen4Text = fixtures.gen4Text(strings);
+            gen5Text = fixtures.gen5Text(strings);
+        }
+    }
+
+    private static List<StageTimings.Stage> runCodecsOnce(CodecFixtures fixtures) throws IOException {
+        StageTimings timings = new StageTimings();
+        timings.start("NARC read");
+        NARCArchive narc = new NARCArchive(fixtures.narc);
+        timings.start("NARC write");
+        narc.getBytes();
+        timings.start("GARC read");
+        GARCArchive garc = new GARCArchive(fixtures.garc, true);
+        timings.start("GARC write");
+        garc.getBytes();
+        timings.start("BLZ decode");
+        new BLZCoder(null).BLZ_DecodePub(fixtures.blzCompressed, "benchmark");
+        timings.start("BLZ encode");
+        new BLZCoder(null).BLZ_EncodePub(fixtures.blzData, false, false, "benchmark");
+        timings.start("LZ10 decode");
+        DSDecmp.Decompress(fixtures.lz10Compressed);
+        timings.start("Gen 4 text read");
+        new PokeTextData(fixtures.gen4Text).decrypt();
+        timings.start("Gen 4 text write");
+        TextToPoke.MakeFile(fixtures.strings, false);
+        timings.start("Gen 5 text read");
+        PPTxtHandler.readTexts(fixtures.gen5Text);
+        timings.start("Gen 5 text write");
+        PPTxtHandler.saveEntry(fixtures.gen5Text, new ArrayList<>(fixtures.strings));
+        timings.finish();
+        return timings.getStages();
+    }
+
+    private static void printSummary(List<Sample> samples) {
+        // group by ROM, then by stage, keeping the order the stages ran in
+        Map<String, Map<String, List<StageTimings.Stage>>> byRom = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            byRom.computeIfAbsent(sample.rom, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(sample.stage.name, k -> new ArrayList<>())
+                    .add(sample.stage);
+        }
+        for (Map.Entry<String, Map<String, List<StageTimings.Stage>>> rom : byRom.entrySet()) {
+            System.out.println(rom.getKey());
+            System.out.printf("  %-24s %12s %12s %14s %10s%n", "Stage", "Median ms", "Max ms", "Median alloc", "RNG calls");
+            for (Map.Entry<String, List<StageTimings.Stage>> stage : rom.getValue().entrySet()) {
+                List<StageTimings.Stage> runs = stage.getValue();
+                long[] wall = runs.stream().mapToLong(s -> s.wallNanos).sorted().toArray();
+                long[] allocated = runs.stream().mapToLong(s -> s.allocatedBytes).sorted().toArray();
+                System.out.printf("  %-24s %12.2f %12.2f %14d %10d%n", stage.getKey(),
+                        wall[wall.length / 2] / 1e6, wall[wall.length - 1] / 1e6,
+                        allocated[allocated.length / 2], runs.get(0).rngCalls);
+            }
+        }
+    }
+
+    private static void writeCsv(List<Sample> samples, Writer out) throws IOException {
+        out.write("rom,iteration,stage,wall_ns,cpu_ns,allocated_bytes,rng_calls\n");
+        for (Sample sample : samples) {
+            out.write(String.format("\"%s\",%d,\"%s\",%d,%d,%d,%d\n", sample.rom.replace("\"", "\"\""),
+                    sample.iteration, sample.stage.name.replace("\"", "\"\""), sample.stage.wallNanos,
+                    sample.stage.cpuNanos, sample.stage.allocatedBytes, sample.stage.rngCalls));
+        }
+    }
+
+    private static void printError(String text) {
+        System.err.println("ERROR: " + text);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java [-Xmx4096M] -jar PokeRandoZX.jar benchmark [-s <path to settings file> " +
+                "-i <path to source ROM> [-i <path to another ROM>...] [-synthetic <gba|nds|3ds>...]][-codecs]" +
+                "[-scale <size multiplier>]" +
+                "[-n <iterations>][-w <warmup iterations>][-o <path for results CSV>]");
+        System.err.println("Each iteration loads, randomizes and saves every ROM, using the same seeds every run.");
+        System.err.println("-codecs: Also benchmark the archive, compression and text codecs on synthetic files");
+        System.err.println("-synthetic: Also benchmark a generated Fire Red (gba), Black (nds) or X (3ds) ROM, " +
+                "whose trainers and wild encounters are the real game's numbers times the scale");
+    }
+}
@@ -0,0 +1,474 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.CompiledSettings;
+import com.dabomstew.pkrandom.CustomNamesSet;
+import com.dabomstew.pkrandom.DryRuns;
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.Json;
+import com.dabomstew.pkrandom.LogFile;
+import com.dabomstew.pkrandom.RandomSource;
+import com.dabomstew.pkrandom.Randomizer;
+import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.SpoilerRecords;
+import com.dabomstew.pkrandom.StageTimings;
+import com.dabomstew.pkrandom.Version;
+import com.dabomstew.pkrandom.romhandlers.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stays running and randomizes ROMs on request, so that a series of seeds only pays for JVM startup, class
+ * loading, ROM detection and JIT warm-up once.
+ * Jobs are read one per line, from standard input or from connections to a port on the loopback address, as
+ * tab separated fields:
+ * <pre>
+ * job id, source ROM, settings string, seed, output path[, options]
+ * </pre>
+ * where options is a comma separated list of log, json-log, gzip-log and dry-run. The settings can also be given
+ * as "binary:" followed by the base64 of CompiledSettings.toBinary, which skips decoding the settings string
+ * for clients that keep settings in that form. Every job gets one line of
+ * JSON back, in the order the jobs finish, with the check value and stage timings, or an error message.
+ */
+public class CliDaemon {
+
+    private final static ResourceBundle bundle = java.util.ResourceBundle.getBundle("com/dabomstew/pkrandom/newgui/Bundle");
+
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String BINARY_SETTINGS_PREFIX = "binary:";
+
+    private static class Job {
+        private final String id;
+        private final String sourceRomPath;
+        private final String settingsString;
+        private final long seed;
+        private final String outputPath;
+        private final boolean saveLog;
+        private final boolean saveJsonLog;
+        private final boolean compressLog;
+        private final boolean dryRun;
+
+        private Job(String line) {
+            String[] fields = line.split(FIELD_SEPARATOR, -1);
+            if (fields.length < 5 || fields.length > 6) {
+                throw new IllegalArgumentException("Expected 5 or 6 tab separated fields, got " + fields.length);
+            }
+            this.id = fields[0];
+            this.sourceRomPath = new File(fields[1]).getAbsolutePath();
+            this.settingsString = fields[2];
+            try {
+                this.seed = Long.parseLong(fields[3]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid seed: " + fields[3]);
+            }
+            this.outputPath = new File(fields[4]).getAbsolutePath();
+            List<String> options = fields.length == 6 && !fields[5].isEmpty()
+                    ? Arrays.asList(fields[5].split(",")) : Collections.emptyList();
+            for (String option : options) {
+                if (!Arrays.asList("log", "json-log", "gzip-log", "dry-run").contains(option)) {
+                    throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            this.saveLog = options.contains("log");
+            this.saveJsonLog = options.contains("json-log");
+            this.compressLog = options.contains("gzip-log");
+            this.dryRun = options.contains("dry-run");
+        }
+    }
+
+    private final Semaphore pending;
+    private final ExecutorService workers;
+    // each worker slot loads every ROM from its own hard link, since the DS and 3DS handlers unpack files into
+    // a folder named after the ROM file
+    private final BlockingQueue<Integer> slots = new LinkedBlockingQueue<>();
+    private final Map<String, RomHandler.Factory> factories = new ConcurrentHashMap<>();
+    private final Map<String, File> romLinks = new ConcurrentHashMap<>();
+    private final AtomicInteger romLinkCount = new AtomicInteger();
+    private final int threads;
+    private final Path workDir;
+    private final CustomNamesSet customNames;
+
+    private CliDaemon(int threads, int queueSize) throws IOException {
+        this.threads = threads;
+        this.pending = new Semaphore(threads + queueSize);
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Randomizer daemon worker");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < threads; i++) {
+            slots.add(i);
+        }
+        this.workDir = Files.createTempDirectory("uprdaemon");
+        this.customNames = FileFunctions.getCustomNames();
+    }
+
+    public static int invoke(String[] args) {
+        List<String> sourceRomFilePaths = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueSize = -1;
+        int port = -1;
+        String parseCacheDirPath = null;
+        String warmUpSettingsFilePath = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-i":
+                        sourceRomFilePaths.add(args[++i]);
+                        break;
+                    case "-j":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-q":
+                        queueSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "-port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "-c":
+                        parseCacheDirPath = args[++i];
+                        break;
+                    case "-s":
+                        warmUpSettingsFilePath = args[++i];
+                        break;
+                    case "--help":
+                        printUsage();
+                        return 0;
+                    default:
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            printError("Invalid arguments");
+            printUsage();
+            return 1;
+        }
+        if (threads < 1) {
+            printError("Invalid arguments");
+            printUsage();
+            return 1;
+        }
+        if (queueSize < 0) {
+            queueSize = threads * 4;
+        }
+        if (parseCacheDirPath != null) {
+            RomParseCache.setDirectory(new File(parseCacheDirPath));
+        }
+
+        CliDaemon daemon;
+        try {
+            daemon = new CliDaemon(threads, queueSize);
+        } catch (IOException e) {
+            printError("Could not set up the daemon: " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::deleteRomLinks));
+
+        String warmUpSettings = null;
+        if (warmUpSettingsFilePath != null) {
+            try (FileInputStream fis = new FileInputStream(warmUpSettingsFilePath)) {
+                warmUpSettings = Version.VERSION + Settings.read(fis).toString();
+            } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+                printError("Could not read settings file");
+                return 1;
+            }
+        }
+        for (String path : sourceRomFilePaths) {
+            try {
+                daemon.warmUp(new File(path).getAbsolutePath(), warmUpSettings);
+            } catch (Exception e) {
+                printError("Could not load " + path + ": " + e.getMessage());
+                return 1;
+            }
+        }
+
+        try {
+            if (port >= 0) {
+                daemon.serve(port);
+            } else {
+                daemon.serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                        new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+                daemon.finish();
+            }
+        } catch (IOException e) {
+            printError(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            return 1;
+        }
+        return 0;
+    }
+
+    // detects the ROM and loads it once in every worker slot, so the handler classes are loaded and their config
+    // files read before the first real job; with settings, also randomizes it once so the randomization code is
+    // compiled too
+    private void warmUp(String sourceRomPath, String settingsString) throws Exception {
+        if (findFactory(sourceRomPath) == null) {
+            throw new IllegalArgumentException(String.format(bundle.getString("GUI.unsupportedRom"),
+                    new File(sourceRomPath).getName()));
+        }
+        List<Future<?>> warmUps = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            warmUps.add(workers.submit(() -> {
+                int slot = slots.take();
+                try {
+                    RomHandler romHandler = loadRom(sourceRomPath, slot);
+                    try {
+                        if (settingsString == null) {
+                            return null;
+                        }
+                        Settings settings = parseSettings(settingsString);
+                        settings.setCustomNames(customNames);
+                        settings.tweakForRom(romHandler);
+                        Randomizer randomizer = new Randomizer(settings, romHandler, bundle, false);
+                        randomizer.setDryRun(true);
+                        randomizer.randomize(sourceRomPath, DryRuns.nullLog(), 0);
+                    } finally {
+                        DryRuns.closeRom(romHandler);
+                    }
+                } finally {
+                    slots.add(slot);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> warmUp : warmUps) {
+            warmUp.get();
+        }
+    }
+
+    private void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.err.println("Listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> {
+                    try (Socket s = socket) {
+                        serve(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8),
+                                new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)));
+                    } catch (IOException | InterruptedException e) {
+                        // the client went away; its remaining jobs still run, their results are dropped
+                    }
+                }, "Randomizer daemon connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }
+    }
+
+    // reads jobs until the end of the input, and returns once every job read from it has been answered
+    private void serve(Reader in, PrintWriter out) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(in);
+        Phaser inFlight = new Phaser(1);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            Job job;
+            try {
+                job = new Job(line);
+            } catch (IllegalArgumentException e) {
+                String id = line.split(FIELD_SEPARATOR, 2)[0];
+                respond(out, errorResponse(id, e.getMessage()));
+                continue;
+            }
+            // blocks the reader once the queue is full, so a fast client can't pile up unbounded work
+            pending.acquire();
+            inFlight.register();
+            workers.execute(() -> {
+                try {
+                    respond(out, run(job));
+                } finally {
+                    inFlight.arriveAndDeregister();
+                    pending.release();
+                }
+            });
+        }
+        inFlight.arriveAndAwaitAdvance();
+    }
+
+    private String run(Job job) {
+        long start = System.nanoTime();
+        int slot;
+        try {
+            slot = slots.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorResponse(job.id, "Interrupted");
+        }
+        LogFile logFile = null;
+        SpoilerRecords spoilerRecords = null;
+        File spoilerRecordsFile = SpoilerRecords.fileFor(job.outputPath, job.compressLog);
+        try {
+            Settings settings = parseSettings(job.settingsString);
+            settings.setCustomNames(customNames);
+            if (findFactory(job.sourceRomPath) == null) {
+                return errorResponse(job.id, String.format(bundle.getString("GUI.unsupportedRom"),
+                        new File(job.sourceRomPath).getName()));
+            }
+            RomHandler romHandler = loadRom(job.sourceRomPath, slot);
+            long loadNanos = System.nanoTime() - start;
+            try {
+                settings.tweakForRom(romHandler);
+                PrintStream log = DryRuns.nullLog();
+                if (job.saveLog) {
+                    logFile = new LogFile(LogFile.fileFor(job.outputPath, job.compressLog), job.compressLog);
+                    log = logFile.getStream();
+                }
+                if (job.saveJsonLog) {
+                    spoilerRecords = SpoilerRecords.open(spoilerRecordsFile, job.compressLog);
+                }
+                Randomizer randomizer = new Randomizer(settings, romHandler, bundle, false);
+                randomizer.setDryRun(job.dryRun);
+                randomizer.setSpoilerRecords(spoilerRecords);
+                int checkValue = randomizer.randomize(job.outputPath, log, job.seed);
+                if (logFile != null) {
+                    logFile.close();
+                }
+                if (spoilerRecords != null) {
+                    spoilerRecords.close();
+                }
+                return okResponse(job.id, checkValue, loadNanos, System.nanoTime() - start,
+                        randomizer.getStageTimings());
+            } finally {
+                DryRuns.closeRom(romHandler);
+            }
+        } catch (Throwable e) {
+            // anything, even an Error, still gets an answer, or the client would wait for it forever
+            // there was never a log for a failed randomization, so don't leave half of one behind
+            if (logFile != null) {
+                logFile.delete();
+            }
+            if (spoilerRecords != null) {
+                try {
+                    spoilerRecords.close();
+                } catch (IOException ignored) {
+                }
+                spoilerRecordsFile.delete();
+            }
+            return errorResponse(job.id, e.toString());
+        } finally {
+            slots.add(slot);
+        }
+    }
+
+    private RomHandler.Factory findFactory(String sourceRomPath) {
+        RomHandler.Factory factory = factories.get(sourceRomPath);
+        if (factory == null) {
+            factory = DryRuns.findFactory(new File(sourceRomPath));
+            if (factory != null) {
+                factories.put(sourceRomPath, factory);
+            }
+        }
+        return factory;
+    }
+
+    // a handler changes its loaded ROM as it randomizes, so every job loads a fresh one; the ROM file stays in
+    // the OS file cache between jobs, so this is mostly parsing
+    private RomHandler loadRom(String sourceRomPath, int slot) throws IOException {
+        File rom = romLinks.computeIfAbsent(slot + File.pathSeparator + sourceRomPath, k -> {
+            try {
+                // numbered from a counter rather than by the number of links so far, since links for different
+                // slots can be made at the same time
+                return DryRuns.linkRom(new File(sourceRomPath), workDir, romLinkCount.getAndIncrement());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        RomHandler romHandler = factories.get(sourceRomPath).create(RandomSource.instance());
+        romHandler.loadRom(rom.getAbsolutePath());
+        return romHandler;
+    }
+
+    private void finish() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void deleteRomLinks() {
+        for (File link : romLinks.values()) {
+            link.delete();
+        }
+        workDir.toFile().delete();
+    }
+
+    // takes a settings string as the GUI shows it, with the version number in front; jobs with the same settings
+    // string only decode and update it once
+    private static Settings parseSettings(String settingsString) {
+        if (settingsString.startsWith(BINARY_SETTINGS_PREFIX)) {
+            byte[] encoded;
+            try {
+                encoded = Base64.getDecoder().decode(settingsString.substring(BINARY_SETTINGS_PREFIX.length()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid base64 in binary settings");
+            }
+            return CompiledSettings.fromBinary(encoded).toSettings();
+        }
+        if (settingsString.length() < 3) {
+            throw new IllegalArgumentException("Invalid settings string");
+        }
+        int version = Integer.parseInt(settingsString.substring(0, 3));
+        if (version > Version.VERSION) {
+            throw new IllegalArgumentException("The settings string is from a newer version of the randomizer");
+        }
+        return CompiledSettings.of(version, settingsString.substring(3)).toSettings();
+    }
+
+    private static void respond(PrintWriter out, String response) {
+        synchronized (out) {
+            out.println(response);
+            out.flush();
+        }
+    }
+
+    private static String okResponse(String id, int checkValue, long loadNanos, long totalNanos,
+                                     StageTimings timings) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", id);
+        response.put("status", "ok");
+        response.put("check_value", String.format("%08X", checkValue));
+        response.put("load_ns", loadNanos);
+        response.put("total_ns", totalNanos);
+        response.put("stages", timings.toJsonRecords());
+        return Json.toJson(response);
+    }
+
+    private static String errorResponse(String id, String message) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", id);
+        response.put("status", "error");
+        response.put("message", message);
+        return Json.toJson(response);
+    }
+
+    private static void printError(String text) {
+        System.err.println("ERROR: " + text);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java [-Xmx4096M] -jar PokeRandoZX.jar daemon [-i <path to source ROM>]... " +
+                "[-s <path to settings file>][-j <threads>][-q <queued jobs>][-port <port>][-c <path to parse cache directory>]");
+        System.err.println("-i: Load and warm up for this ROM at startup (jobs can still name other ROMs)");
+        System.err.println("-s: Also randomize each -i ROM once with these settings at startup, to warm up " +
+                "the randomization code");
+        System.err.println("-j: Number of jobs to run at once; defaults to the number of cores");
+        System.err.println("-q: Number of jobs to accept beyond those running before reading blocks; " +
+                "defaults to 4 per thread");
+        System.err.println("-port: Take jobs from connections to this port on the loopback address, " +
+                "instead of from standard input");
+        System.err.println("Jobs are lines of tab separated fields: job id, source ROM, settings string, seed, " +
+                "output path, and optionally a comma separated list of log, json-log, gzip-log and dry-run.");
+        System.err.println("The settings can also be given as binary: followed by base64 of the binary settings form.");
+        System.err.println("Each job is answered with one line of JSON, as it finishes.");
+    }
+}
@@ -1,9 +1,13 @@
 package com.dabomstew.pkrandom.cli;
 
 import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.LogFile;
+import com.dabomstew.pkrandom.PatchFunctions;
 import com.dabomstew.pkrandom.RandomSource;
 import com.dabomstew.pkrandom.Randomizer;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
 import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.SpoilerRecords;
 import com.dabomstew.pkrandom.romhandlers.*;
 
 import java.io.*;
@@ -18,7 +22,10 @@ public class CliRandomizer {
 
     private static boolean performDirectRandomization(String settingsFilePath, String sourceRomFilePath,
                                                       String destinationRomFilePath, boolean saveAsDirectory,
-                                                      String updateFilePath, boolean saveLog) {
+                                                      String updateFilePath, boolean saveLog,
+                                                      boolean compressLog, boolean saveJsonLog,
+                                                      String timingsFilePath, boolean dryRun,
+                                                      PatchFunctions.Format patchFormat) {
         // borrowed directly from NewRandomizerGUI()
         RomHandler.Factory[] checkHandlers = new RomHandler.Factory[] {
                 new Gen1RomHandler.Factory(),
@@ -43,16 +50,6 @@ public class CliRandomizer {
             return false;
         }
 
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintStream log;
-        try {
-            log = new PrintStream(baos, false, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            log = new PrintStream(baos);
-        }
-
-        final PrintStream verboseLog = log;
-
         try {
             File romFileHandler = new File(sourceRomFilePath);
             RomHandler romHandler;
@@ -75,8 +72,18 @@ public class CliRandomizer {
 
                     CliRandomizer.displaySettingsWarnings(settings, romHandler);
 
+                    if (patchFormat != null && !romHandler.canSaveRomPatch()) {
+                        printError("Patches can only be saved for GB, GBC and GBA games");
+                        return false;
+                    }
+
                     File fh = new File(destinationRomFilePath);
-                    if (!saveAsDirectory) {
+                    if (patchFormat != null) {
+                        String patchExtension = patchFormat.extension;
+                        List<String> extensions = new ArrayList<>(Arrays.asList("sgb", "gbc", "gba", "ips", "bps"));
+                        extensions.remove(patchExtension);
+                        fh = FileFunctions.fixFilename(fh, patchExtension, extensions);
+                    } else if (!saveAsDirectory) {
                         List<String> extensions = new ArrayList<>(Arrays.asList("sgb", "gbc", "gba", "nds", "cxi"));
                         extensions.remove(romHandler.getDefaultExtension());
 
@@ -92,23 +99,80 @@ public class CliRandomizer {
 
                     String filename = fh.getAbsolutePath();
 
-                    Randomizer randomizer = new Randomizer(settings, romHandler, bundle, saveAsDirectory);
-                    randomizer.randomize(filename, verboseLog);
-                    verboseLog.close();
-                    byte[] out = baos.toByteArray();
+                    // the log goes straight to its file as it is written, so it is never all in memory at once
+                    LogFile logFile = null;
+                    PrintStream verboseLog = new PrintStream(new OutputStream() {
+                        @Override
+                        public void write(int b) {
+                        }
+                    });
                     if (saveLog) {
                         try {
-                            FileOutputStream fos = new FileOutputStream(filename + ".log");
-                            fos.write(0xEF);
-                            fos.write(0xBB);
-                            fos.write(0xBF);
-                            fos.write(out);
-                            fos.close();
+                            logFile = new LogFile(LogFile.fileFor(filename, compressLog), compressLog);
+                            verboseLog = logFile.getStream();
+                        } catch (IOException e) {
+                            printWarning("Could not write log.");
+                        }
+                    }
+
+                    SpoilerRecords spoilerRecords = null;
+                    File spoilerRecordsFile = SpoilerRecords.fileFor(filename, compressLog);
+                    if (saveJsonLog) {
+                        try {
+                            spoilerRecords = SpoilerRecords.open(spoilerRecordsFile, compressLog);
+                        } catch (IOException e) {
+                            printWarning("Could not write JSON log.");
+                        }
+                    }
+
+                    Randomizer randomizer = new Randomizer(settings, romHandler, bundle, saveAsDirectory);
+                    randomizer.setDryRun(dryRun);
+                    randomizer.setSpoilerRecords(spoilerRecords);
+                    randomizer.setPatchFormat(patchFormat);
+                    try {
+                        randomizer.randomize(filename, verboseLog);
+                    } catch (RuntimeException e) {
+                        // there was never a log for a failed randomization, so don't leave half of one behind
+                        if (logFile != null) {
+                            logFile.delete();
+                        }
+                        if (spoilerRecords != null) {
+                            try {
+                                spoilerRecords.close();
+                            } catch (IOException ignored) {
+                            }
+                            spoilerRecordsFile.delete();
+                        }
+                        throw e;
+                    }
+                    if (logFile != null) {
+                        try {
+                            logFile.close();
                         } catch (IOException e) {
                             printWarning("Could not write log.");
                         }
                     }
-                    System.out.println("Randomized successfully!");
+                    if (spoilerRecords != null) {
+                        try {
+                            spoilerRecords.close();
+                        } catch (IOException e) {
+                            printWarning("Could not write JSON log.");
+                        }
+                    }
+                    if (timingsFilePath != null) {
+                        try (Writer timingsWriter = new OutputStreamWriter(new FileOutputStream(timingsFilePath),
+                                "UTF-8")) {
+                            if (timingsFilePath.toLowerCase().endsWith(".csv")) {
+                                randomizer.getStageTimings().writeCsv(timingsWriter);
+                            } else {
+                                randomizer.getStageTimings().writeJson(timingsWriter);
+                            }
+                        } catch (IOException e) {
+                            printWarning("Could not write stage timings.");
+                        }
+                    }
+                    System.out.println(dryRun ? "Randomized successfully! (dry run, no ROM was written)"
+                            : "Randomized successfully!");
                     // this is the only successful exit, everything else will return false at the end of the function
                     return true;
                 }
@@ -138,8 +202,16 @@ public class CliRandomizer {
         boolean saveAsDirectory = false;
         String updateFilePath = null;
         boolean saveLog = false;
+        boolean compressLog = false;
+        boolean saveJsonLog = false;
+        String parseCacheDirPath = null;
+        String timingsFilePath = null;
+        boolean dryRun = false;
+        boolean skipIntegrityCheck = false;
+        PatchFunctions.Format patchFormat = null;
 
-        List<String> allowedFlags = Arrays.asList("-i", "-o", "-s", "-d", "-u", "-l", "--help");
+        List<String> allowedFlags = Arrays.asList("-i", "-o", "-s", "-d", "-u", "-l", "-c", "-t", "-p", "--dry-run", "--gzip-log", "--json-log",
+                "--skip-integrity-check", "--help");
         for (int i = 0; i < args.length; i++) {
             if (allowedFlags.contains(args[i])) {
                 switch(args[i]) {
@@ -161,6 +233,36 @@ public class CliRandomizer {
                     case "-l":
                         saveLog = true;
                         break;
+                    case "-c":
+                        parseCacheDirPath = args[i + 1];
+                        break;
+                    case "-t":
+                        timingsFilePath = args[i + 1];
+                        break;
+                    case "-p":
+                        String format = args[i + 1];
+                        if (format.equalsIgnoreCase("ips")) {
+                            patchFormat = PatchFunctions.Format.IPS;
+                        } else if (format.equalsIgnoreCase("bps")) {
+                            patchFormat = PatchFunctions.Format.BPS;
+                        } else {
+                            printError("Unknown patch format: " + format);
+                            CliRandomizer.printUsage();
+                            return 1;
+                        }
+                        break;
+                    case "--dry-run":
+                        dryRun = true;
+                        break;
+                    case "--gzip-log":
+                        compressLog = true;
+                        break;
+                    case "--json-log":
+                        saveJsonLog = true;
+                        break;
+                    case "--skip-integrity-check":
+                        skipIntegrityCheck = true;
+                        break;
                     case "--help":
                         printUsage();
                         return 0;
@@ -198,13 +300,23 @@ public class CliRandomizer {
             return 1;
         }
 
+        if (parseCacheDirPath != null) {
+            RomParseCache.setDirectory(new File(parseCacheDirPath));
+        }
+        RomIntegrityCheck.setSkipped(skipIntegrityCheck);
+
         boolean processResult = CliRandomizer.performDirectRandomization(
                 settingsFilePath,
                 sourceRomFilePath,
                 outputRomFilePath,
                 saveAsDirectory,
                 updateFilePath,
-                saveLog
+                saveLog,
+                compressLog,
+                saveJsonLog,
+                timingsFilePath,
+                dryRun,
+                patchFormat
         );
         if (!processResult) {
             printError("Randomization failed");
@@ -224,7 +336,19 @@ public class CliRandomizer {
 
     private static void printUsage() {
         System.err.println("Usage: java [-Xmx4096M] -jar PokeRandoZX.jar cli -s <path to settings file> " +
-                "-i <path to source ROM> -o <path for new ROM> [-d][-u <path to 3DS game update>][-l]");
+                "-i <path to source ROM> -o <path for new ROM> [-d][-u <path to 3DS game update>][-l]" +
+                "[-c <path to parse cache directory>][-t <path for stage timings>][-p <ips|bps>][--dry-run][--gzip-log][--json-log][--skip-integrity-check]");
         System.err.println("-d: Save 3DS game as directory (LayeredFS)");
+        System.err.println("-c: Cache offsets found in the source ROM, to load it faster next time (Gen 3 only)");
+        System.err.println("-t: Save the time taken by each randomization stage, as CSV if the path ends in .csv, " +
+                "otherwise as JSON");
+        System.err.println("-p: Save an IPS or BPS patch against the source ROM instead of the new ROM, with the " +
+                "output path's extension changed to .ips or .bps (GB, GBC and GBA only; IPS only reaches the first 16MB)");
+        System.err.println("--dry-run: Randomize without saving the ROM; use with -l to only get the log");
+        System.err.println("--gzip-log: Save the logs gzipped, as <output ROM>.log.gz");
+        System.err.println("--json-log: Also save the results as JSON Lines, one record per line, to " +
+                "<output ROM>.log.jsonl (.log.jsonl.gz with --gzip-log)");
+        System.err.println("--skip-integrity-check: Do not check the source ROM's files against known good ones " +
+                "(for batch jobs which have already checked it); the log then always reports the ROM as valid");
     }
 }
@@ -0,0 +1,109 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.RandomSource;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
+import com.dabomstew.pkrandom.SpriteExport;
+import com.dabomstew.pkrandom.romhandlers.*;
+
+import java.io.File;
+import java.util.ResourceBundle;
+
+/**
+ * Writes the image of every Pokemon in a ROM as PNG files, or as one sprite sheet, drawing them on every core.
+ */
+public class CliSprites {
+
+    private final static ResourceBundle bundle = java.util.ResourceBundle.getBundle("com/dabomstew/pkrandom/newgui/Bundle");
+
+    public static int invoke(String[] args) {
+        String sourceRomFilePath = null;
+        String outputPath = null;
+        boolean sheet = false;
+        boolean shiny = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-i":
+                        sourceRomFilePath = args[++i];
+                        break;
+                    case "-o":
+                        outputPath = args[++i];
+                        break;
+                    case "-j":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--sheet":
+                        sheet = true;
+                        break;
+                    case "--shiny":
+                        shiny = true;
+                        break;
+                    case "--help":
+                        printUsage();
+                        return 0;
+                    default:
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            printError("Invalid arguments");
+            printUsage();
+            return 1;
+        }
+
+        if (sourceRomFilePath == null || outputPath == null || threads < 1) {
+            printError("Missing required argument");
+            printUsage();
+            return 1;
+        }
+
+        File sourceRom = new File(sourceRomFilePath);
+        RomHandler.Factory[] checkHandlers = new RomHandler.Factory[] {
+                new Gen1RomHandler.Factory(),
+                new Gen2RomHandler.Factory(),
+                new Gen3RomHandler.Factory(),
+                new Gen4RomHandler.Factory(),
+                new Gen5RomHandler.Factory(),
+                new Gen6RomHandler.Factory(),
+                new Gen7RomHandler.Factory()
+        };
+        // only the images are read, so whether the ROM's other files are as expected doesn't matter
+        RomIntegrityCheck.setSkipped(true);
+
+        for (RomHandler.Factory rhf : checkHandlers) {
+            if (rhf.isLoadable(sourceRom.getAbsolutePath())) {
+                try {
+                    RomHandler romHandler = rhf.create(RandomSource.instance());
+                    romHandler.loadRom(sourceRom.getAbsolutePath());
+                    long start = System.currentTimeMillis();
+                    int written = sheet
+                            ? SpriteExport.exportSheet(romHandler, new File(outputPath), shiny, threads)
+                            : SpriteExport.exportAll(romHandler, new File(outputPath), shiny, threads);
+                    System.out.printf("Wrote %d images in %.1fs.%n", written,
+                            (System.currentTimeMillis() - start) / 1000.0);
+                    return 0;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    printError("Could not export images");
+                    return 1;
+                }
+            }
+        }
+        System.err.printf(bundle.getString("GUI.unsupportedRom") + "%n", sourceRom.getName());
+        return 1;
+    }
+
+    private static void printError(String text) {
+        System.err.println("ERROR: " + text);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java [-Xmx4096M] -jar PokeRandoZX.jar sprites -i <path to source ROM> " +
+                "-o <path for images> [-j <threads>][--sheet][--shiny]");
+        System.err.println("-o: The folder to write one PNG per Pokemon to, or with --sheet, the PNG to write " +
+                "a sheet of every Pokemon to");
+        System.err.println("--shiny: Use the shiny palettes, in games which have them");
+    }
+}
@@ -0,0 +1,290 @@
+package com.dabomstew.pkrandom.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lays out a decrypted 3DS NCCH (a bare CXI) the way NCCH reads one: a header, an exefs with the .code and an
+ * icon, then a romfs holding the files. Only the parts NCCH looks at are filled in; there is no exheader or logo,
+ * and the exefs and romfs hashes are left zero, since NCCH never checks them and works them out again when it
+ * saves. So the image isn't something a 3DS could run.
+ */
+class SyntheticCtrImage {
+
+    private static final int MEDIA_UNIT = 0x200, HEADER_AND_EXHEADER_SIZE = 0xA00, EXEFS_HEADER_SIZE = 0x200;
+    private static final int ICON_SIZE = 0x36C0;
+    private static final int HASH_BLOCK_LOG2 = 12, HASH_BLOCK_SIZE = 1 << HASH_BLOCK_LOG2, HASH_SIZE = 0x20;
+    private static final int ROMFS_HEADER_SIZE = 0x60, LEVEL3_HEADER_SIZE = 0x28;
+    private static final int UNUSED = 0xFFFFFFFF;
+
+    private static class Directory {
+        private final String name;
+        private final Directory parent;
+        private final Map<String, Directory> directories = new TreeMap<>();
+        private final Map<String, byte[]> files = new TreeMap<>();
+        private int offset;
+
+        private Directory(String name, Directory parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+
+    private static class File {
+        private final String name;
+        private final Directory parent;
+        private final byte[] contents;
+        private int offset;
+        private long dataOffset;
+
+        private File(String name, Directory parent, byte[] contents) {
+            this.name = name;
+            this.parent = parent;
+            this.contents = contents;
+        }
+    }
+
+    private final String productCode;
+    private final String titleId;
+    private byte[] code = new byte[0];
+    private final Directory root = new Directory("", null);
+
+    /**
+     * @param productCode The product code, e.g. CTR-P-EKJA.
+     * @param titleId The title ID as 16 hex digits, as the handlers name it.
+     */
+    SyntheticCtrImage(String productCode, String titleId) {
+        this.productCode = productCode;
+        this.titleId = titleId;
+    }
+
+    /**
+     * @param code The uncompressed .code.
+     */
+    void setCode(byte[] code) {
+        this.code = code;
+    }
+
+    /**
+     * @param path The path of the file in the romfs, with '/' between directories, as the handlers name it.
+     */
+    void addFile(String path, byte[] contents) {
+        String[] parts = path.split("/");
+        Directory dir = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Directory parent = dir;
+            dir = dir.directories.computeIfAbsent(parts[i], k -> new Directory(k, parent));
+        }
+        dir.files.put(parts[parts.length - 1], contents);
+    }
+
+    byte[] build() {
+        byte[] exefs = exefs();
+        byte[] romfs = romfs();
+        int exefsOffset = HEADER_AND_EXHEADER_SIZE;
+        int romfsOffset = align(exefsOffset + exefs.length, HASH_BLOCK_SIZE);
+
+        ByteBuffer buf = ByteBuffer.allocate(romfsOffset + romfs.length);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        // the magic is read big-endian
+        buf.put(0x100, ascii("NCCH"));
+        buf.putInt(0x104, buf.capacity() / MEDIA_UNIT);
+        long id = Long.parseUnsignedLong(titleId, 16);
+        buf.putLong(0x108, id);
+        buf.putShort(0x112, (short) 2);
+        buf.putLong(0x118, id);
+        buf.put(0x150, ascii(productCode));
+        // the noCrypto flag, so the image reads as decrypted
+        buf.put(0x18F, (byte) 4);
+        buf.putInt(0x1A0, exefsOffset / MEDIA_UNIT);
+        buf.putInt(0x1A4, exefs.length / MEDIA_UNIT);
+        buf.putInt(0x1A8, exefs.length / MEDIA_UNIT);
+        buf.putInt(0x1B0, romfsOffset / MEDIA_UNIT);
+        buf.putInt(0x1B4, romfs.length / MEDIA_UNIT);
+        buf.putInt(0x1B8, romfs.length / MEDIA_UNIT);
+        buf.position(exefsOffset);
+        buf.put(exefs);
+        buf.position(romfsOffset);
+        buf.put(romfs);
+        return buf.array();
+    }
+
+    private byte[] exefs() {
+        int iconOffset = align(code.length, MEDIA_UNIT);
+        ByteBuffer buf = ByteBuffer.allocate(EXEFS_HEADER_SIZE + align(iconOffset + ICON_SIZE, MEDIA_UNIT));
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(0, ascii(".code"));
+        buf.putInt(0x08, 0);
+        buf.putInt(0x0C, code.length);
+        buf.put(0x10, ascii("icon"));
+        buf.putInt(0x18, iconOffset);
+        buf.putInt(0x1C, ICON_SIZE);
+        buf.position(EXEFS_HEADER_SIZE);
+        buf.put(code);
+        buf.put(EXEFS_HEADER_SIZE + iconOffset, ascii("SMDH"));
+        return buf.array();
+    }
+
+    private byte[] romfs() {
+        List<Directory> directories = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        int[] tableLengths = new int[2];
+        long[] dataLength = new long[1];
+        visit(root, directories, files, tableLengths, dataLength);
+
+        // one empty bucket each, since NCCH finds the files by walking the directories
+        int directoryHashTableOffset = LEVEL3_HEADER_SIZE;
+        int directoryTableOffset = directoryHashTableOffset + 4;
+        int fileHashTableOffset = directoryTableOffset + tableLengths[0];
+        int fileTableOffset = fileHashTableOffset + 4;
+        int fileDataOffset = align(fileTableOffset + tableLengths[1], 0x10);
+        long level3Size = fileDataOffset + dataLength[0];
+
+        // the sizes of the hash levels as NCCH works them out when it rebuilds the romfs
+        long level2Size = blocks(level3Size) * HASH_SIZE;
+        long level1Size = blocks(level2Size) * HASH_SIZE;
+        int masterHashSize = (int) blocks(level1Size) * HASH_SIZE;
+        int level3Offset = align(ROMFS_HEADER_SIZE + masterHashSize, HASH_BLOCK_SIZE);
+        long level1Offset = level3Offset + alignLong(level3Size, HASH_BLOCK_SIZE);
+        long level2Offset = level1Offset + alignLong(level1Size, HASH_BLOCK_SIZE);
+        long end = level2Offset + alignLong(level2Size, HASH_BLOCK_SIZE);
+
+        ByteBuffer buf = ByteBuffer.allocate((int) end);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        // the magic and version are read big-endian
+        buf.put(0, ascii("IVFC"));
+        buf.order(ByteOrder.BIG_ENDIAN);
+        buf.putInt(0x04, 0x100);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(0x08, masterHashSize);
+        buf.putLong(0x0C, 0);
+        buf.putLong(0x14, level1Size);
+        buf.putInt(0x1C, HASH_BLOCK_LOG2);
+        long level2LogicalOffset = alignLong(level1Size, HASH_BLOCK_SIZE);
+        buf.putLong(0x24, level2LogicalOffset);
+        buf.putLong(0x2C, level2Size);
+        buf.putInt(0x34, HASH_BLOCK_LOG2);
+        buf.putLong(0x3C, alignLong(level2LogicalOffset + level2Size, HASH_BLOCK_SIZE));
+        buf.putLong(0x44, level3Size);
+        buf.putInt(0x4C, HASH_BLOCK_LOG2);
+        buf.putInt(0x58, ROMFS_HEADER_SIZE - 4);
+
+        buf.position(level3Offset);
+        buf.putInt(LEVEL3_HEADER_SIZE);
+        buf.putInt(directoryHashTableOffset);
+        buf.putInt(4);
+        buf.putInt(directoryTableOffset);
+        buf.putInt(tableLengths[0]);
+        buf.putInt(fileHashTableOffset);
+        buf.putInt(4);
+        buf.putInt(fileTableOffset);
+        buf.putInt(tableLengths[1]);
+        buf.putInt(fileDataOffset);
+        buf.putInt(UNUSED);
+
+        buf.position(level3Offset + directoryTableOffset);
+        for (Directory dir : directories) {
+            byte[] name = utf16(dir.name);
+            buf.putInt(dir.parent == null ? 0 : dir.parent.offset);
+            buf.putInt(nextSibling(dir));
+            buf.putInt(dir.directories.isEmpty() ? UNUSED : dir.directories.values().iterator().next().offset);
+            buf.putInt(firstFile(dir, files));
+            buf.putInt(UNUSED);
+            buf.putInt(name.length);
+            buf.put(name);
+            buf.position(buf.position() + align(name.length, 4) - name.length);
+        }
+        buf.putInt(level3Offset + fileHashTableOffset, UNUSED);
+
+        buf.position(level3Offset + fileTableOffset);
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            byte[] name = utf16(file.name);
+            boolean hasSibling = i + 1 < files.size() && files.get(i + 1).parent == file.parent;
+            buf.putInt(file.parent.offset);
+            buf.putInt(hasSibling ? files.get(i + 1).offset : UNUSED);
+            buf.putLong(file.dataOffset);
+            buf.putLong(file.contents.length);
+            buf.putInt(UNUSED);
+            buf.putInt(name.length);
+            buf.put(name);
+            buf.position(buf.position() + align(name.length, 4) - name.length);
+        }
+        for (File file : files) {
+            buf.position((int) (level3Offset + fileDataOffset + file.dataOffset));
+            buf.put(file.contents);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Numbers the directories and files in the order NCCH visits them: a directory's files, then each of its
+     * directories in turn. The file metadata and the file data both follow that order, which NCCH relies on
+     * when it writes the romfs back.
+     */
+    private static void visit(Directory dir, List<Directory> directories, List<File> files, int[] tableLengths,
+                              long[] dataLength) {
+        dir.offset = tableLengths[0];
+        directories.add(dir);
+        tableLengths[0] += 0x18 + align(utf16(dir.name).length, 4);
+        for (Map.Entry<String, byte[]> entry : dir.files.entrySet()) {
+            File file = new File(entry.getKey(), dir, entry.getValue());
+            file.offset = tableLengths[1];
+            file.dataOffset = dataLength[0];
+            files.add(file);
+            tableLengths[1] += 0x20 + align(utf16(file.name).length, 4);
+            dataLength[0] = alignLong(dataLength[0] + file.contents.length, 0x10);
+        }
+        for (Directory sub : dir.directories.values()) {
+            visit(sub, directories, files, tableLengths, dataLength);
+        }
+    }
+
+    private static int nextSibling(Directory dir) {
+        if (dir.parent == null) {
+            return UNUSED;
+        }
+        boolean found = false;
+        for (Directory sibling : dir.parent.directories.values()) {
+            if (found) {
+                return sibling.offset;
+            }
+            found = sibling == dir;
+        }
+        return UNUSED;
+    }
+
+    private static int firstFile(Directory dir, List<File> files) {
+        for (File file : files) {
+            if (file.parent == dir) {
+                return file.offset;
+            }
+        }
+        return UNUSED;
+    }
+
+    private static long blocks(long size) {
+        return alignLong(size, HASH_BLOCK_SIZE) / HASH_BLOCK_SIZE;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] utf16(String text) {
+        return text.getBytes(StandardCharsets.UTF_16LE);
+    }
+
+    private static int align(int offset, int alignment) {
+        return (offset + alignment - 1) & ~(alignment - 1);
+    }
+
+    private static long alignLong(long offset, long alignment) {
+        return (offset + alignment - 1) & ~(alignment - 1);
+    }
+}
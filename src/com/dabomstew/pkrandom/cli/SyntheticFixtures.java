@@ -0,0 +1,285 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.constants.Gen6Constants;
+import com.dabomstew.pkrandom.newnds.NARCArchive;
+import cuecompressors.BLZCoder;
+import pptxt.N3DSTxtHandler;
+import pptxt.PPTxtHandler;
+import thenewpoketext.PokeTextData;
+import thenewpoketext.TextToPoke;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds synthetic, structurally valid files in the formats the ROM handlers read and write, so that
+ * the codecs can be benchmarked without any commercial ROMs.
+ * The contents are made up, but the sizes can be scaled freely, and the same arguments always give the
+ * same bytes.
+ */
+public class SyntheticFixtures {
+
+    private final Random random;
+
+    /**
+     * @param seed The seed for the file contents.
+     */
+    public SyntheticFixtures(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Makes data which compresses about as well as real game data: short runs of repeated bytes
+     * mixed with noise.
+     * @param length The length of the data.
+     * @return The data.
+     */
+    public byte[] gameLikeData(int length) {
+        byte[] data = new byte[length];
+        int i = 0;
+        while (i < length) {
+            int run = Math.min(length - i, 1 + random.nextInt(8));
+            byte value = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : random.nextInt(16));
+            for (int j = 0; j < run; j++) {
+                data[i++] = value;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Makes a NARC archive, as used by the Gen 4 and 5 games.
+     * @param fileCount The number of files in the archive.
+     * @param fileSize The size of each file.
+     * @return The bytes of the NARC.
+     */
+    public byte[] narc(int fileCount, int fileSize) throws IOException {
+        NARCArchive narc = new NARCArchive();
+        for (int i = 0; i < fileCount; i++) {
+            narc.files.add(gameLikeData(fileSize));
+        }
+        return narc.getBytes();
+    }
+
+    /**
+     * Makes a version 6 GARC archive, as used by the Gen 6 and 7 games, with one uncompressed file
+     * per entry.
+     * @param fileCount The number of files in the archive.
+     * @param fileSize The size of each file.
+     * @return The bytes of the GARC.
+     */
+    public byte[] garc(int fileCount, int fileSize) {
+        List<byte[]> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            byte[] file = gameLikeData(fileSize);
+            // a first byte of 0x11 would mark the file as compressed
+            file[0] = 0;
+            files.add(file);
+        }
+        return garc(files);
+    }
+
+    /**
+     * Makes a version 6 GARC archive holding the given files, uncompressed, one per entry.
+     * @param files The files, none of them empty. The handlers that read an archive with decompression
+     *              take a file starting with 0x11 for a compressed one.
+     * @return The bytes of the GARC.
+     */
+    public byte[] garc(List<byte[]> files) {
+        int padTo = 4;
+        int fileCount = files.size();
+        int largestSize = 0;
+        int dataSize = 0;
+        for (byte[] file : files) {
+            largestSize = Math.max(largestSize, file.length);
+            dataSize += padded(file.length, padTo);
+        }
+        int garcHeaderSize = 0x24;
+        int fatoSize = 12 + 4 * fileCount;
+        int fatbSize = 12 + 16 * fileCount;
+        int fimbHeaderSize = 12;
+        int dataOffset = garcHeaderSize + fatoSize + fatbSize + fimbHeaderSize;
+
+        ByteBuffer buf = ByteBuffer.allocate(dataOffset + dataSize);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.put("CRAG".getBytes());
+        buf.putInt(garcHeaderSize);
+        buf.putShort((short) 0xFEFF);
+        buf.putShort((short) 0x0600);
+        buf.putInt(4);
+        buf.putInt(dataOffset);
+        buf.putInt(dataOffset + dataSize);
+        buf.putInt(padded(largestSize, padTo));
+        buf.putInt(largestSize);
+        buf.putInt(padTo);
+
+        buf.put("OTAF".getBytes());
+        buf.putInt(fatoSize);
+        buf.putShort((short) fileCount);
+        buf.putShort((short) 0xFFFF);
+        for (int i = 0; i < fileCount; i++) {
+            buf.putInt(i * 16);
+        }
+
+        buf.put("BTAF".getBytes());
+        buf.putInt(fatbSize);
+        buf.putInt(fileCount);
+        int start = 0;
+        for (byte[] file : files) {
+            buf.putInt(1);
+            buf.putInt(start);
+            buf.putInt(start + file.length);
+            buf.putInt(file.length);
+            start += padded(file.length, padTo);
+        }
+
+        buf.put("BMIF".getBytes());
+        buf.putInt(fimbHeaderSize);
+        buf.putInt(dataSize);
+        for (byte[] file : files) {
+            buf.put(file);
+            for (int j = file.length; j < padded(file.length, padTo); j++) {
+                buf.put((byte) 0xFF);
+            }
+        }
+        return buf.array();
+    }
+
+    private static int padded(int size, int padTo) {
+        return (size + padTo - 1) / padTo * padTo;
+    }
+
+    /**
+     * Makes a file compressed with BLZ, the compression used for overlays and some GARC files.
+     * @param length The length of the data before compression.
+     * @return The compressed file.
+     */
+    public byte[] blzCompressed(int length) {
+        return new BLZCoder(null).BLZ_EncodePub(gameLikeData(length), false, false, "synthetic");
+    }
+
+    /**
+     * Makes a file compressed with LZ10, readable by DSDecmp. Past the first few bytes, the data is
+     * made of back-references, so decompressing it exercises the same copying as real files.
+     * @param length The length of the data once decompressed. Must be less than 16MB.
+     * @return The compressed file.
+     */
+    public byte[] lz10Compressed(int length) {
+        final int period = 16;
+        final int refLength = 18;
+        byte[] pattern = gameLikeData(period);
+        List<byte[]> tokens = new ArrayList<>();
+        List<Boolean> isRef = new ArrayList<>();
+        int produced = 0;
+        while (produced < length) {
+            int remaining = length - produced;
+            if (produced >= period && remaining >= refLength) {
+                int n = refLength - 3;
+                int disp = period - 1;
+                tokens.add(new byte[] { (byte) ((n << 4) | (disp >> 8)), (byte) disp });
+                isRef.add(true);
+                produced += refLength;
+            } else {
+                tokens.add(new byte[] { pattern[produced % period] });
+                isRef.add(false);
+                produced++;
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(4 + tokens.size() * 2 + 8 + (tokens.size() + 7) / 8);
+        buf.put((byte) 0x10);
+        buf.put((byte) length);
+        buf.put((byte) (length >> 8));
+        buf.put((byte) (length >> 16));
+        for (int block = 0; block < tokens.size(); block += 8) {
+            int flags = 0;
+            for (int i = 0; i < 8 && block + i < tokens.size(); i++) {
+                if (isRef.get(block + i)) {
+                    flags |= 0x80 >> i;
+                }
+            }
+            buf.put((byte) flags);
+            for (int i = 0; i < 8; i++) {
+                // like real compressors, pad the last block with zeroes, since DSDecmp reads whole blocks
+                buf.put(block + i < tokens.size() ? tokens.get(block + i) : new byte[] { 0 });
+            }
+        }
+        byte[] compressed = new byte[buf.position()];
+        System.arraycopy(buf.array(), 0, compressed, 0, compressed.length);
+        return compressed;
+    }
+
+    /**
+     * Makes plain ASCII strings, which every generation's text tables can encode.
+     * @param count The number of strings.
+     * @param length The length of each string.
+     * @return The strings.
+     */
+    public List<String> strings(int count, int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789 ";
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            strings.add(sb.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * Makes an encrypted Gen 4 text file, as read by PokeTextData.
+     * @param strings The strings to put in the file.
+     * @return The bytes of the file.
+     */
+    public byte[] gen4Text(List<String> strings) {
+        PokeTextData encrypt = new PokeTextData(TextToPoke.MakeFile(strings, false));
+        encrypt.SetKey(0xD00E);
+        encrypt.encrypt();
+        return encrypt.get();
+    }
+
+    /**
+     * Makes an encrypted Gen 5 text file, as read by PPTxtHandler.
+     * @param strings The strings to put in the file.
+     * @return The bytes of the file.
+     */
+    public byte[] gen5Text(List<String> strings) {
+        // PPTxtHandler can only write over an existing file, so start from one with the right number
+        // of entries, each holding just the terminator
+        int count = strings.size();
+        int sectionSize = (4 + 8 * count + 2 * count + 3) / 4 * 4;
+        ByteBuffer buf = ByteBuffer.allocate(0x10 + sectionSize);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putShort((short) 1);
+        buf.putShort((short) count);
+        buf.putInt(sectionSize);
+        buf.putInt(0);
+        buf.putInt(0x10);
+        buf.putInt(sectionSize);
+        for (int i = 0; i < count; i++) {
+            buf.putInt(4 + 8 * count + 2 * i);
+            buf.putShort((short) 1);
+            buf.putShort((short) 0);
+        }
+        // a lone character always decrypts to the terminator, whatever its value
+        for (int i = 0; i < count; i++) {
+            buf.putShort((short) random.nextInt(0x10000));
+        }
+        return PPTxtHandler.saveEntry(buf.array(), new ArrayList<>(strings));
+    }
+
+    /**
+     * Makes an encrypted Gen 6 text file, as read by N3DSTxtHandler.
+     * @param strings The strings to put in the file.
+     * @return The bytes of the file.
+     */
+    public byte[] gen6Text(List<String> strings) throws IOException {
+        return N3DSTxtHandler.saveEntry(null, strings, true, Gen6Constants.Type_XY);
+    }
+}
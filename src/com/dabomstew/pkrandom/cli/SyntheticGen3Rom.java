@@ -0,0 +1,489 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.constants.Gen3Constants;
+import com.dabomstew.pkrandom.pokemon.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a synthetic GBA image that Gen3RomHandler detects and loads as Fire Red (U) 1.0. The checksum
+ * doesn't match the real game's, so the handler treats it as a ROM hack, and finds the number of Pokemon,
+ * moves and trainers from the data rather than taking them from gen3_offsets.ini. That lets the trainer
+ * table grow with the scale, as well as the wild encounters, which are read until a terminator anyway.
+ * <p>
+ * The image has the Pokemon, move, item and ability data, learnsets, evolutions, TM/HM and tutor
+ * compatibility, TMs, tutor moves, starters, in-game trades, trainers, trainer class names, wild encounters
+ * and the maps they are on. Scripts, sprites and the rest of the game are not there, so whatever reads them
+ * (static Pokemon, field items, shops, the mascot...) finds nothing, or nothing sensible.
+ * The same seed and scale always give the same bytes.
+ */
+public class SyntheticGen3Rom {
+
+    // these are where the Fire Red (U) 1.0 entry of gen3_offsets.ini has them
+    private static final int TRAINER_CLASS_NAMES = 0x23E558, TRAINER_CLASS_COUNT = 107,
+            TRAINER_CLASS_NAME_LENGTH = 13, TRAINER_NAME_LENGTH = 12, TRAINER_ENTRY_SIZE = 40;
+    private static final int POKEMON_NAME_LENGTH = 11, MOVE_NAME_LENGTH = 13, ABILITY_NAME_LENGTH = 13;
+    private static final int ITEM_ENTRY_SIZE = 44, ITEM_COUNT = 374, MOVE_COUNT = 354;
+    private static final int STARTER_POKEMON = 0x169BB5;
+    private static final int TM_MOVES = 0x45A5A4, TM_MOVES_DUPLICATE = 0x45A80C;
+    private static final int MOVE_TUTOR_DATA = 0x459B60, MOVE_TUTOR_MOVES = 15;
+    private static final int TRADE_TABLE = 0x26CF8C, TRADE_TABLE_SIZE = 9, TRADE_ENTRY_SIZE = 60;
+    private static final int FREE_SPACE = 0x800000;
+
+    // the pointers the handler reads when it sees a ROM hack of Fire Red 1.0
+    private static final int MOVESETS_POINTER = 0x3EA7C, EVOLUTIONS_POINTER = 0x42F6C, TMHM_POINTER = 0x43C68,
+            TUTOR_COMPAT_POINTER = 0x120C30, MOVE_DESCRIPTIONS_POINTER = 0xE5440, TRAINERS_POINTER = 0xFC00;
+
+    // somewhere no offset in the ini points to, for the signatures the handler searches for
+    private static final int SIGNATURES = 0x2000;
+    // the tables below go after the free space the randomizer writes to
+    private static final int DATA_START = 0xB00000;
+
+    // Fire Red's internal Pokemon order: Kanto and Johto, 25 unused slots, then Hoenn
+    private static final int INTERNAL_POKEMON = 411, FIRST_UNUSED = 252, LAST_UNUSED = 276;
+    private static final int BASE_TRAINERS = 742, BASE_ENCOUNTER_MAPS = 132;
+    private static final int MAPS_PER_BANK = 64, MAP_HEADER_SIZE = 0x1C;
+    private static final int MAP_LABEL_COUNT = 0xC5 - Gen3Constants.frlgMapLabelsStart;
+
+    private final Random random;
+    private final int scale;
+    private byte[] rom;
+    private int next;
+
+    /**
+     * @param seed The seed for the contents.
+     * @param scale How many times as many trainers and wild encounter maps as Fire Red to have.
+     */
+    public SyntheticGen3Rom(long seed, int scale) {
+        this.random = new Random(seed);
+        this.scale = scale;
+    }
+
+    public int getTrainerCount() {
+        return BASE_TRAINERS * scale;
+    }
+
+    public int getEncounterMapCount() {
+        return BASE_ENCOUNTER_MAPS * scale;
+    }
+
+    /**
+     * @return The bytes of the image: 16MB, or 32MB when the tables don't fit in 16MB.
+     */
+    public byte[] build() {
+        rom = new byte[Gen3Constants.size32M];
+        for (int i = FREE_SPACE; i < rom.length; i++) {
+            rom[i] = Gen3Constants.freeSpaceByte;
+        }
+        next = DATA_START;
+
+        writeHeader();
+        writePokemon();
+        writeMoves();
+        writeItemsAndAbilities();
+        writeTrainers();
+        writeEncountersAndMaps();
+
+        int size = next <= Gen3Constants.size16M ? Gen3Constants.size16M : Gen3Constants.size32M;
+        if (next > size) {
+            throw new IllegalArgumentException("Scale too large for a GBA image");
+        }
+        byte[] image = new byte[size];
+        System.arraycopy(rom, 0, image, 0, size);
+        rom = null;
+        return image;
+    }
+
+    private void writeHeader() {
+        writeAscii(Gen3Constants.romNameOffset, "POKEMON FIRE");
+        writeAscii(Gen3Constants.romCodeOffset, "BPRE01");
+        rom[0xB2] = (byte) 0x96;
+        rom[Gen3Constants.romVersionOffset] = 0;
+        int checksum = 0;
+        for (int i = Gen3Constants.romNameOffset; i < Gen3Constants.headerChecksumOffset; i++) {
+            checksum -= rom[i];
+        }
+        rom[Gen3Constants.headerChecksumOffset] = (byte) (checksum - 0x19);
+    }
+
+    private void writePokemon() {
+        int[] internalToDex = new int[INTERNAL_POKEMON + 1];
+        int[] dexToInternal = new int[INTERNAL_POKEMON + 1];
+        for (int i = 1; i <= INTERNAL_POKEMON; i++) {
+            // the unused slots get the numbers after Deoxys, like in the real game
+            int dex = i < FIRST_UNUSED ? i : i <= LAST_UNUSED
+                    ? Gen3Constants.unhackedRealPokedex + i - FIRST_UNUSED + 1
+                    : i - (LAST_UNUSED - FIRST_UNUSED + 1);
+            internalToDex[i] = dex;
+            dexToInternal[dex] = i;
+        }
+
+        int names = allocate((INTERNAL_POKEMON + 1) * POKEMON_NAME_LENGTH + 1);
+        int stats = allocate((INTERNAL_POKEMON + 1) * Gen3Constants.baseStatsEntrySize);
+        int evolutions = allocate((INTERNAL_POKEMON + 1) * 0x28);
+        int dexOrder = allocate(INTERNAL_POKEMON * 2);
+        int movesets = allocate((INTERNAL_POKEMON + 1) * 4);
+        int tmhm = allocate((INTERNAL_POKEMON + 1) * 8);
+        int tutorCompat = allocate((INTERNAL_POKEMON + 1) * 2);
+        writePointer(Gen3Constants.efrlgPokemonNamesPointer, names);
+        writePointer(Gen3Constants.efrlgPokemonStatsPointer, stats);
+        writePointer(EVOLUTIONS_POINTER, evolutions);
+        writePointer(MOVESETS_POINTER, movesets);
+        writePointer(TMHM_POINTER, tmhm);
+        writePointer(TUTOR_COMPAT_POINTER, tutorCompat);
+        // no sprites, but the handler reads where they would be
+        writePointer(Gen3Constants.efrlgFrontSpritesPointer, allocate((INTERNAL_POKEMON + 1) * 8));
+        writePointer(Gen3Constants.efrlgPokemonPalettesPointer, allocate((INTERNAL_POKEMON + 1) * 8));
+
+        writeString(names, "??????????", POKEMON_NAME_LENGTH);
+        // an empty name after the last Pokemon tells the handler where they end
+        rom[names + (INTERNAL_POKEMON + 1) * POKEMON_NAME_LENGTH] = (byte) Gen3Constants.textTerminator;
+        for (int i = 1; i <= INTERNAL_POKEMON; i++) {
+            int dex = internalToDex[i];
+            writeWord(dexOrder + (i - 1) * 2, dex);
+            int statsOffset = stats + i * Gen3Constants.baseStatsEntrySize;
+            if (i >= FIRST_UNUSED && i <= LAST_UNUSED) {
+                writeString(names + i * POKEMON_NAME_LENGTH, "?", POKEMON_NAME_LENGTH);
+                System.arraycopy(Gen3Constants.emptyPokemonSig, 0, rom, statsOffset,
+                        Gen3Constants.emptyPokemonSig.length);
+            } else {
+                writeString(names + i * POKEMON_NAME_LENGTH, String.format("PKMN%03d", dex), POKEMON_NAME_LENGTH);
+                writeStats(statsOffset, dex);
+                // every Pokemon is in a family of three, evolving at levels 16 and 36
+                if (dex % 3 != 0 && dex < Gen3Constants.unhackedRealPokedex) {
+                    writeWord(evolutions + i * 0x28, 4);
+                    writeWord(evolutions + i * 0x28 + 2, dex % 3 == 1 ? 16 : 36);
+                    writeWord(evolutions + i * 0x28 + 4, dexToInternal[dex + 1]);
+                }
+            }
+            writePointer(movesets + i * 4, writeLearnset());
+            for (int b = 0; b < 8; b++) {
+                rom[tmhm + i * 8 + b] = (byte) random.nextInt(256);
+            }
+            writeWord(tutorCompat + i * 2, random.nextInt(0x8000));
+        }
+        // the dummy slot 0 needs a learnset too
+        writePointer(movesets, writeLearnset());
+
+        // the handler wants exactly three of these, and reads the pointer after the second
+        int signature = SIGNATURES;
+        for (int i = 0; i < 3; i++) {
+            signature = writeHex(signature, Gen3Constants.pokedexOrderPointerPrefix);
+            writePointer(signature, dexOrder);
+            signature += 4;
+        }
+
+        int starter = STARTER_POKEMON;
+        writeWord(starter, dexToInternal[1]);
+        writeWord(starter + Gen3Constants.frlgStarterRepeatOffset, dexToInternal[1]);
+        writeWord(starter + Gen3Constants.frlgStarter2Offset, dexToInternal[4]);
+        writeWord(starter + Gen3Constants.frlgStarter2Offset + Gen3Constants.frlgStarterRepeatOffset, dexToInternal[4]);
+        writeWord(starter + Gen3Constants.frlgStarter3Offset, dexToInternal[7]);
+        writeWord(starter + Gen3Constants.frlgStarter3Offset + Gen3Constants.frlgStarterRepeatOffset, dexToInternal[7]);
+
+        List<Integer> species = realSpecies();
+        for (int i = 0; i < TRADE_TABLE_SIZE; i++) {
+            int offset = TRADE_TABLE + i * TRADE_ENTRY_SIZE;
+            writeString(offset, String.format("TRADE%d", i), 11);
+            writeWord(offset + 12, species.get(random.nextInt(species.size())));
+            for (int iv = 0; iv < 6; iv++) {
+                rom[offset + 14 + iv] = (byte) random.nextInt(32);
+            }
+            writeWord(offset + 24, random.nextInt(0x10000));
+            writeString(offset + 43, "OT", 8);
+            writeWord(offset + 56, species.get(random.nextInt(species.size())));
+        }
+    }
+
+    private void writeStats(int offset, int dex) {
+        // later stages of each family are stronger
+        int stage = (dex + 2) % 3;
+        for (int s = 0; s < 6; s++) {
+            rom[offset + s] = (byte) (30 + stage * 20 + random.nextInt(60));
+        }
+        Type[] types = validTypes();
+        rom[offset + Gen3Constants.bsPrimaryTypeOffset] = Gen3Constants.typeToByte(types[random.nextInt(types.length)]);
+        rom[offset + Gen3Constants.bsSecondaryTypeOffset] = random.nextBoolean()
+                ? rom[offset + Gen3Constants.bsPrimaryTypeOffset]
+                : Gen3Constants.typeToByte(types[random.nextInt(types.length)]);
+        rom[offset + Gen3Constants.bsCatchRateOffset] = (byte) (45 + random.nextInt(211));
+        rom[offset + Gen3Constants.bsGenderRatioOffset] = (byte) new int[] { 0, 31, 63, 127, 191, 254, 255 }[random.nextInt(7)];
+        rom[offset + Gen3Constants.bsGrowthCurveOffset] = (byte) random.nextInt(6);
+        rom[offset + Gen3Constants.bsAbility1Offset] = (byte) (1 + random.nextInt(Gen3Constants.highestAbilityIndex));
+        rom[offset + Gen3Constants.bsAbility2Offset] = (byte) (random.nextBoolean() ? 0
+                : 1 + random.nextInt(Gen3Constants.highestAbilityIndex));
+    }
+
+    private int writeLearnset() {
+        int count = 4 + random.nextInt(10);
+        int learnset = allocate(count * 2 + 2);
+        int level = 1;
+        for (int m = 0; m < count; m++) {
+            int move = 1 + random.nextInt(MOVE_COUNT);
+            writeWord(learnset + m * 2, (level << 9) | move);
+            level = Math.min(100, level + random.nextInt(8));
+        }
+        writeWord(learnset + count * 2, 0xFFFF);
+        return learnset;
+    }
+
+    private void writeMoves() {
+        int names = allocate((MOVE_COUNT + 1) * MOVE_NAME_LENGTH);
+        int data = allocate((MOVE_COUNT + 1) * 12);
+        // the handler counts the descriptions to find the number of moves
+        int descriptions = allocate(MOVE_COUNT * 4 + 4);
+        writePointer(Gen3Constants.efrlgMoveNamesPointer, names);
+        writePointer(Gen3Constants.efrlgMoveDataPointer, data);
+        writePointer(MOVE_DESCRIPTIONS_POINTER, descriptions);
+
+        Type[] types = validTypes();
+        int description = allocate(18);
+        writeString(description, "A SYNTHETIC MOVE.", 18);
+        writeString(names, "-", MOVE_NAME_LENGTH);
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            writeString(names + i * MOVE_NAME_LENGTH, String.format("MOVE%03d", i), MOVE_NAME_LENGTH);
+            int offset = data + i * 12;
+            boolean status = random.nextInt(4) == 0;
+            rom[offset + 1] = (byte) (status ? 0 : 20 + 10 * random.nextInt(11));
+            rom[offset + 2] = Gen3Constants.typeToByte(types[random.nextInt(types.length)]);
+            rom[offset + 3] = (byte) (status ? 0 : 70 + 5 * random.nextInt(7));
+            rom[offset + 4] = (byte) (5 + 5 * random.nextInt(7));
+            rom[offset + 8] = (byte) random.nextInt(2);
+            writePointer(descriptions + (i - 1) * 4, description);
+        }
+        writeLong(descriptions + MOVE_COUNT * 4, 0xFFFFFFFF);
+
+        for (int i = 0; i < Gen3Constants.tmCount; i++) {
+            int move = 1 + random.nextInt(MOVE_COUNT);
+            writeWord(TM_MOVES + i * 2, move);
+            writeWord(TM_MOVES_DUPLICATE + i * 2, move);
+        }
+        for (int i = 0; i < Gen3Constants.hmCount; i++) {
+            writeWord(TM_MOVES + (Gen3Constants.tmCount + i) * 2, Gen3Constants.hmMoves.get(i));
+            writeWord(TM_MOVES_DUPLICATE + (Gen3Constants.tmCount + i) * 2, Gen3Constants.hmMoves.get(i));
+        }
+        for (int i = 0; i < MOVE_TUTOR_MOVES; i++) {
+            writeWord(MOVE_TUTOR_DATA + i * 2, 1 + random.nextInt(MOVE_COUNT));
+        }
+    }
+
+    private void writeItemsAndAbilities() {
+        int items = allocate((ITEM_COUNT + 1) * ITEM_ENTRY_SIZE);
+        int abilities = allocate((Gen3Constants.highestAbilityIndex + 1) * ABILITY_NAME_LENGTH);
+        writePointer(Gen3Constants.efrlgItemDataPointer, items);
+        writePointer(Gen3Constants.efrlgAbilityNamesPointer, abilities);
+        for (int i = 0; i <= ITEM_COUNT; i++) {
+            int offset = items + i * ITEM_ENTRY_SIZE;
+            writeString(offset, i == 0 ? "????????" : String.format("ITEM%03d", i), 14);
+            writeWord(offset + 14, i);
+            writeWord(offset + 16, 100 * random.nextInt(50));
+        }
+        for (int i = 0; i <= Gen3Constants.highestAbilityIndex; i++) {
+            writeString(abilities + i * ABILITY_NAME_LENGTH, i == 0 ? "-------" : String.format("ABILITY%02d", i),
+                    ABILITY_NAME_LENGTH);
+        }
+        for (int i = 0; i < TRAINER_CLASS_COUNT; i++) {
+            writeString(TRAINER_CLASS_NAMES + i * TRAINER_CLASS_NAME_LENGTH, String.format("CLASS%03d", i),
+                    TRAINER_CLASS_NAME_LENGTH);
+        }
+    }
+
+    private void writeTrainers() {
+        int count = getTrainerCount();
+        // slot 0 is unused, and an invalid entry after the last one tells the handler where they end
+        int table = allocate((count + 2) * TRAINER_ENTRY_SIZE);
+        writePointer(TRAINERS_POINTER, table);
+        List<Integer> species = realSpecies();
+        for (int i = 1; i <= count; i++) {
+            int offset = table + i * TRAINER_ENTRY_SIZE;
+            int pokeType = random.nextInt(4);
+            int pokeCount = 1 + random.nextInt(6);
+            int blockSize = (pokeType & 1) == 1 ? 16 : 8;
+            int level = 5 + (i - 1) * 60 / count;
+            int pokes = allocate(pokeCount * blockSize);
+            for (int p = 0; p < pokeCount; p++) {
+                int block = pokes + p * blockSize;
+                writeWord(block, random.nextInt(4) == 0 ? 255 : 0);
+                writeWord(block + 2, Math.min(100, level + random.nextInt(5)));
+                writeWord(block + 4, species.get(random.nextInt(species.size())));
+                int movesStart = 6;
+                if ((pokeType & 2) == 2) {
+                    writeWord(block + 6, random.nextInt(3) == 0 ? 0x85 + random.nextInt(43) : 0);
+                    movesStart = 8;
+                }
+                if (blockSize == 16) {
+                    for (int m = 0; m < 4; m++) {
+                        writeWord(block + movesStart + m * 2, 1 + random.nextInt(MOVE_COUNT));
+                    }
+                }
+            }
+            rom[offset] = (byte) pokeType;
+            rom[offset + 1] = (byte) random.nextInt(TRAINER_CLASS_COUNT);
+            rom[offset + 2] = (byte) (random.nextBoolean() ? 0x80 : 0);
+            rom[offset + 3] = (byte) random.nextInt(0x94);
+            writeString(offset + 4, String.format("TR%05d", i), TRAINER_NAME_LENGTH);
+            rom[offset + TRAINER_ENTRY_SIZE - 12] = (byte) random.nextInt(8);
+            rom[offset + TRAINER_ENTRY_SIZE - 8] = (byte) pokeCount;
+            writePointer(offset + TRAINER_ENTRY_SIZE - 4, pokes);
+        }
+        for (int b = 0; b < TRAINER_ENTRY_SIZE; b++) {
+            rom[table + (count + 1) * TRAINER_ENTRY_SIZE + b] = (byte) 0xFF;
+        }
+    }
+
+    private void writeEncountersAndMaps() {
+        int mapCount = getEncounterMapCount();
+        int bankCount = (mapCount + MAPS_PER_BANK - 1) / MAPS_PER_BANK;
+
+        int labels = allocate(MAP_LABEL_COUNT * 4);
+        for (int i = 0; i < MAP_LABEL_COUNT; i++) {
+            int name = allocate(12);
+            writeString(name, String.format("AREA%03d", i), 12);
+            writePointer(labels + i * 4, name);
+        }
+
+        // each list of pointers ends with one that isn't valid, so the handler can count them
+        int banks = allocate(bankCount * 4 + 4);
+        writeLong(banks + bankCount * 4, 0xFFFFFFFF);
+        for (int bank = 0; bank < bankCount; bank++) {
+            int mapsInBank = Math.min(MAPS_PER_BANK, mapCount - bank * MAPS_PER_BANK);
+            int maps = allocate(mapsInBank * 4 + 4);
+            writePointer(banks + bank * 4, maps);
+            writeLong(maps + mapsInBank * 4, 0xFFFFFFFF);
+            for (int map = 0; map < mapsInBank; map++) {
+                int header = allocate(MAP_HEADER_SIZE);
+                rom[header + 0x14] = (byte) (Gen3Constants.frlgMapLabelsStart
+                        + (bank * MAPS_PER_BANK + map) % MAP_LABEL_COUNT);
+                writePointer(maps + map * 4, header);
+            }
+        }
+
+        List<Integer> species = realSpecies();
+        int wild = allocate(mapCount * 20 + 20);
+        for (int i = 0; i < mapCount; i++) {
+            int offset = wild + i * 20;
+            rom[offset] = (byte) (i / MAPS_PER_BANK);
+            rom[offset + 1] = (byte) (i % MAPS_PER_BANK);
+            int level = 2 + i * 60 / mapCount;
+            boolean water = i % 3 == 0;
+            writePointer(offset + 4, writeEncounterArea(20, Gen3Constants.grassSlots, level, species));
+            if (water) {
+                writePointer(offset + 8, writeEncounterArea(4, Gen3Constants.surfingSlots, level, species));
+                writePointer(offset + 16, writeEncounterArea(20, Gen3Constants.fishingSlots, level, species));
+            }
+            if (i % 9 == 0) {
+                writePointer(offset + 12, writeEncounterArea(50, Gen3Constants.rockSmashSlots, level, species));
+            }
+        }
+        rom[wild + mapCount * 20] = (byte) 0xFF;
+        rom[wild + mapCount * 20 + 1] = (byte) 0xFF;
+
+        int signature = writeHex(SIGNATURES + 0x100, Gen3Constants.wildPokemonPointerPrefix);
+        writePointer(signature, wild);
+        signature = writeHex(signature + 4, Gen3Constants.mapBanksPointerPrefix);
+        writePointer(signature, banks);
+        signature = writeHex(signature + 4, Gen3Constants.frlgMapLabelsPointerPrefix);
+        writePointer(signature, labels);
+    }
+
+    private int writeEncounterArea(int rate, int slots, int level, List<Integer> species) {
+        int area = allocate(8 + slots * 4);
+        rom[area] = (byte) rate;
+        writePointer(area + 4, area + 8);
+        for (int s = 0; s < slots; s++) {
+            int min = Math.min(100, level + random.nextInt(3));
+            rom[area + 8 + s * 4] = (byte) min;
+            rom[area + 8 + s * 4 + 1] = (byte) Math.min(100, min + random.nextInt(3));
+            writeWord(area + 8 + s * 4 + 2, species.get(random.nextInt(species.size())));
+        }
+        return area;
+    }
+
+    private List<Integer> realSpecies() {
+        List<Integer> species = new ArrayList<>();
+        for (int i = 1; i <= INTERNAL_POKEMON; i++) {
+            if (i < FIRST_UNUSED || i > LAST_UNUSED) {
+                species.add(i);
+            }
+        }
+        return species;
+    }
+
+    private static Type[] validTypes() {
+        List<Type> types = new ArrayList<>();
+        for (Type type : Gen3Constants.typeTable) {
+            if (type != null) {
+                types.add(type);
+            }
+        }
+        return types.toArray(new Type[0]);
+    }
+
+    private int allocate(int size) {
+        int offset = next;
+        // keep everything word aligned, like the real tables
+        next = (next + size + 3) & ~3;
+        if (next > rom.length) {
+            throw new IllegalArgumentException("Scale too large for a GBA image");
+        }
+        for (int i = offset; i < offset + size; i++) {
+            rom[i] = 0;
+        }
+        return offset;
+    }
+
+    private void writeString(int offset, String text, int length) {
+        int i = 0;
+        for (; i < text.length() && i < length - 1; i++) {
+            rom[offset + i] = encode(text.charAt(i));
+        }
+        rom[offset + i] = (byte) Gen3Constants.textTerminator;
+    }
+
+    private static byte encode(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (byte) (0xBB + c - 'A');
+        } else if (c >= '0' && c <= '9') {
+            return (byte) (0xA1 + c - '0');
+        }
+        switch (c) {
+            case '?':
+                return (byte) 0xAC;
+            case '.':
+                return (byte) 0xAD;
+            case '-':
+                return (byte) 0xAE;
+            default:
+                return 0;
+        }
+    }
+
+    private void writeAscii(int offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            rom[offset + i] = (byte) text.charAt(i);
+        }
+    }
+
+    private int writeHex(int offset, String hex) {
+        for (int i = 0; i < hex.length() / 2; i++) {
+            rom[offset + i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return offset + hex.length() / 2;
+    }
+
+    private void writePointer(int offset, int pointer) {
+        writeLong(offset, pointer + 0x8000000);
+    }
+
+    private void writeLong(int offset, int value) {
+        writeWord(offset, value);
+        writeWord(offset + 2, value >>> 16);
+    }
+
+    private void writeWord(int offset, int value) {
+        rom[offset] = (byte) value;
+        rom[offset + 1] = (byte) (value >> 8);
+    }
+}
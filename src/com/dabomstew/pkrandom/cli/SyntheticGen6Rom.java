@@ -0,0 +1,622 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.constants.Gen6Constants;
+import com.dabomstew.pkrandom.constants.Items;
+import com.dabomstew.pkrandom.constants.Moves;
+import com.dabomstew.pkrandom.constants.Species;
+import com.dabomstew.pkrandom.ctr.AMX;
+import com.dabomstew.pkrandom.pokemon.ItemList;
+import com.dabomstew.pkrandom.pokemon.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a synthetic 3DS image, a decrypted NCCH, that Gen6RomHandler detects and loads as X. The handler takes
+ * the number of trainers from the trainer GARC and the number of maps with wild encounters from the encounter
+ * GARC, so both grow with the scale; everything else has the sizes of the real game.
+ * <p>
+ * The image has the Pokemon, move and item data, learnsets, egg moves, evolutions, trainers, wild encounters,
+ * the zone data that names the maps, the text they all use, the static, gift and starter Pokemon, the scripts
+ * the handler edits for the box legendary, the roamers and the field items, plus a .code with the TM list,
+ * in-game trades, cries, Pickup table and shops. The CROs are otherwise filler that reads as valid Pokemon and
+ * levels, there are no Mega Evolutions, and graphics are all but empty, so whatever else reads them (the intro's
+ * code, the mascot...) finds nothing sensible.
+ * The same seed and scale always give the same bytes.
+ */
+public class SyntheticGen6Rom {
+
+    // the files and text the X entry of gen6_offsets.ini points to
+    private static final String WILD_POKEMON = "a/0/1/2", SCRIPTS = "a/0/3/1", TRAINER_DATA = "a/0/3/8",
+            TRAINER_POKEMON = "a/0/4/0", POKEMON_GRAPHICS = "a/0/9/3", POKEDEX_AREA_DATA = "a/2/0/2",
+            MOVE_DATA = "a/2/1/2", EGG_MOVES = "a/2/1/3", MOVESETS = "a/2/1/4", EVOLUTIONS = "a/2/1/5",
+            MEGA_EVOLUTIONS = "a/2/1/6", POKEMON_STATS = "a/2/1/8", BABY_POKEMON = "a/2/1/9", ITEM_DATA = "a/2/2/0",
+            BATTLE = "DllBattle.cro", FIELD = "DllField.cro", INTRO = "DllIntro.cro",
+            STARTER_DISPLAY = "DllPoke3Select.cro", EVOLUTION = "DllShinkaDemo.cro";
+    // every language has its own copy of the text, from a/0/7/2 and a/0/8/0 on
+    private static final String TEXT_STRINGS = "a/0/7/", STORY_TEXT = "a/0/8/";
+    private static final int TEXT_STRINGS_FIRST = 2, STORY_TEXT_FIRST = 0, LANGUAGES = 8;
+    private static final int MOVE_NAMES_TEXT = 13, MOVE_DESCRIPTIONS_TEXT = 15, TRAINER_CLASSES_TEXT = 20,
+            TRAINER_NAMES_TEXT = 21, ABILITY_NAMES_TEXT = 34, STARTER_TEXT = 63, MAP_NAMES_TEXT = 72,
+            POKEMON_NAMES_TEXT = 80, TITLE_SCREEN_TEXT = 85, ITEM_NAMES_TEXT = 96, ITEM_DESCRIPTIONS_TEXT = 99,
+            TRADES_TEXT = 113;
+    private static final int[] HM_MOVES = { Moves.cut, Moves.fly, Moves.surf, Moves.strength, Moves.waterfall };
+    private static final int[] STARTERS = { Species.chespin, Species.fennekin, Species.froakie, Species.bulbasaur,
+            Species.charmander, Species.squirtle };
+    private static final int STATIC_OFFSET = 0xEE46C, GIFT_OFFSET = 0xF805C, STARTER_DISPLAY_POINTER = 0xB8,
+            STARTER_DISPLAY_EXTRA = 0x10, STARTER_DISPLAY_SIZE = 0x54;
+    private static final int[] ROAMERS = { 6, 7, 8 }, BOX_LEGENDARIES = { 2, 12 };
+    private static final int[][] LINKED_STATICS = { { 1, 3 }, { 2, 12 } };
+    private static final int[] BOX_LEGENDARY_SCRIPT_OFFSETS = { 4658, 5430, 16798 };
+    private static final int FIELD_ITEMS_SCRIPT = 17, FIELD_ITEMS_OFFSET = 0xB04, HIDDEN_ITEMS_SCRIPT = 26,
+            HIDDEN_ITEMS_OFFSET = 0xB18, SCRIPT_COUNT = 30, FIELD_ITEM_COUNT = 150, HIDDEN_ITEM_COUNT = 80;
+    private static final int[] SHOP_ITEM_SIZES = { 2, 11, 14, 17, 18, 19, 19, 19, 19, 1, 4, 10, 3, 9, 1, 1, 3, 3, 5,
+            5, 6, 7, 5, 5, 8, 3 };
+
+    private static final int STATS_SIZE = 0x40, EVOLUTION_SIZE = 48, MEGA_EVOLUTION_SIZE = 24, MOVE_SIZE = 36,
+            ITEM_SIZE = 0x24, TRAINER_SIZE = 20, ZONE_SIZE = 56, CRY_SIZE = 0x14,
+            ENCOUNTER_DATA_SIZE = 0x178, MAP_HEADER_SIZE = 0x20;
+    private static final int FIELD_SIZE = 0xF8400, CRO_SIZE = 0x1000, CODE_SIZE = 0x5000;
+    private static final int TEXT_FILES = 120, STORY_TEXT_FILES = 350, ITEM_COUNT = Items.megaGlove + 1,
+            TRADE_COUNT = 9, TRAINER_CLASS_COUNT = 180, MAP_NAME_COUNT = 200, PICKUP_ITEM_COUNT = 29;
+    private static final int BASE_TRAINERS = 612, BASE_MAPS = 360;
+    // the maps with encounters of their own in the Pokedex's table, which goes on with the hardcoded ones
+    private static final int BASE_ENCOUNTER_MAPS = Gen6Constants.xyMapNumToPokedexIndex.length
+            - Gen6Constants.fallingEncounterCount - Gen6Constants.rustlingBushEncounterCount;
+
+    // the Pokemon with alternate formes, in the order their stats follow the national dex in the stats GARC
+    private static final int[][] FORMES = {
+            { Species.deoxys, 4 }, { Species.wormadam, 3 }, { Species.shaymin, 2 }, { Species.giratina, 2 },
+            { Species.rotom, 6 }, { Species.castform, 4 }, { Species.cherrim, 2 }, { Species.basculin, 2 },
+            { Species.darmanitan, 2 }, { Species.meloetta, 2 }, { Species.kyurem, 3 }, { Species.keldeo, 2 },
+            { Species.tornadus, 2 }, { Species.thundurus, 2 }, { Species.landorus, 2 }, { Species.gengar, 2 },
+            { Species.meowstic, 2 }, { Species.furfrou, 10 }, { Species.gardevoir, 2 }, { Species.ampharos, 2 },
+            { Species.venusaur, 2 }, { Species.charizard, 3 }, { Species.mewtwo, 3 }, { Species.blaziken, 2 },
+            { Species.medicham, 2 }, { Species.houndoom, 2 }, { Species.aggron, 2 }, { Species.banette, 2 },
+            { Species.tyranitar, 2 }, { Species.scizor, 2 }, { Species.pinsir, 2 }, { Species.aerodactyl, 2 },
+            { Species.lucario, 2 }, { Species.abomasnow, 2 }, { Species.aegislash, 2 }, { Species.blastoise, 2 },
+            { Species.kangaskhan, 2 }, { Species.gyarados, 2 }, { Species.absol, 2 }, { Species.alakazam, 2 },
+            { Species.heracross, 2 }, { Species.mawile, 2 }, { Species.manectric, 2 }, { Species.garchomp, 2 },
+            { Species.latios, 2 }, { Species.latias, 2 }, { Species.pumpkaboo, 4 }, { Species.gourgeist, 4 },
+            { Species.floette, 6 }
+    };
+
+    private final Random random;
+    private final SyntheticFixtures fixtures;
+    private final int scale;
+    private final int formeCount = Gen6Constants.getFormeCount(Gen6Constants.Type_XY);
+    private final int moveCount = Gen6Constants.getMoveCount(Gen6Constants.Type_XY);
+    private final ItemList items = Gen6Constants.getNonBadItems(Gen6Constants.Type_XY);
+
+    /**
+     * @param seed The seed for the contents.
+     * @param scale How many times as many trainers and maps with wild encounters as X to have.
+     */
+    public SyntheticGen6Rom(long seed, int scale) {
+        this.random = new Random(seed);
+        this.fixtures = new SyntheticFixtures(seed);
+        this.scale = scale;
+    }
+
+    public int getTrainerCount() {
+        return BASE_TRAINERS * scale;
+    }
+
+    public int getEncounterMapCount() {
+        return BASE_ENCOUNTER_MAPS * scale;
+    }
+
+    /**
+     * @return The bytes of the image.
+     */
+    public byte[] build() throws IOException {
+        SyntheticCtrImage image = new SyntheticCtrImage("CTR-P-EKJA", "0004000000055D00");
+        image.setCode(code());
+
+        List<List<String>> text = new ArrayList<>();
+        for (int i = 0; i < TEXT_FILES; i++) {
+            text.add(Collections.singletonList(""));
+        }
+        text.set(POKEMON_NAMES_TEXT, names("PKMN%03d", Gen6Constants.pokemonCount + 1));
+        text.set(MOVE_NAMES_TEXT, names("MOVE%03d", moveCount + 1));
+        text.set(MOVE_DESCRIPTIONS_TEXT, names("A synthetic move %d", moveCount + 1));
+        text.set(ABILITY_NAMES_TEXT, names("ABILITY%03d", Gen6Constants.getHighestAbilityIndex(Gen6Constants.Type_XY) + 1));
+        text.set(ITEM_NAMES_TEXT, names("ITEM%03d", ITEM_COUNT));
+        text.set(ITEM_DESCRIPTIONS_TEXT, names("A synthetic item %d", ITEM_COUNT));
+        text.set(MAP_NAMES_TEXT, names("AREA%03d", MAP_NAME_COUNT));
+        text.set(TRAINER_NAMES_TEXT, names("TR%05d", getTrainerCount() + 1));
+        text.set(TRAINER_CLASSES_TEXT, names("CLASS%03d", TRAINER_CLASS_COUNT));
+        text.set(STARTER_TEXT, names("STARTER%d", 4));
+        text.set(TITLE_SCREEN_TEXT, names("TITLE%02d", 30));
+        text.set(TRADES_TEXT, names("TRADE%02d", TRADE_COUNT * 2));
+        byte[] textStrings = textGarc(text);
+        List<List<String>> storyText = new ArrayList<>();
+        for (int i = 0; i < STORY_TEXT_FILES; i++) {
+            storyText.add(names("STORY%d", 4));
+        }
+        byte[] storyTextStrings = textGarc(storyText);
+        for (int i = 0; i < LANGUAGES; i++) {
+            image.addFile(TEXT_STRINGS + (TEXT_STRINGS_FIRST + i), textStrings);
+            image.addFile(STORY_TEXT + (STORY_TEXT_FIRST + i), storyTextStrings);
+        }
+
+        writePokemon(image);
+        writeMoves(image);
+        image.addFile(ITEM_DATA, garc(ITEM_COUNT, ITEM_SIZE));
+        writeTrainers(image);
+        writeEncounters(image);
+        writeScripts(image);
+        writeCros(image);
+        image.addFile(POKEMON_GRAPHICS, garc(1, 4));
+        return image.build();
+    }
+
+    private byte[] code() {
+        byte[] code = new byte[CODE_SIZE];
+
+        int tms = writeHex(code, 0x100, Gen6Constants.tmDataPrefix);
+        for (int i = 0; i < Gen6Constants.tmBlockOneCount; i++) {
+            writeWord(code, tms + i * 2, 1 + random.nextInt(moveCount));
+        }
+        for (int i = 0; i < HM_MOVES.length; i++) {
+            writeWord(code, tms + (Gen6Constants.tmBlockOneCount + i) * 2, HM_MOVES[i]);
+        }
+        int tmBlockTwo = tms + Gen6Constants.getTMBlockTwoStartingOffset(Gen6Constants.Type_XY) * 2;
+        for (int i = 0; i < Gen6Constants.tmCount - Gen6Constants.tmBlockOneCount; i++) {
+            writeWord(code, tmBlockTwo + i * 2, 1 + random.nextInt(moveCount));
+        }
+
+        int trades = writeHex(code, 0x300, Gen6Constants.getIngameTradesPrefix(Gen6Constants.Type_XY));
+        for (int i = 0; i < TRADE_COUNT; i++) {
+            int trade = trades + i * Gen6Constants.ingameTradeSize;
+            writeWord(code, trade, 1 + random.nextInt(Gen6Constants.pokemonCount));
+            for (int iv = 0; iv < 6; iv++) {
+                code[trade + 5 + iv] = (byte) random.nextInt(32);
+            }
+            writeWord(code, trade + 0xE, random.nextInt(0x10000));
+            writeWord(code, trade + 0x20, 1 + random.nextInt(Gen6Constants.pokemonCount));
+        }
+
+        // each Pokemon's cries, with the first of its alternate formes' entries in front
+        int cries = writeHex(code, 0x500, Gen6Constants.criesTablePrefixXY);
+        for (int i = 0; i <= Gen6Constants.pokemonCount + formeCount; i++) {
+            writeLong(code, cries + i * CRY_SIZE + 4, i);
+            writeLong(code, cries + i * CRY_SIZE + 0x10, i);
+        }
+        int forme = Gen6Constants.pokemonCount + 1;
+        for (int[] formes : FORMES) {
+            writeLong(code, cries + formes[0] * CRY_SIZE, forme);
+            forme += formes[1] - 1;
+        }
+
+        // the Pickup table starts with the items its locator is made of, as does the first shop
+        int pickup = writeHex(code, 0x4500, Gen6Constants.pickupTableLocator);
+        for (int i = 3; i < PICKUP_ITEM_COUNT; i++) {
+            writeWord(code, pickup + (i - 3) * 2, items.randomNonTM(random));
+        }
+        int shops = writeHex(code, 0x4600, Gen6Constants.getShopItemsLocator(Gen6Constants.Type_XY));
+        int shopItems = Arrays.stream(SHOP_ITEM_SIZES).sum();
+        for (int i = 4; i < shopItems; i++) {
+            writeWord(code, shops + (i - 4) * 2, items.randomNonTM(random));
+        }
+        return code;
+    }
+
+    private void writePokemon(SyntheticCtrImage image) throws IOException {
+        int statsCount = Gen6Constants.pokemonCount + formeCount + 1;
+        List<byte[]> stats = new ArrayList<>();
+        List<byte[]> movesets = new ArrayList<>();
+        List<byte[]> evolutions = new ArrayList<>();
+        List<byte[]> megaEvolutions = new ArrayList<>();
+        List<byte[]> eggMoves = new ArrayList<>();
+        List<byte[]> babies = new ArrayList<>();
+        Type[] types = validTypes();
+        int abilityCount = Gen6Constants.getHighestAbilityIndex(Gen6Constants.Type_XY);
+        for (int i = 0; i < statsCount; i++) {
+            byte[] entry = new byte[STATS_SIZE];
+            if (i > 0) {
+                // later stages of each family are stronger
+                int stage = (i + 2) % 3;
+                for (int s = 0; s < 6; s++) {
+                    entry[s] = (byte) (30 + stage * 20 + random.nextInt(60));
+                }
+                entry[Gen6Constants.bsPrimaryTypeOffset] = Gen6Constants.typeToByte(types[random.nextInt(types.length)]);
+                entry[Gen6Constants.bsSecondaryTypeOffset] = random.nextBoolean()
+                        ? entry[Gen6Constants.bsPrimaryTypeOffset]
+                        : Gen6Constants.typeToByte(types[random.nextInt(types.length)]);
+                entry[Gen6Constants.bsCatchRateOffset] = (byte) (45 + random.nextInt(211));
+                entry[Gen6Constants.bsGrowthCurveOffset] = (byte) random.nextInt(6);
+                entry[Gen6Constants.bsAbility1Offset] = (byte) (1 + random.nextInt(abilityCount));
+                entry[Gen6Constants.bsAbility2Offset] = (byte) (1 + random.nextInt(abilityCount));
+                entry[Gen6Constants.bsAbility3Offset] = (byte) (1 + random.nextInt(abilityCount));
+                entry[Gen6Constants.bsFormeCountOffset] = 1;
+                for (int b = 0; b < 14; b++) {
+                    entry[Gen6Constants.bsTMHMCompatOffset + b] = (byte) random.nextInt(256);
+                }
+            }
+            stats.add(entry);
+            movesets.add(learnset());
+            byte[] evolution = new byte[EVOLUTION_SIZE];
+            // every Pokemon is in a family of three, evolving at levels 16 and 36
+            if (i > 0 && i % 3 != 0 && i < Gen6Constants.pokemonCount) {
+                writeWord(evolution, 0, 4);
+                writeWord(evolution, 2, i % 3 == 1 ? 16 : 36);
+                writeWord(evolution, 4, i + 1);
+            }
+            evolutions.add(evolution);
+        }
+        int forme = Gen6Constants.pokemonCount + 1;
+        for (int[] formes : FORMES) {
+            byte[] entry = stats.get(formes[0]);
+            entry[Gen6Constants.bsFormeCountOffset] = (byte) formes[1];
+            writeWord(entry, Gen6Constants.bsFormeOffset, forme);
+            forme += formes[1] - 1;
+        }
+        // followed by all of the entries again, in one file
+        byte[] allStats = new byte[statsCount * STATS_SIZE];
+        for (int i = 0; i < statsCount; i++) {
+            System.arraycopy(stats.get(i), 0, allStats, i * STATS_SIZE, STATS_SIZE);
+        }
+        stats.add(allStats);
+
+        byte[] allBabies = new byte[(Gen6Constants.pokemonCount + 1) * 2];
+        for (int i = 0; i <= Gen6Constants.pokemonCount; i++) {
+            megaEvolutions.add(new byte[MEGA_EVOLUTION_SIZE]);
+            int count = random.nextInt(5);
+            byte[] eggs = new byte[2 + count * 2];
+            writeWord(eggs, 0, count);
+            for (int m = 0; m < count; m++) {
+                writeWord(eggs, 2 + m * 2, 1 + random.nextInt(moveCount));
+            }
+            eggMoves.add(eggs);
+            byte[] baby = new byte[2];
+            writeWord(baby, 0, i == 0 ? 0 : i - (i + 2) % 3);
+            writeWord(allBabies, i * 2, i == 0 ? 0 : i - (i + 2) % 3);
+            babies.add(baby);
+        }
+        babies.add(allBabies);
+        image.addFile(POKEMON_STATS, fixtures.garc(stats));
+        image.addFile(MOVESETS, fixtures.garc(movesets));
+        image.addFile(EVOLUTIONS, fixtures.garc(evolutions));
+        image.addFile(MEGA_EVOLUTIONS, fixtures.garc(megaEvolutions));
+        image.addFile(EGG_MOVES, fixtures.garc(eggMoves));
+        image.addFile(BABY_POKEMON, fixtures.garc(babies));
+        image.addFile(POKEDEX_AREA_DATA,
+                garc(1, (Gen6Constants.pokemonCount + 1) * Gen6Constants.perPokemonAreaDataLengthXY));
+    }
+
+    private byte[] learnset() {
+        int count = 4 + random.nextInt(10);
+        byte[] learnset = new byte[count * 4 + 4];
+        int level = 1;
+        for (int m = 0; m < count; m++) {
+            writeWord(learnset, m * 4, 1 + random.nextInt(moveCount));
+            writeWord(learnset, m * 4 + 2, level);
+            level = Math.min(100, level + random.nextInt(8));
+        }
+        writeLong(learnset, count * 4, 0xFFFFFFFF);
+        return learnset;
+    }
+
+    private void writeMoves(SyntheticCtrImage image) {
+        List<byte[]> moves = new ArrayList<>();
+        Type[] types = validTypes();
+        for (int i = 0; i <= moveCount; i++) {
+            byte[] move = new byte[MOVE_SIZE];
+            boolean status = random.nextInt(4) == 0;
+            move[0] = Gen6Constants.typeToByte(types[random.nextInt(types.length)]);
+            move[2] = (byte) (status ? 0 : 1 + random.nextInt(2));
+            move[3] = (byte) (status ? 0 : 20 + 10 * random.nextInt(11));
+            move[4] = (byte) (70 + 5 * random.nextInt(7));
+            move[5] = (byte) (5 + 5 * random.nextInt(7));
+            moves.add(move);
+        }
+        image.addFile(MOVE_DATA, fixtures.garc(moves));
+    }
+
+    private void writeTrainers(SyntheticCtrImage image) {
+        int count = getTrainerCount();
+        List<byte[]> trainers = new ArrayList<>();
+        List<byte[]> teams = new ArrayList<>();
+        // slot 0 is unused
+        trainers.add(new byte[TRAINER_SIZE]);
+        teams.add(new byte[8]);
+        for (int i = 1; i <= count; i++) {
+            int pokeType = random.nextInt(4);
+            int pokeCount = 1 + random.nextInt(6);
+            int level = 5 + (i - 1) * 70 / count;
+            byte[] trainer = new byte[TRAINER_SIZE];
+            trainer[0] = (byte) pokeType;
+            trainer[1] = (byte) random.nextInt(TRAINER_CLASS_COUNT);
+            trainer[2] = (byte) (random.nextInt(10) == 0 ? 1 : 0);
+            trainer[3] = (byte) pokeCount;
+            trainers.add(trainer);
+
+            int blockSize = 8 + ((pokeType & 2) == 2 ? 2 : 0) + ((pokeType & 1) == 1 ? 8 : 0);
+            byte[] team = new byte[pokeCount * blockSize];
+            for (int p = 0; p < pokeCount; p++) {
+                int block = p * blockSize;
+                team[block] = (byte) random.nextInt(32);
+                writeWord(team, block + 2, Math.min(100, level + random.nextInt(5)));
+                writeWord(team, block + 4, 1 + random.nextInt(Gen6Constants.pokemonCount));
+                int next = block + 8;
+                if ((pokeType & 2) == 2) {
+                    writeWord(team, next, random.nextInt(3) == 0 ? items.randomNonTM(random) : 0);
+                    next += 2;
+                }
+                if ((pokeType & 1) == 1) {
+                    for (int m = 0; m < 4; m++) {
+                        writeWord(team, next + m * 2, 1 + random.nextInt(moveCount));
+                    }
+                }
+            }
+            teams.add(team);
+        }
+        image.addFile(TRAINER_DATA, fixtures.garc(trainers));
+        image.addFile(TRAINER_POKEMON, fixtures.garc(teams));
+    }
+
+    /**
+     * Each block of 360 maps has as many with encounters as X's Pokedex knows of, spread out through it, and the
+     * zone data naming the first block comes after it. The box legendary's and the Sea Spirit's Den's maps hold
+     * the scripts the handler edits.
+     */
+    private void writeEncounters(SyntheticCtrImage image) throws IOException {
+        int mapCount = BASE_MAPS * scale;
+        List<byte[]> maps = new ArrayList<>();
+        for (int map = 0; map < mapCount; map++) {
+            byte[] scripts;
+            if (map == Gen6Constants.boxLegendaryEncounterFileXY) {
+                scripts = boxLegendaryScripts();
+            } else if (map == Gen6Constants.seaSpiritsDenEncounterFileXY) {
+                scripts = seaSpiritsDenScripts();
+            } else {
+                scripts = new byte[MAP_HEADER_SIZE];
+            }
+            boolean hasEncounters = map * BASE_ENCOUNTER_MAPS % BASE_MAPS < BASE_ENCOUNTER_MAPS;
+            byte[] file = Arrays.copyOf(scripts, scripts.length + (hasEncounters ? ENCOUNTER_DATA_SIZE : 0));
+            // where the encounters start, less 0x10; without them, that's the end of the file
+            writeLong(file, 0x10, scripts.length - 0x10);
+            if (hasEncounters) {
+                writeEncounterData(file, scripts.length, 2 + map % BASE_MAPS * 70 / BASE_MAPS);
+            }
+            maps.add(file);
+        }
+
+        byte[] zoneData = new byte[BASE_MAPS * ZONE_SIZE];
+        for (int map = 0; map < BASE_MAPS; map++) {
+            writeWord(zoneData, map * ZONE_SIZE + 0x1C, map % MAP_NAME_COUNT);
+        }
+        // so that the zone data doesn't read as a map with encounters
+        writeLong(zoneData, 0x10, zoneData.length);
+        maps.add(BASE_MAPS, zoneData);
+        // the last file is never a map
+        maps.add(new byte[4]);
+        image.addFile(WILD_POKEMON, fixtures.garc(maps));
+    }
+
+    private void writeEncounterData(byte[] file, int offset, int level) {
+        // every map has grass and hordes; some also have flowers, rough terrain, water or rocks
+        int[][] slots = { { 0, 12 }, { 48, 12 }, { 96, 12 }, { 144, 12 }, { 192, 12 }, { 240, 5 }, { 260, 5 },
+                { 280, 3 }, { 292, 3 }, { 304, 3 }, { 316, 5 }, { 336, 5 }, { 356, 5 } };
+        for (int type = 0; type < slots.length; type++) {
+            boolean present = type == 0 || type >= 10 || random.nextInt(3) == 0;
+            for (int s = 0; present && s < slots[type][1]; s++) {
+                int slot = offset + slots[type][0] + s * 4;
+                int min = Math.min(100, level + random.nextInt(3));
+                writeWord(file, slot, 1 + random.nextInt(Gen6Constants.pokemonCount));
+                file[slot + 2] = (byte) min;
+                file[slot + 3] = (byte) Math.min(100, min + random.nextInt(3));
+            }
+        }
+    }
+
+    /**
+     * The handler finds the script it edits as the second in the map, then writes it back at a fixed offset.
+     */
+    private byte[] boxLegendaryScripts() throws IOException {
+        AMX script = amx(BOX_LEGENDARY_SCRIPT_OFFSETS[2] + 2);
+        for (int offset : BOX_LEGENDARY_SCRIPT_OFFSETS) {
+            writeWord(script.decData, offset, Species.xerneas);
+        }
+        return mapScripts(Gen6Constants.boxLegendaryLocalScriptOffsetXY, script.getBytes());
+    }
+
+    private byte[] seaSpiritsDenScripts() throws IOException {
+        int[] offsets = Gen6Constants.seaSpiritsDenScriptOffsetsXY;
+        AMX script = amx(offsets[offsets.length - 1] + 4);
+        for (int i = 0; i < offsets.length; i++) {
+            writeWord(script.decData, offsets[i], Species.articuno + i);
+        }
+        return mapScripts(Gen6Constants.seaSpiritsDenLocalScriptOffsetXY, script.getBytes());
+    }
+
+    private static byte[] mapScripts(int scriptOffset, byte[] script) throws IOException {
+        byte[] first = amx(0x40).getBytes();
+        // room for a new species to take more bytes to encode than the old one
+        byte[] scripts = new byte[(scriptOffset + script.length + 0x100 + 3) & ~3];
+        System.arraycopy(first, 0, scripts, MAP_HEADER_SIZE, first.length);
+        System.arraycopy(script, 0, scripts, scriptOffset, script.length);
+        return scripts;
+    }
+
+    private void writeScripts(SyntheticCtrImage image) throws IOException {
+        List<byte[]> scripts = new ArrayList<>();
+        for (int i = 0; i < SCRIPT_COUNT; i++) {
+            scripts.add(amx(0x40).getBytes());
+        }
+        scripts.set(FIELD_ITEMS_SCRIPT, itemScript(FIELD_ITEMS_OFFSET, FIELD_ITEM_COUNT));
+        scripts.set(HIDDEN_ITEMS_SCRIPT, itemScript(HIDDEN_ITEMS_OFFSET, HIDDEN_ITEM_COUNT));
+        image.addFile(SCRIPTS, fixtures.garc(scripts));
+    }
+
+    /**
+     * @return A script whose data ends in items, 12 bytes apart, starting with the TMs that have to be on the field.
+     */
+    private byte[] itemScript(int offset, int count) throws IOException {
+        List<Integer> requiredTMs = Gen6Constants.getRequiredFieldTMs(Gen6Constants.Type_XY);
+        AMX script = amx(offset + count * 12);
+        for (int i = 0; i < count; i++) {
+            int item = i < requiredTMs.size() && offset == FIELD_ITEMS_OFFSET
+                    ? tmItem(requiredTMs.get(i))
+                    : items.randomNonTM(random);
+            writeWord(script.decData, offset + i * 12, item);
+        }
+        return script.getBytes();
+    }
+
+    private void writeCros(SyntheticCtrImage image) {
+        byte[] field = filler(FIELD_SIZE);
+        // the code that checks for the box legendary, which the handler patches when it changes
+        writeHex(field, 0x100, Gen6Constants.boxLegendaryFunctionPrefixXY);
+        for (int i = 0; i < Gen6Constants.getStaticPokemonCount(Gen6Constants.Type_XY); i++) {
+            int entry = STATIC_OFFSET + i * Gen6Constants.staticPokemonSize;
+            writeWord(field, entry, 1 + random.nextInt(Gen6Constants.pokemonCount));
+            field[entry + 2] = 0;
+            field[entry + 3] = (byte) (30 + random.nextInt(31));
+            writeWord(field, entry + 4, 0);
+        }
+        for (int[] linked : LINKED_STATICS) {
+            System.arraycopy(field, STATIC_OFFSET + linked[0] * Gen6Constants.staticPokemonSize, field,
+                    STATIC_OFFSET + linked[1] * Gen6Constants.staticPokemonSize, Gen6Constants.staticPokemonSize);
+        }
+        for (int i : BOX_LEGENDARIES) {
+            writeWord(field, STATIC_OFFSET + i * Gen6Constants.staticPokemonSize, Species.xerneas);
+        }
+        for (int i = 0; i < ROAMERS.length; i++) {
+            writeWord(field, STATIC_OFFSET + ROAMERS[i] * Gen6Constants.staticPokemonSize, Species.articuno + i);
+        }
+
+        int giftSize = Gen6Constants.getGiftPokemonSize(Gen6Constants.Type_XY);
+        byte[] starterDisplay = filler(CRO_SIZE);
+        writeWord(starterDisplay, STARTER_DISPLAY_POINTER, 0x100);
+        for (int i = 0; i < Gen6Constants.getGiftPokemonCount(Gen6Constants.Type_XY); i++) {
+            int entry = GIFT_OFFSET + i * giftSize;
+            int species = i < STARTERS.length ? STARTERS[i] : 1 + random.nextInt(Gen6Constants.pokemonCount);
+            writeWord(field, entry, species);
+            field[entry + 4] = 0;
+            field[entry + 5] = (byte) (i < STARTERS.length ? 5 : 10 + random.nextInt(41));
+            writeLong(field, entry + 12, -1);
+            if (i < STARTERS.length) {
+                int display = 0x100 + STARTER_DISPLAY_EXTRA + i * STARTER_DISPLAY_SIZE;
+                writeWord(starterDisplay, display, species);
+                starterDisplay[display + 2] = 0;
+            }
+        }
+
+        // the falling and rustling bush encounters, 7 Pokemon each
+        for (int i = 0; i < Gen6Constants.fallingEncounterCount + Gen6Constants.rustlingBushEncounterCount; i++) {
+            int entry = i < Gen6Constants.fallingEncounterCount
+                    ? Gen6Constants.fallingEncounterOffset + i * Gen6Constants.fieldEncounterSize
+                    : Gen6Constants.rustlingBushEncounterOffset
+                            + (i - Gen6Constants.fallingEncounterCount) * Gen6Constants.fieldEncounterSize;
+            for (int s = 0; s < 7; s++) {
+                writeWord(field, entry + 4 + s * 8, 1 + random.nextInt(Gen6Constants.pokemonCount));
+                field[entry + 8 + s * 8] = (byte) (10 + random.nextInt(51));
+            }
+        }
+
+        // the code the intro's Pokemon and cries are found by, with room for the handler's changes after each
+        byte[] intro = filler(CRO_SIZE);
+        String[] introLocators = { Gen6Constants.introPokemonModelOffsetXY, Gen6Constants.introInitialCryOffset1XY,
+                Gen6Constants.introInitialCryOffset2XY, Gen6Constants.introInitialCryOffset3XY,
+                Gen6Constants.introRepeatedCryOffsetXY };
+        for (int i = 0; i < introLocators.length; i++) {
+            writeHex(intro, 0x100 + i * 0x100, introLocators[i]);
+        }
+
+        image.addFile(FIELD, field);
+        image.addFile(STARTER_DISPLAY, starterDisplay);
+        image.addFile(INTRO, intro);
+        image.addFile(BATTLE, filler(CRO_SIZE));
+        image.addFile(EVOLUTION, filler(CRO_SIZE));
+    }
+
+    private byte[] textGarc(List<List<String>> files) throws IOException {
+        List<byte[]> texts = new ArrayList<>();
+        for (List<String> strings : files) {
+            texts.add(fixtures.gen6Text(strings));
+        }
+        return fixtures.garc(texts);
+    }
+
+    /**
+     * @param decompressedLength The length of the script's data, a multiple of 4.
+     * @return A script of that length, all zeros.
+     */
+    private static AMX amx(int decompressedLength) throws IOException {
+        int headerSize = 0x1C;
+        // a zero compresses to a single byte
+        byte[] compressed = new byte[headerSize + decompressedLength / 4];
+        writeLong(compressed, 0, compressed.length);
+        writeLong(compressed, 4, 0x0A0AF1E0);
+        writeLong(compressed, 0xC, headerSize);
+        writeLong(compressed, 0x10, headerSize);
+        writeLong(compressed, 0x14, headerSize + decompressedLength);
+        writeLong(compressed, 0x18, headerSize + decompressedLength);
+        return new AMX(compressed);
+    }
+
+    private static int tmItem(int tm) {
+        if (tm <= Gen6Constants.tmBlockOneCount) {
+            return Gen6Constants.tmBlockOneOffset + tm - 1;
+        } else if (tm <= Gen6Constants.tmBlockOneCount + Gen6Constants.tmBlockTwoCount) {
+            return Gen6Constants.tmBlockTwoOffset + tm - Gen6Constants.tmBlockOneCount - 1;
+        }
+        return Gen6Constants.tmBlockThreeOffset + tm - Gen6Constants.tmBlockOneCount
+                - Gen6Constants.tmBlockTwoCount - 1;
+    }
+
+    private byte[] garc(int fileCount, int fileSize) {
+        List<byte[]> files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.add(new byte[fileSize]);
+        }
+        return fixtures.garc(files);
+    }
+
+    private static byte[] filler(int length) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) 1);
+        return data;
+    }
+
+    private static List<String> names(String format, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(String.format(format, i));
+        }
+        return names;
+    }
+
+    private static Type[] validTypes() {
+        List<Type> types = new ArrayList<>();
+        for (Type type : Gen6Constants.typeTable) {
+            if (type != null) {
+                types.add(type);
+            }
+        }
+        return types.toArray(new Type[0]);
+    }
+
+    private static int writeHex(byte[] data, int offset, String hex) {
+        for (int i = 0; i < hex.length() / 2; i++) {
+            data[offset + i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return offset + hex.length() / 2;
+    }
+
+    private static void writeLong(byte[] data, int offset, int value) {
+        writeWord(data, offset, value);
+        writeWord(data, offset + 2, value >>> 16);
+    }
+
+    private static void writeWord(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+    }
+}
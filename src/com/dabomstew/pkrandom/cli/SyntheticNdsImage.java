@@ -0,0 +1,220 @@
+package com.dabomstew.pkrandom.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lays out an NDS image the way NDSRom reads one: a header, the ARM9 and its overlay table, an ARM7, a banner,
+ * then the file name table, the file allocation table and the files. Overlays take the first file IDs, like in
+ * the real games. Only the parts NDSRom looks at are filled in, so the image isn't something a DS could run.
+ */
+class SyntheticNdsImage {
+
+    private static final int HEADER_SIZE = 0x4000, BANNER_SIZE = 0x840, ARM7_SIZE = 0x200;
+    private static final int ALIGN = 0x200;
+
+    private static class Directory {
+        private final Map<String, Directory> directories = new TreeMap<>();
+        private final Map<String, byte[]> files = new TreeMap<>();
+        private int id;
+    }
+
+    private final String code;
+    private final int version;
+    private final int arm9RamAddress;
+    private byte[] arm9 = new byte[0];
+    private final List<byte[]> overlays = new ArrayList<>();
+    private final Directory root = new Directory();
+
+    /**
+     * @param code The four letter game code.
+     * @param version The version byte.
+     * @param arm9RamAddress Where the ARM9 is loaded in memory.
+     */
+    SyntheticNdsImage(String code, int version, int arm9RamAddress) {
+        this.code = code;
+        this.version = version;
+        this.arm9RamAddress = arm9RamAddress;
+    }
+
+    /**
+     * @param arm9 The uncompressed ARM9, which mustn't end in anything NDSRom takes for a footer or for
+     *             compression.
+     */
+    void setArm9(byte[] arm9) {
+        this.arm9 = arm9;
+    }
+
+    /**
+     * Adds an uncompressed overlay, numbered after the ones added before it.
+     */
+    void addOverlay(byte[] overlay) {
+        overlays.add(overlay);
+    }
+
+    /**
+     * @param path The path of the file, with '/' between directories, as the handlers name it.
+     */
+    void addFile(String path, byte[] contents) {
+        String[] parts = path.split("/");
+        Directory dir = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            dir = dir.directories.computeIfAbsent(parts[i], k -> new Directory());
+        }
+        dir.files.put(parts[parts.length - 1], contents);
+    }
+
+    byte[] build() {
+        List<Directory> directories = new ArrayList<>();
+        number(root, directories);
+        List<byte[]> files = new ArrayList<>(overlays);
+        int[] firstFileIDs = new int[directories.size()];
+        for (Directory dir : directories) {
+            firstFileIDs[dir.id] = files.size();
+            files.addAll(dir.files.values());
+        }
+        byte[] fnt = fileNameTable(directories, firstFileIDs);
+
+        int arm9Offset = HEADER_SIZE;
+        // 12 bytes after the ARM9 that aren't a footer
+        int overlayTableOffset = arm9Offset + arm9.length + 12;
+        int arm7Offset = align(overlayTableOffset + overlays.size() * 32);
+        int bannerOffset = align(arm7Offset + ARM7_SIZE);
+        int fntOffset = align(bannerOffset + BANNER_SIZE);
+        int fatOffset = align(fntOffset + fnt.length);
+        int[] fileOffsets = new int[files.size()];
+        int end = fatOffset + files.size() * 8;
+        for (int i = 0; i < files.size(); i++) {
+            fileOffsets[i] = align(end);
+            end = fileOffsets[i] + files.get(i).length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(align(end));
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < code.length(); i++) {
+            buf.put(0x0C + i, (byte) code.charAt(i));
+        }
+        buf.put(0x1E, (byte) version);
+        buf.putInt(0x20, arm9Offset);
+        buf.putInt(0x24, arm9RamAddress);
+        buf.putInt(0x28, arm9RamAddress);
+        buf.putInt(0x2C, arm9.length);
+        buf.putInt(0x30, arm7Offset);
+        buf.putInt(0x3C, ARM7_SIZE);
+        buf.putInt(0x40, fntOffset);
+        buf.putInt(0x44, fnt.length);
+        buf.putInt(0x48, fatOffset);
+        buf.putInt(0x4C, files.size() * 8);
+        buf.putInt(0x50, overlayTableOffset);
+        buf.putInt(0x54, overlays.size() * 32);
+        // no ARM7 overlays
+        buf.putInt(0x58, arm7Offset + ARM7_SIZE);
+        buf.putInt(0x5C, 0);
+        buf.putInt(0x68, bannerOffset);
+        buf.putInt(0x80, end);
+        buf.putInt(0x84, HEADER_SIZE);
+
+        buf.position(arm9Offset);
+        buf.put(arm9);
+        for (int i = 0; i < 12; i++) {
+            buf.put((byte) 0xFF);
+        }
+        for (int i = 0; i < overlays.size(); i++) {
+            int entry = overlayTableOffset + i * 32;
+            buf.putInt(entry, i);
+            buf.putInt(entry + 8, overlays.get(i).length);
+            // the overlay's file ID, and a compression flag of 0
+            buf.putInt(entry + 24, i);
+        }
+        buf.position(fntOffset);
+        buf.put(fnt);
+        for (int i = 0; i < files.size(); i++) {
+            buf.putInt(fatOffset + i * 8, fileOffsets[i]);
+            buf.putInt(fatOffset + i * 8 + 4, fileOffsets[i] + files.get(i).length);
+            buf.position(fileOffsets[i]);
+            buf.put(files.get(i));
+        }
+        return buf.array();
+    }
+
+    private static void number(Directory dir, List<Directory> directories) {
+        dir.id = directories.size();
+        directories.add(dir);
+        for (Directory sub : dir.directories.values()) {
+            number(sub, directories);
+        }
+    }
+
+    private static byte[] fileNameTable(List<Directory> directories, int[] firstFileIDs) {
+        List<byte[]> subTables = new ArrayList<>();
+        int mainTableSize = directories.size() * 8;
+        int size = mainTableSize;
+        for (Directory dir : directories) {
+            ByteBuffer sub = ByteBuffer.allocate(subTableSize(dir));
+            sub.order(ByteOrder.LITTLE_ENDIAN);
+            for (String name : dir.files.keySet()) {
+                sub.put((byte) name.length());
+                sub.put(ascii(name));
+            }
+            for (Map.Entry<String, Directory> entry : dir.directories.entrySet()) {
+                sub.put((byte) (entry.getKey().length() | 0x80));
+                sub.put(ascii(entry.getKey()));
+                sub.putShort((short) (0xF000 + entry.getValue().id));
+            }
+            sub.put((byte) 0);
+            subTables.add(sub.array());
+            size += sub.capacity();
+        }
+
+        ByteBuffer fnt = ByteBuffer.allocate(size);
+        fnt.order(ByteOrder.LITTLE_ENDIAN);
+        int subTableOffset = mainTableSize;
+        for (Directory dir : directories) {
+            fnt.putInt(subTableOffset);
+            fnt.putShort((short) firstFileIDs[dir.id]);
+            // the root's parent is the number of directories
+            fnt.putShort((short) (dir.id == 0 ? directories.size() : 0xF000 + parentOf(dir, directories)));
+            subTableOffset += subTables.get(dir.id).length;
+        }
+        for (byte[] sub : subTables) {
+            fnt.put(sub);
+        }
+        return fnt.array();
+    }
+
+    private static int subTableSize(Directory dir) {
+        int size = 1;
+        for (String name : dir.files.keySet()) {
+            size += 1 + name.length();
+        }
+        for (String name : dir.directories.keySet()) {
+            size += 3 + name.length();
+        }
+        return size;
+    }
+
+    private static int parentOf(Directory dir, List<Directory> directories) {
+        for (Directory candidate : directories) {
+            if (candidate.directories.containsValue(dir)) {
+                return candidate.id;
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < text.length(); i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+
+    private static int align(int offset) {
+        return (offset + ALIGN - 1) & ~(ALIGN - 1);
+    }
+}
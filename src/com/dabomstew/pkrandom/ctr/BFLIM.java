@@ -24,6 +24,7 @@ package com.dabomstew.pkrandom.ctr;
 /*----------------------------------------------------------------------------*/
 
 import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.GFXFunctions;
 
 import java.awt.image.BufferedImage;
 
@@ -56,12 +57,7 @@ public class BFLIM {
         int[] colorData = convertToColorData(decodedImageData);
         int[] correctedColorData = rearrangeImage(colorData, width, height);
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int color = correctedColorData[x + (y * this.width)];
-                image.setRGB(x, y, color);
-            }
-        }
+        System.arraycopy(correctedColorData, 0, GFXFunctions.getPixels(image), 0, width * height);
         return image;
     }
 
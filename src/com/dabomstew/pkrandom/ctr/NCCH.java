@@ -22,6 +22,7 @@ package com.dabomstew.pkrandom.ctr;
 /*----------------------------------------------------------------------------*/
 
 import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
 import com.dabomstew.pkrandom.SysConstants;
 import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
 import com.dabomstew.pkrandom.exceptions.EncryptedROMException;
@@ -736,6 +737,16 @@ public class NCCH {
         }
     }
 
+    // returns null if file doesn't exist
+    public RomIntegrityCheck.Region getFileRegion(String filename, long expectedCRC32) {
+        if (romfsFiles.containsKey(filename)) {
+            RomfsFile file = romfsFiles.get(filename);
+            return new RomIntegrityCheck.Region(romFilename, file.offset, file.size, false, expectedCRC32);
+        } else {
+            return null;
+        }
+    }
+
     public void writeFile(String filename, byte[] data) throws IOException {
         if (romfsFiles.containsKey(filename)) {
             romfsFiles.get(filename).writeOverride(data);
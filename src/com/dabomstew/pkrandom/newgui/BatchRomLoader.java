@@ -0,0 +1,175 @@
+package com.dabomstew.pkrandom.newgui;
+
+/*----------------------------------------------------------------------------*/
+/*--  BatchRomLoader.java - loads the ROM again for every batch              --*/
+/*--                        randomization, ahead of time where it can.      --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.RandomSource;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a fresh handler for each ROM of a batch randomization, along with the game update the first one had.
+ * When the ROM can be hard linked, the next handler is loaded on the executor while the current one randomizes
+ * and saves. Handlers then take turns between the ROM and the link, since the DS and 3DS handlers unpack files
+ * into a folder named after the ROM file, and two handlers of the same file at once would share it.
+ */
+class BatchRomLoader implements Closeable {
+
+    private final RomHandler.Factory factory;
+    private final ExecutorService executor;
+    private final String romFilename;
+    private final String updateFilename;
+    private Path linkDir;
+    private String linkedRomFilename;
+    private String linkedUpdateFilename;
+
+    private RomHandler current;
+    private boolean currentFromLink;
+    private Future<RomHandler> prefetched;
+    private boolean prefetchedFromLink;
+
+    /**
+     * @param current The handler for the first ROM of the batch, already loaded.
+     * @param updateFilename The game update it was loaded with, or null.
+     */
+    BatchRomLoader(RomHandler.Factory factory, RomHandler current, String updateFilename, ExecutorService executor) {
+        this.factory = factory;
+        this.executor = executor;
+        this.romFilename = current.loadedFilename();
+        this.updateFilename = updateFilename;
+        this.current = current;
+        try {
+            linkDir = Files.createTempDirectory("uprbatch");
+            linkedRomFilename = link(romFilename);
+            if (updateFilename != null) {
+                linkedUpdateFilename = link(updateFilename);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // e.g. the temp directory is on another drive; a copy would take longer than loading one at a time
+            deleteLinks();
+        }
+    }
+
+    private String link(String filename) throws IOException {
+        Path link = linkDir.resolve("batch_" + new File(filename).getName());
+        Files.createLink(link, Paths.get(filename));
+        return link.toString();
+    }
+
+    /**
+     * Starts loading the handler the next call to next() returns, if that can happen alongside randomizing
+     * with the current one.
+     */
+    void prefetch() {
+        if (linkedRomFilename == null || prefetched != null) {
+            return;
+        }
+        prefetchedFromLink = !currentFromLink;
+        boolean fromLink = prefetchedFromLink;
+        prefetched = executor.submit(() -> load(fromLink));
+    }
+
+    /**
+     * @return A freshly loaded handler for the next ROM of the batch. The previous one is finished with.
+     */
+    RomHandler next() throws InterruptedException, ExecutionException {
+        RomHandler handler;
+        boolean fromLink;
+        if (prefetched != null) {
+            fromLink = prefetchedFromLink;
+            try {
+                handler = prefetched.get();
+            } finally {
+                prefetched = null;
+            }
+        } else {
+            fromLink = false;
+            handler = executor.submit(() -> load(false)).get();
+        }
+        closeInnerRom(current);
+        current = handler;
+        currentFromLink = fromLink;
+        return handler;
+    }
+
+    private RomHandler load(boolean fromLink) {
+        RomHandler handler = factory.create(RandomSource.instance());
+        handler.loadRom(fromLink ? linkedRomFilename : romFilename);
+        if (updateFilename != null) {
+            handler.loadGameUpdate(fromLink ? linkedUpdateFilename : updateFilename);
+        }
+        return handler;
+    }
+
+    /**
+     * Waits for a handler still being loaded, and closes the ROM files of the handlers this loaded.
+     */
+    @Override
+    public void close() {
+        if (prefetched != null) {
+            try {
+                closeInnerRom(prefetched.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // nothing was loaded, so there is nothing to close
+            }
+            prefetched = null;
+        }
+        closeInnerRom(current);
+        deleteLinks();
+    }
+
+    private static void closeInnerRom(RomHandler handler) {
+        try {
+            NewRandomizerGUI.closeInnerRom(handler);
+        } catch (IOException e) {
+            // it was only being read from
+        }
+    }
+
+    private void deleteLinks() {
+        if (linkedRomFilename != null) {
+            new File(linkedRomFilename).delete();
+        }
+        if (linkedUpdateFilename != null) {
+            new File(linkedUpdateFilename).delete();
+        }
+        if (linkDir != null) {
+            linkDir.toFile().delete();
+        }
+        linkedRomFilename = null;
+        linkedUpdateFilename = null;
+        linkDir = null;
+    }
+}
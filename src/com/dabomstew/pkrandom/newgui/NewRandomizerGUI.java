@@ -26,7 +26,11 @@ package com.dabomstew.pkrandom.newgui;
 /*----------------------------------------------------------------------------*/
 
 import com.dabomstew.pkrandom.*;
+import com.dabomstew.pkrandom.cli.CliAnalyzer;
+import com.dabomstew.pkrandom.cli.CliBenchmark;
+import com.dabomstew.pkrandom.cli.CliDaemon;
 import com.dabomstew.pkrandom.cli.CliRandomizer;
+import com.dabomstew.pkrandom.cli.CliSprites;
 import com.dabomstew.pkrandom.constants.GlobalConstants;
 import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
 import com.dabomstew.pkrandom.exceptions.EncryptedROMException;
@@ -50,6 +54,11 @@ import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -351,6 +360,22 @@ public class NewRandomizerGUI {
     private JMenuItem batchRandomizationMenuItem;
 
     private ImageIcon emptyIcon = new ImageIcon(getClass().getResource("/com/dabomstew/pkrandom/newgui/emptyIcon.png"));
+    // The mascot is drawn on its own thread with its own Random, so loading a ROM doesn't wait for it and
+    // randomizing gives the same results whichever Pokemon it picks.
+    private final ExecutorService mascotExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "mascot");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Future<?> mascotTask;
+    private volatile int mascotGeneration;
+    // ROMs are loaded one at a time, so a load that was cancelled but is still running never shares its unpacked
+    // files with the next load of the same ROM
+    private final ExecutorService romLoader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ROM loader");
+        t.setDaemon(true);
+        return t;
+    });
     private boolean haveCheckedCustomNames, unloadGameOnSuccess;
     private Map<String, String> gameUpdates = new TreeMap<>();
 
@@ -797,32 +822,58 @@ public class NewRandomizerGUI {
                         this.romHandler = null;
                         return;
                     }
-                    opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
-                    Thread t = new Thread(() -> {
+                    final RomHandler handler = this.romHandler;
+                    final AtomicBoolean cancelled = new AtomicBoolean(false);
+                    final OperationDialog loadingDialog = new OperationDialog(bundle.getString("GUI.loadingText"),
+                            frame, true);
+                    opDialog = loadingDialog;
+                    handler.setLoadProgressListener(loadProgressListener(loadingDialog));
+                    // the load can't be stopped partway, so it carries on and its handler is thrown away
+                    loadingDialog.enableCancel(bundle.getString("GUI.cancelLoading"), () -> {
+                        cancelled.set(true);
+                        loadingDialog.setVisible(false);
+                        this.romHandler = null;
+                        this.initialState();
+                    });
+                    // shown straight away, as the load may wait for a cancelled one to finish
+                    SwingUtilities.invokeLater(() -> loadingDialog.setVisible(true));
+                    romLoader.execute(() -> {
                         boolean romLoaded = false;
-                        SwingUtilities.invokeLater(() -> opDialog.setVisible(true));
+                        // the previous ROM may share its temporary folder with this one
+                        waitForMascot();
                         try {
-                            this.romHandler.loadRom(fh.getAbsolutePath());
-                            if (gameUpdates.containsKey(this.romHandler.getROMCode())) {
-                                this.romHandler.loadGameUpdate(gameUpdates.get(this.romHandler.getROMCode()));
+                            handler.loadRom(fh.getAbsolutePath());
+                            if (gameUpdates.containsKey(handler.getROMCode())) {
+                                handler.loadGameUpdate(gameUpdates.get(handler.getROMCode()));
                             }
                             romLoaded = true;
                         } catch (EncryptedROMException ex) {
-                            JOptionPane.showMessageDialog(mainPanel,
-                                    String.format(bundle.getString("GUI.encryptedRom"), fh.getAbsolutePath()));
+                            if (!cancelled.get()) {
+                                JOptionPane.showMessageDialog(mainPanel,
+                                        String.format(bundle.getString("GUI.encryptedRom"), fh.getAbsolutePath()));
+                            }
                         } catch (Exception ex) {
-                            attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+                            if (!cancelled.get()) {
+                                attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+                            }
                         }
                         final boolean loadSuccess = romLoaded;
                         SwingUtilities.invokeLater(() -> {
-                            this.opDialog.setVisible(false);
+                            if (cancelled.get()) {
+                                try {
+                                    closeInnerRom(handler);
+                                } catch (IOException ex) {
+                                    // it was only being read from
+                                }
+                                return;
+                            }
+                            loadingDialog.setVisible(false);
                             this.initialState();
                             if (loadSuccess) {
                                 this.romLoaded();
                             }
                         });
                     });
-                    t.start();
 
                     return;
                 }
@@ -891,6 +942,13 @@ public class NewRandomizerGUI {
             int endingIndex = startingIndex + numberOfRandomizedROMs;
             final String progressTemplate = bundle.getString("GUI.batchRandomizationProgress");
             OperationDialog batchProgressDialog = new OperationDialog(String.format(progressTemplate, 0, numberOfRandomizedROMs), frame, true);
+            // stops once the ROM being randomized is saved
+            final AtomicBoolean stopRequested = new AtomicBoolean(false);
+            batchProgressDialog.enableCancel(bundle.getString("GUI.batchRandomizationStop"),
+                    () -> stopRequested.set(true));
+            final String romFilename = romHandler.loadedFilename();
+            final RomHandler.Factory romFactory = findRomHandlerFactory(romFilename);
+            final String updateFilename = gameUpdates.get(romHandler.getROMCode());
             SwingWorker swingWorker = new SwingWorker<Void, Void>() {
                 int i;
 
@@ -898,7 +956,32 @@ public class NewRandomizerGUI {
                 protected Void doInBackground() {
                     frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
                     SwingUtilities.invokeLater(() -> batchProgressDialog.setVisible(true));
-                    for (i = startingIndex; i < endingIndex; i++) {
+                    waitForMascot();
+                    BatchRomLoader batchLoader = new BatchRomLoader(romFactory, romHandler, updateFilename, romLoader);
+                    try {
+                        randomizeBatch(batchLoader);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        Throwable cause = ex.getCause();
+                        attemptToLogException(cause instanceof Exception ? (Exception) cause : ex,
+                                "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+                    } finally {
+                        batchLoader.close();
+                    }
+                    return null;
+                }
+
+                // randomizing with a handler changes it, so each ROM gets a freshly loaded one
+                private void randomizeBatch(BatchRomLoader batchLoader) throws InterruptedException,
+                        ExecutionException {
+                    for (i = startingIndex; i < endingIndex && !stopRequested.get(); i++) {
+                        if (i > startingIndex) {
+                            romHandler = batchLoader.next();
+                        }
+                        if (i + 1 < endingIndex) {
+                            batchLoader.prefetch();
+                        }
                         String fileName = batchRandomizationSettings.getOutputDirectory() +
                                 File.separator +
                                 batchRandomizationSettings.getFileNamePrefix() +
@@ -919,7 +1002,6 @@ public class NewRandomizerGUI {
                         );
                         saveRandomizedRom(outputType, rom);
                     }
-                    return null;
                 }
 
                 @Override
@@ -930,12 +1012,18 @@ public class NewRandomizerGUI {
                         attemptWriteConfig();
                     }
                     SwingUtilities.invokeLater(() -> batchProgressDialog.setVisible(false));
-                    JOptionPane.showMessageDialog(frame, bundle.getString("GUI.randomizationDone"));
+                    if (i < endingIndex) {
+                        JOptionPane.showMessageDialog(frame, String.format(
+                                bundle.getString("GUI.batchRandomizationStopped"), i - startingIndex,
+                                numberOfRandomizedROMs));
+                    } else {
+                        JOptionPane.showMessageDialog(frame, bundle.getString("GUI.randomizationDone"));
+                    }
                     if (unloadGameOnSuccess) {
                         romHandler = null;
                         initialState();
                     } else {
-                        reinitializeRomHandler(false);
+                        reinitializeRomHandler(romFilename);
                     }
                     frame.setCursor(null);
                 }
@@ -1028,16 +1116,15 @@ public class NewRandomizerGUI {
         final Settings settings = createSettingsFromState(customNames);
         final boolean raceMode = settings.isRaceMode();
         final boolean batchRandomization = batchRandomizationSettings.isBatchRandomizationEnabled() && !presetMode;
-        // Setup verbose log
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintStream log;
+        // Setup verbose log; it goes to a temporary file as it is written, and is moved next to the ROM if kept
+        final LogFile logFile;
         try {
-            log = new PrintStream(baos, false, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            log = new PrintStream(baos);
+            logFile = LogFile.temporary(false);
+        } catch (IOException ex) {
+            attemptToLogException(ex, "GUI.saveFailed", "GUI.saveFailedNoLog", settings.toString(), Long.toString(seed));
+            return;
         }
-
-        final PrintStream verboseLog = log;
+        final PrintStream verboseLog = logFile.getStream();
 
         try {
             final AtomicInteger finishedCV = new AtomicInteger(0);
@@ -1045,6 +1132,8 @@ public class NewRandomizerGUI {
             Thread t = new Thread(() -> {
                 SwingUtilities.invokeLater(() -> opDialog.setVisible(!batchRandomization));
                 boolean succeededSave = false;
+                // the mascot may still be reading from the ROM
+                waitForMascot();
                 try {
                     romHandler.setLog(verboseLog);
                     finishedCV.set(new Randomizer(settings, romHandler, bundle, saveAsDirectory).randomize(filename,
@@ -1053,35 +1142,27 @@ public class NewRandomizerGUI {
                 } catch (RandomizationException ex) {
                     attemptToLogException(ex, "GUI.saveFailedMessage",
                             "GUI.saveFailedMessageNoLog", true, settings.toString(), Long.toString(seed));
-                    if (verboseLog != null) {
-                        verboseLog.close();
-                    }
+                    logFile.delete();
                 } catch (CannotWriteToLocationException ex) {
                     JOptionPane.showMessageDialog(mainPanel, String.format(bundle.getString("GUI.cannotWriteToLocation"), filename));
-                    if (verboseLog != null) {
-                        verboseLog.close();
-                    }
+                    logFile.delete();
                 } catch (Exception ex) {
                     attemptToLogException(ex, "GUI.saveFailedIO", "GUI.saveFailedIONoLog", settings.toString(), Long.toString(seed));
-                    if (verboseLog != null) {
-                        verboseLog.close();
-                    }
+                    logFile.delete();
                 }
                 if (succeededSave) {
                     SwingUtilities.invokeLater(() -> {
                         opDialog.setVisible(false);
                         // Log?
-                        verboseLog.close();
-                        byte[] out = baos.toByteArray();
-
                         if (raceMode) {
                             JOptionPane.showMessageDialog(frame,
                                     String.format(bundle.getString("GUI.raceModeCheckValuePopup"),
                                             finishedCV.get()));
                         } else if (batchRandomization && batchRandomizationSettings.shouldGenerateLogFile()) {
                             try {
-                                saveLogFile(filename, out);
+                                saveLogFile(filename, logFile);
                             } catch (IOException e) {
+                                logFile.delete();
                                 JOptionPane.showMessageDialog(frame,
                                         bundle.getString("GUI.logSaveFailed"));
                                 return;
@@ -1093,8 +1174,9 @@ public class NewRandomizerGUI {
                                     JOptionPane.YES_NO_OPTION);
                             if (response == JOptionPane.YES_OPTION) {
                                 try {
-                                    saveLogFile(filename, out);
+                                    saveLogFile(filename, logFile);
                                 } catch (IOException e) {
+                                    logFile.delete();
                                     JOptionPane.showMessageDialog(frame,
                                             bundle.getString("GUI.logSaveFailed"));
                                     return;
@@ -1103,6 +1185,8 @@ public class NewRandomizerGUI {
                                         String.format(bundle.getString("GUI.logSaved"), filename));
                             }
                         }
+                        // does nothing if the log was saved
+                        logFile.delete();
                         if (presetMode) {
                             JOptionPane.showMessageDialog(frame,
                                     bundle.getString("GUI.randomizationDone"));
@@ -1111,7 +1195,7 @@ public class NewRandomizerGUI {
                                 romHandler = null;
                                 initialState();
                             } else {
-                                reinitializeRomHandler(false);
+                                reinitializeRomHandler(romHandler.loadedFilename());
                             }
                         } else if (!batchRandomization) {
                             // Compile a config string
@@ -1129,7 +1213,7 @@ public class NewRandomizerGUI {
                                 romHandler = null;
                                 initialState();
                             } else {
-                                reinitializeRomHandler(false);
+                                reinitializeRomHandler(romHandler.loadedFilename());
                             }
                         }
                     });
@@ -1143,27 +1227,21 @@ public class NewRandomizerGUI {
             });
             t.start();
             if (batchRandomization) {
+                // the batch loads the next handler itself
                 t.join();
-                reinitializeRomHandler(true);
             }
         } catch (Exception ex) {
             attemptToLogException(ex, "GUI.saveFailed", "GUI.saveFailedNoLog", settings.toString(), Long.toString(seed));
-            if (verboseLog != null) {
-                verboseLog.close();
-            }
+            logFile.delete();
         }
     }
 
-    private void saveLogFile(String filename, byte[] out) throws IOException {
-        FileOutputStream fos = new FileOutputStream(filename + ".log");
-        fos.write(0xEF);
-        fos.write(0xBB);
-        fos.write(0xBF);
-        fos.write(out);
-        fos.close();
+    private void saveLogFile(String filename, LogFile logFile) throws IOException {
+        logFile.moveTo(LogFile.fileFor(filename, false));
     }
 
     private void presetLoader() {
+        waitForMascot();
         PresetLoadDialog pld = new PresetLoadDialog(this,frame);
         if (pld.isCompleted()) {
             // Apply it
@@ -1296,6 +1374,7 @@ public class NewRandomizerGUI {
                 JOptionPane.showMessageDialog(frame, String.format(bundle.getString("GUI.invalidGameUpdate"), fh.getName()));
                 return;
             }
+            waitForMascot();
             Abstract3DSRomHandler ctrRomHandler = (Abstract3DSRomHandler) romHandler;
             String baseGameTitleId = ctrRomHandler.getTitleIdFromLoadedROM();
             char[] baseGameTitleIdChars = baseGameTitleId.toCharArray();
@@ -1329,6 +1408,7 @@ public class NewRandomizerGUI {
 
         gameUpdates.remove(romHandler.getROMCode());
         attemptWriteConfig();
+        waitForMascot();
         romHandler.removeGameUpdate();
         removeGameUpdateMenuItem.setVisible(false);
         setRomNameLabel();
@@ -1430,41 +1510,48 @@ public class NewRandomizerGUI {
         attemptWriteConfig();
     }
 
-    // This is only intended to be used with the "Keep Game Loaded After Randomizing" setting or between randomization
-    // iterations when batch randomization is enabled. It assumes that the game has already been loaded once, and we just need
-    // to reload the same game to reinitialize the RomHandler. Don't use this for other purposes unless you know what
-    // you're doing.
-    private void reinitializeRomHandler(boolean batchRandomization) {
-        String currentFN = this.romHandler.loadedFilename();
-        for (RomHandler.Factory rhf : checkHandlers) {
-            if (rhf.isLoadable(currentFN)) {
-                this.romHandler = rhf.create(RandomSource.instance());
-                opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
-                Thread t = new Thread(() -> {
-                    SwingUtilities.invokeLater(() -> opDialog.setVisible(!batchRandomization));
-                    try {
-                        this.romHandler.loadRom(currentFN);
-                        if (gameUpdates.containsKey(this.romHandler.getROMCode())) {
-                            this.romHandler.loadGameUpdate(gameUpdates.get(this.romHandler.getROMCode()));
-                        }
-                    } catch (Exception ex) {
-                        attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
-                    }
-                    SwingUtilities.invokeLater(() -> {
-                        this.opDialog.setVisible(false);
-                    });
-                });
-                t.start();
-                if (batchRandomization) {
-                    try {
-                        t.join();
-                    } catch(InterruptedException ex) {
-                        attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
-                    }
+    // This is only intended to be used with the "Keep Game Loaded After Randomizing" setting or after a batch
+    // randomization. It assumes that the game has already been loaded once, and we just need to reload the same game
+    // to reinitialize the RomHandler. Don't use this for other purposes unless you know what you're doing.
+    private void reinitializeRomHandler(String currentFN) {
+        RomHandler.Factory rhf = findRomHandlerFactory(currentFN);
+        if (rhf == null) {
+            return;
+        }
+        final RomHandler handler = rhf.create(RandomSource.instance());
+        this.romHandler = handler;
+        final OperationDialog loadingDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
+        opDialog = loadingDialog;
+        handler.setLoadProgressListener(loadProgressListener(loadingDialog));
+        SwingUtilities.invokeLater(() -> loadingDialog.setVisible(true));
+        romLoader.execute(() -> {
+            waitForMascot();
+            try {
+                handler.loadRom(currentFN);
+                if (gameUpdates.containsKey(handler.getROMCode())) {
+                    handler.loadGameUpdate(gameUpdates.get(handler.getROMCode()));
                 }
-                return;
+            } catch (Exception ex) {
+                attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+            }
+            SwingUtilities.invokeLater(() -> loadingDialog.setVisible(false));
+        });
+    }
+
+    private RomHandler.LoadProgressListener loadProgressListener(OperationDialog loadingDialog) {
+        return stage -> {
+            String text = bundle.getString("GUI.loadStage" + stage);
+            SwingUtilities.invokeLater(() -> loadingDialog.setLoadingLabelText(text));
+        };
+    }
+
+    private RomHandler.Factory findRomHandlerFactory(String filename) {
+        for (RomHandler.Factory rhf : checkHandlers) {
+            if (rhf.isLoadable(filename)) {
+                return rhf;
             }
         }
+        return null;
     }
 
     private void restoreStateFromSettings(Settings settings) {
@@ -2049,6 +2136,7 @@ public class NewRandomizerGUI {
         romCodeLabel.setText("");
         romSupportLabel.setText("");
 
+        cancelMascot();
         gameMascotLabel.setIcon(emptyIcon);
 
         limitPokemonCheckBox.setVisible(true);
@@ -3117,13 +3205,7 @@ public class NewRandomizerGUI {
                 removeGameUpdateMenuItem.setVisible(false);
             }
 
-            gameMascotLabel.setIcon(makeMascotIcon());
-
-            if (romHandler instanceof AbstractDSRomHandler) {
-                ((AbstractDSRomHandler) romHandler).closeInnerRom();
-            } else if (romHandler instanceof Abstract3DSRomHandler) {
-                ((Abstract3DSRomHandler) romHandler).closeInnerRom();
-            }
+            showMascot();
         } catch (Exception e) {
             attemptToLogException(e, "GUI.processFailed","GUI.processFailedNoLog", null, null);
             romHandler = null;
@@ -3982,9 +4064,62 @@ public class NewRandomizerGUI {
         });
     }
 
-    private ImageIcon makeMascotIcon() {
+    // Draws a new mascot for the loaded ROM in the background, and closes the inner ROM of DS and 3DS games once
+    // it is done reading from it.
+    private void showMascot() {
+        cancelMascot();
+        final RomHandler handler = romHandler;
+        final int generation = mascotGeneration;
+        mascotTask = mascotExecutor.submit(() -> {
+            try {
+                if (generation == mascotGeneration) {
+                    ImageIcon icon = makeMascotIcon(handler, new Random());
+                    SwingUtilities.invokeLater(() -> {
+                        if (generation == mascotGeneration) {
+                            gameMascotLabel.setIcon(icon);
+                        }
+                    });
+                }
+            } finally {
+                closeInnerRom(handler);
+            }
+            return null;
+        });
+    }
+
+    // A cancelled mascot is never shown, and is not drawn if it hasn't started yet. Its inner ROM is still closed.
+    private void cancelMascot() {
+        mascotGeneration++;
+    }
+
+    // Anything that reads or changes the loaded ROM's files waits for this first, as the mascot task reads the
+    // same files and then closes the inner ROM.
+    private void waitForMascot() {
+        Future<?> task = mascotTask;
+        if (task == null) {
+            return;
+        }
         try {
-            BufferedImage handlerImg = romHandler.getMascotImage();
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // the ROM stays open, which only costs a file handle
+            e.printStackTrace();
+        }
+    }
+
+    static void closeInnerRom(RomHandler handler) throws IOException {
+        if (handler instanceof AbstractDSRomHandler) {
+            ((AbstractDSRomHandler) handler).closeInnerRom();
+        } else if (handler instanceof Abstract3DSRomHandler) {
+            ((Abstract3DSRomHandler) handler).closeInnerRom();
+        }
+    }
+
+    private ImageIcon makeMascotIcon(RomHandler handler, Random random) {
+        try {
+            BufferedImage handlerImg = handler.getMascotImage(random);
 
             if (handlerImg == null) {
                 return emptyIcon;
@@ -4180,6 +4315,22 @@ public class NewRandomizerGUI {
             String[] commandArgs = Arrays.copyOfRange(args, 1, args.length);
             int exitCode = CliRandomizer.invoke(commandArgs);
             System.exit(exitCode);
+        } else if (firstCliArg.equals("benchmark")) {
+            String[] commandArgs = Arrays.copyOfRange(args, 1, args.length);
+            int exitCode = CliBenchmark.invoke(commandArgs);
+            System.exit(exitCode);
+        } else if (firstCliArg.equals("analyze")) {
+            String[] commandArgs = Arrays.copyOfRange(args, 1, args.length);
+            int exitCode = CliAnalyzer.invoke(commandArgs);
+            System.exit(exitCode);
+        } else if (firstCliArg.equals("daemon")) {
+            String[] commandArgs = Arrays.copyOfRange(args, 1, args.length);
+            int exitCode = CliDaemon.invoke(commandArgs);
+            System.exit(exitCode);
+        } else if (firstCliArg.equals("sprites")) {
+            String[] commandArgs = Arrays.copyOfRange(args, 1, args.length);
+            int exitCode = CliSprites.invoke(commandArgs);
+            System.exit(exitCode);
         } else {
             launcherInput = firstCliArg;
             if (launcherInput.equals("please-use-the-launcher")) usedLauncher = true;
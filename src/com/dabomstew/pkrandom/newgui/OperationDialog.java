@@ -63,6 +63,33 @@ public class OperationDialog extends javax.swing.JDialog {
         loadingLabel.setText(text);
     }
 
+    /**
+     * Adds a button under the text which runs onCancel on the EDT, once. The dialog stays up until it is hidden
+     * as usual, so the operation can finish what it is in the middle of.
+     */
+    public void enableCancel(String buttonText, Runnable onCancel) {
+        JButton cancelButton = new JButton(buttonText);
+        cancelButton.addActionListener(e -> {
+            cancelButton.setEnabled(false);
+            onCancel.run();
+        });
+        GroupLayout layout = (GroupLayout) jPanel1.getLayout();
+        layout.setHorizontalGroup(layout.createParallelGroup(GroupLayout.Alignment.CENTER)
+                .addGroup(layout.createSequentialGroup()
+                        .addContainerGap()
+                        .addComponent(loadingLabel)
+                        .addContainerGap(53, Short.MAX_VALUE))
+                .addComponent(cancelButton));
+        layout.setVerticalGroup(layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(loadingLabel)
+                .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(cancelButton)
+                .addContainerGap());
+        pack();
+        setLocationRelativeTo(getParent());
+    }
+
     /* @formatter:off */
     /**
      * This method is called from within the constructor to initialize the form.
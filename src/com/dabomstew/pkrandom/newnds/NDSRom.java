@@ -8,6 +8,7 @@ import java.util.*;
 import com.dabomstew.pkrandom.SysConstants;
 import com.dabomstew.pkrandom.FileFunctions;
 import com.dabomstew.pkrandom.RomFunctions;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
 
 import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
 import com.dabomstew.pkrandom.exceptions.RandomizerIOException;
@@ -479,6 +480,30 @@ public class NDSRom {
         }
     }
 
+    // returns null if file doesn't exist
+    public RomIntegrityCheck.Region getFileRegion(String filename, long expectedCRC32) {
+        if (files.containsKey(filename)) {
+            NDSFile file = files.get(filename);
+            return new RomIntegrityCheck.Region(romFilename, file.offset, file.size, false, expectedCRC32);
+        } else {
+            return null;
+        }
+    }
+
+    // returns null if overlay doesn't exist
+    public RomIntegrityCheck.Region getOverlayRegion(int number, long expectedCRC32) {
+        if (number >= 0 && number < arm9overlays.length) {
+            NDSY9Entry overlay = arm9overlays[number];
+            // the same test NDSY9Entry uses to decide whether to decompress
+            boolean compressed = overlay.compress_flag != 0 && overlay.original_size == overlay.compressed_size
+                    && overlay.compressed_size != 0;
+            return new RomIntegrityCheck.Region(romFilename, overlay.offset, overlay.original_size, compressed,
+                    expectedCRC32);
+        } else {
+            return null;
+        }
+    }
+
     public byte[] getARM9() throws IOException {
         if (!arm9_open) {
             arm9_open = true;
@@ -25,7 +25,9 @@ package com.dabomstew.pkrandom.pokemon;
 /*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
 /*----------------------------------------------------------------------------*/
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -39,22 +41,24 @@ public enum Effectiveness {
 
     // Returns a map where the key is a type and the value is the effectiveness against
     // a pokemon with the two types in a given gen. It does not account for abilities.
+    // The map is precomputed, and cannot be modified. It iterates in Type order, so the held item pickers,
+    // which add a berry per weakness in iteration order before drawing one, pick the same way on every run.
     public static Map<Type, Effectiveness> against(Type primaryType, Type secondaryType, int gen, boolean effectivenessUpdated) {
         if (gen >= 2 && gen <= 5) {
             if (effectivenessUpdated) {
-                return against(primaryType, secondaryType, gen6PlusTable, Type.GEN2THROUGH5);
+                return gen2Through5UpdatedTypeTable.against(primaryType, secondaryType);
             } else {
-                return against(primaryType, secondaryType, gen2Through5Table, Type.GEN2THROUGH5);
+                return gen2Through5TypeTable.against(primaryType, secondaryType);
             }
         }
         if (gen >= 6) {
-            return against(primaryType, secondaryType, gen6PlusTable, Type.GEN6PLUS);
+            return gen6PlusTypeTable.against(primaryType, secondaryType);
         }
         return null;
     }
 
     private static Map<Type, Effectiveness> against(Type primaryType, Type secondaryType, Effectiveness[][] effectivenesses, List<Type> allTypes) {
-        Map<Type, Effectiveness> result = new HashMap<>();
+        Map<Type, Effectiveness> result = new EnumMap<>(Type.class);
         for(Type type : allTypes) {
             Effectiveness effect = effectivenesses[type.ordinal()][primaryType.ordinal()];
             if (secondaryType != null) {
@@ -65,41 +69,141 @@ public enum Effectiveness {
         return result;
     }
 
+    // Returns the defending types which the attacking type is not very effective against (including no effect).
+    // The list is precomputed, and cannot be modified.
     public static List<Type> notVeryEffective(Type attackingType, int generation, boolean effectivenessUpdated) {
-        Effectiveness[][] effectivenesses;
-        if (generation == 1) {
-            effectivenesses = effectivenessUpdated ? gen2Through5Table : gen1Table;
-        } else if (generation >= 2 && generation <= 5) {
-            effectivenesses = effectivenessUpdated ? gen6PlusTable : gen2Through5Table;
-        } else {
-            effectivenesses = gen6PlusTable;
-        }
-        List<Type> allTypes = Type.getAllTypes(generation);
-
-        return allTypes
-                .stream()
-                .filter(defendingType ->
-                        effectivenesses[attackingType.ordinal()][defendingType.ordinal()] == Effectiveness.HALF ||
-                                effectivenesses[attackingType.ordinal()][defendingType.ordinal()] == Effectiveness.ZERO)
-                .collect(Collectors.toList());
+        return getTypeTable(generation, effectivenessUpdated).notVeryEffective(attackingType);
     }
 
+    // Returns the defending types which the attacking type is super effective against.
+    // The list is precomputed, and cannot be modified.
     public static List<Type> superEffective(Type attackingType, int generation, boolean effectivenessUpdated) {
-        Effectiveness[][] effectivenesses;
+        return getTypeTable(generation, effectivenessUpdated).superEffective(attackingType);
+    }
+
+    // Returns the attacking types which are super effective (2x or 4x) against a pokemon with the two types.
+    // The list is precomputed, and cannot be modified.
+    public static List<Type> weaknesses(Type primaryType, Type secondaryType, int generation, boolean effectivenessUpdated) {
+        return getTypeTable(generation, effectivenessUpdated).weaknesses(primaryType, secondaryType);
+    }
+
+    // Returns the attacking types which are not very effective (1/2x, 1/4x or 0x) against a pokemon with the two
+    // types. The list is precomputed, and cannot be modified.
+    public static List<Type> resistances(Type primaryType, Type secondaryType, int generation, boolean effectivenessUpdated) {
+        return getTypeTable(generation, effectivenessUpdated).resistances(primaryType, secondaryType);
+    }
+
+    private static TypeTable getTypeTable(int generation, boolean effectivenessUpdated) {
         if (generation == 1) {
-            effectivenesses = effectivenessUpdated ? gen2Through5Table : gen1Table;
+            return effectivenessUpdated ? gen1UpdatedTypeTable : gen1TypeTable;
         } else if (generation >= 2 && generation <= 5) {
-            effectivenesses = effectivenessUpdated ? gen6PlusTable : gen2Through5Table;
+            return effectivenessUpdated ? gen2Through5UpdatedTypeTable : gen2Through5TypeTable;
         } else {
-            effectivenesses = gen6PlusTable;
+            return gen6PlusTypeTable;
         }
-        List<Type> allTypes = Type.getAllTypes(generation);
+    }
+
+    private boolean isSuperEffective() {
+        return this == DOUBLE || this == QUADRUPLE;
+    }
 
-        return allTypes
-                .stream()
-                .filter(defendingType ->
-                        effectivenesses[attackingType.ordinal()][defendingType.ordinal()] == Effectiveness.DOUBLE)
-                .collect(Collectors.toList());
+    private boolean isNotVeryEffective() {
+        return this == HALF || this == QUARTER || this == ZERO;
+    }
+
+    // Every effectiveness lookup for one effectiveness table and its list of types, computed ahead of time.
+    // Secondary types are indexed by ordinal + 1, with index 0 standing for no secondary type.
+    private static class TypeTable {
+        private final Effectiveness[][] effectivenesses;
+        private final List<Type> allTypes;
+        private final List<Map<Type, Effectiveness>> againstByTypes = new ArrayList<>();
+        private final List<List<Type>> weaknessesByTypes = new ArrayList<>();
+        private final List<List<Type>> resistancesByTypes = new ArrayList<>();
+        private final List<List<Type>> notVeryEffectiveByType = new ArrayList<>();
+        private final List<List<Type>> superEffectiveByType = new ArrayList<>();
+
+        private TypeTable(Effectiveness[][] effectivenesses, List<Type> allTypes) {
+            this.effectivenesses = effectivenesses;
+            this.allTypes = allTypes;
+            int typeCount = allTypes.size();
+            for (int primary = 0; primary < typeCount; primary++) {
+                for (int secondary = -1; secondary < typeCount; secondary++) {
+                    Type secondaryType = secondary == -1 ? null : allTypes.get(secondary);
+                    Map<Type, Effectiveness> against = Effectiveness.against(allTypes.get(primary), secondaryType,
+                            effectivenesses, allTypes);
+                    againstByTypes.add(Collections.unmodifiableMap(against));
+                    weaknessesByTypes.add(Collections.unmodifiableList(allTypes.stream()
+                            .filter(type -> against.get(type).isSuperEffective())
+                            .collect(Collectors.toList())));
+                    resistancesByTypes.add(Collections.unmodifiableList(allTypes.stream()
+                            .filter(type -> against.get(type).isNotVeryEffective())
+                            .collect(Collectors.toList())));
+                }
+            }
+            for (Type attackingType : allTypes) {
+                Effectiveness[] row = effectivenesses[attackingType.ordinal()];
+                notVeryEffectiveByType.add(Collections.unmodifiableList(allTypes.stream()
+                        .filter(defendingType -> row[defendingType.ordinal()] == HALF
+                                || row[defendingType.ordinal()] == ZERO)
+                        .collect(Collectors.toList())));
+                superEffectiveByType.add(Collections.unmodifiableList(allTypes.stream()
+                        .filter(defendingType -> row[defendingType.ordinal()] == DOUBLE)
+                        .collect(Collectors.toList())));
+            }
+        }
+
+        private boolean isInTable(Type type) {
+            return type.ordinal() < allTypes.size();
+        }
+
+        private int index(Type primaryType, Type secondaryType) {
+            int secondary = secondaryType == null ? 0 : secondaryType.ordinal() + 1;
+            return primaryType.ordinal() * (allTypes.size() + 1) + secondary;
+        }
+
+        private Map<Type, Effectiveness> against(Type primaryType, Type secondaryType) {
+            if (!isInTable(primaryType) || (secondaryType != null && !isInTable(secondaryType))) {
+                // not precomputed, so leave it to the table itself to accept or reject these types
+                return Effectiveness.against(primaryType, secondaryType, effectivenesses, allTypes);
+            }
+            return againstByTypes.get(index(primaryType, secondaryType));
+        }
+
+        private List<Type> weaknesses(Type primaryType, Type secondaryType) {
+            if (!isInTable(primaryType) || (secondaryType != null && !isInTable(secondaryType))) {
+                Map<Type, Effectiveness> against = against(primaryType, secondaryType);
+                return allTypes.stream().filter(type -> against.get(type).isSuperEffective())
+                        .collect(Collectors.toList());
+            }
+            return weaknessesByTypes.get(index(primaryType, secondaryType));
+        }
+
+        private List<Type> resistances(Type primaryType, Type secondaryType) {
+            if (!isInTable(primaryType) || (secondaryType != null && !isInTable(secondaryType))) {
+                Map<Type, Effectiveness> against = against(primaryType, secondaryType);
+                return allTypes.stream().filter(type -> against.get(type).isNotVeryEffective())
+                        .collect(Collectors.toList());
+            }
+            return resistancesByTypes.get(index(primaryType, secondaryType));
+        }
+
+        private List<Type> notVeryEffective(Type attackingType) {
+            if (!isInTable(attackingType)) {
+                Effectiveness[] row = effectivenesses[attackingType.ordinal()];
+                return allTypes.stream().filter(defendingType -> row[defendingType.ordinal()] == HALF
+                        || row[defendingType.ordinal()] == ZERO).collect(Collectors.toList());
+            }
+            return notVeryEffectiveByType.get(attackingType.ordinal());
+        }
+
+        private List<Type> superEffective(Type attackingType) {
+            if (!isInTable(attackingType)) {
+                Effectiveness[] row = effectivenesses[attackingType.ordinal()];
+                return allTypes.stream().filter(defendingType -> row[defendingType.ordinal()] == DOUBLE)
+                        .collect(Collectors.toList());
+            }
+            return superEffectiveByType.get(attackingType.ordinal());
+        }
     }
 
     // Attacking type is the row, Defending type is the column. This corresponds to the ordinal of types.
@@ -176,4 +280,11 @@ public enum Effectiveness {
         {ZERO,    HALF, NEUTRAL,    DOUBLE},
         {ZERO, NEUTRAL,  DOUBLE, QUADRUPLE},
     };
+
+    // Built last, as they need the tables above
+    private static final TypeTable gen1TypeTable = new TypeTable(gen1Table, Type.GEN1);
+    private static final TypeTable gen1UpdatedTypeTable = new TypeTable(gen2Through5Table, Type.GEN1);
+    private static final TypeTable gen2Through5TypeTable = new TypeTable(gen2Through5Table, Type.GEN2THROUGH5);
+    private static final TypeTable gen2Through5UpdatedTypeTable = new TypeTable(gen6PlusTable, Type.GEN2THROUGH5);
+    private static final TypeTable gen6PlusTypeTable = new TypeTable(gen6PlusTable, Type.GEN6PLUS);
 }
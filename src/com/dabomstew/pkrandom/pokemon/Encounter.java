@@ -46,4 +46,15 @@ public class Encounter {
         }
     }
 
+    public Encounter copy() {
+        Encounter other = new Encounter();
+        other.level = level;
+        other.maxLevel = maxLevel;
+        other.pokemon = pokemon;
+        other.formeNumber = formeNumber;
+        other.isSOS = isSOS;
+        other.sosType = sosType;
+        return other;
+    }
+
 }
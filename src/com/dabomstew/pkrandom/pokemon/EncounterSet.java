@@ -41,4 +41,16 @@ public class EncounterSet {
         return "Encounter [Rate = " + rate + ", Encounters = " + encounters + "]";
     }
 
+    public EncounterSet copy() {
+        EncounterSet other = new EncounterSet();
+        other.rate = rate;
+        for (Encounter enc : encounters) {
+            other.encounters.add(enc.copy());
+        }
+        other.bannedPokemon.addAll(bannedPokemon);
+        other.displayName = displayName;
+        other.offset = offset;
+        return other;
+    }
+
 }
@@ -0,0 +1,270 @@
+package com.dabomstew.pkrandom.pokemon;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the evolutionary graph of a group of Pokemon.
+ * Stores, for every Pokemon, its family, its direct evolutions and pre-evolutions, the number of
+ * stages before and after it, and its relative position to every other member of its family,
+ * so that PokemonSet's family queries do not need to walk the graph every time they are called.
+ * Can be built from either the current evolutions or the evolutions from before randomization.
+ * Once attached, PokemonSet and Pokemon use the index automatically; it must be invalidated
+ * whenever the evolutions it was built from are changed.
+ */
+public class EvolutionFamilyIndex {
+
+    private static class Node {
+        int familyID;
+        List<Pokemon> evolvedForms;
+        List<Pokemon> preEvolvedForms;
+        int stagesBefore;
+        int stagesAfter;
+        Map<Pokemon, Integer> relations;
+    }
+
+    private final boolean original;
+    private final Map<Pokemon, Node> nodes = new HashMap<>();
+    private final List<List<Pokemon>> families = new ArrayList<>();
+
+    private EvolutionFamilyIndex(Collection<Pokemon> pokemon, boolean original) {
+        this.original = original;
+
+        Queue<Pokemon> toIndex = new ArrayDeque<>(pokemon);
+        while(!toIndex.isEmpty()) {
+            Pokemon indexing = toIndex.remove();
+            if(nodes.containsKey(indexing)) {
+                continue;
+            }
+            Node node = new Node();
+            node.familyID = -1;
+            node.evolvedForms = Collections.unmodifiableList(new ArrayList<>(original ?
+                    indexing.getOriginalEvolvedForms() : indexing.getAllEvolvedPokemon()));
+            node.preEvolvedForms = Collections.unmodifiableList(new ArrayList<>(original ?
+                    indexing.getOriginalPreEvolvedForms() : indexing.getAllPreEvolvedPokemon()));
+            nodes.put(indexing, node);
+
+            //anything reachable must be indexed too, or families would be incomplete
+            toIndex.addAll(node.evolvedForms);
+            toIndex.addAll(node.preEvolvedForms);
+        }
+
+        for(Map.Entry<Pokemon, Node> entry : nodes.entrySet()) {
+            Node node = entry.getValue();
+            if(node.familyID == -1) {
+                indexFamily(entry.getKey(), families.size());
+            }
+            node.stagesBefore = countStages(node.preEvolvedForms, false);
+            node.stagesAfter = countStages(node.evolvedForms, true);
+        }
+    }
+
+    /**
+     * Builds an index over the given Pokemon and everything related to them, and attaches it to every indexed
+     * Pokemon, replacing any index previously attached for the same kind of evolutions.
+     * @param pokemon The Pokemon to index.
+     * @param original Whether to index the evolutions from before randomization, rather than the current ones.
+     *                 Original evolutions must already have been saved.
+     * @return The new index.
+     */
+    public static EvolutionFamilyIndex index(Collection<Pokemon> pokemon, boolean original) {
+        EvolutionFamilyIndex index = new EvolutionFamilyIndex(pokemon, original);
+        for(Pokemon indexed : index.nodes.keySet()) {
+            if(original) {
+                indexed.originalEvolutionIndex = index;
+            } else {
+                indexed.evolutionIndex = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Detaches the current-evolution index from every given Pokemon.
+     * Must be called before changing evolutions, as the index would otherwise give outdated results.
+     * @param pokemon The Pokemon to detach the index from.
+     */
+    public static void invalidate(Collection<Pokemon> pokemon) {
+        for(Pokemon pk : pokemon) {
+            pk.evolutionIndex = null;
+        }
+    }
+
+    private void indexFamily(Pokemon start, int familyID) {
+        List<Pokemon> family = new ArrayList<>();
+        Queue<Pokemon> toCheck = new ArrayDeque<>();
+        toCheck.add(start);
+        while(!toCheck.isEmpty()) {
+            Pokemon checking = toCheck.remove();
+            Node node = nodes.get(checking);
+            if(node.familyID != -1) {
+                continue;
+            }
+            node.familyID = familyID;
+            family.add(checking);
+            toCheck.addAll(node.evolvedForms);
+            toCheck.addAll(node.preEvolvedForms);
+        }
+
+        for(Pokemon member : family) {
+            nodes.get(member).relations = findRelations(member);
+        }
+        families.add(Collections.unmodifiableList(family));
+    }
+
+    /**
+     * Finds the relative position of every family member, using the same breadth-first
+     * order as Pokemon.getRelation(), so that cyclic families give the same results.
+     */
+    private Map<Pokemon, Integer> findRelations(Pokemon from) {
+        Map<Pokemon, Integer> relations = new HashMap<>();
+        Queue<Pokemon> toCheck = new ArrayDeque<>();
+        Queue<Integer> positions = new ArrayDeque<>();
+        toCheck.add(from);
+        positions.add(0);
+        while(!toCheck.isEmpty()) {
+            Pokemon checking = toCheck.remove();
+            int position = positions.remove();
+            if(relations.containsKey(checking)) {
+                continue;
+            }
+            relations.put(checking, position);
+            Node node = nodes.get(checking);
+            for(Pokemon evo : node.evolvedForms) {
+                toCheck.add(evo);
+                positions.add(position + 1);
+            }
+            for(Pokemon prevo : node.preEvolvedForms) {
+                toCheck.add(prevo);
+                positions.add(position - 1);
+            }
+        }
+        return relations;
+    }
+
+    private int countStages(List<Pokemon> firstStage, boolean forward) {
+        int stages = 0;
+        for(Pokemon next : firstStage) {
+            Node nextNode = nodes.get(next);
+            if(!(forward ? nextNode.evolvedForms : nextNode.preEvolvedForms).isEmpty()) {
+                return 2;
+            }
+            stages = 1;
+        }
+        return stages;
+    }
+
+    private Node getNode(Pokemon pokemon) {
+        Node node = nodes.get(pokemon);
+        if(node == null) {
+            throw new IllegalArgumentException(pokemon + " is not in this evolution index!");
+        }
+        return node;
+    }
+
+    /**
+     * @return True if this index was built from the evolutions before randomization, false otherwise.
+     */
+    public boolean isOriginal() {
+        return original;
+    }
+
+    /**
+     * Checks whether the given Pokemon is in this index.
+     * @param pokemon The Pokemon to check for.
+     * @return True if the Pokemon was indexed, false otherwise.
+     */
+    public boolean contains(Pokemon pokemon) {
+        return nodes.containsKey(pokemon);
+    }
+
+    /**
+     * @return The number of evolutionary families in this index.
+     */
+    public int getFamilyCount() {
+        return families.size();
+    }
+
+    /**
+     * Gets the ID of the given Pokemon's evolutionary family.
+     * Two Pokemon are related if and only if they have the same family ID.
+     * @param pokemon The Pokemon to get the family ID of.
+     * @return The family ID, between 0 and getFamilyCount() - 1.
+     */
+    public int getFamilyID(Pokemon pokemon) {
+        return getNode(pokemon).familyID;
+    }
+
+    /**
+     * Gets every Pokemon related to the given Pokemon by evolution, including itself.
+     * @param pokemon The Pokemon to get the family of.
+     * @return An unmodifiable List containing every member of the family.
+     */
+    public List<Pokemon> getFamily(Pokemon pokemon) {
+        return families.get(getNode(pokemon).familyID);
+    }
+
+    /**
+     * Gets every Pokemon that the given Pokemon evolves directly into.
+     * @param pokemon The Pokemon to get the evolutions of.
+     * @return An unmodifiable List containing all evolved forms of the Pokemon.
+     */
+    public List<Pokemon> getEvolvedForms(Pokemon pokemon) {
+        return getNode(pokemon).evolvedForms;
+    }
+
+    /**
+     * Gets every Pokemon that evolves directly into the given Pokemon.
+     * @param pokemon The Pokemon to get the pre-evolutions of.
+     * @return An unmodifiable List containing all pre-evolved forms of the Pokemon.
+     */
+    public List<Pokemon> getPreEvolvedForms(Pokemon pokemon) {
+        return getNode(pokemon).preEvolvedForms;
+    }
+
+    /**
+     * Gets the largest number of evolutionary stages before the given Pokemon, as counted by
+     * PokemonSet.getNumberEvoStagesBefore() on a set containing the whole family.
+     * @param pokemon The Pokemon to count the stages before.
+     * @return The number of stages before the Pokemon. Max 2.
+     */
+    public int getStagesBefore(Pokemon pokemon) {
+        return getNode(pokemon).stagesBefore;
+    }
+
+    /**
+     * Gets the largest number of evolutionary stages after the given Pokemon, as counted by
+     * PokemonSet.getNumberEvoStagesAfter() on a set containing the whole family.
+     * @param pokemon The Pokemon to count the stages after.
+     * @return The number of stages after the Pokemon. Max 2.
+     */
+    public int getStagesAfter(Pokemon pokemon) {
+        return getNode(pokemon).stagesAfter;
+    }
+
+    /**
+     * Gets the length of the longest evolutionary line passing through the given Pokemon.
+     * @param pokemon The Pokemon to find the line length of.
+     * @return The number of Pokemon in the longest line. Max 3.
+     */
+    public int getLongestLineLength(Pokemon pokemon) {
+        Node node = getNode(pokemon);
+        return Math.min(3, node.stagesBefore + node.stagesAfter + 1);
+    }
+
+    /**
+     * Gets the relative position of the relative in the given Pokemon's evolutionary family,
+     * in the same manner as Pokemon.getRelation().
+     * @param pokemon The Pokemon to find the relation from.
+     * @param relative The Pokemon to find the relation to.
+     * @return A number indicating the relative position of the relative. For example, if the
+     *         given Pokemon evolves directly into the relative, the number will be 1.
+     * @throws IllegalArgumentException if the Pokemon are not related.
+     */
+    public int getRelation(Pokemon pokemon, Pokemon relative) {
+        Integer relation = getNode(pokemon).relations.get(relative);
+        if(relation == null) {
+            throw new IllegalArgumentException("Cannot find relation of a non-related Pokemon!");
+        }
+        return relation;
+    }
+}
@@ -30,7 +30,6 @@ import com.dabomstew.pkrandom.constants.Moves;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 public class MoveSynergy {
@@ -1036,12 +1035,7 @@ public class MoveSynergy {
             List<Type> notVeryEffective = Effectiveness.notVeryEffective(mv1.type, generation, effectivenessUpdated);
             for (Type nveType: notVeryEffective) {
                 List<Type> superEffectiveAgainstNVE =
-                        Effectiveness.against(nveType, null, generation, effectivenessUpdated)
-                                .entrySet()
-                                .stream()
-                                .filter(entry -> entry.getValue() == Effectiveness.DOUBLE)
-                                .map(Map.Entry::getKey)
-                                .collect(Collectors.toList());
+                        Effectiveness.weaknesses(nveType, null, generation, effectivenessUpdated);
                 synergisticMoves.addAll(moveList
                         .stream()
                         .filter(mv -> mv.category != MoveCategory.STATUS &&
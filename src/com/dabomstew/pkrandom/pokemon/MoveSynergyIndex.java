@@ -0,0 +1,159 @@
+package com.dabomstew.pkrandom.pokemon;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A cache of the results of MoveSynergy, for a fixed set of Moves.
+ * The first time a synergy of a Move or ability is asked for, MoveSynergy is run over every Move,
+ * and the synergistic Moves are saved as a BitSet of move numbers. Any later query for the same synergy
+ * only needs to check each candidate Move against the BitSet.
+ * This gives the same results as MoveSynergy, since its synergies only depend on the properties of each
+ * single Move, never on which other Moves are in the list.
+ * The index reads the Moves' data, so it must be rebuilt if any of the Moves are changed.
+ */
+public class MoveSynergyIndex {
+
+    private final List<Move> moves;
+    private final int generation;
+    private final boolean effectivenessUpdated;
+    private final int perfectAccuracy;
+
+    private final Map<Integer, BitSet> moveSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> softMoveSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> hardMoveAntiSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> softMoveAntiSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> requiresOtherMove = new HashMap<>();
+    private final Map<List<Object>, BitSet> hardAbilityMoveSynergy = new HashMap<>();
+    private final Map<List<Object>, BitSet> softAbilityMoveSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> hardAbilityMoveAntiSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> softAbilityMoveAntiSynergy = new HashMap<>();
+
+    /**
+     * Creates a new, empty MoveSynergyIndex.
+     * @param moves Every Move which may be queried. Null entries are ignored.
+     * @param generation The generation of the game.
+     * @param effectivenessUpdated Whether the type effectiveness has been updated.
+     * @param perfectAccuracy The accuracy value used by the game for moves which always hit.
+     */
+    public MoveSynergyIndex(List<Move> moves, int generation, boolean effectivenessUpdated, int perfectAccuracy) {
+        this.moves = moves.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        this.generation = generation;
+        this.effectivenessUpdated = effectivenessUpdated;
+        this.perfectAccuracy = perfectAccuracy;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public boolean isEffectivenessUpdated() {
+        return effectivenessUpdated;
+    }
+
+    public int getPerfectAccuracy() {
+        return perfectAccuracy;
+    }
+
+    private static BitSet toBitSet(List<Move> synergistic) {
+        BitSet bits = new BitSet();
+        for (Move mv : synergistic) {
+            bits.set(mv.number);
+        }
+        return bits;
+    }
+
+    private static List<Move> filter(BitSet synergistic, List<Move> moveList) {
+        List<Move> filtered = new ArrayList<>();
+        if (synergistic.isEmpty()) {
+            return filtered;
+        }
+        Set<Move> seen = new HashSet<>();
+        for (Move mv : moveList) {
+            if (synergistic.get(mv.number) && seen.add(mv)) {
+                filtered.add(mv);
+            }
+        }
+        return filtered;
+    }
+
+    private <K> List<Move> query(Map<K, BitSet> cache, K key, Function<List<Move>, List<Move>> synergy,
+                                 List<Move> moveList) {
+        BitSet synergistic = cache.computeIfAbsent(key, k -> toBitSet(synergy.apply(moves)));
+        return filter(synergistic, moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getMoveSynergy().
+     */
+    public List<Move> getMoveSynergy(Move mv1, List<Move> moveList) {
+        return query(moveSynergy, mv1.number,
+                all -> MoveSynergy.getMoveSynergy(mv1, all, generation), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getSoftMoveSynergy().
+     */
+    public List<Move> getSoftMoveSynergy(Move mv1, List<Move> moveList) {
+        return query(softMoveSynergy, mv1.number,
+                all -> MoveSynergy.getSoftMoveSynergy(mv1, all, generation, effectivenessUpdated), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getHardMoveAntiSynergy().
+     */
+    public List<Move> getHardMoveAntiSynergy(Move mv1, List<Move> moveList) {
+        return query(hardMoveAntiSynergy, mv1.number,
+                all -> MoveSynergy.getHardMoveAntiSynergy(mv1, all), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getSoftMoveAntiSynergy().
+     */
+    public List<Move> getSoftMoveAntiSynergy(Move mv1, List<Move> moveList) {
+        return query(softMoveAntiSynergy, mv1.number,
+                all -> MoveSynergy.getSoftMoveAntiSynergy(mv1, all), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.requiresOtherMove().
+     */
+    public List<Move> requiresOtherMove(Move mv1, List<Move> moveList) {
+        return query(requiresOtherMove, mv1.number,
+                all -> MoveSynergy.requiresOtherMove(mv1, all), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getHardAbilityMoveSynergy().
+     */
+    public List<Move> getHardAbilityMoveSynergy(int ability, Type pkType1, Type pkType2, List<Move> moveList) {
+        return query(hardAbilityMoveSynergy, Arrays.asList(ability, pkType1, pkType2),
+                all -> MoveSynergy.getHardAbilityMoveSynergy(ability, pkType1, pkType2, all, generation,
+                        perfectAccuracy), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getSoftAbilityMoveSynergy().
+     */
+    public List<Move> getSoftAbilityMoveSynergy(int ability, List<Move> moveList, Type pkType1, Type pkType2) {
+        return query(softAbilityMoveSynergy, Arrays.asList(ability, pkType1, pkType2),
+                all -> MoveSynergy.getSoftAbilityMoveSynergy(ability, all, pkType1, pkType2), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getHardAbilityMoveAntiSynergy().
+     */
+    public List<Move> getHardAbilityMoveAntiSynergy(int ability, List<Move> moveList) {
+        return query(hardAbilityMoveAntiSynergy, ability,
+                all -> MoveSynergy.getHardAbilityMoveAntiSynergy(ability, all), moveList);
+    }
+
+    /**
+     * Same as MoveSynergy.getSoftAbilityMoveAntiSynergy().
+     */
+    public List<Move> getSoftAbilityMoveAntiSynergy(int ability, List<Move> moveList) {
+        return query(softAbilityMoveAntiSynergy, ability,
+                all -> MoveSynergy.getSoftAbilityMoveAntiSynergy(ability, all), moveList);
+    }
+}
@@ -0,0 +1,109 @@
+package com.dabomstew.pkrandom.pokemon;
+
+import java.util.*;
+
+/**
+ * Counts how many times each Pokemon has been placed, for spreading Pokemon evenly across trainers.
+ * Counts are kept in an array indexed by Pokemon number, along with a running total, so that the
+ * average number of placements is always available without going over every placed Pokemon.
+ * Placed Pokemon are also bucketed by their number of placements, so that the most placed Pokemon
+ * can be found without checking every Pokemon.
+ */
+public class PlacementHistory {
+
+    private int[] counts = new int[0];
+    // the Set at index i contains every Pokemon placed exactly i times; index 0 is always empty
+    private final List<Set<Pokemon>> buckets = new ArrayList<>();
+    private int totalPlacements;
+    private int placedPokemon;
+
+    public PlacementHistory() {
+        buckets.add(Collections.emptySet());
+    }
+
+    /**
+     * Records one more placement of the given Pokemon.
+     * @param pk The Pokemon which was placed.
+     */
+    public void place(Pokemon pk) {
+        if (pk.number >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(pk.number + 1, counts.length * 2));
+        }
+        int count = counts[pk.number];
+        if (count == 0) {
+            placedPokemon++;
+        } else {
+            buckets.get(count).remove(pk);
+        }
+        count++;
+        counts[pk.number] = count;
+        if (count == buckets.size()) {
+            buckets.add(new HashSet<>());
+        }
+        buckets.get(count).add(pk);
+        totalPlacements++;
+    }
+
+    /**
+     * @param pk The Pokemon to check.
+     * @return The number of times the Pokemon has been placed.
+     */
+    public int getCount(Pokemon pk) {
+        return pk.number < counts.length ? counts[pk.number] : 0;
+    }
+
+    /**
+     * @return The average number of placements of every Pokemon which has been placed at least once,
+     * or 0 if no Pokemon have been placed.
+     */
+    public double getAverage() {
+        return placedPokemon == 0 ? 0 : (double) totalPlacements / placedPokemon;
+    }
+
+    /**
+     * @return The highest number of times any one Pokemon has been placed.
+     */
+    public int getMaxCount() {
+        return buckets.size() - 1;
+    }
+
+    /**
+     * @return The number of different Pokemon which have been placed.
+     */
+    public int getPlacedPokemonCount() {
+        return placedPokemon;
+    }
+
+    /**
+     * @return The total number of placements of all Pokemon.
+     */
+    public int getTotalPlacements() {
+        return totalPlacements;
+    }
+
+    /**
+     * Finds every Pokemon which has been placed at least the given number of times.
+     * Only the buckets at or above the threshold are visited.
+     * @param threshold The lowest number of placements to include.
+     * @return A new Set of the matching Pokemon.
+     */
+    public Set<Pokemon> getPlacedAtLeast(double threshold) {
+        Set<Pokemon> placed = new HashSet<>();
+        int lowest = Math.max(1, (int) Math.ceil(threshold));
+        for (int count = getMaxCount(); count >= lowest; count--) {
+            placed.addAll(buckets.get(count));
+        }
+        return placed;
+    }
+
+    /**
+     * @return A new List of every Pokemon which has been placed, from most placed to least placed.
+     */
+    public List<Pokemon> getPlacedPokemon() {
+        List<Pokemon> placed = new ArrayList<>(placedPokemon);
+        for (int count = getMaxCount(); count >= 1; count--) {
+            placed.addAll(buckets.get(count));
+        }
+        return placed;
+    }
+}
@@ -51,6 +51,9 @@ public class Pokemon implements Comparable<Pokemon> {
     public Type originalPrimaryType, originalSecondaryType;
     private PokemonSet originalEvolvedForms, originalPreEvolvedForms;
 
+    // Precomputed evolutionary families, attached by EvolutionFamilyIndex. Null if not indexed.
+    EvolutionFamilyIndex evolutionIndex, originalEvolutionIndex;
+
     public int hp, attack, defense, spatk, spdef, speed, special;
 
     public int ability1, ability2, ability3;
@@ -294,6 +297,10 @@ public class Pokemon implements Comparable<Pokemon> {
      * @throws IllegalArgumentException if the Pokemon are not related.
      */
     public int getRelation(Pokemon relative) {
+        if(evolutionIndex != null) {
+            return evolutionIndex.getRelation(this, relative);
+        }
+
         Queue<Pair<Pokemon, Integer>> toCheck = new ArrayDeque<>();
         PokemonSet checked = new PokemonSet();
         toCheck.add(new Pair<>(this, 0));
@@ -332,6 +339,10 @@ public class Pokemon implements Comparable<Pokemon> {
      * @throws IllegalArgumentException if the Pokemon are not related.
      */
     public int getOriginalRelation(Pokemon relative) {
+        if(originalEvolutionIndex != null) {
+            return originalEvolutionIndex.getRelation(this, relative);
+        }
+
         Queue<Pair<Pokemon, Integer>> toCheck = new ArrayDeque<>();
         PokemonSet checked = new PokemonSet();
         toCheck.add(new Pair<>(this, 0));
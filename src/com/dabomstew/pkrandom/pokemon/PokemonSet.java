@@ -64,6 +64,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return True if any Pokemon were added to the set, false otherwise.
      */
     public boolean addFamily(Pokemon pokemon) {
+        if(pokemon.evolutionIndex != null) {
+            return this.addAll(pokemon.evolutionIndex.getFamily(pokemon));
+        }
+
         boolean changed = false;
         PokemonSet checked = new PokemonSet();
 
@@ -93,6 +97,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return True if any Pokemon were added to the set, false otherwise.
      */
     public boolean addOriginalFamily(Pokemon pokemon) {
+        if(pokemon.originalEvolutionIndex != null) {
+            return this.addAll(pokemon.originalEvolutionIndex.getFamily(pokemon));
+        }
+
         boolean changed = false;
         PokemonSet checked = new PokemonSet();
 
@@ -123,6 +131,10 @@ public class PokemonSet implements Set<Pokemon> {
      */
     public boolean removeFamily(Pokemon pokemon) {
         //note: cannot use getEvolutions and getPreEvolutions as that would only remove *contiguous* family.
+        if(pokemon.evolutionIndex != null) {
+            return this.removeAll(pokemon.evolutionIndex.getFamily(pokemon));
+        }
+
         boolean changed = false;
         PokemonSet checked = new PokemonSet();
 
@@ -152,6 +164,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return If any Pokemon were removed from the set.
      */
     public boolean removeOriginalFamily(Pokemon pokemon) {
+        if(pokemon.originalEvolutionIndex != null) {
+            return this.removeAll(pokemon.originalEvolutionIndex.getFamily(pokemon));
+        }
+
         boolean changed = false;
         PokemonSet checked = new PokemonSet();
 
@@ -182,6 +198,10 @@ public class PokemonSet implements Set<Pokemon> {
      */
     public PokemonSet getFamily(Pokemon pokemon) {
         //note: cannot use getEvolutions and getPreEvolutions as that would only return *contiguous* family.
+        if(pokemon.evolutionIndex != null) {
+            return getContained(pokemon.evolutionIndex.getFamily(pokemon));
+        }
+
         PokemonSet family = new PokemonSet();
         PokemonSet checked = new PokemonSet();
 
@@ -211,6 +231,10 @@ public class PokemonSet implements Set<Pokemon> {
      */
     public PokemonSet getOriginalFamily(Pokemon pokemon) {
         //note: cannot use getEvolutions and getPreEvolutions as that would only return *contiguous* family.
+        if(pokemon.originalEvolutionIndex != null) {
+            return getContained(pokemon.originalEvolutionIndex.getFamily(pokemon));
+        }
+
         PokemonSet family = new PokemonSet();
         PokemonSet checked = new PokemonSet();
 
@@ -404,9 +428,7 @@ public class PokemonSet implements Set<Pokemon> {
      * @return A PokemonSet containing all direct evolutions of the given Pokemon in this set.
      */
     public PokemonSet getEvolutions(Pokemon pokemon) {
-        PokemonSet evolvedPokemon = pokemon.getAllEvolvedPokemon();
-        evolvedPokemon.retainAll(this);
-        return evolvedPokemon;
+        return getContained(evolvedForms(pokemon));
     }
 
     /**
@@ -416,9 +438,7 @@ public class PokemonSet implements Set<Pokemon> {
      * @return A PokemonSet containing all direct evolutions of the given Pokemon in this set.
      */
     public PokemonSet getOriginalEvolutions(Pokemon pokemon) {
-        PokemonSet evolvedPokemon = pokemon.getOriginalEvolvedForms();
-        evolvedPokemon.retainAll(this);
-        return evolvedPokemon;
+        return getContained(originalEvolvedForms(pokemon));
     }
 
     /**
@@ -428,9 +448,7 @@ public class PokemonSet implements Set<Pokemon> {
      */
     public PokemonSet getPreEvolutions(Pokemon pokemon) {
         //I *think* there are no cases of merged evolution? But... better not to assume that.
-        PokemonSet preEvolvedPokemon = pokemon.getAllPreEvolvedPokemon();
-        preEvolvedPokemon.retainAll(this);
-        return preEvolvedPokemon;
+        return getContained(preEvolvedForms(pokemon));
     }
 
     /**
@@ -441,9 +459,7 @@ public class PokemonSet implements Set<Pokemon> {
     public PokemonSet getOriginalPreEvolutions(Pokemon pokemon) {
         //I *think* there are no cases of merged evolution? But... better not to assume that.
         //There are certainly forms—e.g., Burmy to Mothim.
-        PokemonSet preEvolvedPokemon = pokemon.getOriginalPreEvolvedForms();
-        preEvolvedPokemon.retainAll(this);
-        return preEvolvedPokemon;
+        return getContained(originalPreEvolvedForms(pokemon));
     }
 
     /**
@@ -452,8 +468,7 @@ public class PokemonSet implements Set<Pokemon> {
      * @return true if this set contains at least one evolved form of the given Pokemon, false otherwise.
      */
     public boolean hasEvolutions(Pokemon pokemon) {
-        PokemonSet evolvedPokemon = pokemon.getAllEvolvedPokemon();
-        for (Pokemon evo : evolvedPokemon) {
+        for (Pokemon evo : evolvedForms(pokemon)) {
             if(this.contains(evo)) {
                 return true;
             }
@@ -468,8 +483,7 @@ public class PokemonSet implements Set<Pokemon> {
      * @return true if this set contains at least one evolved form of the given Pokemon, false otherwise.
      */
     public boolean hasOriginalEvolutions(Pokemon pokemon) {
-        PokemonSet evolvedPokemon = pokemon.getOriginalPreEvolvedForms();
-        for (Pokemon evo : evolvedPokemon) {
+        for (Pokemon evo : originalEvolvedForms(pokemon)) {
             if(this.contains(evo)) {
                 return true;
             }
@@ -483,8 +497,7 @@ public class PokemonSet implements Set<Pokemon> {
      * @return true if this set contains at least one pre-evolved form of the given Pokemon, false otherwise.
      */
     public boolean hasPreEvolutions(Pokemon pokemon) {
-        PokemonSet preEvolvedPokemon = pokemon.getAllPreEvolvedPokemon();
-        for (Pokemon prevo : preEvolvedPokemon) {
+        for (Pokemon prevo : preEvolvedForms(pokemon)) {
             if(this.contains(prevo)) {
                 return true;
             }
@@ -499,8 +512,7 @@ public class PokemonSet implements Set<Pokemon> {
      * @return true if this set contains at least one pre-evolved form of the given Pokemon, false otherwise.
      */
     public boolean hasOriginalPreEvolutions(Pokemon pokemon) {
-        PokemonSet preEvolvedPokemon = pokemon.getOriginalPreEvolvedForms();
-        for (Pokemon prevo : preEvolvedPokemon) {
+        for (Pokemon prevo : originalPreEvolvedForms(pokemon)) {
             if(this.contains(prevo)) {
                 return true;
             }
@@ -586,6 +598,10 @@ public class PokemonSet implements Set<Pokemon> {
         PokemonSet firstInLines = this.getAllFirstInLine();
 
         for(Pokemon basic : firstInLines) {
+            if(basic.evolutionIndex != null && basic.evolutionIndex.getStagesAfter(basic) == 0) {
+                //can't be the start of any line, with or without gaps
+                continue;
+            }
             for (Pokemon firstEvo : this.getEvolutions(basic)) {
                 if(length == 2) {
                     validEvoLines.add(basic);
@@ -598,7 +614,7 @@ public class PokemonSet implements Set<Pokemon> {
                 }
             }
             if(allowGaps && length == 3) {
-                for(Pokemon missingEvo : basic.getAllEvolvedPokemon()) {
+                for(Pokemon missingEvo : evolvedForms(basic)) {
                     for(Pokemon secondEvo : this.getOriginalEvolutions(missingEvo)) {
                         validEvoLines.add(basic);
                         validEvoLines.add(secondEvo);
@@ -630,6 +646,10 @@ public class PokemonSet implements Set<Pokemon> {
         PokemonSet firstInLines = this.getAllOriginalFirstInLine();
 
         for(Pokemon basic : firstInLines) {
+            if(basic.originalEvolutionIndex != null && basic.originalEvolutionIndex.getStagesAfter(basic) == 0) {
+                //can't be the start of any line, with or without gaps
+                continue;
+            }
             for (Pokemon firstEvo : this.getOriginalEvolutions(basic)) {
                 if(length == 2) {
                     validEvoLines.add(basic);
@@ -642,7 +662,7 @@ public class PokemonSet implements Set<Pokemon> {
                 }
             }
             if(allowGaps && length == 3) {
-                for(Pokemon missingEvo : basic.getOriginalEvolvedForms()) {
+                for(Pokemon missingEvo : originalEvolvedForms(basic)) {
                     for(Pokemon secondEvo : this.getOriginalEvolutions(missingEvo)) {
                         validEvoLines.add(basic);
                         validEvoLines.add(secondEvo);
@@ -710,6 +730,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return The number of Pokemon in the longest line before this Pokemon. Max 2.
      */
     public int getNumberEvoStagesBefore(Pokemon pokemon) {
+        if(pokemon.evolutionIndex != null && pokemon.evolutionIndex.getStagesBefore(pokemon) == 0) {
+            return 0;
+        }
+
         int numStages = 0;
         PokemonSet currentStage = new PokemonSet();
         currentStage.add(pokemon);
@@ -742,6 +766,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return The number of Pokemon in the longest line after this Pokemon. Max 2.
      */
     public int getNumberEvoStagesAfter(Pokemon pokemon) {
+        if(pokemon.evolutionIndex != null && pokemon.evolutionIndex.getStagesAfter(pokemon) == 0) {
+            return 0;
+        }
+
         int numStages = 0;
         PokemonSet currentStage = new PokemonSet();
         currentStage.add(pokemon);
@@ -773,6 +801,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return The number of Pokemon in the longest line before this Pokemon. Max 2.
      */
     public int getNumberOriginalEvoStagesBefore(Pokemon pokemon) {
+        if(pokemon.originalEvolutionIndex != null && pokemon.originalEvolutionIndex.getStagesBefore(pokemon) == 0) {
+            return 0;
+        }
+
         int numStages = 0;
         PokemonSet currentStage = new PokemonSet();
         currentStage.add(pokemon);
@@ -804,6 +836,10 @@ public class PokemonSet implements Set<Pokemon> {
      * @return The number of Pokemon in the longest line after this Pokemon. Max 2.
      */
     public int getNumberOriginalEvoStagesAfter(Pokemon pokemon) {
+        if(pokemon.originalEvolutionIndex != null && pokemon.originalEvolutionIndex.getStagesAfter(pokemon) == 0) {
+            return 0;
+        }
+
         int numStages = 0;
         PokemonSet currentStage = new PokemonSet();
         currentStage.add(pokemon);
@@ -942,6 +978,44 @@ public class PokemonSet implements Set<Pokemon> {
         }
     }
 
+    /**
+     * Returns all of the given Pokemon that this set contains.
+     * @param pokemon The Pokemon to check for.
+     * @return A new PokemonSet containing every given Pokemon which is in this set.
+     */
+    private PokemonSet getContained(Collection<Pokemon> pokemon) {
+        PokemonSet contained = new PokemonSet();
+        for(Pokemon poke : pokemon) {
+            if(this.contains(poke)) {
+                contained.add(poke);
+            }
+        }
+        return contained;
+    }
+
+    //The following use the Pokemon's EvolutionFamilyIndex if one is attached,
+    //to avoid creating a new set for every lookup.
+
+    private static Collection<Pokemon> evolvedForms(Pokemon pokemon) {
+        return pokemon.evolutionIndex == null ? pokemon.getAllEvolvedPokemon()
+                : pokemon.evolutionIndex.getEvolvedForms(pokemon);
+    }
+
+    private static Collection<Pokemon> preEvolvedForms(Pokemon pokemon) {
+        return pokemon.evolutionIndex == null ? pokemon.getAllPreEvolvedPokemon()
+                : pokemon.evolutionIndex.getPreEvolvedForms(pokemon);
+    }
+
+    private static Collection<Pokemon> originalEvolvedForms(Pokemon pokemon) {
+        return pokemon.originalEvolutionIndex == null ? pokemon.getOriginalEvolvedForms()
+                : pokemon.originalEvolutionIndex.getEvolvedForms(pokemon);
+    }
+
+    private static Collection<Pokemon> originalPreEvolvedForms(Pokemon pokemon) {
+        return pokemon.originalEvolutionIndex == null ? pokemon.getOriginalPreEvolvedForms()
+                : pokemon.originalEvolutionIndex.getPreEvolvedForms(pokemon);
+    }
+
     /**
      * Chooses a random Pokemon from the set.
      * A slow function - as much as possible, do any checks and eliminations BEFORE calling this.
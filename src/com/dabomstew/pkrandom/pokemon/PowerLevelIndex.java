@@ -0,0 +1,78 @@
+package com.dabomstew.pkrandom.pokemon;
+
+import java.util.*;
+
+/**
+ * An immutable list of Pokemon sorted by bstForPowerLevels(), for quickly finding every Pokemon
+ * within a range of BSTs. Meant for pools that are picked from many times, so that each pick
+ * only needs a binary search rather than a scan over the whole pool.
+ * BSTs are read when the index is built; it must be rebuilt if the Pokemon's stats change.
+ */
+public class PowerLevelIndex {
+
+    private final List<Pokemon> sortedPokemon;
+    private final int[] sortedBSTs;
+
+    /**
+     * Creates a new PowerLevelIndex containing every Pokemon in the given Collection.
+     * Pokemon with the same BST keep the order of the Collection.
+     * @param pool The Pokemon to index.
+     */
+    public PowerLevelIndex(Collection<Pokemon> pool) {
+        List<Pokemon> sorted = new ArrayList<>(pool);
+        sorted.sort(Comparator.comparingInt(Pokemon::bstForPowerLevels));
+        sortedPokemon = Collections.unmodifiableList(sorted);
+        sortedBSTs = new int[sorted.size()];
+        for (int i = 0; i < sortedBSTs.length; i++) {
+            sortedBSTs[i] = sorted.get(i).bstForPowerLevels();
+        }
+    }
+
+    /**
+     * Returns every indexed Pokemon with a BST between minBST and maxBST, inclusive.
+     * @param minBST The lowest BST to include.
+     * @param maxBST The highest BST to include.
+     * @return An unmodifiable List, sorted by BST, of every Pokemon in the range.
+     */
+    public List<Pokemon> getInRange(int minBST, int maxBST) {
+        if (minBST > maxBST) {
+            return Collections.emptyList();
+        }
+        return sortedPokemon.subList(firstIndexAtLeast(minBST), firstIndexAtLeast(maxBST + 1));
+    }
+
+    /**
+     * Counts the indexed Pokemon with a BST between minBST and maxBST, inclusive.
+     * @param minBST The lowest BST to include.
+     * @param maxBST The highest BST to include.
+     * @return The number of Pokemon in the range.
+     */
+    public int countInRange(int minBST, int maxBST) {
+        if (minBST > maxBST) {
+            return 0;
+        }
+        return firstIndexAtLeast(maxBST + 1) - firstIndexAtLeast(minBST);
+    }
+
+    private int firstIndexAtLeast(int bst) {
+        int low = 0;
+        int high = sortedBSTs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedBSTs[mid] < bst) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return sortedPokemon.size();
+    }
+
+    public boolean isEmpty() {
+        return sortedPokemon.isEmpty();
+    }
+}
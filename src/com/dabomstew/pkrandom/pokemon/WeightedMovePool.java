@@ -0,0 +1,283 @@
+package com.dabomstew.pkrandom.pokemon;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A pool of Moves to randomly pick from, where each Move has a weight making it more or less likely to be picked.
+ * Weights are stored in a Fenwick tree, so that changing the weight of a Move and picking a Move
+ * both take logarithmic time, rather than needing a List with one copy of the Move per unit of weight.
+ * The Moves which can be weighted are fixed when the pool is created; a Move with a weight of 0
+ * is treated as not being in the pool, but can be given weight again later.
+ */
+public class WeightedMovePool {
+
+    private final List<Move> moves;
+    private final Map<Move, Integer> indexes;
+    private final double[] weights;
+    private final double[] tree;
+    private int distinctSize;
+
+    /**
+     * Creates a new WeightedMovePool containing the given Moves, each with a weight of 1 per time it
+     * appears in the List.
+     * @param moves The Moves to put in the pool.
+     */
+    public WeightedMovePool(List<Move> moves) {
+        this.moves = new ArrayList<>();
+        this.indexes = new HashMap<>();
+        for (Move mv : moves) {
+            if (!indexes.containsKey(mv)) {
+                indexes.put(mv, this.moves.size());
+                this.moves.add(mv);
+            }
+        }
+        weights = new double[this.moves.size()];
+        tree = new double[this.moves.size() + 1];
+        for (Move mv : moves) {
+            addWeight(mv, 1);
+        }
+    }
+
+    private int getIndex(Move mv) {
+        Integer index = indexes.get(mv);
+        if (index == null) {
+            throw new IllegalArgumentException("Move " + mv.name + " was not in the pool when it was created.");
+        }
+        return index;
+    }
+
+    private void setWeight(int index, double weight) {
+        double delta = weight - weights[index];
+        if (delta == 0) {
+            return;
+        }
+        if (weights[index] == 0) {
+            distinctSize++;
+        } else if (weight == 0) {
+            distinctSize--;
+        }
+        weights[index] = weight;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Gets the weight of the given Move.
+     * @param mv The Move to get the weight of.
+     * @return The weight, or 0 if the Move is not in the pool.
+     */
+    public double getWeight(Move mv) {
+        Integer index = indexes.get(mv);
+        return index == null ? 0 : weights[index];
+    }
+
+    /**
+     * Increases the weight of the given Move, which must have been in the pool when it was created.
+     * @param mv The Move to add weight to.
+     * @param weight The weight to add. Must not be negative.
+     */
+    public void addWeight(Move mv, double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Cannot add a negative weight.");
+        }
+        int index = getIndex(mv);
+        setWeight(index, weights[index] + weight);
+    }
+
+    /**
+     * Decreases the weight of the given Move. The weight will not go below 0.
+     * @param mv The Move to remove weight from.
+     * @param weight The weight to remove. Must not be negative.
+     */
+    public void removeWeight(Move mv, double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Cannot remove a negative weight.");
+        }
+        Integer index = indexes.get(mv);
+        if (index != null) {
+            setWeight(index, Math.max(0, weights[index] - weight));
+        }
+    }
+
+    /**
+     * Removes the given Move from the pool, by setting its weight to 0.
+     * @param mv The Move to remove.
+     */
+    public void remove(Move mv) {
+        Integer index = indexes.get(mv);
+        if (index != null) {
+            setWeight(index, 0);
+        }
+    }
+
+    /**
+     * Removes every given Move from the pool.
+     * @param moves The Moves to remove.
+     */
+    public void removeAll(Collection<Move> moves) {
+        for (Move mv : moves) {
+            remove(mv);
+        }
+    }
+
+    /**
+     * @return The sum of the weights of every Move in the pool.
+     */
+    public double getTotalWeight() {
+        double total = 0;
+        for (int i = weights.length; i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+
+    /**
+     * Sums the weights of every Move in the pool which matches the given filter.
+     * @param filter The filter to apply.
+     * @return The total weight of the matching Moves.
+     */
+    public double getTotalWeight(Predicate<Move> filter) {
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0 && filter.test(moves.get(i))) {
+                total += weights[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of different Moves with a weight above 0.
+     */
+    public int distinctSize() {
+        return distinctSize;
+    }
+
+    public boolean isEmpty() {
+        return distinctSize == 0;
+    }
+
+    /**
+     * @return A new List containing every Move with a weight above 0, once each, in the order they were
+     * originally added to the pool.
+     */
+    public List<Move> getDistinctMoves() {
+        List<Move> distinct = new ArrayList<>(distinctSize);
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0) {
+                distinct.add(moves.get(i));
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Randomly picks a Move from the pool, with a chance proportional to its weight.
+     * The pool is not changed.
+     * @param random The source of randomness.
+     * @return The picked Move.
+     * @throws IllegalStateException if the pool is empty.
+     */
+    public Move pick(Random random) {
+        if (isEmpty()) {
+            throw new IllegalStateException("Cannot pick from an empty move pool.");
+        }
+        double target = random.nextDouble() * getTotalWeight();
+
+        // find the first Move where the sum of weights up to and including it exceeds the target
+        int index = 0;
+        for (int step = Integer.highestOneBit(weights.length); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < tree.length && tree[next] <= target) {
+                index = next;
+                target -= tree[next];
+            }
+        }
+
+        // rounding errors could otherwise land on a Move with no weight
+        while (index < weights.length && weights[index] == 0) {
+            index++;
+        }
+        if (index == weights.length) {
+            do {
+                index--;
+            } while (weights[index] == 0);
+        }
+        return moves.get(index);
+    }
+
+    /**
+     * Randomly picks a Move matching the given filter, with a chance proportional to its weight.
+     * The pool is not changed.
+     * @param random The source of randomness.
+     * @param filter The filter the picked Move must match.
+     * @return The picked Move.
+     * @throws IllegalStateException if no Move with a weight above 0 matches the filter.
+     */
+    public Move pick(Random random, Predicate<Move> filter) {
+        double total = getTotalWeight(filter);
+        if (total == 0) {
+            throw new IllegalStateException("Cannot pick from an empty move pool.");
+        }
+        double target = random.nextDouble() * total;
+        int last = -1;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0 && filter.test(moves.get(i))) {
+                target -= weights[i];
+                last = i;
+                if (target < 0) {
+                    break;
+                }
+            }
+        }
+        return moves.get(last);
+    }
+
+    /**
+     * Randomly picks count Moves matching the given filter, each independently with a chance proportional to its
+     * weight as it is now. The pool is not changed, so adding weight to the picked Moves afterwards doesn't make
+     * the later picks any more likely to repeat the earlier ones.
+     * @param random The source of randomness.
+     * @param filter The filter the picked Moves must match.
+     * @param count How many Moves to pick.
+     * @return The picked Moves, with repeats.
+     * @throws IllegalStateException if count is above 0 and no Move with a weight above 0 matches the filter.
+     */
+    public List<Move> pick(Random random, Predicate<Move> filter, int count) {
+        List<Move> picked = new ArrayList<>(Math.max(count, 0));
+        if (count <= 0) {
+            return picked;
+        }
+        List<Move> matching = new ArrayList<>();
+        double[] cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0 && filter.test(moves.get(i))) {
+                total += weights[i];
+                cumulative[matching.size()] = total;
+                matching.add(moves.get(i));
+            }
+        }
+        if (matching.isEmpty()) {
+            throw new IllegalStateException("Cannot pick from an empty move pool.");
+        }
+        for (int n = 0; n < count; n++) {
+            double target = random.nextDouble() * total;
+            // the first Move where the sum of weights up to and including it exceeds the target
+            int lo = 0;
+            int hi = matching.size() - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] > target) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            picked.add(matching.get(lo));
+        }
+        return picked;
+    }
+}
@@ -25,6 +25,8 @@ package com.dabomstew.pkrandom.romhandlers;
 /*----------------------------------------------------------------------------*/
 
 import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.PatchFunctions;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
 import com.dabomstew.pkrandom.ctr.GARCArchive;
 import com.dabomstew.pkrandom.ctr.NCCH;
 import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
@@ -51,6 +53,7 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 
     @Override
     public boolean loadRom(String filename) {
+        loadStageStarted(LoadStage.HEADER);
         String productCode = getProductCodeFromFile(filename);
         String titleId = getTitleIdFromFile(filename);
         if (!this.detect3DSRom(productCode, titleId)) {
@@ -109,6 +112,17 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
         return true;
     }
 
+    @Override
+    public boolean canSaveRomPatch() {
+        // the whole ROM is rebuilt on saving, so there is no original image in memory to diff against
+        return false;
+    }
+
+    @Override
+    public boolean saveRomPatch(String filename, PatchFunctions.Format format) {
+        return false;
+    }
+
     protected abstract boolean isGameUpdateSupported(int version);
 
     @Override
@@ -195,6 +209,13 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
         return baseRom.getFile(location);
     }
 
+    protected RomIntegrityCheck.Region fileRegion(String location, long expectedCRC32) {
+        if (gameUpdate != null && gameUpdate.hasFile(location)) {
+            return gameUpdate.getFileRegion(location, expectedCRC32);
+        }
+        return baseRom.getFileRegion(location, expectedCRC32);
+    }
+
     protected void writeFile(String location, byte[] data) throws IOException {
         writeFile(location, data, 0, data.length);
     }
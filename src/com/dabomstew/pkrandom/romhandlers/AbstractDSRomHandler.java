@@ -32,7 +32,9 @@ import java.util.List;
 import java.util.Random;
 
 import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.PatchFunctions;
 import com.dabomstew.pkrandom.RomFunctions;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
 import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
 import com.dabomstew.pkrandom.exceptions.RandomizerIOException;
 import com.dabomstew.pkrandom.newnds.NARCArchive;
@@ -54,6 +56,7 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
 
     @Override
     public boolean loadRom(String filename) {
+        loadStageStarted(LoadStage.HEADER);
         if (!this.detectNDSRom(getROMCodeFromFile(filename), getVersionFromFile(filename))) {
             return false;
         }
@@ -107,6 +110,17 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
         return true;
     }
 
+    @Override
+    public boolean canSaveRomPatch() {
+        // the whole ROM is rebuilt on saving, so there is no original image in memory to diff against
+        return false;
+    }
+
+    @Override
+    public boolean saveRomPatch(String filename, PatchFunctions.Format format) {
+        return false;
+    }
+
     @Override
     public boolean hasGameUpdateLoaded() {
         return false;
@@ -247,6 +261,14 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
         baseRom.writeOverlay(number, data);
     }
 
+    protected RomIntegrityCheck.Region fileRegion(String location, long expectedCRC32) {
+        return baseRom.getFileRegion(location, expectedCRC32);
+    }
+
+    protected RomIntegrityCheck.Region overlayRegion(int number, long expectedCRC32) {
+        return baseRom.getOverlayRegion(number, expectedCRC32);
+    }
+
     protected void readByteIntoFlags(byte[] data, boolean[] flags, int offsetIntoFlags, int offsetIntoData) {
         int thisByte = data[offsetIntoData] & 0xFF;
         for (int i = 0; i < 8 && (i + offsetIntoFlags) < flags.length; i++) {
@@ -35,6 +35,7 @@ import java.nio.file.Paths;
 import java.util.Random;
 
 import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.PatchFunctions;
 import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
 import com.dabomstew.pkrandom.exceptions.RandomizerIOException;
 
@@ -50,6 +51,7 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
 
     @Override
     public boolean loadRom(String filename) {
+        loadStageStarted(LoadStage.HEADER);
         byte[] loaded = loadFile(filename);
         if (!detectRom(loaded)) {
             return false;
@@ -58,6 +60,7 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
         this.originalRom = new byte[rom.length];
         System.arraycopy(rom, 0, originalRom, 0, rom.length);
         loadedFN = filename;
+        loadStageStarted(LoadStage.TABLES);
         loadedRom();
         return true;
     }
@@ -89,6 +92,28 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
         return true;
     }
 
+    @Override
+    public boolean canSaveRomPatch() {
+        return true;
+    }
+
+    @Override
+    public boolean saveRomPatch(String filename, PatchFunctions.Format format) {
+        savingRom();
+        try {
+            byte[] patch = PatchFunctions.createPatch(format, originalRom, rom);
+            FileOutputStream fos = new FileOutputStream(filename);
+            fos.write(patch);
+            fos.close();
+            return true;
+        } catch (IOException ex) {
+            if (ex.getMessage().contains("Access is denied")) {
+                throw new CannotWriteToLocationException("The randomizer cannot write to this location: " + filename);
+            }
+            return false;
+        }
+    }
+
     @Override
     public boolean hasGameUpdateLoaded() {
         return false;
@@ -30,6 +30,7 @@ package com.dabomstew.pkrandom.romhandlers;
 
 import java.io.PrintStream;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.dabomstew.pkrandom.*;
@@ -52,12 +53,15 @@ public abstract class AbstractRomHandler implements RomHandler {
     private final Random cosmeticRandom;
     protected PrintStream logStream;
     private List<Pokemon> alreadyPicked = new ArrayList<>();
-    private Map<Pokemon, Integer> placementHistory = new HashMap<>();
+    private PlacementHistory placementHistory = new PlacementHistory();
     private Map<Integer, Integer> itemPlacementHistory = new HashMap<>();
     private int fullyEvolvedRandomSeed;
     boolean isORAS = false;
     boolean isSM = false;
     int perfectAccuracy = 100;
+    private MoveSynergyIndex moveSynergyIndex;
+    private final Map<Boolean, List<EncounterSet>> encounterCache = new HashMap<>();
+    private LoadProgressListener loadProgressListener;
 
     /* Constructor */
 
@@ -76,6 +80,17 @@ public abstract class AbstractRomHandler implements RomHandler {
         this.logStream = logStream;
     }
 
+    @Override
+    public void setLoadProgressListener(LoadProgressListener listener) {
+        this.loadProgressListener = listener;
+    }
+
+    protected void loadStageStarted(LoadStage stage) {
+        if (loadProgressListener != null) {
+            loadProgressListener.stageStarted(stage);
+        }
+    }
+
     public void setPokemonPool(Settings settings) {
         GenRestrictions restrictions = null;
         if (settings != null) {
@@ -176,9 +191,12 @@ public abstract class AbstractRomHandler implements RomHandler {
             }
         }
 
-        for (Pokemon p : this.allPokemonInclFormesWithoutNull()) {
+        List<Pokemon> allPokemonInclFormes = this.allPokemonInclFormesWithoutNull();
+        for (Pokemon p : allPokemonInclFormes) {
             p.saveOriginalData();
         }
+        // Original evolutions never change after this, so they only need indexing once
+        EvolutionFamilyIndex.index(allPokemonInclFormes, true);
     }
 
     private void addPokesFromRange(List<Pokemon> pokemonPool, List<Pokemon> allPokemon, int range_min, int range_max) {
@@ -367,6 +385,13 @@ public abstract class AbstractRomHandler implements RomHandler {
         return mainPokemonListInclFormes.get(this.random.nextInt(mainPokemonListInclFormes.size()));
     }
 
+    // Picks from every Pokemon rather than the restricted pools, so the mascot never changes those, or which
+    // numbers this.random gives randomization next.
+    protected Pokemon randomMascotPokemon(Random random, boolean inclFormes) {
+        List<Pokemon> allPokes = inclFormes ? allPokemonInclFormesWithoutNull() : allPokemonWithoutNull();
+        return allPokes.get(random.nextInt(allPokes.size()));
+    }
+
     @Override
     public Pokemon randomNonLegendaryPokemon() {
         checkPokemonRestrictions();
@@ -708,6 +733,39 @@ public abstract class AbstractRomHandler implements RomHandler {
         return newAbility;
     }
 
+    @Override
+    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+        // a copy, so that changes which are never passed to setEncounters() don't leak into later calls
+        return copyEncounters(encounterCache.computeIfAbsent(useTimeOfDay, this::loadEncounters));
+    }
+
+    @Override
+    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
+        saveEncounters(useTimeOfDay, encounters);
+        // the encounters read with the other value of useTimeOfDay overlap with these, and are now outdated
+        encounterCache.clear();
+        encounterCache.put(useTimeOfDay, copyEncounters(encounters));
+    }
+
+    private static List<EncounterSet> copyEncounters(List<EncounterSet> encounters) {
+        List<EncounterSet> copy = new ArrayList<>(encounters.size());
+        for (EncounterSet area : encounters) {
+            copy.add(area.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Reads wild Pokemon encounters from the ROM. Only called by getEncounters(), which keeps the result
+     * until setEncounters() is next called.
+     */
+    protected abstract List<EncounterSet> loadEncounters(boolean useTimeOfDay);
+
+    /**
+     * Writes wild Pokemon encounters to the ROM. Only called by setEncounters().
+     */
+    protected abstract void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encounters);
+
     //Wild Pokemon randomization mains:
 
     @Override
@@ -1083,6 +1141,9 @@ public abstract class AbstractRomHandler implements RomHandler {
         PokemonSet activeWildPool = new PokemonSet(fullWildPool);
         PokemonSet bannedSet = getWildPokemonBannedSet(settings);
 
+        // Evolutions are fixed from here on, so index the families once for the many family lookups below
+        EvolutionFamilyIndex.index(this.allPokemonInclFormesWithoutNull(), false);
+
         // Initialize maps
         Map<Pokemon, globalWildRandomizationInformation> infoMap = new HashMap<>();
         PokemonSet pokemonToRandomize = new PokemonSet();
@@ -2125,6 +2186,8 @@ public abstract class AbstractRomHandler implements RomHandler {
 
         // Set up Pokemon pool
         cachedTypeLists = new TreeMap<>();
+        cachedPowerLevelIndexes = new IdentityHashMap<>();
+        cachedNoWonderGuardPowerLevelIndexes = new IdentityHashMap<>();
         if (useLocalPokemon) {
             cachedAllList = new ArrayList<>(mainGameWildPokemon(settings.isUseTimeBasedEncounters()));
             addEvolutionaryRelatives(cachedAllList);
@@ -2414,17 +2477,17 @@ public abstract class AbstractRomHandler implements RomHandler {
                     }
                 }
 
-                bannedList = new ArrayList<>();
-                bannedList.addAll(usedAsUniqueList);
+                bannedSet.clear();
+                bannedSet.addAll(usedAsUniqueList);
                 if (illegalEvoChains && willForceEvolve) {
-                    bannedList.addAll(illegalIfEvolvedList);
+                    bannedSet.addAll(illegalIfEvolvedList);
                 }
                 if (eliteFourSetUniquePokemon) {
-                    bannedList.addAll(bannedFromUniqueList);
+                    bannedSet.addAll(bannedFromUniqueList);
                     cacheReplacement = eliteFourExceptionList;
                 }
                 if (willForceEvolve) {
-                    bannedList.addAll(evolvesIntoTheWrongType);
+                    bannedSet.addAll(evolvesIntoTheWrongType);
                 }
 
                 Type typeForPokemon = typeForTrainer;
@@ -2834,6 +2897,7 @@ public abstract class AbstractRomHandler implements RomHandler {
         boolean doubleBattleMode = settings.isDoubleBattleMode();
 
         List<Trainer> trainers = getTrainers();
+        MoveSynergyIndex synergyIndex = getMoveSynergyIndex();
 
         for (Trainer t: trainers) {
             t.setPokemonHaveCustomMoves(true);
@@ -2849,13 +2913,17 @@ public abstract class AbstractRomHandler implements RomHandler {
                     continue;
                 }
 
+                // Biases are applied as weights rather than by adding copies of moves to a list;
+                // each unit of weight is equivalent to one copy of the move in the list
+                WeightedMovePool movePool = new WeightedMovePool(movesAtLevel);
+
                 double trainerTypeModifier = 1;
                 if (t.isImportant()) {
                     trainerTypeModifier = 1.5;
                 } else if (t.isBoss()) {
                     trainerTypeModifier = 2;
                 }
-                double movePoolSizeModifier = movesAtLevel.size() / 10.0;
+                double movePoolSizeModifier = movePool.getTotalWeight() / 10.0;
                 double bonusModifier = trainerTypeModifier * movePoolSizeModifier;
 
                 double atkSpatkRatioModifier = 0.75;
@@ -2871,76 +2939,52 @@ public abstract class AbstractRomHandler implements RomHandler {
 
                 Pokemon pk = getAltFormeOfPokemon(tp.pokemon, tp.forme);
 
-                List<Move> stabMoves = new ArrayList<>(movesAtLevel)
+                List<Move> stabMoves = movePool.getDistinctMoves()
                         .stream()
                         .filter(mv -> mv.type == pk.primaryType && mv.category != MoveCategory.STATUS)
                         .collect(Collectors.toList());
-                Collections.shuffle(stabMoves, this.random);
-
-                for (int i = 0; i < stabMoveBias * stabMoves.size(); i++) {
-                    int j = i % stabMoves.size();
-                    movesAtLevel.add(stabMoves.get(j));
-                }
+                addCyclicBias(movePool, stabMoves, stabMoveBias);
 
                 if (pk.secondaryType != null) {
-                    stabMoves = new ArrayList<>(movesAtLevel)
+                    stabMoves = movePool.getDistinctMoves()
                             .stream()
                             .filter(mv -> mv.type == pk.secondaryType && mv.category != MoveCategory.STATUS)
                             .collect(Collectors.toList());
-                    Collections.shuffle(stabMoves, this.random);
-
-                    for (int i = 0; i < stabMoveBias * stabMoves.size(); i++) {
-                        int j = i % stabMoves.size();
-                        movesAtLevel.add(stabMoves.get(j));
-                    }
+                    addCyclicBias(movePool, stabMoves, stabMoveBias);
                 }
 
                 // Hard ability/move synergy
 
-                List<Move> abilityMoveSynergyList = MoveSynergy.getHardAbilityMoveSynergy(
+                List<Move> abilityMoveSynergyList = synergyIndex.getHardAbilityMoveSynergy(
                         getAbilityForTrainerPokemon(tp),
                         pk.primaryType,
                         pk.secondaryType,
-                        movesAtLevel,
-                        generationOfPokemon(),
-                        perfectAccuracy);
-                Collections.shuffle(abilityMoveSynergyList, this.random);
-                for (int i = 0; i < hardAbilityMoveBias * abilityMoveSynergyList.size(); i++) {
-                    int j = i % abilityMoveSynergyList.size();
-                    movesAtLevel.add(abilityMoveSynergyList.get(j));
-                }
+                        movePool.getDistinctMoves());
+                addCyclicBias(movePool, abilityMoveSynergyList, hardAbilityMoveBias);
 
                 // Soft ability/move synergy
 
-                List<Move> softAbilityMoveSynergyList = MoveSynergy.getSoftAbilityMoveSynergy(
+                List<Move> softAbilityMoveSynergyList = synergyIndex.getSoftAbilityMoveSynergy(
                         getAbilityForTrainerPokemon(tp),
-                        movesAtLevel,
+                        movePool.getDistinctMoves(),
                         pk.primaryType,
                         pk.secondaryType);
-
-                Collections.shuffle(softAbilityMoveSynergyList, this.random);
-                for (int i = 0; i < softAbilityMoveBias * softAbilityMoveSynergyList.size(); i++) {
-                    int j = i % softAbilityMoveSynergyList.size();
-                    movesAtLevel.add(softAbilityMoveSynergyList.get(j));
-                }
+                addCyclicBias(movePool, softAbilityMoveSynergyList, softAbilityMoveBias);
 
                 // Soft ability/move anti-synergy
 
-                List<Move> softAbilityMoveAntiSynergyList = MoveSynergy.getSoftAbilityMoveAntiSynergy(
-                        getAbilityForTrainerPokemon(tp), movesAtLevel);
-                List<Move> withoutSoftAntiSynergy = new ArrayList<>(movesAtLevel);
-                for (Move mv: softAbilityMoveAntiSynergyList) {
-                    withoutSoftAntiSynergy.remove(mv);
-                }
-                if (withoutSoftAntiSynergy.size() > 0) {
-                    movesAtLevel = withoutSoftAntiSynergy;
+                List<Move> softAbilityMoveAntiSynergyList = synergyIndex.getSoftAbilityMoveAntiSynergy(
+                        getAbilityForTrainerPokemon(tp), movePool.getDistinctMoves());
+                if (movePool.getTotalWeight() > softAbilityMoveAntiSynergyList.size()) {
+                    for (Move mv: softAbilityMoveAntiSynergyList) {
+                        movePool.removeWeight(mv, 1);
+                    }
                 }
 
-                List<Move> distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
-                int movesLeft = distinctMoveList.size();
+                int movesLeft = movePool.distinctSize();
 
                 if (movesLeft <= 4) {
-
+                    List<Move> distinctMoveList = movePool.getDistinctMoves();
                     for (int i = 0; i < 4; i++) {
                         if (i < movesLeft) {
                             tp.moves[i] = distinctMoveList.get(i).number;
@@ -2953,29 +2997,22 @@ public abstract class AbstractRomHandler implements RomHandler {
 
                 // Stat/move synergy
 
-                List<Move> statSynergyList = MoveSynergy.getStatMoveSynergy(pk, movesAtLevel);
-                Collections.shuffle(statSynergyList, this.random);
-                for (int i = 0; i < statBias * statSynergyList.size(); i++) {
-                    int j = i % statSynergyList.size();
-                    movesAtLevel.add(statSynergyList.get(j));
-                }
+                List<Move> statSynergyList = MoveSynergy.getStatMoveSynergy(pk, movePool.getDistinctMoves());
+                addCyclicBias(movePool, statSynergyList, statBias);
 
                 // Stat/move anti-synergy
 
-                List<Move> statAntiSynergyList = MoveSynergy.getStatMoveAntiSynergy(pk, movesAtLevel);
-                List<Move> withoutStatAntiSynergy = new ArrayList<>(movesAtLevel);
-                for (Move mv: statAntiSynergyList) {
-                    withoutStatAntiSynergy.remove(mv);
-                }
-                if (withoutStatAntiSynergy.size() > 0) {
-                    movesAtLevel = withoutStatAntiSynergy;
+                List<Move> statAntiSynergyList = MoveSynergy.getStatMoveAntiSynergy(pk, movePool.getDistinctMoves());
+                if (movePool.getTotalWeight() > statAntiSynergyList.size()) {
+                    for (Move mv: statAntiSynergyList) {
+                        movePool.removeWeight(mv, 1);
+                    }
                 }
 
-                distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
-                movesLeft = distinctMoveList.size();
+                movesLeft = movePool.distinctSize();
 
                 if (movesLeft <= 4) {
-
+                    List<Move> distinctMoveList = movePool.getDistinctMoves();
                     for (int i = 0; i < 4; i++) {
                         if (i < movesLeft) {
                             tp.moves[i] = distinctMoveList.get(i).number;
@@ -3006,129 +3043,104 @@ public abstract class AbstractRomHandler implements RomHandler {
                         break;
                 }
 
-                List<Move> physicalMoves = new ArrayList<>(movesAtLevel)
-                        .stream()
-                        .filter(mv -> mv.category == MoveCategory.PHYSICAL)
-                        .collect(Collectors.toList());
-                List<Move> specialMoves = new ArrayList<>(movesAtLevel)
-                        .stream()
-                        .filter(mv -> mv.category == MoveCategory.SPECIAL)
-                        .collect(Collectors.toList());
+                Predicate<Move> isPhysical = mv -> mv.category == MoveCategory.PHYSICAL;
+                Predicate<Move> isSpecial = mv -> mv.category == MoveCategory.SPECIAL;
+                double physicalWeight = movePool.getTotalWeight(isPhysical);
+                double specialWeight = movePool.getTotalWeight(isSpecial);
 
-                if (atkSpatkRatio < 1 && specialMoves.size() > 0) {
+                if (atkSpatkRatio < 1 && specialWeight > 0) {
                     atkSpatkRatio = 1 / atkSpatkRatio;
                     double acceptedRatio = atkSpatkRatioModifier * atkSpatkRatio;
-                    int additionalMoves = (int)(physicalMoves.size() * acceptedRatio) - specialMoves.size();
-                    for (int i = 0; i < additionalMoves; i++) {
-                        Move mv = specialMoves.get(this.random.nextInt(specialMoves.size()));
-                        movesAtLevel.add(mv);
+                    int additionalMoves = (int)(physicalWeight * acceptedRatio) - (int)specialWeight;
+                    // every extra copy is drawn from the moves as they were before any were added
+                    for (Move mv : movePool.pick(this.random, isSpecial, additionalMoves)) {
+                        movePool.addWeight(mv, 1);
                     }
-                } else if (physicalMoves.size() > 0) {
+                } else if (physicalWeight > 0) {
                     double acceptedRatio = atkSpatkRatioModifier * atkSpatkRatio;
-                    int additionalMoves = (int)(specialMoves.size() * acceptedRatio) - physicalMoves.size();
-                    for (int i = 0; i < additionalMoves; i++) {
-                        Move mv = physicalMoves.get(this.random.nextInt(physicalMoves.size()));
-                        movesAtLevel.add(mv);
+                    int additionalMoves = (int)(specialWeight * acceptedRatio) - (int)physicalWeight;
+                    // every extra copy is drawn from the moves as they were before any were added
+                    for (Move mv : movePool.pick(this.random, isPhysical, additionalMoves)) {
+                        movePool.addWeight(mv, 1);
                     }
                 }
 
                 // Pick moves
 
                 List<Move> pickedMoves = new ArrayList<>();
+                Predicate<Move> goodDamaging = mv -> mv.isGoodDamaging(perfectAccuracy);
 
                 for (int i = 1; i <= 4; i++) {
                     Move move;
-                    List<Move> pickFrom;
-
-                    if (i == 1) {
-                        pickFrom = movesAtLevel
-                                .stream()
-                                .filter(mv -> mv.isGoodDamaging(perfectAccuracy))
-                                .collect(Collectors.toList());
-                        if (pickFrom.isEmpty()) {
-                            pickFrom = movesAtLevel;
-                        }
-                    } else {
-                        pickFrom = movesAtLevel;
-                    }
 
                     if (i == 4) {
-                        List<Move> requiresOtherMove = movesAtLevel
+                        List<Move> requiresOtherMove = movePool.getDistinctMoves()
                                 .stream()
                                 .filter(mv -> GlobalConstants.requiresOtherMove.contains(mv.number))
-                                .distinct()
                                 .collect(Collectors.toList());
 
                         for (Move dependentMove: requiresOtherMove) {
                             boolean hasRequiredMove = false;
-                            for (Move requiredMove: MoveSynergy.requiresOtherMove(dependentMove, movesAtLevel)) {
+                            for (Move requiredMove: synergyIndex.requiresOtherMove(dependentMove,
+                                    movePool.getDistinctMoves())) {
                                 if (pickedMoves.contains(requiredMove)) {
                                     hasRequiredMove = true;
                                     break;
                                 }
                             }
                             if (!hasRequiredMove) {
-                                movesAtLevel.removeAll(Collections.singletonList(dependentMove));
+                                movePool.remove(dependentMove);
                             }
                         }
                     }
 
-                    move = pickFrom.get(this.random.nextInt(pickFrom.size()));
+                    if (i == 1 && movePool.getTotalWeight(goodDamaging) > 0) {
+                        move = movePool.pick(this.random, goodDamaging);
+                    } else {
+                        move = movePool.pick(this.random);
+                    }
                     pickedMoves.add(move);
 
                     if (i == 4) {
                         break;
                     }
 
-                    movesAtLevel.removeAll(Collections.singletonList(move));
+                    movePool.remove(move);
 
-                    movesAtLevel.removeAll(MoveSynergy.getHardMoveAntiSynergy(move, movesAtLevel));
+                    movePool.removeAll(synergyIndex.getHardMoveAntiSynergy(move, movePool.getDistinctMoves()));
 
-                    distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
-                    movesLeft = distinctMoveList.size();
+                    movesLeft = movePool.distinctSize();
 
                     if (movesLeft <= (4 - i)) {
-                        pickedMoves.addAll(distinctMoveList);
+                        pickedMoves.addAll(movePool.getDistinctMoves());
                         break;
                     }
 
-                    List<Move> hardMoveSynergyList = MoveSynergy.getMoveSynergy(
+                    List<Move> hardMoveSynergyList = synergyIndex.getMoveSynergy(
                             move,
-                            movesAtLevel,
-                            generationOfPokemon());
-                    Collections.shuffle(hardMoveSynergyList, this.random);
-                    for (int j = 0; j < hardMoveBias * hardMoveSynergyList.size(); j++) {
-                        int k = j % hardMoveSynergyList.size();
-                        movesAtLevel.add(hardMoveSynergyList.get(k));
-                    }
+                            movePool.getDistinctMoves());
+                    addCyclicBias(movePool, hardMoveSynergyList, hardMoveBias);
 
-                    List<Move> softMoveSynergyList = MoveSynergy.getSoftMoveSynergy(
+                    List<Move> softMoveSynergyList = synergyIndex.getSoftMoveSynergy(
                             move,
-                            movesAtLevel,
-                            generationOfPokemon(),
-                            isEffectivenessUpdated());
-                    Collections.shuffle(softMoveSynergyList, this.random);
-                    for (int j = 0; j < softMoveBias * softMoveSynergyList.size(); j++) {
-                        int k = j % softMoveSynergyList.size();
-                        movesAtLevel.add(softMoveSynergyList.get(k));
-                    }
+                            movePool.getDistinctMoves());
+                    addCyclicBias(movePool, softMoveSynergyList, softMoveBias);
 
-                    List<Move> softMoveAntiSynergyList = MoveSynergy.getSoftMoveAntiSynergy(move, movesAtLevel);
+                    List<Move> softMoveAntiSynergyList = synergyIndex.getSoftMoveAntiSynergy(move,
+                            movePool.getDistinctMoves());
                     Collections.shuffle(softMoveAntiSynergyList, this.random);
                     for (int j = 0; j < softMoveAntiBias * softMoveAntiSynergyList.size(); j++) {
-                        distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
-                        if (distinctMoveList.size() <= (4 - i)) {
+                        if (movePool.distinctSize() <= (4 - i)) {
                             break;
                         }
                         int k = j % softMoveAntiSynergyList.size();
-                        movesAtLevel.remove(softMoveAntiSynergyList.get(k));
+                        movePool.removeWeight(softMoveAntiSynergyList.get(k), 1);
                     }
 
-                    distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
-                    movesLeft = distinctMoveList.size();
+                    movesLeft = movePool.distinctSize();
 
                     if (movesLeft <= (4 - i)) {
-                        pickedMoves.addAll(distinctMoveList);
+                        pickedMoves.addAll(movePool.getDistinctMoves());
                         break;
                     }
                 }
@@ -3147,6 +3159,22 @@ public abstract class AbstractRomHandler implements RomHandler {
         setTrainers(trainers, false);
     }
 
+    private MoveSynergyIndex getMoveSynergyIndex() {
+        if (moveSynergyIndex == null || moveSynergyIndex.isEffectivenessUpdated() != isEffectivenessUpdated()) {
+            moveSynergyIndex = new MoveSynergyIndex(getMoves(), generationOfPokemon(), isEffectivenessUpdated(),
+                    perfectAccuracy);
+        }
+        return moveSynergyIndex;
+    }
+
+    private void addCyclicBias(WeightedMovePool movePool, List<Move> biasedMoves, double bias) {
+        Collections.shuffle(biasedMoves, this.random);
+        for (int i = 0; i < bias * biasedMoves.size(); i++) {
+            int j = i % biasedMoves.size();
+            movePool.addWeight(biasedMoves.get(j), 1);
+        }
+    }
+
     private List<Move> trimMoveList(TrainerPokemon tp, List<Move> movesAtLevel, boolean doubleBattleMode) {
         int movesLeft = movesAtLevel.size();
 
@@ -3205,7 +3233,7 @@ public abstract class AbstractRomHandler implements RomHandler {
                 .collect(Collectors.toList());
 
         for (Move dependentMove: requiresOtherMove) {
-            if (MoveSynergy.requiresOtherMove(dependentMove, movesAtLevel).isEmpty()) {
+            if (getMoveSynergyIndex().requiresOtherMove(dependentMove, movesAtLevel).isEmpty()) {
                 movesAtLevel.remove(dependentMove);
             }
         }
@@ -3226,7 +3254,7 @@ public abstract class AbstractRomHandler implements RomHandler {
         // Remove hard ability anti-synergy moves
 
         List<Move> withoutHardAntiSynergy = new ArrayList<>(movesAtLevel);
-        withoutHardAntiSynergy.removeAll(MoveSynergy.getHardAbilityMoveAntiSynergy(
+        withoutHardAntiSynergy.removeAll(getMoveSynergyIndex().getHardAbilityMoveAntiSynergy(
                 getAbilityForTrainerPokemon(tp),
                 movesAtLevel));
 
@@ -3385,6 +3413,7 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     @Override
     public void randomizeMovePowers() {
+        moveSynergyIndex = null;
         List<Move> moves = this.getMoves();
         for (Move mv : moves) {
             if (mv != null && mv.internalId != Moves.struggle && mv.power >= 10) {
@@ -3433,6 +3462,7 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     @Override
     public void randomizeMoveAccuracies() {
+        moveSynergyIndex = null;
         List<Move> moves = this.getMoves();
         for (Move mv : moves) {
             if (mv != null && mv.internalId != Moves.struggle && mv.hitratio >= 5) {
@@ -3482,6 +3512,7 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     @Override
     public void randomizeMoveTypes() {
+        moveSynergyIndex = null;
         List<Move> moves = this.getMoves();
         for (Move mv : moves) {
             if (mv != null && mv.internalId != Moves.struggle && mv.type != null) {
@@ -3492,6 +3523,7 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     @Override
     public void randomizeMoveCategory() {
+        moveSynergyIndex = null;
         if (!this.hasPhysicalSpecialSplit()) {
             return;
         }
@@ -3508,6 +3540,7 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     @Override
     public void updateMoves(Settings settings) {
+        moveSynergyIndex = null;
         int generation = settings.getUpdateMovesToGeneration();
 
         List<Move> moves = this.getMoves();
@@ -4638,12 +4671,12 @@ public abstract class AbstractRomHandler implements RomHandler {
         List<List<Type>> typeTriangles = null;
         typeTriangles = new ArrayList<>();
         for(Type typeOne : Type.getAllTypes(generation)) {
-            List<Type> superEffectiveOne = Effectiveness.superEffective(typeOne, generation, effectivenessUpdated);
+            List<Type> superEffectiveOne = new ArrayList<>(Effectiveness.superEffective(typeOne, generation, effectivenessUpdated));
             superEffectiveOne.remove(typeOne);
             //don't want a Ghost-Ghost-Ghost or Dragon-Dragon-Dragon "triangle"
             //(although it would be funny)
             for (Type typeTwo : superEffectiveOne) {
-                List<Type> superEffectiveTwo = Effectiveness.superEffective(typeTwo, generation, effectivenessUpdated);
+                List<Type> superEffectiveTwo = new ArrayList<>(Effectiveness.superEffective(typeTwo, generation, effectivenessUpdated));
                 superEffectiveTwo.remove(typeOne);
                 superEffectiveTwo.remove(typeTwo);
                 for (Type typeThree : superEffectiveTwo) {
@@ -6260,6 +6293,9 @@ public abstract class AbstractRomHandler implements RomHandler {
             }
         }
 
+        // Evolutions are about to be rewritten, so any indexed families will be outdated
+        EvolutionFamilyIndex.invalidate(this.allPokemonInclFormesWithoutNull());
+
         // Cache old evolutions for data later
         Map<Pokemon, List<Evolution>> originalEvos = new HashMap<>();
         for (Pokemon pk : pokemonPool) {
@@ -6285,6 +6321,15 @@ public abstract class AbstractRomHandler implements RomHandler {
         }
 
         List<Pokemon> replacements = new ArrayList<>();
+        Set<Pokemon> bannedSet = new HashSet<>(banned);
+        Set<Pokemon> alreadyPickedSet = new HashSet<>(alreadyPicked);
+        List<Pokemon> chosenList =
+                allowAltFormes ?
+                mainPokemonListInclFormes
+                        .stream()
+                        .filter(pk -> !pk.actuallyCosmetic)
+                        .collect(Collectors.toList()) :
+                mainPokemonList;
 
         int loops = 0;
         while (loops < 1) {
@@ -6295,6 +6340,7 @@ public abstract class AbstractRomHandler implements RomHandler {
                 pk.evolutionsTo.clear();
             }
             newEvoPairs.clear();
+            EvolutionStageTracker stageTracker = new EvolutionStageTracker(stageLimit, originalEvos);
 
             // Shuffle pokemon list so the results aren't overly predictable.
             Collections.shuffle(pokemonPool, this.random);
@@ -6305,13 +6351,6 @@ public abstract class AbstractRomHandler implements RomHandler {
                     // Pick a Pokemon as replacement
                     replacements.clear();
 
-                    List<Pokemon> chosenList =
-                            allowAltFormes ?
-                            mainPokemonListInclFormes
-                                    .stream()
-                                    .filter(pk -> !pk.actuallyCosmetic)
-                                    .collect(Collectors.toList()) :
-                            mainPokemonList;
                     // Step 1: base filters
                     for (Pokemon pk : chosenList) {
                         // Prevent evolving into oneself (mandatory)
@@ -6325,7 +6364,7 @@ public abstract class AbstractRomHandler implements RomHandler {
                         }
 
                         // Prevent evolving into banned Pokemon (mandatory)
-                        if (banned.contains(pk)) {
+                        if (bannedSet.contains(pk)) {
                             continue;
                         }
 
@@ -6342,34 +6381,8 @@ public abstract class AbstractRomHandler implements RomHandler {
                         }
 
                         // Prevent evolution that causes cycle (mandatory)
-                        if (evoCycleCheck(fromPK, pk)) {
-                            continue;
-                        }
-
-                        // Prevent evolution that exceeds stage limit
-                        Evolution tempEvo = new Evolution(fromPK, pk, false, EvolutionType.NONE, 0);
-                        fromPK.evolutionsFrom.add(tempEvo);
-                        pk.evolutionsTo.add(tempEvo);
-                        boolean exceededLimit = false;
-
-                        Set<Pokemon> related = relatedPokemon(fromPK);
-
-                        for (Pokemon pk2 : related) {
-                            int numPreEvos = numPreEvolutions(pk2, stageLimit);
-                            if (numPreEvos >= stageLimit) {
-                                exceededLimit = true;
-                                break;
-                            } else if (numPreEvos == stageLimit - 1 && pk2.evolutionsFrom.size() == 0
-                                    && originalEvos.get(pk2).size() > 0) {
-                                exceededLimit = true;
-                                break;
-                            }
-                        }
-
-                        fromPK.evolutionsFrom.remove(tempEvo);
-                        pk.evolutionsTo.remove(tempEvo);
-
-                        if (exceededLimit) {
+                        // and evolution that exceeds stage limit
+                        if (!stageTracker.canAddEvolution(fromPK, pk)) {
                             continue;
                         }
 
@@ -6408,8 +6421,8 @@ public abstract class AbstractRomHandler implements RomHandler {
                         }
                     }
 
-                    if (!alreadyPicked.containsAll(replacements) && !similarStrength) {
-                        replacements.removeAll(alreadyPicked);
+                    if (!alreadyPickedSet.containsAll(replacements) && !similarStrength) {
+                        replacements.removeIf(alreadyPickedSet::contains);
                     }
 
                     // Step 3: pick - by similar strength or otherwise
@@ -6418,14 +6431,13 @@ public abstract class AbstractRomHandler implements RomHandler {
                     if (replacements.size() == 1) {
                         // Foregone conclusion.
                         picked = replacements.get(0);
-                        alreadyPicked.add(picked);
                     } else if (similarStrength) {
                         picked = pickEvoPowerLvlReplacement(replacements, ev.to);
-                        alreadyPicked.add(picked);
                     } else {
                         picked = replacements.get(this.random.nextInt(replacements.size()));
-                        alreadyPicked.add(picked);
                     }
+                    alreadyPicked.add(picked);
+                    alreadyPickedSet.add(picked);
 
                     // Step 4: add it to the new evos pool
                     Evolution newEvo = new Evolution(fromPK, picked, ev.carryStats, ev.type, ev.extraInfo);
@@ -6445,6 +6457,7 @@ public abstract class AbstractRomHandler implements RomHandler {
                     }
                     fromPK.evolutionsFrom.add(newEvo);
                     picked.evolutionsTo.add(newEvo);
+                    stageTracker.addEvolution(fromPK, picked);
                     newEvoPairs.add(new EvolutionPair(fromPK, picked));
                 }
 
@@ -6500,6 +6513,9 @@ public abstract class AbstractRomHandler implements RomHandler {
             }
         }
 
+        // Evolutions are about to be rewritten, so any indexed families will be outdated
+        EvolutionFamilyIndex.invalidate(this.allPokemonInclFormesWithoutNull());
+
         Set<EvolutionPair> oldEvoPairs = new HashSet<>();
 
         if (forceChange) {
@@ -6518,6 +6534,14 @@ public abstract class AbstractRomHandler implements RomHandler {
         }
 
         List<Pokemon> replacements = new ArrayList<>();
+        Set<Pokemon> bannedSet = new HashSet<>(banned);
+        List<Pokemon> chosenList =
+                allowAltFormes ?
+                mainPokemonListInclFormes
+                        .stream()
+                        .filter(pk -> !pk.actuallyCosmetic)
+                        .collect(Collectors.toList()) :
+                mainPokemonList;
 
         int loops = 0;
         while (loops < 1) {
@@ -6535,13 +6559,6 @@ public abstract class AbstractRomHandler implements RomHandler {
                 // Pick a Pokemon as replacement
                 replacements.clear();
 
-                List<Pokemon> chosenList =
-                        allowAltFormes ?
-                                mainPokemonListInclFormes
-                                        .stream()
-                                        .filter(pk -> !pk.actuallyCosmetic)
-                                        .collect(Collectors.toList()) :
-                                mainPokemonList;
                 // Step 1: base filters
                 for (Pokemon pk : chosenList) {
                     // Prevent evolving into oneself (mandatory)
@@ -6555,7 +6572,7 @@ public abstract class AbstractRomHandler implements RomHandler {
                     }
 
                     // Prevent evolving into banned Pokemon (mandatory)
-                    if (banned.contains(pk)) {
+                    if (bannedSet.contains(pk)) {
                         continue;
                     }
 
@@ -6979,11 +6996,14 @@ public abstract class AbstractRomHandler implements RomHandler {
         int maxTarget = currentBST + currentBST / 10;
         List<Pokemon> canPick = new ArrayList<>();
         List<Pokemon> emergencyPick = new ArrayList<>();
+        // canPick and emergencyPick never hold the same Pokemon twice, so one set can track both
+        Set<Pokemon> alreadyConsidered = new HashSet<>();
+        Set<Pokemon> alreadyPickedSet = new HashSet<>(alreadyPicked);
         int expandRounds = 0;
         while (canPick.isEmpty() || (canPick.size() < 3 && expandRounds < 3)) {
             for (Pokemon pk : pokemonPool) {
-                if (pk.bstForPowerLevels() >= minTarget && pk.bstForPowerLevels() <= maxTarget && !canPick.contains(pk) && !emergencyPick.contains(pk)) {
-                    if (alreadyPicked.contains(pk)) {
+                if (pk.bstForPowerLevels() >= minTarget && pk.bstForPowerLevels() <= maxTarget && alreadyConsidered.add(pk)) {
+                    if (alreadyPickedSet.contains(pk)) {
                         emergencyPick.add(pk);
                     } else {
                         canPick.add(pk);
@@ -7109,37 +7129,153 @@ public abstract class AbstractRomHandler implements RomHandler {
     }
 
     /**
-     * Check whether adding an evolution from one Pokemon to another will cause
-     * an evolution cycle.
-     *
-     * @param from Pokemon that is evolving
-     * @param to Pokemon to evolve to
-     * @return True if there is an evolution cycle, else false
+     * Keeps track of the evolutionary families being built by randomizeEvolutions(), so that whether
+     * a new evolution would cause a cycle or exceed the stage limit can be checked without walking
+     * every family member's pre-evolutions for every candidate.
+     * For every tracked Pokemon it stores the number of stages before it, and for every family the
+     * number of members which already stop the family from growing. All evolutions added while the
+     * tracker is in use must be passed to addEvolution().
      */
-    private boolean evoCycleCheck(Pokemon from, Pokemon to) {
-        Evolution tempEvo = new Evolution(from, to, false, EvolutionType.NONE, 0);
-        from.evolutionsFrom.add(tempEvo);
-        Set<Pokemon> visited = new HashSet<>();
-        Set<Pokemon> recStack = new HashSet<>();
-        boolean recur = isCyclic(from, visited, recStack);
-        from.evolutionsFrom.remove(tempEvo);
-        return recur;
-    }
-
-    private boolean isCyclic(Pokemon pk, Set<Pokemon> visited, Set<Pokemon> recStack) {
-        if (!visited.contains(pk)) {
-            visited.add(pk);
-            recStack.add(pk);
+    private class EvolutionStageTracker {
+
+        private class Family {
+            private final List<Pokemon> members = new ArrayList<>();
+            private int blockingMembers;
+        }
+
+        private final int stageLimit;
+        private final Map<Pokemon, List<Evolution>> originalEvos;
+        private final Map<Pokemon, Family> families = new HashMap<>();
+        private final Map<Pokemon, Integer> preEvolutions = new HashMap<>();
+        private final Set<Pokemon> blocking = new HashSet<>();
+
+        EvolutionStageTracker(int stageLimit, Map<Pokemon, List<Evolution>> originalEvos) {
+            this.stageLimit = stageLimit;
+            this.originalEvos = originalEvos;
+        }
+
+        private void track(Pokemon pk) {
+            if (families.containsKey(pk)) {
+                return;
+            }
+            // Pokemon outside the pool may still have evolutions, so start from the family as it is now
+            Family family = new Family();
+            for (Pokemon member : relatedPokemon(pk)) {
+                if (!families.containsKey(member)) {
+                    family.members.add(member);
+                    families.put(member, family);
+                    preEvolutions.put(member, numPreEvolutions(member, stageLimit));
+                }
+            }
+            for (Pokemon member : family.members) {
+                updateBlocking(member);
+            }
+        }
+
+        /**
+         * A Pokemon blocks its family from growing if it has as many pre-evolutions as the stage limit allows,
+         * or if it is one stage short of that but still needs an evolution of its own.
+         */
+        private void updateBlocking(Pokemon pk) {
+            int numPreEvos = preEvolutions.get(pk);
+            boolean isBlocking = numPreEvos >= stageLimit || (numPreEvos == stageLimit - 1
+                    && pk.evolutionsFrom.size() == 0 && hasOriginalEvolutions(pk));
+            if (isBlocking && blocking.add(pk)) {
+                families.get(pk).blockingMembers++;
+            } else if (!isBlocking && blocking.remove(pk)) {
+                families.get(pk).blockingMembers--;
+            }
+        }
+
+        private boolean hasOriginalEvolutions(Pokemon pk) {
+            List<Evolution> evos = originalEvos.get(pk);
+            return evos != null && evos.size() > 0;
+        }
+
+        /**
+         * Checks whether an evolution from one Pokemon to another can be added without causing an
+         * evolution cycle, or making any member of the resulting family exceed the stage limit.
+         */
+        boolean canAddEvolution(Pokemon from, Pokemon to) {
+            track(from);
+            track(to);
+            Family fromFamily = families.get(from);
+            Family toFamily = families.get(to);
+
+            // A cycle needs "to" to already evolve into "from", which requires it to have fewer pre-evolutions
+            if (fromFamily == toFamily && preEvolutions.get(to) < preEvolutions.get(from)
+                    && evolvesInto(to, from)) {
+                return false;
+            }
+
+            // Adding an evolution can only push the family further over the limit
+            if (fromFamily.blockingMembers > 0 || toFamily.blockingMembers > 0) {
+                return false;
+            }
+
+            // Only "to" and what it evolves into gain pre-evolutions
+            return !exceedsStageLimit(to, preEvolutions.get(from) + 1);
+        }
+
+        private boolean evolvesInto(Pokemon pk, Pokemon target) {
             for (Evolution ev : pk.evolutionsFrom) {
-                if (!visited.contains(ev.to) && isCyclic(ev.to, visited, recStack)) {
+                if (ev.to == target || evolvesInto(ev.to, target)) {
                     return true;
-                } else if (recStack.contains(ev.to)) {
+                }
+            }
+            return false;
+        }
+
+        private boolean exceedsStageLimit(Pokemon pk, int numPreEvos) {
+            if (numPreEvos <= preEvolutions.get(pk)) {
+                // nothing changes from here on
+                return false;
+            }
+            if (numPreEvos >= stageLimit) {
+                return true;
+            }
+            if (numPreEvos == stageLimit - 1 && pk.evolutionsFrom.size() == 0 && hasOriginalEvolutions(pk)) {
+                return true;
+            }
+            for (Evolution ev : pk.evolutionsFrom) {
+                if (exceedsStageLimit(ev.to, numPreEvos + 1)) {
                     return true;
                 }
             }
+            return false;
+        }
+
+        /**
+         * Updates the tracked families after an evolution from one Pokemon to another has been added.
+         */
+        void addEvolution(Pokemon from, Pokemon to) {
+            track(from);
+            track(to);
+            Family fromFamily = families.get(from);
+            Family toFamily = families.get(to);
+            if (fromFamily != toFamily) {
+                Family larger = fromFamily.members.size() >= toFamily.members.size() ? fromFamily : toFamily;
+                Family smaller = larger == fromFamily ? toFamily : fromFamily;
+                for (Pokemon member : smaller.members) {
+                    families.put(member, larger);
+                }
+                larger.members.addAll(smaller.members);
+                larger.blockingMembers += smaller.blockingMembers;
+            }
+            updatePreEvolutions(to, preEvolutions.get(from) + 1);
+            updateBlocking(from);
+        }
+
+        private void updatePreEvolutions(Pokemon pk, int numPreEvos) {
+            if (numPreEvos <= preEvolutions.get(pk)) {
+                return;
+            }
+            preEvolutions.put(pk, Math.min(numPreEvos, stageLimit));
+            updateBlocking(pk);
+            for (Evolution ev : pk.evolutionsFrom) {
+                updatePreEvolutions(ev.to, numPreEvos + 1);
+            }
         }
-        recStack.remove(pk);
-        return false;
     }
 
     private interface BasePokemonAction {
@@ -7684,7 +7820,10 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     private Map<Type, List<Pokemon>> cachedTypeLists;
     private List<Pokemon> cachedAllList;
-    private List<Pokemon> bannedList = new ArrayList<>();
+    private Map<List<Pokemon>, PowerLevelIndex> cachedPowerLevelIndexes;
+    private Map<List<Pokemon>, PowerLevelIndex> cachedNoWonderGuardPowerLevelIndexes;
+    // refilled for every trainer Pokemon, rather than allocated again for each pick
+    private final Set<Pokemon> bannedSet = new HashSet<>();
     private List<Pokemon> usedAsUniqueList = new ArrayList<>();
 
 
@@ -7717,11 +7856,7 @@ public abstract class AbstractRomHandler implements RomHandler {
 
         if (usePlacementHistory) {
             // "Distributed" settings
-            double placementAverage = getPlacementAverage();
-            pickFrom = pickFrom
-                    .stream()
-                    .filter(pk -> getPlacementHistory(pk) < placementAverage * 2)
-                    .collect(Collectors.toList());
+            pickFrom = filterBelowPlacementThreshold(pickFrom, placementHistory.getAverage() * 2);
             if (pickFrom.isEmpty()) {
                 pickFrom = cacheOrReplacement;
             }
@@ -7788,18 +7923,27 @@ public abstract class AbstractRomHandler implements RomHandler {
                     wonderGuardAllowed, usePlacementHistory, swapMegaEvos, null);
         }
 
-        withoutBannedPokemon = pickFrom.stream().filter(pk -> !bannedList.contains(pk)).collect(Collectors.toList());
-        if (!withoutBannedPokemon.isEmpty()) {
-            pickFrom = withoutBannedPokemon;
-        } else if(useInsteadOfCached != null) {
-            //rather than using banned pokemon from the provided list,
-            //see if we can get a non-banned pokemon from the cache
-            Pokemon cachePick = pickTrainerPokeReplacement(current, usePowerLevels, type,
-                    wonderGuardAllowed, usePlacementHistory, swapMegaEvos, null);
-            if(!bannedList.contains(cachePick)) {
-                return cachePick;
+        // When picking by power level straight from one of the cached lists, its BST index can be searched
+        // instead of the whole list, so banned Pokemon are left in and skipped during the search.
+        PowerLevelIndex powerLevelIndex = null;
+        boolean skipBanned = false;
+        if (usePowerLevels && !usePlacementHistory && !swapMegaEvos && useInsteadOfCached == null) {
+            powerLevelIndex = getCachedPowerLevelIndex(pickFrom, wonderGuardAllowed);
+            skipBanned = pickFrom.stream().anyMatch(pk -> !bannedSet.contains(pk));
+        } else {
+            withoutBannedPokemon = pickFrom.stream().filter(pk -> !bannedSet.contains(pk)).collect(Collectors.toList());
+            if (!withoutBannedPokemon.isEmpty()) {
+                pickFrom = withoutBannedPokemon;
+            } else if (useInsteadOfCached != null) {
+                //rather than using banned pokemon from the provided list,
+                //see if we can get a non-banned pokemon from the cache
+                Pokemon cachePick = pickTrainerPokeReplacement(current, usePowerLevels, type,
+                        wonderGuardAllowed, usePlacementHistory, swapMegaEvos, null);
+                if (!bannedSet.contains(cachePick)) {
+                    return cachePick;
+                }
+                //if we didn't, then we might as well pick from the provided pool
             }
-            //if we didn't, then we might as well pick from the provided pool
         }
 
         if (usePowerLevels) {
@@ -7811,12 +7955,19 @@ public abstract class AbstractRomHandler implements RomHandler {
             List<Pokemon> canPick = new ArrayList<>();
             int expandRounds = 0;
             while (canPick.isEmpty() || (canPick.size() < 3 && expandRounds < 2)) {
-                for (Pokemon pk : pickFrom) {
-                    if (pk.bstForPowerLevels() >= minTarget
-                            && pk.bstForPowerLevels() <= maxTarget
-                            && (wonderGuardAllowed || (pk.ability1 != Abilities.wonderGuard
-                                    && pk.ability2 != Abilities.wonderGuard && pk.ability3 != Abilities.wonderGuard))) {
-                        canPick.add(pk);
+                if (powerLevelIndex != null) {
+                    for (Pokemon pk : powerLevelIndex.getInRange(minTarget, maxTarget)) {
+                        if (!skipBanned || !bannedSet.contains(pk)) {
+                            canPick.add(pk);
+                        }
+                    }
+                } else {
+                    for (Pokemon pk : pickFrom) {
+                        if (pk.bstForPowerLevels() >= minTarget
+                                && pk.bstForPowerLevels() <= maxTarget
+                                && (wonderGuardAllowed || !hasWonderGuard(pk))) {
+                            canPick.add(pk);
+                        }
                     }
                 }
                 minTarget -= currentBST / 20;
@@ -7830,11 +7981,8 @@ public abstract class AbstractRomHandler implements RomHandler {
 
             Pokemon chosenPokemon = canPick.get(this.random.nextInt(canPick.size()));
             if (usePlacementHistory) {
-                double placementAverage = getPlacementAverage();
-                List<Pokemon> filteredPickList = canPick
-                        .stream()
-                        .filter(pk -> getPlacementHistory(pk) < placementAverage)
-                        .collect(Collectors.toList());
+                List<Pokemon> filteredPickList = filterBelowPlacementThreshold(canPick,
+                        placementHistory.getAverage());
                 if (filteredPickList.isEmpty()) {
                     filteredPickList = canPick;
                 }
@@ -7846,9 +7994,7 @@ public abstract class AbstractRomHandler implements RomHandler {
                 return pickFrom.get(this.random.nextInt(pickFrom.size()));
             } else {
                 Pokemon pk = pickFrom.get(this.random.nextInt(pickFrom.size()));
-                while (pk.ability1 == Abilities.wonderGuard
-                        || pk.ability2 == Abilities.wonderGuard
-                        || pk.ability3 == Abilities.wonderGuard) {
+                while (hasWonderGuard(pk)) {
                     pk = pickFrom.get(this.random.nextInt(pickFrom.size()));
                 }
                 return pk;
@@ -7856,6 +8002,35 @@ public abstract class AbstractRomHandler implements RomHandler {
         }
     }
 
+    /**
+     * Gets the BST index of one of the cached trainer Pokemon lists, building it if it does not exist yet.
+     * @param cachedList cachedAllList or one of the lists in cachedTypeLists.
+     * @param wonderGuardAllowed Whether to include Pokemon with Wonder Guard in the index.
+     * @return The PowerLevelIndex for the given list.
+     */
+    private PowerLevelIndex getCachedPowerLevelIndex(List<Pokemon> cachedList, boolean wonderGuardAllowed) {
+        Map<List<Pokemon>, PowerLevelIndex> indexes = wonderGuardAllowed ? cachedPowerLevelIndexes
+                : cachedNoWonderGuardPowerLevelIndexes;
+        PowerLevelIndex index = indexes.get(cachedList);
+        if (index == null) {
+            if (wonderGuardAllowed) {
+                index = new PowerLevelIndex(cachedList);
+            } else {
+                index = new PowerLevelIndex(cachedList
+                        .stream()
+                        .filter(pk -> !hasWonderGuard(pk))
+                        .collect(Collectors.toList()));
+            }
+            indexes.put(cachedList, index);
+        }
+        return index;
+    }
+
+    private boolean hasWonderGuard(Pokemon pk) {
+        return pk.ability1 == Abilities.wonderGuard || pk.ability2 == Abilities.wonderGuard
+                || pk.ability3 == Abilities.wonderGuard;
+    }
+
     private Map<Integer, List<EncounterSet>> mapZonesToEncounters(List<EncounterSet> encountersForAreas) {
         Map<Integer, List<EncounterSet>> zonesToEncounters = new TreeMap<>();
         for (EncounterSet encountersInArea : encountersForAreas) {
@@ -7901,11 +8076,12 @@ public abstract class AbstractRomHandler implements RomHandler {
         int minTarget = limitBST ? currentBST - currentBST / 5 : currentBST - currentBST / 10;
         int maxTarget = limitBST ? currentBST : currentBST + currentBST / 10;
         List<Pokemon> canPick = new ArrayList<>();
+        Set<Pokemon> alreadyInCanPick = new HashSet<>();
         int expandRounds = 0;
         while (canPick.isEmpty() || (canPick.size() < 3 && expandRounds < 3)) {
             for (Pokemon pk : pokemonPool) {
                 if (pk.bstForPowerLevels() >= minTarget && pk.bstForPowerLevels() <= maxTarget
-                        && (!banSamePokemon || pk != current) && !canPick.contains(pk)) {
+                        && (!banSamePokemon || pk != current) && alreadyInCanPick.add(pk)) {
                     canPick.add(pk);
                 }
             }
@@ -8129,16 +8305,30 @@ public abstract class AbstractRomHandler implements RomHandler {
     }
 
     private void setPlacementHistory(Pokemon newPK) {
-        Integer history = getPlacementHistory(newPK);
-        placementHistory.put(newPK, history + 1);
-    }
-
-    private int getPlacementHistory(Pokemon newPK) {
-        return placementHistory.getOrDefault(newPK, 0);
+        placementHistory.place(newPK);
     }
 
-    private double getPlacementAverage() {
-        return placementHistory.values().stream().mapToInt(e -> e).average().orElse(0);
+    /**
+     * Filters out every Pokemon which has been placed at least the given number of times.
+     * Only the most placed Pokemon are looked up, so the list is returned as-is when none of them are over
+     * the threshold.
+     * @param pokemon The Pokemon to filter.
+     * @param threshold The number of placements at which a Pokemon is filtered out.
+     * @return The Pokemon placed fewer times than the threshold. May be the given list itself.
+     */
+    private List<Pokemon> filterBelowPlacementThreshold(List<Pokemon> pokemon, double threshold) {
+        if (threshold <= 0) {
+            // nothing can be placed fewer than 0 times
+            return new ArrayList<>();
+        }
+        Set<Pokemon> overThreshold = placementHistory.getPlacedAtLeast(threshold);
+        if (overThreshold.isEmpty()) {
+            return pokemon;
+        }
+        return pokemon
+                .stream()
+                .filter(pk -> !overThreshold.contains(pk))
+                .collect(Collectors.toList());
     }
 
 
@@ -8149,13 +8339,9 @@ public abstract class AbstractRomHandler implements RomHandler {
         // So add to list and return 
 
         List<Pokemon> toPlacePK = new ArrayList<>();
-        List<Pokemon> placedPK = new ArrayList<>(placementHistory.keySet());
         List<Pokemon> allPK = cachedAllList;
-        int placedPKNum = 0;
-        for (Pokemon p : placedPK) {
-            placedPKNum += placementHistory.get(p);
-        }
-        float placedAverage = Math.round((float)placedPKNum / (float)placedPK.size());
+        float placedAverage = Math.round((float)placementHistory.getTotalPlacements() /
+                (float)placementHistory.getPlacedPokemonCount());
 
 
 
@@ -8166,8 +8352,9 @@ public abstract class AbstractRomHandler implements RomHandler {
         // now we've got placement average, iterate all pokemon and see if they qualify to be placed
 
         for (Pokemon newPK : allPK) {
-            if (placedPK.contains(newPK)) { // if it's in the list of previously placed, then check its viability 
-                if (placementHistory.get(newPK) <= placedAverage) {
+            int placed = placementHistory.getCount(newPK);
+            if (placed > 0) { // if it's been placed before, then check its viability 
+                if (placed <= placedAverage) {
                     toPlacePK.add(newPK);
                 }
             }
@@ -8183,9 +8370,8 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     @Override
     public void renderPlacementHistory() {
-        List<Pokemon> placedPK = new ArrayList<>(placementHistory.keySet());
-        for (Pokemon p : placedPK) {
-            System.out.println(p.name+": "+ placementHistory.get(p));
+        for (Pokemon p : placementHistory.getPlacedPokemon()) {
+            System.out.println(p.name+": "+ placementHistory.getCount(p));
         }
     }
 
@@ -122,10 +122,15 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
         }
     }
 
+    // read on first use, not when the class loads, so that asking this handler whether it can load
+    // a ROM of another generation doesn't cost a read of this generation's offsets file
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static class TMTextEntry {
@@ -374,14 +379,14 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
         int nonjap = rom[GBConstants.jpFlagOffset] & 0xFF;
         // Check for specific CRC first
         int crcInHeader = ((rom[GBConstants.crcOffset] & 0xFF) << 8) | (rom[GBConstants.crcOffset + 1] & 0xFF);
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (romSig(rom, re.romName) && re.version == version && re.nonJapanese == nonjap
                     && re.crcInHeader == crcInHeader) {
                 return re;
             }
         }
         // Now check for non-specific-CRC entries
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (romSig(rom, re.romName) && re.version == version && re.nonJapanese == nonjap && re.crcInHeader == -1) {
                 return re;
             }
@@ -1001,7 +1006,7 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         List<EncounterSet> encounters = new ArrayList<>();
 
         Pokemon ghostMarowak = pokes[Species.marowak];
@@ -1132,7 +1137,7 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
         Iterator<EncounterSet> encsetit = encounters.iterator();
 
         // grass & water
@@ -2880,8 +2885,17 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public BufferedImage getMascotImage() {
-        Pokemon mascot = randomPokemon();
+    public BufferedImage getMascotImage(Random random) {
+        return getPokemonImage(randomMascotPokemon(random, false), false);
+    }
+
+    @Override
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
+        // no shiny palettes in Gen 1
+        return SpriteCache.get(actualCRC32, pk, false, () -> drawPokemonImage(pk));
+    }
+
+    private BufferedImage drawPokemonImage(Pokemon mascot) {
         int idx = pokeNumToRBYTable[mascot.number];
         int fsBank;
         // define (by index number) the bank that a pokemon's image is in
@@ -169,10 +169,14 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
         private String template;
     }
 
+    // read on first use, like Gen1RomHandler's
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static void loadROMInfo() {
@@ -406,14 +410,14 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
         int nonjap = rom[GBConstants.jpFlagOffset] & 0xFF;
         // Check for specific CRC first
         int crcInHeader = ((rom[GBConstants.crcOffset] & 0xFF) << 8) | (rom[GBConstants.crcOffset + 1] & 0xFF);
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (romCode(rom, re.romCode) && re.version == version && re.nonJapanese == nonjap
                     && re.crcInHeader == crcInHeader) {
                 return re;
             }
         }
         // Now check for non-specific-CRC entries
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (romCode(rom, re.romCode) && re.version == version && re.nonJapanese == nonjap && re.crcInHeader == -1) {
                 return re;
             }
@@ -938,7 +942,7 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         int offset = romEntry.getValue("WildPokemonOffset");
         List<EncounterSet> areas = new ArrayList<>();
         offset = readLandEncounters(offset, areas, useTimeOfDay); // Johto
@@ -1093,7 +1097,7 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
         if (!havePatchedFleeing) {
             patchFleeing();
         }
@@ -3002,13 +3006,24 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public BufferedImage getMascotImage() {
-        Pokemon mascot = randomPokemon();
+    public BufferedImage getMascotImage(Random random) {
+        Pokemon mascot = randomMascotPokemon(random, false);
         while (mascot.number == Species.unown) {
             // Unown is banned as handling it would add a ton of extra effort.
-            mascot = randomPokemon();
+            mascot = randomMascotPokemon(random, false);
+        }
+        return getPokemonImage(mascot, random.nextInt(10) == 0);
+    }
+
+    @Override
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
+        if (pk.number == Species.unown) {
+            return null;
         }
+        return SpriteCache.get(actualCRC32, pk, shiny, () -> drawPokemonImage(pk, shiny));
+    }
 
+    private BufferedImage drawPokemonImage(Pokemon mascot, boolean shiny) {
         // Each Pokemon has a front and back pic with a bank and a pointer
         // (3*2=6)
         // There is no zero-entry.
@@ -3042,8 +3057,7 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
         // Black and white are left alone at the start and end of the palette.
         int[] palette = new int[] { 0xFFFFFFFF, 0xFFAAAAAA, 0xFF666666, 0xFF000000 };
         int paletteOffset = romEntry.getValue("PokemonPalettes") + mascot.number * 8;
-        if (random.nextInt(10) == 0) {
-            // Use shiny instead
+        if (shiny) {
             paletteOffset += 4;
         }
         for (int i = 0; i < 2; i++) {
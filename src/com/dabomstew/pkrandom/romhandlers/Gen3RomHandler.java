@@ -128,10 +128,14 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
         private boolean isMoveTutor;
     }
 
+    // read on first use; detecting a ROM by size alone never needs it
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static void loadROMInfo() {
@@ -396,7 +400,7 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
         if (findMultiple(rom, Gen3Constants.pokedexOrderPointerPrefix).size() != 3) {
             return false;
         }
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (romCode(rom, re.romCode) && (rom[Gen3Constants.romVersionOffset] & 0xFF) == re.version) {
                 return true; // match
             }
@@ -406,7 +410,7 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
 
     @Override
     public void loadedRom() {
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (romCode(rom, re.romCode) && (rom[0xBC] & 0xFF) == re.version) {
                 romEntry = new RomEntry(re); // clone so we can modify
                 break;
@@ -418,22 +422,25 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
         isRomHack = false;
         jamboMovesetHack = false;
 
+        // nothing below writes to the ROM, so this is also the CRC32 of the file as loaded
+        actualCRC32 = FileFunctions.getCRC32(rom);
+        // the offsets below are found by searching the whole ROM, so remember them between runs if we can
+        RomParseCache parseCache = RomParseCache.load("gen3", actualCRC32);
+
         // Pokemon count stuff, needs to be available first
-        List<Integer> pokedexOrderPrefixes = findMultiple(rom, Gen3Constants.pokedexOrderPointerPrefix);
-        romEntry.entries.put("PokedexOrder", readPointer(pokedexOrderPrefixes.get(1) + 16));
+        romEntry.entries.put("PokedexOrder", parseCache.getOrFind("PokedexOrder",
+                () -> readPointer(findMultiple(rom, Gen3Constants.pokedexOrderPointerPrefix).get(1) + 16)));
 
         // Pokemon names offset
         if (romEntry.romType == Gen3Constants.RomType_Ruby || romEntry.romType == Gen3Constants.RomType_Sapp) {
-            int baseNomOffset = find(rom, Gen3Constants.rsPokemonNamesPointerSuffix);
-            romEntry.entries.put("PokemonNames", readPointer(baseNomOffset - 4));
-            romEntry.entries.put(
-                    "FrontSprites",
-                    readPointer(findPointerPrefixAndSuffix(Gen3Constants.rsFrontSpritesPointerPrefix,
-                            Gen3Constants.rsFrontSpritesPointerSuffix)));
-            romEntry.entries.put(
-                    "PokemonPalettes",
-                    readPointer(findPointerPrefixAndSuffix(Gen3Constants.rsPokemonPalettesPointerPrefix,
-                            Gen3Constants.rsPokemonPalettesPointerSuffix)));
+            romEntry.entries.put("PokemonNames", parseCache.getOrFind("PokemonNames",
+                    () -> readPointer(find(rom, Gen3Constants.rsPokemonNamesPointerSuffix) - 4)));
+            romEntry.entries.put("FrontSprites", parseCache.getOrFind("FrontSprites",
+                    () -> readPointer(findPointerPrefixAndSuffix(Gen3Constants.rsFrontSpritesPointerPrefix,
+                            Gen3Constants.rsFrontSpritesPointerSuffix))));
+            romEntry.entries.put("PokemonPalettes", parseCache.getOrFind("PokemonPalettes",
+                    () -> readPointer(findPointerPrefixAndSuffix(Gen3Constants.rsPokemonPalettesPointerPrefix,
+                            Gen3Constants.rsPokemonPalettesPointerSuffix))));
         } else {
             romEntry.entries.put("PokemonNames", readPointer(Gen3Constants.efrlgPokemonNamesPointer));
             romEntry.entries.put("MoveNames", readPointer(Gen3Constants.efrlgMoveNamesPointer));
@@ -461,22 +468,21 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
         loadMoves();
 
         // Get wild Pokemon offset
-        int baseWPOffset = findMultiple(rom, Gen3Constants.wildPokemonPointerPrefix).get(0);
-        romEntry.entries.put("WildPokemon", readPointer(baseWPOffset + 12));
+        romEntry.entries.put("WildPokemon", parseCache.getOrFind("WildPokemon",
+                () -> readPointer(findMultiple(rom, Gen3Constants.wildPokemonPointerPrefix).get(0) + 12)));
 
         // map banks
-        int baseMapsOffset = findMultiple(rom, Gen3Constants.mapBanksPointerPrefix).get(0);
-        romEntry.entries.put("MapHeaders", readPointer(baseMapsOffset + 12));
+        romEntry.entries.put("MapHeaders", parseCache.getOrFind("MapHeaders",
+                () -> readPointer(findMultiple(rom, Gen3Constants.mapBanksPointerPrefix).get(0) + 12)));
         this.determineMapBankSizes();
 
         // map labels
-        if (romEntry.romType == Gen3Constants.RomType_FRLG) {
-            int baseMLOffset = find(rom, Gen3Constants.frlgMapLabelsPointerPrefix);
-            romEntry.entries.put("MapLabels", readPointer(baseMLOffset + 12));
-        } else {
-            int baseMLOffset = find(rom, Gen3Constants.rseMapLabelsPointerPrefix);
-            romEntry.entries.put("MapLabels", readPointer(baseMLOffset + 12));
-        }
+        String mapLabelsPointerPrefix = romEntry.romType == Gen3Constants.RomType_FRLG
+                ? Gen3Constants.frlgMapLabelsPointerPrefix
+                : Gen3Constants.rseMapLabelsPointerPrefix;
+        romEntry.entries.put("MapLabels", parseCache.getOrFind("MapLabels",
+                () -> readPointer(find(rom, mapLabelsPointerPrefix) + 12)));
+        parseCache.save();
 
         mapLoadingDone = false;
         loadAbilityNames();
@@ -484,8 +490,6 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
 
         allowedItems = Gen3Constants.allowedItems.copy();
         nonBadItems = Gen3Constants.getNonBadItems(romEntry.romType).copy();
-
-        actualCRC32 = FileFunctions.getCRC32(rom);
     }
 
     private int findPointerPrefixAndSuffix(String prefix, String suffix) {
@@ -1639,7 +1643,7 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         if (!mapLoadingDone) {
             preprocessMaps();
             mapLoadingDone = true;
@@ -1734,7 +1738,7 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
         // Support Deoxys/Mew catches in E/FR/LG
         attemptObedienceEvolutionPatches();
 
@@ -4407,8 +4411,17 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
     }
 
     @Override
-    public BufferedImage getMascotImage() {
-        Pokemon mascotPk = randomPokemon();
+    public BufferedImage getMascotImage(Random random) {
+        return getPokemonImage(randomMascotPokemon(random, false), false);
+    }
+
+    @Override
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
+        // only the normal palettes are found, so every image uses those
+        return SpriteCache.get(actualCRC32, pk, false, () -> drawPokemonImage(pk));
+    }
+
+    private BufferedImage drawPokemonImage(Pokemon mascotPk) {
         int mascotPokemon = pokedexToInternal[mascotPk.number];
         int frontSprites = romEntry.getValue("FrontSprites");
         int palettes = romEntry.getValue("PokemonPalettes");
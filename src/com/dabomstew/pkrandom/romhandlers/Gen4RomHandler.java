@@ -164,11 +164,14 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
         }
     }
 
+    // read on first use, so that loading a ROM of another generation doesn't read it
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
-
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static void loadROMInfo() {
@@ -529,6 +532,9 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
     private long actualArm9CRC32;
     private Map<Integer, Long> actualOverlayCRC32s;
     private Map<String, Long> actualFileCRC32s;
+    // read on the first image drawn, then shared by the rest
+    private NARCArchive pokemonGraphics;
+    private long pokemonGraphicsCRC32;
 
     private RomEntry romEntry;
 
@@ -542,7 +548,7 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
     }
 
     private static RomEntry entryFor(String ndsCode, byte version) {
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (ndsCode.equals(re.romCode) && version == re.version) {
                 return re;
             }
@@ -558,11 +564,13 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
         } catch (IOException e) {
             throw new RandomizerIOException(e);
         }
+        loadStageStarted(LoadStage.TEXT);
         try {
             msgNarc = readNARC(romEntry.getFile("Text"));
         } catch (IOException e) {
             throw new RandomizerIOException(e);
         }
+        loadStageStarted(LoadStage.TABLES);
         try {
             scriptNarc = readNARC(romEntry.getFile("Scripts"));
         } catch (IOException e) {
@@ -1644,7 +1652,7 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         if (!loadedWildMapNames) {
             loadWildMapNames();
         }
@@ -2136,7 +2144,7 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encounters) {
         try {
             if (romEntry.romType == Gen4Constants.Type_HGSS) {
                 setEncountersHGSS(useTimeOfDay, encounters);
@@ -5760,64 +5768,83 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public BufferedImage getMascotImage() {
+    public BufferedImage getMascotImage(Random random) {
+        Pokemon pk = randomMascotPokemon(random, false);
+        return getPokemonImage(pk, random.nextInt(10) == 0);
+    }
+
+    @Override
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
         try {
-            Pokemon pk = randomPokemon();
-            NARCArchive pokespritesNARC = this.readNARC(romEntry.getFile("PokemonGraphics"));
-            int spriteIndex = pk.number * 6 + 2 + random.nextInt(2);
-            int palIndex = pk.number * 6 + 4;
-            if (random.nextInt(10) == 0) {
-                // shiny
-                palIndex++;
-            }
-
-            // read sprite
-            byte[] rawSprite = pokespritesNARC.files.get(spriteIndex);
-            if (rawSprite.length == 0) {
-                // Must use other gender form
-                rawSprite = pokespritesNARC.files.get(spriteIndex ^ 1);
-            }
-            int[] spriteData = new int[3200];
+            NARCArchive pokespritesNARC = getPokemonGraphics();
+            return SpriteCache.get(pokemonGraphicsCRC32, pk, shiny,
+                    () -> drawPokemonImage(pokespritesNARC, pk, shiny));
+        } catch (IOException e) {
+            throw new RandomizerIOException(e);
+        }
+    }
+
+    private synchronized NARCArchive getPokemonGraphics() throws IOException {
+        if (pokemonGraphics == null) {
+            byte[] narcBytes = readFile(romEntry.getFile("PokemonGraphics"));
+            pokemonGraphicsCRC32 = FileFunctions.getCRC32(narcBytes);
+            pokemonGraphics = new NARCArchive(narcBytes);
+        }
+        return pokemonGraphics;
+    }
+
+    private BufferedImage drawPokemonImage(NARCArchive pokespritesNARC, Pokemon pk, boolean shiny) {
+        int spriteIndex = pk.number * 6 + 2;
+        int palIndex = pk.number * 6 + 4;
+        if (shiny) {
+            palIndex++;
+        }
+
+        // read sprite
+        byte[] rawSprite = pokespritesNARC.files.get(spriteIndex);
+        if (rawSprite.length == 0) {
+            // Must use other gender form
+            rawSprite = pokespritesNARC.files.get(spriteIndex ^ 1);
+        }
+        int[] spriteData = new int[3200];
+        for (int i = 0; i < 3200; i++) {
+            spriteData[i] = readWord(rawSprite, i * 2 + 48);
+        }
+
+        // Decrypt sprite (why does EVERYTHING use the RNG formula geez)
+        if (romEntry.romType != Gen4Constants.Type_DP) {
+            int key = spriteData[0];
             for (int i = 0; i < 3200; i++) {
-                spriteData[i] = readWord(rawSprite, i * 2 + 48);
+                spriteData[i] ^= (key & 0xFFFF);
+                key = key * 0x41C64E6D + 0x6073;
             }
-
-            // Decrypt sprite (why does EVERYTHING use the RNG formula geez)
-            if (romEntry.romType != Gen4Constants.Type_DP) {
-                int key = spriteData[0];
-                for (int i = 0; i < 3200; i++) {
-                    spriteData[i] ^= (key & 0xFFFF);
-                    key = key * 0x41C64E6D + 0x6073;
-                }
-            } else {
-                // D/P sprites are encrypted *backwards*. Wut.
-                int key = spriteData[3199];
-                for (int i = 3199; i >= 0; i--) {
-                    spriteData[i] ^= (key & 0xFFFF);
-                    key = key * 0x41C64E6D + 0x6073;
-                }
+        } else {
+            // D/P sprites are encrypted *backwards*. Wut.
+            int key = spriteData[3199];
+            for (int i = 3199; i >= 0; i--) {
+                spriteData[i] ^= (key & 0xFFFF);
+                key = key * 0x41C64E6D + 0x6073;
             }
+        }
 
-            byte[] rawPalette = pokespritesNARC.files.get(palIndex);
+        byte[] rawPalette = pokespritesNARC.files.get(palIndex);
 
-            int[] palette = new int[16];
-            for (int i = 1; i < 16; i++) {
-                palette[i] = GFXFunctions.conv16BitColorToARGB(readWord(rawPalette, 40 + i * 2));
-            }
+        int[] palette = new int[16];
+        for (int i = 1; i < 16; i++) {
+            palette[i] = GFXFunctions.conv16BitColorToARGB(readWord(rawPalette, 40 + i * 2));
+        }
 
-            // Deliberately chop off the right half of the image while still
-            // correctly indexing the array.
-            BufferedImage bim = new BufferedImage(80, 80, BufferedImage.TYPE_INT_ARGB);
-            for (int y = 0; y < 80; y++) {
-                for (int x = 0; x < 80; x++) {
-                    int value = ((spriteData[y * 40 + x / 4]) >> (x % 4) * 4) & 0x0F;
-                    bim.setRGB(x, y, palette[value]);
-                }
+        // Deliberately chop off the right half of the image while still
+        // correctly indexing the array.
+        BufferedImage bim = new BufferedImage(80, 80, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = GFXFunctions.getPixels(bim);
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 80; x++) {
+                int value = ((spriteData[y * 40 + x / 4]) >> (x % 4) * 4) & 0x0F;
+                pixels[y * 80 + x] = palette[value];
             }
-            return bim;
-        } catch (IOException e) {
-            throw new RandomizerIOException(e);
         }
+        return bim;
     }
 
     @Override
@@ -24,12 +24,12 @@ package com.dabomstew.pkrandom.romhandlers;
 /*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
 /*----------------------------------------------------------------------------*/
 
-import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -151,10 +151,14 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
         }
     }
 
+    // read on first use, like the other handlers' ROM info
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static void loadROMInfo() {
@@ -429,8 +433,10 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
     private boolean effectivenessUpdated;
     private int pickupItemsTableOffset;
     private long actualArm9CRC32;
-    private Map<Integer, Long> actualOverlayCRC32s;
-    private Map<String, Long> actualFileCRC32s;
+    private Future<Boolean> integrityCheck;
+    // read on the first image drawn, like Gen4RomHandler's
+    private NARCArchive pokemonGraphics;
+    private long pokemonGraphicsCRC32;
     
     private NARCArchive pokeNarc, moveNarc, stringsNarc, storyTextNarc, scriptNarc, shopNarc;
 
@@ -448,7 +454,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
             return null;
         }
 
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (ndsCode.equals(re.romCode) && re.version == version) {
                 return re;
             }
@@ -464,6 +470,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
         } catch (IOException e) {
             throw new RandomizerIOException(e);
         }
+        loadStageStarted(LoadStage.TEXT);
         try {
             stringsNarc = readNARC(romEntry.getFile("TextStrings"));
             storyTextNarc = readNARC(romEntry.getFile("TextStory"));
@@ -471,6 +478,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
             throw new RandomizerIOException(e);
         }
 
+        loadStageStarted(LoadStage.TABLES);
         try {
             scriptNarc = readNARC(romEntry.getFile("Scripts"));
         } catch (IOException e) {
@@ -504,11 +512,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
         regularShopItems = Gen5Constants.regularShopItems;
         opShopItems = Gen5Constants.opShopItems;
 
-        try {
-            computeCRC32sForRom();
-        } catch (IOException e) {
-            throw new RandomizerIOException(e);
-        }
+        startIntegrityCheck();
 
         // If there are tweaks for expanding the ARM9, do it here to keep it simple.
         boolean shouldExtendARM9 = romEntry.tweakFiles.containsKey("ShedinjaEvolutionTweak") || romEntry.tweakFiles.containsKey("NewIndexToMusicTweak");
@@ -1049,7 +1053,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         if (!loadedWildMapNames) {
             loadWildMapNames();
         }
@@ -1125,7 +1129,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encountersList) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encountersList) {
         try {
             NARCArchive encounterNARC = readNARC(romEntry.getFile("WildPokemon"));
             Iterator<EncounterSet> encounters = encountersList.iterator();
@@ -1270,7 +1274,8 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
                     Pokemon pkmn = pokes[((entry[startOffset + offset + e * 4] & 0xFF) + ((entry[startOffset + offset
                             + 1 + e * 4] & 0x03) << 8))];
                     byte[] pokeFile = areaData.get(pkmn.getBaseNumber() - 1);
-                    int areaIndex = wildFileToAreaMap[fileNumber];
+                    // files past the end of the map aren't shown in the Pokedex, like the other -1s
+                    int areaIndex = fileNumber < wildFileToAreaMap.length ? wildFileToAreaMap[fileNumber] : -1;
                     // Route 4?
                     if (romEntry.romType == Gen5Constants.Type_BW2 && areaIndex == Gen5Constants.bw2Route4AreaIndex) {
                         if ((fileNumber == Gen5Constants.b2Route4EncounterFile && romEntry.romCode.charAt(2) == 'D')
@@ -4200,20 +4205,18 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
         }
     }
 
-    private void computeCRC32sForRom() throws IOException {
-        this.actualOverlayCRC32s = new HashMap<>();
-        this.actualFileCRC32s = new HashMap<>();
+    private void startIntegrityCheck() {
+        // the ARM9 is already in memory, but the overlays and files are only read if the check is ever needed,
+        // so leave them to the background
         this.actualArm9CRC32 = FileFunctions.getCRC32(arm9);
+        List<RomIntegrityCheck.Region> regions = new ArrayList<>();
         for (int overlayNumber : romEntry.overlayExpectedCRC32s.keySet()) {
-            byte[] overlay = readOverlay(overlayNumber);
-            long crc32 = FileFunctions.getCRC32(overlay);
-            this.actualOverlayCRC32s.put(overlayNumber, crc32);
+            regions.add(overlayRegion(overlayNumber, romEntry.overlayExpectedCRC32s.get(overlayNumber)));
         }
         for (String fileKey : romEntry.files.keySet()) {
-            byte[] file = readFile(romEntry.getFile(fileKey));
-            long crc32 = FileFunctions.getCRC32(file);
-            this.actualFileCRC32s.put(fileKey, crc32);
+            regions.add(fileRegion(romEntry.getFile(fileKey), romEntry.files.get(fileKey).expectedCRC32));
         }
+        this.integrityCheck = RomIntegrityCheck.start(loadedFilename(), actualArm9CRC32, regions);
     }
 
     @Override
@@ -4222,75 +4225,75 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
             return false;
         }
 
-        for (int overlayNumber : romEntry.overlayExpectedCRC32s.keySet()) {
-            long expectedCRC32 = romEntry.overlayExpectedCRC32s.get(overlayNumber);
-            long actualCRC32 = actualOverlayCRC32s.get(overlayNumber);
-            if (expectedCRC32 != actualCRC32) {
-                return false;
-            }
-        }
-
-        for (String fileKey : romEntry.files.keySet()) {
-            long expectedCRC32 = romEntry.files.get(fileKey).expectedCRC32;
-            long actualCRC32 = actualFileCRC32s.get(fileKey);
-            if (expectedCRC32 != actualCRC32) {
-                return false;
-            }
-        }
+        return RomIntegrityCheck.isValid(integrityCheck);
+    }
 
-        return true;
+    @Override
+    public BufferedImage getMascotImage(Random random) {
+        Pokemon pk = randomMascotPokemon(random, true);
+        return getPokemonImage(pk, random.nextInt(10) == 0);
     }
 
     @Override
-    public BufferedImage getMascotImage() {
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
         try {
-            Pokemon pk = randomPokemonInclFormes();
-            NARCArchive pokespritesNARC = this.readNARC(romEntry.getFile("PokemonGraphics"));
-
-            // First prepare the palette, it's the easy bit
-            int palIndex = pk.getSpriteIndex() * 20 + 18;
-            if (random.nextInt(10) == 0) {
-                // shiny
-                palIndex++;
-            }
-            byte[] rawPalette = pokespritesNARC.files.get(palIndex);
-            int[] palette = new int[16];
-            for (int i = 1; i < 16; i++) {
-                palette[i] = GFXFunctions.conv16BitColorToARGB(readWord(rawPalette, 40 + i * 2));
-            }
-
-            // Get the picture and uncompress it.
-            byte[] compressedPic = pokespritesNARC.files.get(pk.getSpriteIndex() * 20);
-            byte[] uncompressedPic = DSDecmp.Decompress(compressedPic);
-
-            // Output to 64x144 tiled image to prepare for unscrambling
-            BufferedImage bim = GFXFunctions.drawTiledImage(uncompressedPic, palette, 48, 64, 144, 4);
-
-            // Unscramble the above onto a 96x96 canvas
-            BufferedImage finalImage = new BufferedImage(96, 96, BufferedImage.TYPE_INT_ARGB);
-            Graphics g = finalImage.getGraphics();
-            g.drawImage(bim, 0, 0, 64, 64, 0, 0, 64, 64, null);
-            g.drawImage(bim, 64, 0, 96, 8, 0, 64, 32, 72, null);
-            g.drawImage(bim, 64, 8, 96, 16, 32, 64, 64, 72, null);
-            g.drawImage(bim, 64, 16, 96, 24, 0, 72, 32, 80, null);
-            g.drawImage(bim, 64, 24, 96, 32, 32, 72, 64, 80, null);
-            g.drawImage(bim, 64, 32, 96, 40, 0, 80, 32, 88, null);
-            g.drawImage(bim, 64, 40, 96, 48, 32, 80, 64, 88, null);
-            g.drawImage(bim, 64, 48, 96, 56, 0, 88, 32, 96, null);
-            g.drawImage(bim, 64, 56, 96, 64, 32, 88, 64, 96, null);
-            g.drawImage(bim, 0, 64, 64, 96, 0, 96, 64, 128, null);
-            g.drawImage(bim, 64, 64, 96, 72, 0, 128, 32, 136, null);
-            g.drawImage(bim, 64, 72, 96, 80, 32, 128, 64, 136, null);
-            g.drawImage(bim, 64, 80, 96, 88, 0, 136, 32, 144, null);
-            g.drawImage(bim, 64, 88, 96, 96, 32, 136, 64, 144, null);
-
-            // Phew, all done.
-            return finalImage;
+            NARCArchive pokespritesNARC = getPokemonGraphics();
+            return SpriteCache.get(pokemonGraphicsCRC32, pk, shiny,
+                    () -> drawPokemonImage(pokespritesNARC, pk, shiny));
         } catch (IOException e) {
             throw new RandomizerIOException(e);
         }
     }
 
+    private synchronized NARCArchive getPokemonGraphics() throws IOException {
+        if (pokemonGraphics == null) {
+            byte[] narcBytes = readFile(romEntry.getFile("PokemonGraphics"));
+            pokemonGraphicsCRC32 = FileFunctions.getCRC32(narcBytes);
+            pokemonGraphics = new NARCArchive(narcBytes);
+        }
+        return pokemonGraphics;
+    }
+
+    private BufferedImage drawPokemonImage(NARCArchive pokespritesNARC, Pokemon pk, boolean shiny) {
+        // First prepare the palette, it's the easy bit
+        int palIndex = pk.getSpriteIndex() * 20 + 18;
+        if (shiny) {
+            palIndex++;
+        }
+        byte[] rawPalette = pokespritesNARC.files.get(palIndex);
+        int[] palette = new int[16];
+        for (int i = 1; i < 16; i++) {
+            palette[i] = GFXFunctions.conv16BitColorToARGB(readWord(rawPalette, 40 + i * 2));
+        }
+
+        // Get the picture and uncompress it.
+        byte[] compressedPic = pokespritesNARC.files.get(pk.getSpriteIndex() * 20);
+        byte[] uncompressedPic = DSDecmp.Decompress(compressedPic);
+
+        // Output to 64x144 tiled image to prepare for unscrambling
+        BufferedImage bim = GFXFunctions.drawTiledImage(uncompressedPic, palette, 48, 64, 144, 4);
+
+        // Unscramble the above onto a 96x96 canvas
+        BufferedImage finalImage = new BufferedImage(96, 96, BufferedImage.TYPE_INT_ARGB);
+        GFXFunctions.copyPixels(bim, 0, 0, finalImage, 0, 0, 64, 64);
+        GFXFunctions.copyPixels(bim, 0, 64, finalImage, 64, 0, 32, 8);
+        GFXFunctions.copyPixels(bim, 32, 64, finalImage, 64, 8, 32, 8);
+        GFXFunctions.copyPixels(bim, 0, 72, finalImage, 64, 16, 32, 8);
+        GFXFunctions.copyPixels(bim, 32, 72, finalImage, 64, 24, 32, 8);
+        GFXFunctions.copyPixels(bim, 0, 80, finalImage, 64, 32, 32, 8);
+        GFXFunctions.copyPixels(bim, 32, 80, finalImage, 64, 40, 32, 8);
+        GFXFunctions.copyPixels(bim, 0, 88, finalImage, 64, 48, 32, 8);
+        GFXFunctions.copyPixels(bim, 32, 88, finalImage, 64, 56, 32, 8);
+        GFXFunctions.copyPixels(bim, 0, 96, finalImage, 0, 64, 64, 32);
+        GFXFunctions.copyPixels(bim, 0, 128, finalImage, 64, 64, 32, 8);
+        GFXFunctions.copyPixels(bim, 32, 128, finalImage, 64, 72, 32, 8);
+        GFXFunctions.copyPixels(bim, 0, 136, finalImage, 64, 80, 32, 8);
+        GFXFunctions.copyPixels(bim, 32, 136, finalImage, 64, 88, 32, 8);
+
+        // Phew, all done.
+        return finalImage;
+    }
+
     @Override
     public List<Integer> getAllHeldItems() {
         return Gen5Constants.allHeldItems;
@@ -32,7 +32,6 @@ import com.dabomstew.pkrandom.exceptions.RandomizerIOException;
 import com.dabomstew.pkrandom.pokemon.*;
 import pptxt.N3DSTxtHandler;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
@@ -131,10 +130,14 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
         }
     }
 
+    // read on first use, like the other handlers' ROM info
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static void loadROMInfo() {
@@ -288,6 +291,9 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     private int pickupItemsTableOffset;
     private long actualCodeCRC32;
     private Map<String, Long> actualFileCRC32s;
+    // read on the first image drawn, then shared by the rest
+    private GARCArchive pokemonGraphics;
+    private long pokemonGraphicsCRC32;
 
     private GARCArchive pokeGarc, moveGarc, stringsGarc, storyTextGarc;
 
@@ -305,7 +311,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
             return null;
         }
 
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (productCode.equals(re.romCode) && titleId.equals(re.titleId)) {
                 return re;
             }
@@ -323,6 +329,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
             throw new RandomizerIOException(e);
         }
 
+        loadStageStarted(LoadStage.TEXT);
         try {
             stringsGarc = readGARC(romEntry.getFile("TextStrings"),true);
             storyTextGarc = readGARC(romEntry.getFile("StoryText"), true);
@@ -330,6 +337,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
             throw new RandomizerIOException(e);
         }
 
+        loadStageStarted(LoadStage.TABLES);
         loadPokemonStats();
         loadMoves();
 
@@ -601,7 +609,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     private void setStrings(GARCArchive textGARC, int index, List<String> strings) {
         byte[] oldRawFile = textGARC.files.get(index).get(0);
         try {
-            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, romEntry.romType);
+            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, true, romEntry.romType);
             textGARC.setFile(index, newRawFile);
         } catch (IOException e) {
             e.printStackTrace();
@@ -1251,7 +1259,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         if (!loadedWildMapNames) {
             loadWildMapNames();
         }
@@ -1537,7 +1545,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encountersList) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encountersList) {
         try {
             if (romEntry.romType == Gen6Constants.Type_ORAS) {
                 setEncountersORAS(encountersList);
@@ -1749,6 +1757,11 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
             if (length < 0x178) { // No encounters in this map
                 continue;
             }
+            // maps past the end of the table aren't shown in the Pokedex
+            if (currentMapNum >= Gen6Constants.xyMapNumToPokedexIndex.length - Gen6Constants.fallingEncounterCount
+                    - Gen6Constants.rustlingBushEncounterCount) {
+                continue;
+            }
             int areaIndex = Gen6Constants.xyMapNumToPokedexIndex[currentMapNum];
             byte[] encounterData = new byte[0x178];
             System.arraycopy(b, offset, encounterData, 0, 0x178);
@@ -4157,53 +4170,61 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public BufferedImage getMascotImage() {
+    public BufferedImage getMascotImage(Random random) {
+        return getPokemonImage(randomMascotPokemon(random, false), false);
+    }
+
+    @Override
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
+        // the icons are in national dex order, followed by the alternate formes' in an order that isn't known
+        // here, and have no shiny palettes
+        if (pk.formeNumber != 0) {
+            return null;
+        }
         try {
-            GARCArchive pokespritesGARC = this.readGARC(romEntry.getFile("PokemonGraphics"),false);
-            int pkIndex = this.random.nextInt(pokespritesGARC.files.size()-2)+1;
-
-            byte[] icon = pokespritesGARC.files.get(pkIndex).get(0);
-            int paletteCount = readWord(icon,2);
-            byte[] rawPalette = Arrays.copyOfRange(icon,4,4+paletteCount*2);
-            int[] palette = new int[paletteCount];
-            for (int i = 0; i < paletteCount; i++) {
-                palette[i] = GFXFunctions.conv3DS16BitColorToARGB(readWord(rawPalette, i * 2));
-            }
-
-            int width = 64;
-            int height = 32;
-            // Get the picture and uncompress it.
-            byte[] uncompressedPic = Arrays.copyOfRange(icon,4+paletteCount*2,4+paletteCount*2+width*height);
-
-            int bpp = paletteCount <= 0x10 ? 4 : 8;
-            // Output to 64x144 tiled image to prepare for unscrambling
-            BufferedImage bim = GFXFunctions.drawTiledZOrderImage(uncompressedPic, palette, 0, width, height, bpp);
-
-            // Unscramble the above onto a 96x96 canvas
-            BufferedImage finalImage = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
-            Graphics g = finalImage.getGraphics();
-            g.drawImage(bim, 0, 0, 64, 64, 0, 0, 64, 64, null);
-            g.drawImage(bim, 64, 0, 96, 8, 0, 64, 32, 72, null);
-            g.drawImage(bim, 64, 8, 96, 16, 32, 64, 64, 72, null);
-            g.drawImage(bim, 64, 16, 96, 24, 0, 72, 32, 80, null);
-            g.drawImage(bim, 64, 24, 96, 32, 32, 72, 64, 80, null);
-            g.drawImage(bim, 64, 32, 96, 40, 0, 80, 32, 88, null);
-            g.drawImage(bim, 64, 40, 96, 48, 32, 80, 64, 88, null);
-            g.drawImage(bim, 64, 48, 96, 56, 0, 88, 32, 96, null);
-            g.drawImage(bim, 64, 56, 96, 64, 32, 88, 64, 96, null);
-            g.drawImage(bim, 0, 64, 64, 96, 0, 96, 64, 128, null);
-            g.drawImage(bim, 64, 64, 96, 72, 0, 128, 32, 136, null);
-            g.drawImage(bim, 64, 72, 96, 80, 32, 128, 64, 136, null);
-            g.drawImage(bim, 64, 80, 96, 88, 0, 136, 32, 144, null);
-            g.drawImage(bim, 64, 88, 96, 96, 32, 136, 64, 144, null);
-
-            // Phew, all done.
-            return finalImage;
+            GARCArchive pokespritesGARC = getPokemonGraphics();
+            if (pk.number >= pokespritesGARC.files.size()) {
+                return null;
+            }
+            return SpriteCache.get(pokemonGraphicsCRC32, pk, false,
+                    () -> drawPokemonImage(pokespritesGARC, pk.number));
         } catch (IOException e) {
             throw new RandomizerIOException(e);
         }
     }
 
+    private synchronized GARCArchive getPokemonGraphics() throws IOException {
+        if (pokemonGraphics == null) {
+            byte[] garcBytes = readFile(romEntry.getFile("PokemonGraphics"));
+            pokemonGraphicsCRC32 = FileFunctions.getCRC32(garcBytes);
+            pokemonGraphics = new GARCArchive(garcBytes, false);
+        }
+        return pokemonGraphics;
+    }
+
+    private BufferedImage drawPokemonImage(GARCArchive pokespritesGARC, int pkIndex) {
+        byte[] icon = pokespritesGARC.files.get(pkIndex).get(0);
+        int paletteCount = readWord(icon,2);
+        byte[] rawPalette = Arrays.copyOfRange(icon,4,4+paletteCount*2);
+        int[] palette = new int[paletteCount];
+        for (int i = 0; i < paletteCount; i++) {
+            palette[i] = GFXFunctions.conv3DS16BitColorToARGB(readWord(rawPalette, i * 2));
+        }
+
+        int width = 64;
+        int height = 32;
+        // Get the picture and uncompress it.
+        byte[] uncompressedPic = Arrays.copyOfRange(icon,4+paletteCount*2,4+paletteCount*2+width*height);
+
+        int bpp = paletteCount <= 0x10 ? 4 : 8;
+        BufferedImage bim = GFXFunctions.drawTiledZOrderImage(uncompressedPic, palette, 0, width, height, bpp);
+
+        // The icon only uses the top left 40x30 of the texture
+        BufferedImage finalImage = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        GFXFunctions.copyPixels(bim, 0, 0, finalImage, 0, 0, 40, 30);
+        return finalImage;
+    }
+
     @Override
     public List<Integer> getAllHeldItems() {
         return Gen6Constants.allHeldItems;
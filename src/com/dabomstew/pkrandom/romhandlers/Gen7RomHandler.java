@@ -26,7 +26,9 @@ package com.dabomstew.pkrandom.romhandlers;
 import com.dabomstew.pkrandom.FileFunctions;
 import com.dabomstew.pkrandom.MiscTweak;
 import com.dabomstew.pkrandom.RomFunctions;
+import com.dabomstew.pkrandom.RomIntegrityCheck;
 import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.SpriteCache;
 import com.dabomstew.pkrandom.constants.*;
 import com.dabomstew.pkrandom.ctr.AMX;
 import com.dabomstew.pkrandom.ctr.BFLIM;
@@ -39,6 +41,7 @@ import pptxt.N3DSTxtHandler;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class Gen7RomHandler extends Abstract3DSRomHandler {
@@ -109,10 +112,14 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
         }
     }
 
+    // read on first use, like the other handlers' ROM info
     private static List<RomEntry> roms;
 
-    static {
-        loadROMInfo();
+    private static synchronized List<RomEntry> roms() {
+        if (roms == null) {
+            loadROMInfo();
+        }
+        return roms;
     }
 
     private static void loadROMInfo() {
@@ -261,7 +268,10 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     private List<String> abilityNames;
     private ItemList allowedItems, nonBadItems;
     private long actualCodeCRC32;
-    private Map<String, Long> actualFileCRC32s;
+    private Future<Boolean> integrityCheck;
+    // read on the first image drawn, like Gen6RomHandler's
+    private GARCArchive pokemonGraphics;
+    private long pokemonGraphicsCRC32;
 
     private GARCArchive pokeGarc, moveGarc, encounterGarc, stringsGarc, storyTextGarc;
 
@@ -279,7 +289,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
             return null;
         }
 
-        for (RomEntry re : roms) {
+        for (RomEntry re : roms()) {
             if (productCode.equals(re.romCode) && titleId.equals(re.titleId)) {
                 return re;
             }
@@ -297,9 +307,16 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
             throw new RandomizerIOException(e);
         }
 
+        loadStageStarted(LoadStage.TEXT);
         try {
             stringsGarc = readGARC(romEntry.getFile("TextStrings"), true);
             storyTextGarc = readGARC(romEntry.getFile("StoryText"), true);
+        } catch (IOException e) {
+            throw new RandomizerIOException(e);
+        }
+
+        loadStageStarted(LoadStage.TABLES);
+        try {
             areaDataList = getAreaData();
         } catch (IOException e) {
             throw new RandomizerIOException(e);
@@ -322,11 +339,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
             isSM = true;
         }
 
-        try {
-            computeCRC32sForRom();
-        } catch (IOException e) {
-            throw new RandomizerIOException(e);
-        }
+        startIntegrityCheck();
     }
 
     private List<String> getStrings(boolean isStoryText, int index) {
@@ -347,7 +360,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     private void setStrings(GARCArchive textGARC, int index, List<String> strings) {
         byte[] oldRawFile = textGARC.files.get(index).get(0);
         try {
-            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, romEntry.romType);
+            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, true, romEntry.romType);
             textGARC.setFile(index, newRawFile);
         } catch (IOException e) {
             e.printStackTrace();
@@ -1309,7 +1322,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public List<EncounterSet> getEncounters(boolean useTimeOfDay) {
+    protected List<EncounterSet> loadEncounters(boolean useTimeOfDay) {
         List<EncounterSet> encounters = new ArrayList<>();
         for (AreaData areaData : areaDataList) {
             if (!areaData.hasTables) {
@@ -1416,7 +1429,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public void setEncounters(boolean useTimeOfDay, List<EncounterSet> encountersList) {
+    protected void saveEncounters(boolean useTimeOfDay, List<EncounterSet> encountersList) {
         Iterator<EncounterSet> encounters = encountersList.iterator();
         for (AreaData areaData : areaDataList) {
             if (!areaData.hasTables) {
@@ -3650,14 +3663,16 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
         }
     }
 
-    private void computeCRC32sForRom() throws IOException {
-        this.actualFileCRC32s = new HashMap<>();
+    private void startIntegrityCheck() {
+        // the code is already in memory, but the files are only read if the check is ever needed,
+        // so leave them to the background
         this.actualCodeCRC32 = FileFunctions.getCRC32(code);
+        int index = this.hasGameUpdateLoaded() ? 1 : 0;
+        List<RomIntegrityCheck.Region> regions = new ArrayList<>();
         for (String fileKey : romEntry.files.keySet()) {
-            byte[] file = readFile(romEntry.getFile(fileKey));
-            long crc32 = FileFunctions.getCRC32(file);
-            this.actualFileCRC32s.put(fileKey, crc32);
+            regions.add(fileRegion(romEntry.getFile(fileKey), romEntry.files.get(fileKey).expectedCRC32s[index]));
         }
+        this.integrityCheck = RomIntegrityCheck.start(loadedFilename(), actualCodeCRC32, regions);
     }
 
     @Override
@@ -3667,35 +3682,41 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
             return false;
         }
 
-        for (String fileKey : romEntry.files.keySet()) {
-            long expectedCRC32 = romEntry.files.get(fileKey).expectedCRC32s[index];
-            long actualCRC32 = actualFileCRC32s.get(fileKey);
-            if (expectedCRC32 != actualCRC32) {
-                return false;
-            }
-        }
+        return RomIntegrityCheck.isValid(integrityCheck);
+    }
 
-        return true;
+    @Override
+    public BufferedImage getMascotImage(Random random) {
+        return getPokemonImage(randomMascotPokemon(random, false), false);
     }
 
     @Override
-    public BufferedImage getMascotImage() {
+    public BufferedImage getPokemonImage(Pokemon pk, boolean shiny) {
+        // like Gen 6, the icons are in national dex order before the alternate formes', and have no shiny palettes
+        if (pk.formeNumber != 0) {
+            return null;
+        }
         try {
-            GARCArchive pokespritesGARC = this.readGARC(romEntry.getFile("PokemonGraphics"), false);
-            int pkIndex = this.random.nextInt(pokespritesGARC.files.size() - 1) + 1;
-            if (romEntry.romType == Gen7Constants.Type_SM) {
-                while (pkIndex == 1109 || pkIndex == 1117) {
-                    pkIndex = this.random.nextInt(pokespritesGARC.files.size() - 1) + 1;
-                }
+            GARCArchive pokespritesGARC = getPokemonGraphics();
+            if (pk.number >= pokespritesGARC.files.size()) {
+                return null;
             }
-            byte[] iconBytes = pokespritesGARC.files.get(pkIndex).get(0);
-            BFLIM icon = new BFLIM(iconBytes);
-            return icon.getImage();
+            return SpriteCache.get(pokemonGraphicsCRC32, pk, false,
+                    () -> new BFLIM(pokespritesGARC.files.get(pk.number).get(0)).getImage());
         } catch (IOException e) {
             throw new RandomizerIOException(e);
         }
     }
 
+    private synchronized GARCArchive getPokemonGraphics() throws IOException {
+        if (pokemonGraphics == null) {
+            byte[] garcBytes = readFile(romEntry.getFile("PokemonGraphics"));
+            pokemonGraphicsCRC32 = FileFunctions.getCRC32(garcBytes);
+            pokemonGraphics = new GARCArchive(garcBytes, false);
+        }
+        return pokemonGraphics;
+    }
+
     private class ZoneData {
         public int worldIndex;
         public int areaIndex;
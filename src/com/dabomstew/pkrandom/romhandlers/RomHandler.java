@@ -33,6 +33,7 @@ import java.util.Random;
 import java.util.Set;
 
 import com.dabomstew.pkrandom.MiscTweak;
+import com.dabomstew.pkrandom.PatchFunctions;
 import com.dabomstew.pkrandom.Settings;
 import com.dabomstew.pkrandom.pokemon.*;
 
@@ -48,16 +49,34 @@ public interface RomHandler {
         public abstract boolean isLoadable(String filename);
     }
 
+    // The parts of a load, in the order they start. Handlers that don't keep their text apart skip TEXT.
+    enum LoadStage {
+        HEADER, TEXT, TABLES
+    }
+
+    interface LoadProgressListener {
+        // Called on the loading thread
+        void stageStarted(LoadStage stage);
+    }
+
     // =======================
     // Basic load/save methods
     // =======================
 
     boolean loadRom(String filename);
 
+    // Told about each stage of the next loadRom call; null for none
+    void setLoadProgressListener(LoadProgressListener listener);
+
     boolean saveRomFile(String filename, long seed);
 
     boolean saveRomDirectory(String filename);
 
+    // Whether the ROM can be saved as a patch against the loaded ROM, rather than as a full image
+    boolean canSaveRomPatch();
+
+    boolean saveRomPatch(String filename, PatchFunctions.Format format);
+
     String loadedFilename();
 
     // =============================================================
@@ -210,7 +229,8 @@ public interface RomHandler {
     // ============
 
     /**
-     * Extracts wild Pokemon encounters from the ROM.
+     * Extracts wild Pokemon encounters from the ROM. The encounters are only read from the ROM once, but
+     * every call returns a fresh copy, so changing it has no effect until it is passed to setEncounters().
      * @param useTimeOfDay Whether to use time-based encounters (including seasons). If the game does
      *                     not have time-based encounters, this parameter is ignored.
      * @return A List of EncounterSets representing every wild Pokemon encounter in the game.
@@ -218,7 +238,8 @@ public interface RomHandler {
     List<EncounterSet> getEncounters(boolean useTimeOfDay);
 
     /**
-     * Assigns the given encounters to the ROM.
+     * Assigns the given encounters to the ROM. A copy of the given List is kept, and getEncounters() returns
+     * copies of it from then on.
      * @param useTimeOfDay Whether to use time based encounters (including seasons). If the game does not
      *                     have time based encounters, this parameter is ignored.
      * @param encounters The encounters to assign to ROM. Recommended that you use a modified set of
@@ -668,7 +689,13 @@ public interface RomHandler {
 
     void randomizeIntroPokemon();
 
-    BufferedImage getMascotImage();
+    // Draws a random Pokemon for the GUI to show once a ROM is loaded. Picks with the given random source, and
+    // leaves the handler's own alone, so it can run alongside randomization without changing its results.
+    BufferedImage getMascotImage(Random random);
+
+    // Draws a Pokemon's front image, as the mascot shows it, or returns null if the game has none for it.
+    // Cached per ROM, and safe to call from several threads at once.
+    BufferedImage getPokemonImage(Pokemon pk, boolean shiny);
 
     int generationOfPokemon();
 
@@ -0,0 +1,187 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+/*----------------------------------------------------------------------------*/
+/*--  RomParseCache.java - an optional on-disk cache of offsets which a     --*/
+/*--                       rom handler found by searching the ROM.          --*/
+/*--                                                                        --*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.Version;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Stores offsets that a rom handler had to find by searching the ROM, so that loading the same ROM
+ * again can skip the search. Entries are keyed by name, and each ROM gets its own file in the cache
+ * directory, named after the handler and the ROM's CRC32.
+ * A cache file is only used if it was written by the same randomizer version for a ROM with the same
+ * CRC32; anything else is treated as a miss, and overwritten on save.
+ * The cache is disabled unless a directory has been set with setDirectory().
+ */
+public class RomParseCache {
+
+    private static final int MAGIC = 0x55505243; // "UPRC"
+    private static final int FORMAT_VERSION = 1;
+
+    private static File directory;
+
+    private final String handlerKey;
+    private final long crc32;
+    private final Map<String, Integer> offsets = new LinkedHashMap<>();
+    private boolean changed;
+
+    private RomParseCache(String handlerKey, long crc32) {
+        this.handlerKey = handlerKey;
+        this.crc32 = crc32;
+    }
+
+    /**
+     * Sets the directory to keep cache files in, creating it if needed.
+     * @param dir The cache directory, or null to disable the cache.
+     */
+    public static void setDirectory(File dir) {
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            System.err.println("Could not create parse cache directory " + dir + ", parse cache disabled");
+            dir = null;
+        }
+        directory = dir;
+    }
+
+    public static boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Loads the cached offsets for a ROM. Never fails; if the cache is disabled, missing, outdated or
+     * unreadable, an empty cache is returned instead.
+     * @param handlerKey A name for the rom handler, e.g. "gen3".
+     * @param crc32 The CRC32 of the whole ROM.
+     * @return The cache for this ROM.
+     */
+    public static RomParseCache load(String handlerKey, long crc32) {
+        RomParseCache cache = new RomParseCache(handlerKey, crc32);
+        File file = cache.getFile();
+        if (file == null || !file.isFile()) {
+            return cache;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != Version.VERSION
+                    || in.readLong() != crc32) {
+                return cache;
+            }
+            int count = in.readInt();
+            Map<String, Integer> read = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                read.put(key, in.readInt());
+            }
+            cache.offsets.putAll(read);
+        } catch (IOException e) {
+            // a broken cache file is just a miss
+        }
+        return cache;
+    }
+
+    private File getFile() {
+        if (directory == null) {
+            return null;
+        }
+        return new File(directory, String.format("%s-%08X.cache", handlerKey, crc32));
+    }
+
+    /**
+     * Gets a cached offset, or finds it and caches it if it has not been cached yet.
+     * @param key The name of the offset.
+     * @param finder Finds the offset in the ROM.
+     * @return The offset.
+     */
+    public int getOrFind(String key, IntSupplier finder) {
+        Integer offset = offsets.get(key);
+        if (offset == null) {
+            offset = finder.getAsInt();
+            offsets.put(key, offset);
+            changed = true;
+        }
+        return offset;
+    }
+
+    /**
+     * Writes any newly found offsets to the cache directory. Does nothing if the cache is disabled.
+     * Failing to write the cache is not an error, as it only affects how quickly the ROM loads next time.
+     */
+    public void save() {
+        File file = getFile();
+        if (file == null || !changed) {
+            return;
+        }
+        // a temporary file of this writer's own, so that threads and processes saving at once don't share one
+        Path temp;
+        try {
+            temp = Files.createTempFile(file.getParentFile().toPath(), file.getName() + "-", ".tmp");
+        } catch (IOException e) {
+            System.err.println("Could not write parse cache file " + file);
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(Version.VERSION);
+            out.writeLong(crc32);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Integer> entry : offsets.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write parse cache file " + file);
+            deleteQuietly(temp);
+            return;
+        }
+        // replace the old file in one go, so other processes sharing the directory never read a partial file
+        try {
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write parse cache file " + file);
+            deleteQuietly(temp);
+            return;
+        }
+        changed = false;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // a stray temporary file only takes up space
+        }
+    }
+}
@@ -40,13 +40,9 @@ public class N3DSTxtHandler {
     private static final int KEY_TEXTCLEAR = 0xBE01;
     private static final int KEY_TEXTWAIT = 0xBE02;
     private static final int KEY_TEXTNULL = 0xBDFF;
-    private static boolean remapChars = false;
-    private static boolean setEmptyText = false;
-    private static int romType;
 
+    // everything is passed in rather than kept in fields, so that several ROMs can be handled at once
     public static List<String> readTexts(byte[] ds, boolean remapChars, int romType) {
-        N3DSTxtHandler.remapChars = remapChars;
-        N3DSTxtHandler.romType = romType;
         List<String> strings = new ArrayList<>();
         int numSections, numEntries, totalLength, initialKey, sectionDataOffset, sectionLength;
 
@@ -69,13 +65,19 @@ public class N3DSTxtHandler {
             entryOffsets[i] = readLong(ds, (i * 8) + sectionDataOffset + 4) + sectionDataOffset;
             entryLengths[i] = readShort(ds, (i * 8) + sectionDataOffset + 8);
             byte[] encEntryData = Arrays.copyOfRange(ds, entryOffsets[i], entryOffsets[i] + entryLengths[i]*2);
-            strings.add(getEntryString(cryptEntryData(encEntryData,getEntryKey(i))));
+            strings.add(getEntryString(cryptEntryData(encEntryData,getEntryKey(i)),remapChars,romType));
         }
 
         return strings;
     }
 
-    public static byte[] saveEntry(byte[] originalData, List<String> values, int romType) throws IOException {
+    public static byte[] saveEntry(byte[] originalData, List<String> values, boolean remapChars, int romType)
+            throws IOException {
+        return saveEntry(originalData, values, remapChars, false, romType);
+    }
+
+    public static byte[] saveEntry(byte[] originalData, List<String> values, boolean remapChars, boolean setEmptyText,
+                                   int romType) throws IOException {
         int key = KEY_BASE;
 
         ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
@@ -87,7 +89,7 @@ public class N3DSTxtHandler {
             if (text.length() == 0 && setEmptyText) {
                 text = String.format("[~ %d]",i);
             }
-            byte[] decEntryData = getEntryData(text,romType);
+            byte[] decEntryData = getEntryData(text,remapChars,romType);
             byte[] encEntryData = cryptEntryData(decEntryData,key);
             offsetsBuf.putInt(dataOffset + dataStream.size());
             offsetsBuf.putShort((short)(encEntryData.length / 2));
@@ -133,7 +135,7 @@ public class N3DSTxtHandler {
         return fullArray;
     }
 
-    private static byte[] getEntryData(String entry, int romType) throws IOException {
+    private static byte[] getEntryData(String entry, boolean remapChars, int romType) throws IOException {
         if (entry == null) {
             return new byte[2];
         }
@@ -142,7 +144,7 @@ public class N3DSTxtHandler {
         int i = 0;
         while (i < entry.length()) {
             int val = entry.charAt(i++);
-            val = tryRemapChar(val);
+            val = tryRemapChar(val,remapChars);
 
             if (val == '[') {
                 int bracket = entry.indexOf("]",i);
@@ -191,7 +193,7 @@ public class N3DSTxtHandler {
         return key;
     }
 
-    private static String getEntryString(byte[] data) {
+    private static String getEntryString(byte[] data, boolean remapChars, int romType) {
         if (data == null) {
             return "";
         }
@@ -207,7 +209,7 @@ public class N3DSTxtHandler {
             switch (val) {
                 case KEY_VARIABLE:
                     RefInt refI = new RefInt(i);
-                    sb.append(getVariableString(data,refI));
+                    sb.append(getVariableString(data,refI,romType));
                     i = refI.val;
                     break;
                 case '\n':
@@ -220,7 +222,7 @@ public class N3DSTxtHandler {
                     sb.append("\\[");
                     break;
                 default:
-                    sb.append((char)tryUnmapChar(val));
+                    sb.append((char)tryUnmapChar(val,remapChars));
             }
         }
         return sb.toString();
@@ -315,7 +317,7 @@ public class N3DSTxtHandler {
         }
     }
 
-    private static String getVariableString(byte[] data, RefInt refI) {
+    private static String getVariableString(byte[] data, RefInt refI, int romType) {
         StringBuilder sb = new StringBuilder();
         int count = readShort(data,refI.val);
         refI.val += 2;
@@ -354,7 +356,7 @@ public class N3DSTxtHandler {
         return sb.toString();
     }
 
-    private static int tryRemapChar(int val) {
+    private static int tryRemapChar(int val, boolean remapChars) {
         if (!remapChars) {
             return val;
         }
@@ -372,7 +374,7 @@ public class N3DSTxtHandler {
         }
     }
 
-    private static int tryUnmapChar(int val) {
+    private static int tryUnmapChar(int val, boolean remapChars) {
         if (!remapChars) {
             return val;
         }